@@ -0,0 +1,39 @@
+plugins {
+    id("java")
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+group = "de.medieninformatik"
+version = "1.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+val grizzlyVersion: String by extra { "4.0.0" }
+val jerseyVersion:  String by extra { "3.1.3" }
+val h2Version: String by extra { "2.2.224" }
+
+dependencies {
+    jmh(project(mapOf("path" to ":Server")))
+    jmh(testFixtures(project(mapOf("path" to ":Server"))))
+    jmh(project(mapOf("path" to ":Common")))
+    jmh(project(mapOf("path" to ":Client")))
+    jmh("org.glassfish.jersey.core:jersey-server:${jerseyVersion}")
+    jmh("org.glassfish.jersey.inject:jersey-hk2:${jerseyVersion}")
+    jmh("org.glassfish.jersey.connectors:jersey-apache-connector:${jerseyVersion}")
+    jmh("org.glassfish.jersey.media:jersey-media-json-jackson:3.1.0")
+    jmh("org.glassfish.grizzly:grizzly-http-server:${grizzlyVersion}")
+    jmh("org.glassfish.grizzly:grizzly-websockets:${grizzlyVersion}")
+    jmh("org.glassfish.jersey.containers:jersey-container-grizzly2-http:${jerseyVersion}")
+    jmh("com.h2database:h2:${h2Version}")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc") // Allokationen pro Operation (-prof gc)
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,68 @@
+package de.medieninformatik.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse BenchmarkServer startet ServerRestEndpoints mit EmbeddedServer aus den Test-Fixtures des Servers im
+ * selben Prozess und auf einem freien Port. Als Speicher dient die Speicher-Engine MEMORY mit einem Journal in einem
+ * temporären Verzeichnis, damit die Benchmarks ohne MySQL laufen.
+ */
+final class BenchmarkServer implements AutoCloseable {
+    private static final Class<?> REPOSITORY = Fixtures.type("InMemoryRepository");
+    private static final MethodHandle NEW_REPOSITORY = Fixtures.constructor(REPOSITORY, MethodType.methodType(void.class, Path.class, long.class, long.class));
+    private static final MethodHandle ADD_DEVICE = Fixtures.method(REPOSITORY, "addDevice", MethodType.methodType(boolean.class, Fixtures.DEVICE));
+    private static final Class<?> EMBEDDED_SERVER = Fixtures.type("EmbeddedServer");
+    private static final MethodHandle NEW_EMBEDDED_SERVER = Fixtures.constructor(EMBEDDED_SERVER, MethodType.methodType(void.class,
+            Fixtures.type("DeviceRepository"), Fixtures.type("UserRepository")));
+    private static final MethodHandle GET_BASE_URI = Fixtures.method(EMBEDDED_SERVER, "getBaseURI", MethodType.methodType(URI.class));
+
+    private final Path journalDirectory;
+    private final AutoCloseable repository;
+    private final AutoCloseable server;
+    private final URI baseURI;
+
+    /**
+     * Startet Speicher-Engine und Server und legt die Testgeräte an
+     * @param devices Anzahl der Testgeräte
+     * @throws Throwable wenn Server oder Speicher-Engine nicht gestartet werden können
+     */
+    BenchmarkServer(int devices) throws Throwable {
+        journalDirectory = Files.createTempDirectory("lending-benchmark");
+        repository = (AutoCloseable) NEW_REPOSITORY.invoke(journalDirectory, 1L, 1_000_000L);
+        for (Object device : Fixtures.devices(devices)) {
+            ADD_DEVICE.invoke(repository, device);
+        }
+        server = (AutoCloseable) NEW_EMBEDDED_SERVER.invoke(repository, repository);
+        baseURI = (URI) GET_BASE_URI.invoke(server);
+    }
+
+    /**
+     * Getter der Basis-URI
+     * @return Basis-URI der REST-Endpunkte mit abschließendem Schrägstrich
+     */
+    URI baseURI() {
+        return baseURI;
+    }
+
+    /**
+     * Beendet Server und Speicher-Engine und löscht das Journal
+     * @throws Exception wenn das Journal nicht gelöscht werden kann
+     */
+    @Override
+    public void close() throws Exception {
+        server.close();
+        repository.close();
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.medieninformatik.benchmarks;
+
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.Enumeration;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse ConnectorBenchmark vergleicht die Latenz einer Anfrage des Jersey-Clients mit den beiden Connectoren
+ * des Klienten (siehe ConnectorType und RestClientFactory im Client): HTTP_URL_CONNECTION, der Standard von Jersey,
+ * und APACHE mit einem Pool offener Verbindungen. Der Client wird von der RestClientFactory des Klienten mit den
+ * Werten aus Client.properties erstellt, nur BaseURI und Connector werden ersetzt. Gemessen wird gegen einen
+ * BenchmarkServer im selben Prozess, daher fallen Unterschiede beim Verbindungsaufbau geringer aus als über ein
+ * echtes Netzwerk. Mit mehreren Threads (-t) zeigt sich, wie die Connectoren mit gleichzeitigen Anfragen umgehen;
+ * HttpURLConnection hält standardmäßig nur fünf Verbindungen je Server offen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConnectorBenchmark {
+    private static final int DEVICES = 1000;
+    private static final Class<?> FACTORY = Fixtures.type("RestClientFactory");
+    private static final MethodHandle NEW_FACTORY = Fixtures.constructor(FACTORY, MethodType.methodType(void.class, ResourceBundle.class));
+    private static final MethodHandle CREATE_CLIENT = Fixtures.method(FACTORY, "createClient", MethodType.methodType(Client.class, ExecutorService.class));
+
+    @Param({"HTTP_URL_CONNECTION", "APACHE"})
+    public String connector;
+
+    private BenchmarkServer server;
+    private ExecutorService asyncExecutor;
+    private Client client;
+    private WebTarget lending;
+
+    /**
+     * Startet den Server und erstellt den Jersey-Client mit dem gewählten Connector
+     * @throws Throwable wenn der Server nicht gestartet werden kann
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        server = new BenchmarkServer(DEVICES);
+        ResourceBundle bundle = withServer(ResourceBundle.getBundle("Client"), server.baseURI().toString(), connector);
+        asyncExecutor = Executors.newSingleThreadExecutor(); // Wird nur von asynchronen Anfragen verwendet
+        client = (Client) CREATE_CLIENT.invoke(NEW_FACTORY.invoke(bundle), asyncExecutor);
+        client.register(JacksonFeature.class); // Im jmh-Jar überschreiben sich die META-INF/services-Dateien, Jackson wird daher nicht automatisch gefunden
+        lending = client.target(server.baseURI()).path("lending");
+    }
+
+    /**
+     * Schließt den Client mit seinen Verbindungen und beendet den Server
+     * @throws Exception wenn das Journal nicht gelöscht werden kann
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        client.close();
+        asyncExecutor.shutdown();
+        server.close();
+    }
+
+    /**
+     * Ersetzt in den Verbindungsparametern BaseURI und Connector, alle übrigen Werte bleiben erhalten
+     * @param bundle Verbindungsparameter aus Client.properties
+     * @param baseURI Basis-URI des BenchmarkServers
+     * @param connector Name des Connectors
+     * @return Die geänderten Verbindungsparameter
+     */
+    private static ResourceBundle withServer(ResourceBundle bundle, String baseURI, String connector) {
+        return new ResourceBundle() {
+            @Override
+            protected Object handleGetObject(String key) {
+                return switch (key) {
+                    case "BaseURI" -> baseURI;
+                    case "Connector" -> connector;
+                    default -> bundle.getObject(key);
+                };
+            }
+
+            @Override
+            public Enumeration<String> getKeys() {
+                return bundle.getKeys();
+            }
+        };
+    }
+
+    /**
+     * Suche nach der ID, eine kleine Antwort, bei der der Verbindungsaufwand überwiegt
+     * @return Antwort des Servers
+     */
+    @Benchmark
+    public byte[] searchById() {
+        return lending.path(DEVICES / 2 + "/ID").request(MediaType.APPLICATION_JSON).get(byte[].class);
+    }
+
+    /**
+     * Erste Seite der nicht ausgeliehenen Geräte
+     * @return Antwort des Servers
+     */
+    @Benchmark
+    public byte[] getAllDevicesPage() {
+        return lending.path("getAllDevices").queryParam("limit", 50).request(MediaType.APPLICATION_JSON).get(byte[].class);
+    }
+
+    /**
+     * Ausleihen und Zurückgeben eines Gerätes, Anfragen mit Inhalt
+     * @return Statuscode der Rückgabe
+     */
+    @Benchmark
+    public int borrowAndReturn() {
+        put("\"BORROW\"");
+        return put("\"RETURN\"");
+    }
+
+    /**
+     * Schickt eine PUT-Anfrage an das erste Gerät und liest die Antwort vollständig, damit die Verbindung
+     * wiederverwendet werden kann
+     * @param json Inhalt der Anfrage
+     * @return Statuscode der Antwort
+     */
+    private int put(String json) {
+        try (Response response = lending.path("benchmark/1").request(MediaType.APPLICATION_JSON).put(Entity.json(json))) {
+            response.readEntity(byte[].class);
+            return response.getStatus();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package de.medieninformatik.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceFormattingBenchmark misst Device.toString, das der Client für jede Zeile der ListView aufruft,
+ * und das darin dreimal verwendete Device.replaceChar, jeweils für Attribute mit und ohne Umlaute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeviceFormattingBenchmark {
+    private static final MethodHandle REPLACE_CHAR = Fixtures.method(Fixtures.DEVICE, "replaceChar", MethodType.methodType(String.class, String.class));
+
+    @Param({"ascii", "umlaut"})
+    String text; //Attribute ohne oder mit Umlauten
+
+    private Object device;
+    private String brand;
+
+    /**
+     * Erzeugt das Gerät mit den gewählten Attributen
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        device = text.equals("umlaut")
+                ? Fixtures.device("Kärcher", "Dübelsortiment Größe 6", "Hochdruckreiniger für Äußeres", 2021, 42, null, null)
+                : Fixtures.device("Bosch", "UniversalImpact 18V", "Bohrmaschine", 2021, 42, null, null);
+        brand = text.equals("umlaut") ? "Kärcher Übergröße" : "Bosch Professional";
+    }
+
+    /**
+     * Textdarstellung eines Gerätes
+     * @return Die Textdarstellung
+     */
+    @Benchmark
+    public String toStringDevice() {
+        return device.toString();
+    }
+
+    /**
+     * Ersetzen der Umlaute in einem einzelnen Attribut
+     * @return Der String mit ersetzten Umlauten
+     * @throws Throwable wenn der Aufruf fehlschlägt
+     */
+    @Benchmark
+    public String replaceChar() throws Throwable {
+        return (String) REPLACE_CHAR.invoke(device, brand);
+    }
+}
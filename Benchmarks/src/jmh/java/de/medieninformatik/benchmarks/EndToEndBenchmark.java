@@ -0,0 +1,127 @@
+package de.medieninformatik.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse EndToEndBenchmark misst Anfragen an ServerRestEndpoints über HTTP gegen einen Grizzly-Server
+ * im selben Prozess. Als Speicher dient die Speicher-Engine MEMORY mit einem Journal in einem temporären
+ * Verzeichnis, damit der Benchmark ohne MySQL läuft. Gemessen werden damit Grizzly, Jersey, Jackson und die
+ * Endpunkte selbst; die Datenbankanbindung wird getrennt im ResultSetMappingBenchmark gemessen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EndToEndBenchmark {
+    private static final int DEVICES = 1000;
+
+    private BenchmarkServer server;
+    private HttpClient client;
+    private URI baseURI;
+
+    /**
+     * Startet Speicher-Engine und Server und legt die Testgeräte an
+     * @throws Throwable wenn Server oder Speicher-Engine nicht gestartet werden können
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        server = new BenchmarkServer(DEVICES);
+        baseURI = server.baseURI();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(); // Ohne Upgrade auf h2c, das Grizzly nicht unterstützt und mit einem Verbindungsabbruch beantwortet
+    }
+
+    /**
+     * Beendet Server und Speicher-Engine und löscht das Journal
+     * @throws Exception wenn das Journal nicht gelöscht werden kann
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    /**
+     * Erste Seite der nicht ausgeliehenen Geräte
+     * @return Antwort des Servers
+     * @throws Exception wenn die Anfrage fehlschlägt
+     */
+    @Benchmark
+    public byte[] getAllDevicesPage() throws Exception {
+        return get("lending/getAllDevices?limit=50");
+    }
+
+    /**
+     * Alle nicht ausgeliehenen Geräte ohne Seitenbegrenzung
+     * @return Antwort des Servers
+     * @throws Exception wenn die Anfrage fehlschlägt
+     */
+    @Benchmark
+    public byte[] getAllDevices() throws Exception {
+        return get("lending/getAllDevices");
+    }
+
+    /**
+     * Teilstring-Suche über den Suchindex
+     * @return Antwort des Servers
+     * @throws Exception wenn die Anfrage fehlschlägt
+     */
+    @Benchmark
+    public byte[] searchByBrand() throws Exception {
+        return get("lending/kita/Marke?limit=50");
+    }
+
+    /**
+     * Suche nach der ID
+     * @return Antwort des Servers
+     * @throws Exception wenn die Anfrage fehlschlägt
+     */
+    @Benchmark
+    public byte[] searchById() throws Exception {
+        return get("lending/" + DEVICES / 2 + "/ID");
+    }
+
+    /**
+     * Ausleihen und Zurückgeben eines Gerätes, jeweils bis der Journaleintrag gesichert ist
+     * @return Statuscode der Rückgabe
+     * @throws Exception wenn eine Anfrage fehlschlägt
+     */
+    @Benchmark
+    public int borrowAndReturn() throws Exception {
+        put("lending/benchmark/1", "\"BORROW\"");
+        return put("lending/benchmark/1", "\"RETURN\"");
+    }
+
+    /**
+     * Schickt eine GET-Anfrage
+     * @param path Pfad relativ zur Basis-URI
+     * @return Inhalt der Antwort
+     * @throws IOException wenn die Anfrage fehlschlägt
+     * @throws InterruptedException wenn der Thread unterbrochen wird
+     */
+    private byte[] get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseURI.resolve(path)).header("Accept", "application/json").GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    /**
+     * Schickt eine PUT-Anfrage mit JSON-Inhalt
+     * @param path Pfad relativ zur Basis-URI
+     * @param json Inhalt der Anfrage
+     * @return Statuscode der Antwort
+     * @throws IOException wenn die Anfrage fehlschlägt
+     * @throws InterruptedException wenn der Thread unterbrochen wird
+     */
+    private int put(String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseURI.resolve(path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,129 @@
+package de.medieninformatik.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse Fixtures stellt den Benchmarks Zugriff auf die Klassen von Server, Client und Common und Testdaten bereit.
+ * JMH erzeugt seinen Code im Paket der Benchmark-Klasse und lehnt das Standardpaket ab, aus einem benannten
+ * Paket lassen sich die Klassen im Standardpaket aber nicht importieren. Sie werden deshalb über Method Handles
+ * angesprochen. Da alle Klassen im selben unbenannten Modul liegen, sind so auch private Methoden erreichbar,
+ * ohne ihre Sichtbarkeit zu ändern. Ein Aufruf über ein static final Method Handle wird vom JIT wie ein
+ * direkter Aufruf behandelt.
+ */
+final class Fixtures {
+    static final Class<?> DEVICE = type("Device");
+    private static final MethodHandle NEW_DEVICE = constructor(DEVICE, MethodType.methodType(void.class,
+            String.class, String.class, String.class, int.class, int.class, String.class, Date.class));
+
+    private static final String[][] MODELS = {
+            {"Bosch", "UniversalImpact 18V", "Bohrmaschine"},
+            {"Makita", "HR2470", "Bohrhammer"},
+            {"DeWalt", "DCD771C2", "Akku-Schrauber"},
+            {"Kärcher", "K 4 Power Control", "Hochdruckreiniger"},
+            {"Stihl", "MS 170", "Kettensäge"},
+            {"Fischer", "Dübelsortiment Größe 6", "Zubehör"}
+    };
+
+    /**
+     * Privater Konstruktor, da die Klasse nur statische Methoden enthält
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Lädt eine Klasse aus dem Standardpaket
+     * @param name Name der Klasse
+     * @return Die Klasse
+     */
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Klasse " + name + " nicht im Klassenpfad", e);
+        }
+    }
+
+    /**
+     * Gibt ein Lookup mit Zugriff auf alle Member der Klasse zurück
+     * @param type Die Klasse
+     * @return Das Lookup
+     */
+    static MethodHandles.Lookup lookup(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sucht eine (auch private) Instanzmethode
+     * @param type Die Klasse
+     * @param name Name der Methode
+     * @param methodType Rückgabe- und Parametertypen
+     * @return Method Handle, das die Instanz als ersten Parameter erwartet
+     */
+    static MethodHandle method(Class<?> type, String name, MethodType methodType) {
+        try {
+            return lookup(type).findVirtual(type, name, methodType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sucht einen (auch privaten) Konstruktor
+     * @param type Die Klasse
+     * @param methodType Parametertypen mit Rückgabetyp void
+     * @return Method Handle, das eine neue Instanz zurückgibt
+     */
+    static MethodHandle constructor(Class<?> type, MethodType methodType) {
+        try {
+            return lookup(type).findConstructor(type, methodType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Legt ein Gerät an
+     * @param brand Marke
+     * @param model Modell
+     * @param category Kategorie
+     * @param purchaseyear Kaufjahr
+     * @param id ID
+     * @param borrower Ausleiher oder null
+     * @param returnDate Rückgabedatum oder null
+     * @return Das Gerät
+     */
+    static Object device(String brand, String model, String category, int purchaseyear, int id, String borrower, Date returnDate) {
+        try {
+            return NEW_DEVICE.invoke(brand, model, category, purchaseyear, id, borrower, returnDate);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Erzeugt Geräte mit den IDs 1 bis count. Jedes vierte Gerät ist ausgeliehen.
+     * @param count Anzahl der Geräte
+     * @return List mit den Geräten
+     */
+    static List<Object> devices(int count) {
+        List<Object> devices = new ArrayList<>(count);
+        Date returnDate = new Date(1_700_000_000_000L);
+        for (int id = 1; id <= count; id++) {
+            String[] model = MODELS[id % MODELS.length];
+            boolean borrowed = id % 4 == 0;
+            devices.add(device(model[0], model[1], model[2], 2015 + id % 9, id,
+                    borrowed ? "benutzer" + id % 50 : null, borrowed ? returnDate : null));
+        }
+        return devices;
+    }
+}
@@ -0,0 +1,59 @@
+package de.medieninformatik.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse JsonBenchmark misst die Serialisierung und Deserialisierung von List&lt;Device&gt; mit Jackson,
+ * wie sie der JSON-Provider von Jersey auf Server und Client ausführt. Jedes vierte Gerät ist ausgeliehen
+ * und enthält ein java.util.Date, das Jackson als Zeitstempel schreibt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+    @Param({"20", "1000"})
+    int size; //Anzahl der Geräte in der Liste
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private JavaType listType;
+    private List<Object> devices;
+    private byte[] json;
+
+    /**
+     * Erzeugt die Geräte und ihre JSON-Darstellung
+     * @throws IOException wenn die Geräte nicht serialisiert werden können
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        listType = mapper.getTypeFactory().constructCollectionType(List.class, Fixtures.DEVICE);
+        devices = Fixtures.devices(size);
+        json = mapper.writeValueAsBytes(devices);
+    }
+
+    /**
+     * Serialisierung der Geräte nach JSON
+     * @return JSON als Bytes
+     * @throws IOException wenn die Serialisierung fehlschlägt
+     */
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writerFor(listType).writeValueAsBytes(devices);
+    }
+
+    /**
+     * Deserialisierung der Geräte aus JSON
+     * @return List mit den Geräten
+     * @throws IOException wenn die Deserialisierung fehlschlägt
+     */
+    @Benchmark
+    public List<?> deserialize() throws IOException {
+        return mapper.readValue(json, listType);
+    }
+}
@@ -0,0 +1,100 @@
+package de.medieninformatik.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse ResultSetMappingBenchmark misst DatabaseUtil.resultSetToList, also das Umwandeln eines ResultSets
+ * in Gerät-Objekte. Anstelle von MySQL dient eine H2-Datenbank im Hauptspeicher mit dem Schema aus
+ * V1__create_tables.sql, damit der Benchmark ohne Netzwerk und Datenbankserver läuft. Gemessen wird
+ * Abfrage plus Umwandlung; executeQuery dient als Vergleichswert ohne Umwandlung.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultSetMappingBenchmark {
+    private static final Class<?> DATABASE_UTIL = Fixtures.type("DatabaseUtil");
+    private static final Class<?> CONNECTION_POOL = Fixtures.type("ConnectionPool");
+    private static final Class<?> METRICS = Fixtures.type("Metrics");
+    private static final MethodHandle NEW_DATABASE_UTIL = Fixtures.constructor(DATABASE_UTIL, MethodType.methodType(void.class, CONNECTION_POOL, METRICS));
+    private static final MethodHandle RESULT_SET_TO_LIST = Fixtures.method(DATABASE_UTIL, "resultSetToList", MethodType.methodType(List.class, ResultSet.class));
+
+    @Param({"20", "1000"})
+    int rows; //Anzahl der Zeilen im ResultSet
+
+    private Connection connection;
+    private PreparedStatement select;
+    private Object database;
+
+    /**
+     * Legt die Tabelle in H2 an und befüllt sie mit den Testgeräten
+     * @throws Throwable wenn H2 oder DatabaseUtil nicht initialisiert werden können
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        org.h2.Driver.load(); // Das JMH-Jar enthält META-INF/services nicht, der Treiber wird daher explizit registriert
+        connection = DriverManager.getConnection("jdbc:h2:mem:resultset;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS devices");
+            statement.execute("CREATE TABLE devices (brand VARCHAR(50), model VARCHAR(50), category VARCHAR(50), purchaseyear INT, id INT, borrower VARCHAR(30), returndate DATE)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO devices (brand, model, category, purchaseyear, id, borrower, returndate) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= rows; id++) {
+                insert.setString(1, "Bosch");
+                insert.setString(2, "UniversalImpact 18V");
+                insert.setString(3, "Bohrmaschine");
+                insert.setInt(4, 2015 + id % 9);
+                insert.setInt(5, id);
+                insert.setString(6, id % 4 == 0 ? "benutzer" + id % 50 : null);
+                insert.setDate(7, id % 4 == 0 ? Date.valueOf("2024-01-15") : null);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        select = connection.prepareStatement("SELECT * FROM devices ORDER BY id");
+        database = NEW_DATABASE_UTIL.invoke((Object) null, (Object) null); // resultSetToList benötigt weder Pool noch Metrics
+    }
+
+    /**
+     * Schließt die Verbindung zu H2
+     * @throws SQLException wenn die Verbindung nicht geschlossen werden kann
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Abfrage und Umwandlung aller Zeilen in Gerät-Objekte
+     * @return List mit den Geräten
+     * @throws Throwable wenn die Abfrage fehlschlägt
+     */
+    @Benchmark
+    public List<?> resultSetToList() throws Throwable {
+        try (ResultSet resultSet = select.executeQuery()) {
+            return (List<?>) RESULT_SET_TO_LIST.invoke(database, resultSet);
+        }
+    }
+
+    /**
+     * Vergleichswert: Abfrage und Durchlaufen aller Zeilen ohne Umwandlung
+     * @return Anzahl der Zeilen
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     */
+    @Benchmark
+    public int executeQueryOnly() throws SQLException {
+        int count = 0;
+        try (ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
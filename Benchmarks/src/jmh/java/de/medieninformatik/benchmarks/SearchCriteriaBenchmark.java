@@ -0,0 +1,46 @@
+package de.medieninformatik.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse SearchCriteriaBenchmark misst ServerRestEndpoints.convertBackToSearchCriteria, das bei jeder Suche
+ * den Anzeigetext des Suchkriteriums zurück in das enum SearchCriteria umwandelt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchCriteriaBenchmark {
+    private static final Class<?> ENDPOINTS = Fixtures.type("ServerRestEndpoints");
+    private static final Class<?> SEARCH_CRITERIA = Fixtures.type("SearchCriteria");
+    private static final MethodHandle NEW_ENDPOINTS = Fixtures.constructor(ENDPOINTS, MethodType.methodType(void.class));
+    private static final MethodHandle CONVERT = Fixtures.method(ENDPOINTS, "convertBackToSearchCriteria", MethodType.methodType(SEARCH_CRITERIA, String.class));
+
+    @Param({"Marke", "Kategorie", "ID", "Unbekannt"})
+    String criteria; //Anzeigetext, wie ihn der Client schickt
+
+    private Object endpoints;
+
+    /**
+     * Erzeugt die Endpunkt-Instanz ohne injizierte Abhängigkeiten
+     * @throws Throwable wenn die Instanz nicht erzeugt werden kann
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        endpoints = NEW_ENDPOINTS.invoke();
+    }
+
+    /**
+     * Umwandlung des Anzeigetextes in das Suchkriterium
+     * @return Das Suchkriterium oder null
+     * @throws Throwable wenn der Aufruf fehlschlägt
+     */
+    @Benchmark
+    public Object convertBackToSearchCriteria() throws Throwable {
+        return CONVERT.invoke(endpoints, criteria);
+    }
+}
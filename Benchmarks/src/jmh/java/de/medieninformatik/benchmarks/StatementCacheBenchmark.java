@@ -0,0 +1,125 @@
+package de.medieninformatik.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse StatementCacheBenchmark misst, was das Zwischenspeichern vorbereiteter Statements beim Öffnen eines
+ * PreparedStatements spart. DatabaseUtil öffnet pro Aufruf ein neues Statement und schließt es wieder, ohne Cache
+ * wird die SQL-Anweisung also bei jedem Aufruf neu geparst. Anstelle von MySQL dient wie in
+ * ResultSetMappingBenchmark eine H2-Datenbank im Hauptspeicher. Deren Cache geparster Anweisungen pro Verbindung
+ * (QUERY_CACHE_SIZE) entspricht cachePrepStmts von Connector/J und wird für den Vergleich auf 0 gesetzt.
+ * Gemessen werden die Anweisungen von DatabaseUtil, abwechselnd wie bei gemischten Anfragen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatementCacheBenchmark {
+    private static final Class<?> DATABASE_UTIL = Fixtures.type("DatabaseUtil");
+    private static final String[] STATEMENTS = {
+            constant("SELECT_DEVICE_BY_ID"),
+            constant("SELECT_AVAILABLE_DEVICES"),
+            constant("SELECT_CATALOG"),
+            constant("SELECT_DEVICES_BY_BORROWER"),
+            constant("UPDATE_SET_BORROWER"),
+            constant("UPDATE_DELETE_BORROWER")
+    };
+    private static final int DEVICES = 1000;
+
+    @Param({"true", "false"})
+    boolean cache; //Zwischenspeichern der geparsten Anweisungen
+
+    private Connection connection;
+    private int next;
+
+    /**
+     * Liest eine SQL-Anweisung von DatabaseUtil, damit genau die Anweisungen des Servers gemessen werden
+     * @param name Name der Konstante
+     * @return Die SQL-Anweisung
+     */
+    private static String constant(String name) {
+        try {
+            MethodHandle getter = Fixtures.lookup(DATABASE_UTIL).findStaticGetter(DATABASE_UTIL, name, String.class);
+            return (String) getter.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Konstante " + name + " nicht in DatabaseUtil", e);
+        }
+    }
+
+    /**
+     * Legt die Tabelle in H2 an und befüllt sie mit den Testgeräten
+     * @throws SQLException wenn H2 nicht initialisiert werden kann
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        org.h2.Driver.load(); // Das JMH-Jar enthält META-INF/services nicht, der Treiber wird daher explizit registriert
+        connection = DriverManager.getConnection("jdbc:h2:mem:statementcache;MODE=MySQL;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=" + (cache ? 64 : 0));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS devices");
+            statement.execute("CREATE TABLE devices (brand VARCHAR(50), model VARCHAR(50), category VARCHAR(50), purchaseyear INT, id INT PRIMARY KEY, borrower VARCHAR(30), returndate DATE)");
+            statement.execute("CREATE INDEX devices_borrower ON devices (borrower)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO devices (brand, model, category, purchaseyear, id, borrower, returndate) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= DEVICES; id++) {
+                insert.setString(1, "Bosch");
+                insert.setString(2, "UniversalImpact 18V");
+                insert.setString(3, "Bohrmaschine");
+                insert.setInt(4, 2015 + id % 9);
+                insert.setInt(5, id);
+                insert.setString(6, id % 4 == 0 ? "benutzer" + id % 50 : null);
+                insert.setDate(7, id % 4 == 0 ? Date.valueOf("2024-01-15") : null);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Schließt die Verbindung zu H2
+     * @throws SQLException wenn die Verbindung nicht geschlossen werden kann
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Öffnen und Schließen eines PreparedStatements ohne Ausführung, also die reine Vorbereitungszeit
+     * @return Anzahl der Parameter, damit das Statement nicht wegoptimiert wird
+     * @throws SQLException wenn die Anweisung nicht vorbereitet werden kann
+     */
+    @Benchmark
+    public int prepare() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(nextStatement())) {
+            return statement.getParameterMetaData().getParameterCount();
+        }
+    }
+
+    /**
+     * Vergleichswert: Abfrage eines Gerätes über seine ID wie in DatabaseUtil.getDeviceById, also Vorbereiten,
+     * Ausführen und Schließen
+     * @return true, wenn das Gerät gefunden wurde
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     */
+    @Benchmark
+    public boolean prepareAndExecute() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(STATEMENTS[0])) {
+            statement.setInt(1, 1 + next++ % DEVICES);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * Gibt die nächste Anweisung der Reihe zurück
+     * @return Die SQL-Anweisung
+     */
+    private String nextStatement() {
+        return STATEMENTS[next++ % STATEMENTS.length];
+    }
+}
@@ -0,0 +1,80 @@
+package de.medieninformatik.benchmarks;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse WireFormatBenchmark vergleicht die Übertragungsformate JSON und CBOR jeweils mit und ohne gzip.
+ * Gemessen werden Kodieren und Dekodieren von List&lt;Device&gt; mit denselben ObjectMappern wie in Server und
+ * Client. Die Größe der Nutzdaten in Bytes wird beim Setup jeder Kombination ausgegeben.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WireFormatBenchmark {
+    @Param({"20", "1000"})
+    int size; //Anzahl der Geräte in der Liste
+    @Param({"JSON", "CBOR"})
+    String format; //Übertragungsformat
+    @Param({"false", "true"})
+    boolean gzip; //Komprimierung mit gzip
+
+    private ObjectMapper mapper;
+    private JavaType listType;
+    private List<Object> devices;
+    private byte[] payload;
+
+    /**
+     * Erzeugt die Geräte und ihre kodierte Darstellung und gibt deren Größe aus
+     * @throws Exception wenn der CBOR-Mapper nicht gefunden oder die Geräte nicht kodiert werden können
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mapper = format.equals("CBOR")
+                ? (ObjectMapper) Fixtures.type("WireFormat").getMethod("cborMapper").invoke(null)
+                : new ObjectMapper();
+        listType = mapper.getTypeFactory().constructCollectionType(List.class, Fixtures.DEVICE);
+        devices = Fixtures.devices(size);
+        payload = encode();
+        System.out.println(">>> " + format + (gzip ? "+gzip" : "") + ", " + size + " Geräte: " + payload.length + " Bytes <<<");
+    }
+
+    /**
+     * Kodieren der Geräte
+     * @return Kodierte Geräte
+     * @throws IOException wenn die Kodierung fehlschlägt
+     */
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            mapper.writerFor(listType).writeValue(out, devices);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Dekodieren der Geräte
+     * @return List mit den Geräten
+     * @throws IOException wenn die Dekodierung fehlschlägt
+     */
+    @Benchmark
+    public List<?> decode() throws IOException {
+        InputStream bytes = new ByteArrayInputStream(payload);
+        try (InputStream in = gzip ? new GZIPInputStream(bytes) : bytes) {
+            return mapper.readValue(in, listType);
+        }
+    }
+}
@@ -27,6 +27,7 @@ dependencies {
     implementation(project(mapOf("path" to ":Common")))
     implementation("org.glassfish.jersey.core:jersey-client:${jerseyVersion}")
     implementation("org.glassfish.jersey.inject:jersey-hk2:${jerseyVersion}")
+    implementation("org.glassfish.jersey.connectors:jersey-apache-connector:${jerseyVersion}")
     implementation("org.glassfish.jersey.media:jersey-media-json-jackson:3.1.0")
     implementation("jakarta.activation:jakarta.activation-api:1.2.1")
     implementation("org.glassfish.jaxb:jaxb-runtime:4.0.0")
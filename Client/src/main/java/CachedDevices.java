@@ -0,0 +1,11 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record CachedDevices enthält die zuletzt vom Server geladene Liste von Geräten zu einer URI
+ * @param etag ETag der Antwort, mit dem die Liste per If-None-Match erneut bestätigt werden kann
+ * @param devices Die Geräte
+ * @param nextCursor Cursor der nächsten Seite oder null
+ */
+public record CachedDevices(String etag, List<Device> devices, String nextCursor) {
+}
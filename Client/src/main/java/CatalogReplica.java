@@ -0,0 +1,203 @@
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse CatalogReplica hält eine Kopie des Gerätekatalogs im Speicher des Clients.
+ * Beim Anmelden wird der ganze Katalog einmal geladen, danach werden nur die Änderungen seit der zuletzt
+ * bekannten Version mit getChanges abgefragt, alle SYNC_INTERVAL Sekunden oder nach eigenen Änderungen.
+ * Die Events des DeviceEventClient werden zusätzlich sofort übernommen. Suche, Filterung nach verfügbaren
+ * Geräten und die Prüfung einer ID laufen dadurch lokal ohne Anfrage an den Server.
+ * Wie auf dem Server unterscheidet die Suche nicht zwischen Groß- und Kleinschreibung.
+ */
+public class CatalogReplica implements AutoCloseable {
+    private static final long SYNC_INTERVAL = 30; //Abstand der Abfragen nach Änderungen in Sekunden
+
+    private final ClientRestEndpoints rest; //Rest Endpunkt des Klienten
+    private final NavigableMap<Integer, Device> devices = new TreeMap<>(); //Alle Geräte nach ID, geschützt durch this
+    private final Object syncLock = new Object(); //Höchstens eine Abfrage nach Änderungen gleichzeitig
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "catalog-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long version = -1; //Bekannte Version des Katalogs, -1 solange er nicht geladen ist
+    private volatile Runnable onChange = () -> { }; //Wird nach einer Änderung auf dem JavaFX-Thread aufgerufen
+
+    /**
+     * Konstruktor der Klasse CatalogReplica
+     * @param rest Rest Endpunkt des Klienten
+     */
+    public CatalogReplica(ClientRestEndpoints rest) {
+        this.rest = rest;
+    }
+
+    /**
+     * Fragt die Änderungen seit der bekannten Version ab und übernimmt sie. Beim ersten Aufruf oder wenn der
+     * Server die Änderungen nicht mehr kennt, wird der ganze Katalog geladen.
+     * @return true, wenn sich der Katalog geändert hat, sonst false.
+     */
+    public boolean synchronize() {
+        synchronized (syncLock) {
+            ChangeSet changes = rest.getChanges(currentVersion());
+            return changes != null && apply(changes);
+        }
+    }
+
+    /**
+     * Asynchrone Variante von synchronize(), z.B. für das erste Laden beim Anmelden ohne den JavaFX-Thread
+     * zu blockieren
+     * @return CompletableFuture mit true, wenn sich der Katalog geändert hat, sonst false
+     */
+    public CompletableFuture<Boolean> synchronizeAsync() {
+        return rest.getChangesAsync(currentVersion()).thenApply(changes -> changes != null && apply(changes));
+    }
+
+    /**
+     * Startet die regelmäßige Abfrage nach Änderungen
+     * @param onChange Wird auf dem JavaFX-Thread aufgerufen, wenn sich der Katalog geändert hat
+     */
+    public void start(Runnable onChange) {
+        this.onChange = onChange;
+        scheduler.scheduleWithFixedDelay(this::synchronizeAndNotify, SYNC_INTERVAL, SYNC_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Fragt die Änderungen sofort im Hintergrund ab, z.B. nach einer eigenen Änderung oder einem RESYNC
+     */
+    public void requestSynchronize() {
+        if (!scheduler.isShutdown()) {
+            scheduler.execute(this::synchronizeAndNotify);
+        }
+    }
+
+    /**
+     * Fragt die Änderungen ab und ruft onChange auf, wenn sich der Katalog geändert hat
+     */
+    private void synchronizeAndNotify() {
+        if (synchronize()) {
+            Platform.runLater(onChange);
+        }
+    }
+
+    /**
+     * Getter der bekannten Version
+     * @return Version oder -1, solange der Katalog nicht geladen ist
+     */
+    private synchronized long currentVersion() {
+        return version;
+    }
+
+    /**
+     * Übernimmt ein ChangeSet. Ein ChangeSet mit einer älteren Version als der bekannten wird ignoriert.
+     * @param changes Die Änderungen
+     * @return true, wenn sich der Katalog geändert hat, sonst false.
+     */
+    private synchronized boolean apply(ChangeSet changes) {
+        if (!changes.reset() && changes.version() < version) {
+            return false;
+        }
+        if (changes.reset()) {
+            devices.clear();
+        }
+        for (Integer id : changes.removed()) {
+            devices.remove(id);
+        }
+        for (Device device : changes.devices()) {
+            devices.put(device.id(), device);
+        }
+        version = changes.version();
+        return changes.reset() || !changes.devices().isEmpty() || !changes.removed().isEmpty();
+    }
+
+    /**
+     * Übernimmt ein Event des DeviceEventClient. RESYNC wird ignoriert, dafür ist synchronize aufzurufen.
+     * @param event Die Änderung
+     */
+    public synchronized void apply(DeviceEvent event) {
+        if (version < 0 || event.type() == DeviceEvent.Type.RESYNC) {
+            return;
+        }
+        devices.remove(event.previousId());
+        if (event.device() != null) {
+            devices.put(event.device().id(), event.device());
+        } else {
+            devices.remove(event.id());
+        }
+    }
+
+    /**
+     * Prüft, ob der Katalog geladen ist
+     * @return true, wenn der Katalog geladen ist, sonst false.
+     */
+    public synchronized boolean isLoaded() {
+        return version >= 0;
+    }
+
+    /**
+     * Sucht die nicht ausgeliehenen Geräte, die mit Suchbegriff und Kriterium übereinstimmen
+     * @param search Der Suchbegriff, leer für alle nicht ausgeliehenen Geräte
+     * @param criteria Das Suchkriterium
+     * @return List mit den passenden Geräten aufsteigend nach ID
+     */
+    public synchronized List<Device> search(String search, SearchCriteria criteria) {
+        List<Device> result = new ArrayList<>();
+        for (Device device : devices.values()) {
+            if (device.borrower() == null && matches(device, search, criteria)) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gibt das Gerät mit der ID zurück
+     * @param id ID des Gerätes
+     * @return Das Gerät oder null, wenn es nicht existiert oder die ID keine Zahl ist
+     */
+    public synchronized Device getDevice(String id) {
+        try {
+            return devices.get(Integer.parseInt(id.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Prüft, ob ein Gerät zum Suchbegriff und Kriterium passt, wie die Suche auf dem Server
+     * @param device Das Gerät
+     * @param search Der Suchbegriff
+     * @param criteria Das Suchkriterium
+     * @return true, wenn das Gerät passt, sonst false.
+     */
+    static boolean matches(Device device, String search, SearchCriteria criteria) {
+        if (search == null || search.isEmpty()) {
+            return true;
+        }
+        String term = search.toLowerCase(Locale.ROOT);
+        return switch (criteria) {
+            case BRAND -> device.brand().toLowerCase(Locale.ROOT).contains(term);
+            case MODEL -> device.model().toLowerCase(Locale.ROOT).contains(term);
+            case CATEGORY -> device.category().toLowerCase(Locale.ROOT).contains(term);
+            case PURCHASEYEAR -> String.valueOf(device.purchaseyear()).contains(search);
+            case ID -> String.valueOf(device.id()).equals(search.trim());
+        };
+    }
+
+    /**
+     * Beendet die regelmäßige Abfrage nach Änderungen
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,12 +1,27 @@
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.client.Client;
-import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.InvocationCallback;
 import jakarta.ws.rs.client.WebTarget;
 import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.message.GZipEncoder;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 /**
  * @author Georg Kunze, m28909, u36363
@@ -15,9 +30,61 @@ import java.util.List;
  * Die Klasse unterstützt verschiedene Anfragen wie das Hinzufügen eines Benutzernamens, die Suche nach
  * Geräten, das Abrufen aller Geräte, die Bearbeitung des Ausleihstatus eines Gerätes, das Abrufen der
  * vom Benutzer ausgeliehenen Geräte, das Bearbeiten eines Gerätes und das Hinzufügen eines neuen Gerätes.
+ * Geladene Gerätelisten werden mit ihrem ETag gespeichert und bei der nächsten Anfrage derselben URI per
+ * If-None-Match erneut bestätigt. Antwortet der Server mit 304, wird die gespeicherte Liste verwendet.
+ * Anfragen und Antworten werden bevorzugt im kompakten Format CBOR übertragen, JSON wird weiterhin akzeptiert.
+ * Große Listen darf der Server mit gzip komprimieren.
+ * Zu jeder Anfrage gibt es eine Variante mit der Endung Async, die sofort ein CompletableFuture zurückgibt.
+ * Sie verwendet den asynchronen Invoker von Jersey, der auf einem eigenen Pool von ASYNC_THREADS Threads läuft,
+ * sodass der JavaFX-Thread nie auf den Server wartet. Das Ergebnis wird auf einem Thread dieses Pools
+ * gelesen. Wird das CompletableFuture abgebrochen, wird auch die Anfrage abgebrochen. Ohne Verbindung zum
+ * Server wird es mit der Ausnahme abgeschlossen.
+ * Basis-URI, HTTP-Connector, Verbindungspool und Timeouts kommen aus der RestClientFactory.
  */
 public class ClientRestEndpoints {
-    private final Client client = ClientBuilder.newClient();
+    private static final int CACHE_SIZE = 64; //Maximale Anzahl gespeicherter Gerätelisten
+    private static final int ASYNC_THREADS = 4; //Threads für asynchrone Anfragen
+
+    private static final String ACCEPT = WireFormat.APPLICATION_CBOR + ", " + MediaType.APPLICATION_JSON + ";q=0.5"; //CBOR bevorzugt, JSON als Ausweichformat
+
+    private final ExecutorService asyncExecutor = Executors.newFixedThreadPool(ASYNC_THREADS,
+            Thread.ofPlatform().name("rest-async-", 1).daemon().factory()); // Daemon-Threads blockieren das Beenden nicht
+    private final RestClientFactory factory; //Verbindungsparameter
+    private final Client client;
+    // Zuletzt geladene Gerätelisten je URI, die am längsten nicht verwendete wird zuerst verdrängt
+    private final Map<URI, CachedDevices> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<URI, CachedDevices> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    /**
+     * Konstruktor der Klasse ClientRestEndpoints mit den Verbindungsparametern aus Client.properties
+     */
+    public ClientRestEndpoints() {
+        this(new RestClientFactory());
+    }
+
+    /**
+     * Konstruktor der Klasse ClientRestEndpoints
+     * @param factory Verbindungsparameter
+     */
+    public ClientRestEndpoints(RestClientFactory factory) {
+        this.factory = factory;
+        client = factory.createClient(asyncExecutor)
+                .register(CborProvider.class)
+                .register(GZipEncoder.class)
+                .register(EncodingFilter.class); // Sendet Accept-Encoding für die registrierten Kodierungen
+    }
+
+    /**
+     * Gibt die URI des WebSocket-Endpunktes für die Änderungen an Geräten zurück
+     * @return URI des WebSocket-Endpunktes
+     */
+    public URI getEventsURI() {
+        return factory.getEventsURI();
+    }
 
     /**
      * Verwaltet die Klienten seitige POST Anfrage, um einen Benutzernamen zu registrieren.
@@ -27,13 +94,22 @@ public class ClientRestEndpoints {
     public boolean postUsername(String username) {
         try {
             WebTarget target = getTarget("POST", "/" + username);
-            Response response = target.request(MediaType.APPLICATION_JSON).post(Entity.json(username));
-            return status(response) == Response.Status.OK.getStatusCode();
+            return isOk(target.request(ACCEPT).post(Entity.entity(username, WireFormat.APPLICATION_CBOR)));
         } catch (Exception e) { //Abfangen, wenn keine Verbindung zum Server besteht
             return false;
         }
     }
 
+    /**
+     * Asynchrone Variante von postUsername(String username)
+     * @param username Der Benutzername
+     * @return CompletableFuture mit true, wenn die Anfrage erfolgreich war, sonst false
+     */
+    public CompletableFuture<Boolean> postUsernameAsync(String username) {
+        WebTarget target = getTarget("POST", "/" + username);
+        return async(target.request(ACCEPT), HttpMethod.POST, Entity.entity(username, WireFormat.APPLICATION_CBOR), this::isOk);
+    }
+
     /**
      * Verwaltet die Klienten seitige GET Anfrage, welche eine Liste mit Geräten entsprechend der
      * Suchanfrage zurückliefert
@@ -43,13 +119,18 @@ public class ClientRestEndpoints {
      */
     public List<Device> getMatchingDevices(String search, SearchCriteria criteria) {
         WebTarget target = getTarget("GET", "/" + search + "/" + criteria);
-        Response response = target.request().accept(MediaType.APPLICATION_JSON).get();
-        if (status(response) == Response.Status.OK.getStatusCode()) {
-            return response.readEntity(new GenericType<>() {});
-        } else {
-            System.out.println("GET: Fehler bei der Client Server Kommunikation");
-            return null;
-        }
+        return toList(getDevices(target));
+    }
+
+    /**
+     * Asynchrone Variante von getMatchingDevices(String search, SearchCriteria criteria)
+     * @param search SuchString
+     * @param criteria Das Suchkriterium
+     * @return CompletableFuture mit den passenden Geräten, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public CompletableFuture<List<Device>> getMatchingDevicesAsync(String search, SearchCriteria criteria) {
+        WebTarget target = getTarget("GET", "/" + search + "/" + criteria);
+        return getDevicesAsync(target, ClientRestEndpoints::toList);
     }
 
     /**
@@ -59,15 +140,212 @@ public class ClientRestEndpoints {
      */
     public List<Device> getAllDevices() {
         WebTarget target = getTarget("GET", "/getAllDevices");
-        Response response = target.request().accept(MediaType.APPLICATION_JSON).get();
-        if (status(response) == Response.Status.OK.getStatusCode()) {
-            return response.readEntity(new GenericType<>() {});
-        } else {
-            System.out.println("GET: Fehler bei der Client Server Kommunikation");
+        return toList(getDevices(target));
+    }
+
+    /**
+     * Asynchrone Variante von getAllDevices()
+     * @return CompletableFuture mit allen nicht ausgeliehenen Geräten, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public CompletableFuture<List<Device>> getAllDevicesAsync() {
+        WebTarget target = getTarget("GET", "/getAllDevices");
+        return getDevicesAsync(target, ClientRestEndpoints::toList);
+    }
+
+    /**
+     * Verwaltet die Klienten seitige GET Anfrage, welche die Änderungen am Gerätekatalog seit einer Version
+     * zurückgibt
+     * @param since Version des Katalogs, die der Client kennt, oder -1 für den ganzen Katalog
+     * @return ChangeSet mit den geänderten Geräten, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public ChangeSet getChanges(long since) {
+        try {
+            return readChangeSet(changesTarget(since).request(ACCEPT).get());
+        } catch (Exception e) { //Abfangen, wenn keine Verbindung zum Server besteht
             return null;
         }
     }
 
+    /**
+     * Asynchrone Variante von getChanges(long since)
+     * @param since Version des Katalogs, die der Client kennt, oder -1 für den ganzen Katalog
+     * @return CompletableFuture mit dem ChangeSet, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public CompletableFuture<ChangeSet> getChangesAsync(long since) {
+        return async(changesTarget(since).request(ACCEPT), HttpMethod.GET, null, this::readChangeSet);
+    }
+
+    /**
+     * Gibt das WebTarget für die Änderungen am Gerätekatalog zurück
+     * @param since Version des Katalogs, die der Client kennt, oder -1 für den ganzen Katalog
+     * @return WebTarget
+     */
+    private WebTarget changesTarget(long since) {
+        WebTarget target = getTarget("GET", "/changes");
+        return since >= 0 ? target.queryParam("since", since) : target;
+    }
+
+    /**
+     * Liest das ChangeSet aus der Antwort
+     * @param response Antwort des Servers
+     * @return ChangeSet bei Status 200, sonst null
+     */
+    private ChangeSet readChangeSet(Response response) {
+        if (status(response) == Response.Status.OK.getStatusCode()) {
+            return response.readEntity(ChangeSet.class);
+        }
+        response.close();
+        return null;
+    }
+
+    /**
+     * Verwaltet die Klienten seitige GET Anfrage, welche eine Seite der Geräte entsprechend der
+     * Suchanfrage zurückliefert
+     * @param search SuchString
+     * @param criteria Das Suchkriterium
+     * @param limit Maximale Anzahl an Geräten pro Seite
+     * @param cursor Cursor der Seite aus der vorherigen DevicePage oder null für die erste Seite
+     * @return Seite mit den passenden Geräten, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public DevicePage getMatchingDevices(String search, SearchCriteria criteria, int limit, String cursor) {
+        WebTarget target = getTarget("GET", "/" + search + "/" + criteria);
+        return toPage(getDevices(pageTarget(target, limit, cursor)));
+    }
+
+    /**
+     * Asynchrone Variante von getMatchingDevices(String search, SearchCriteria criteria, int limit, String cursor)
+     * @param search SuchString
+     * @param criteria Das Suchkriterium
+     * @param limit Maximale Anzahl an Geräten pro Seite
+     * @param cursor Cursor der Seite aus der vorherigen DevicePage oder null für die erste Seite
+     * @return CompletableFuture mit der Seite, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public CompletableFuture<DevicePage> getMatchingDevicesAsync(String search, SearchCriteria criteria, int limit, String cursor) {
+        WebTarget target = getTarget("GET", "/" + search + "/" + criteria);
+        return getDevicesAsync(pageTarget(target, limit, cursor), ClientRestEndpoints::toPage);
+    }
+
+    /**
+     * Verwaltet die Klienten seitige GET Anfrage, welche eine Seite der nicht ausgeliehenen Geräte zurückgibt
+     * @param limit Maximale Anzahl an Geräten pro Seite
+     * @param cursor Cursor der Seite aus der vorherigen DevicePage oder null für die erste Seite
+     * @return Seite mit nicht ausgeliehenen Geräten, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public DevicePage getAllDevices(int limit, String cursor) {
+        WebTarget target = getTarget("GET", "/getAllDevices");
+        return toPage(getDevices(pageTarget(target, limit, cursor)));
+    }
+
+    /**
+     * Asynchrone Variante von getAllDevices(int limit, String cursor)
+     * @param limit Maximale Anzahl an Geräten pro Seite
+     * @param cursor Cursor der Seite aus der vorherigen DevicePage oder null für die erste Seite
+     * @return CompletableFuture mit der Seite, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public CompletableFuture<DevicePage> getAllDevicesAsync(int limit, String cursor) {
+        WebTarget target = getTarget("GET", "/getAllDevices");
+        return getDevicesAsync(pageTarget(target, limit, cursor), ClientRestEndpoints::toPage);
+    }
+
+    /**
+     * Ergänzt das WebTarget um die Parameter einer Seite
+     * @param target WebTarget der Anfrage
+     * @param limit Maximale Anzahl an Geräten pro Seite
+     * @param cursor Cursor der Seite oder null für die erste Seite
+     * @return WebTarget der Seite
+     */
+    private WebTarget pageTarget(WebTarget target, int limit, String cursor) {
+        target = target.queryParam("limit", limit);
+        if (cursor != null) {
+            target = target.queryParam("cursor", cursor);
+        }
+        return target;
+    }
+
+    /**
+     * Kopiert die Geräte einer Antwort in eine neue Liste
+     * @param devices Die Geräte mit ETag und Cursor oder null
+     * @return List mit den Geräten oder null
+     */
+    private static List<Device> toList(CachedDevices devices) {
+        return devices != null ? new ArrayList<>(devices.devices()) : null;
+    }
+
+    /**
+     * Kopiert die Geräte einer Antwort in eine Seite
+     * @param devices Die Geräte mit ETag und Cursor oder null
+     * @return Seite mit den Geräten oder null
+     */
+    private static DevicePage toPage(CachedDevices devices) {
+        return devices != null ? new DevicePage(new ArrayList<>(devices.devices()), devices.nextCursor()) : null;
+    }
+
+    /**
+     * Führt eine GET Anfrage für eine Liste von Geräten aus. Ist zur URI eine Liste gespeichert, wird ihr ETag
+     * mit If-None-Match mitgeschickt und bei 304 die gespeicherte Liste zurückgegeben.
+     * @param target WebTarget der Anfrage
+     * @return Die Geräte mit ETag und Cursor, wenn die Anfrage erfolgreich war, sonst null
+     */
+    private CachedDevices getDevices(WebTarget target) {
+        URI uri = target.getUri();
+        CachedDevices cached = cache.get(uri);
+        return readDevices(uri, cached, devicesRequest(target, cached).get());
+    }
+
+    /**
+     * Führt eine GET Anfrage für eine Liste von Geräten asynchron aus, wie getDevices(WebTarget target)
+     * @param target WebTarget der Anfrage
+     * @param mapper Wandelt die Geräte in das Ergebnis um, wird mit null aufgerufen, wenn die Anfrage fehlschlägt
+     * @return CompletableFuture mit dem Ergebnis
+     * @param <T> Typ des Ergebnisses
+     */
+    private <T> CompletableFuture<T> getDevicesAsync(WebTarget target, Function<CachedDevices, T> mapper) {
+        URI uri = target.getUri();
+        CachedDevices cached = cache.get(uri);
+        return async(devicesRequest(target, cached), HttpMethod.GET, null, response -> mapper.apply(readDevices(uri, cached, response)));
+    }
+
+    /**
+     * Erstellt die GET Anfrage für eine Liste von Geräten, mit If-None-Match, wenn eine Liste gespeichert ist
+     * @param target WebTarget der Anfrage
+     * @param cached Gespeicherte Liste zur URI oder null
+     * @return Die Anfrage
+     */
+    private Invocation.Builder devicesRequest(WebTarget target, CachedDevices cached) {
+        Invocation.Builder request = target.request().accept(ACCEPT);
+        if (cached != null) {
+            request = request.header(HttpHeaders.IF_NONE_MATCH, cached.etag());
+        }
+        return request;
+    }
+
+    /**
+     * Liest die Geräte aus der Antwort und speichert sie mit ihrem ETag
+     * @param uri URI der Anfrage
+     * @param cached Gespeicherte Liste zur URI oder null
+     * @param response Antwort des Servers
+     * @return Die Geräte mit ETag und Cursor, wenn die Anfrage erfolgreich war, sonst null
+     */
+    private CachedDevices readDevices(URI uri, CachedDevices cached, Response response) {
+        int status = status(response);
+        if (status == Response.Status.NOT_MODIFIED.getStatusCode() && cached != null) {
+            response.close();
+            return cached;
+        }
+        if (status == Response.Status.OK.getStatusCode()) {
+            List<Device> devices = response.readEntity(new GenericType<>() {});
+            CachedDevices result = new CachedDevices(response.getHeaderString(HttpHeaders.ETAG), devices != null ? devices : List.of(), response.getHeaderString("Next-Cursor"));
+            if (result.etag() != null) {
+                cache.put(uri, result);
+            }
+            return result;
+        }
+        cache.remove(uri);
+        response.close();
+        Log.warn("http", "GET: Fehler bei der Client Server Kommunikation");
+        return null;
+    }
+
     /**
      * Verwaltet die Klienten seitige PUT Anfrage, um den Ausleihstatus eines Gerätes zu ändern
      * @param username Der Benutzername
@@ -77,8 +355,59 @@ public class ClientRestEndpoints {
      */
     public boolean putBorrower(String username, String id , Action action) {
         WebTarget target = getTarget("PUT", "/" + username + "/" + id);
-        Response response = target.request(MediaType.APPLICATION_JSON).put(Entity.json(action));
-        return status(response) == Response.Status.OK.getStatusCode();
+        return isOk(target.request(ACCEPT).put(Entity.entity(action, WireFormat.APPLICATION_CBOR)));
+    }
+
+    /**
+     * Asynchrone Variante von putBorrower(String username, String id, Action action)
+     * @param username Der Benutzername
+     * @param id ID des Gerätes
+     * @param action Aktion (Ausleihen oder Zurückgeben)
+     * @return CompletableFuture mit true, wenn das Ändern erfolgreich war, sonst false
+     */
+    public CompletableFuture<Boolean> putBorrowerAsync(String username, String id, Action action) {
+        WebTarget target = getTarget("PUT", "/" + username + "/" + id);
+        return async(target.request(ACCEPT), HttpMethod.PUT, Entity.entity(action, WireFormat.APPLICATION_CBOR), this::isOk);
+    }
+
+    /**
+     * Verwaltet die Klienten seitige PUT Anfrage, um mehrere Geräte mit einer Anfrage auszuleihen oder zurückzugeben
+     * @param username Der Benutzername
+     * @param ids IDs der Geräte
+     * @param action Aktion (Ausleihen oder Zurückgeben)
+     * @param atomic true, um nur alle oder keines der Geräte zu ändern
+     * @return Geänderte und abgelehnte IDs, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public BorrowResult putBorrowers(String username, List<Integer> ids, Action action, boolean atomic) {
+        WebTarget target = getTarget("PUT", "/" + username + "/borrowings");
+        return readBorrowResult(target.request(ACCEPT).put(Entity.entity(new BorrowRequest(action, ids, atomic), WireFormat.APPLICATION_CBOR)));
+    }
+
+    /**
+     * Asynchrone Variante von putBorrowers(String username, List ids, Action action, boolean atomic)
+     * @param username Der Benutzername
+     * @param ids IDs der Geräte
+     * @param action Aktion (Ausleihen oder Zurückgeben)
+     * @param atomic true, um nur alle oder keines der Geräte zu ändern
+     * @return CompletableFuture mit geänderten und abgelehnten IDs, wenn die Anfrage erfolgreich war, sonst null
+     */
+    public CompletableFuture<BorrowResult> putBorrowersAsync(String username, List<Integer> ids, Action action, boolean atomic) {
+        WebTarget target = getTarget("PUT", "/" + username + "/borrowings");
+        return async(target.request(ACCEPT), HttpMethod.PUT,
+                Entity.entity(new BorrowRequest(action, ids, atomic), WireFormat.APPLICATION_CBOR), this::readBorrowResult);
+    }
+
+    /**
+     * Liest das BorrowResult aus der Antwort
+     * @param response Antwort des Servers
+     * @return BorrowResult bei Status 200, sonst null
+     */
+    private BorrowResult readBorrowResult(Response response) {
+        if (status(response) != Response.Status.OK.getStatusCode()) {
+            response.close();
+            return null;
+        }
+        return response.readEntity(BorrowResult.class);
     }
 
     /**
@@ -88,14 +417,17 @@ public class ClientRestEndpoints {
      */
     public List<Device> getBorrowedDevices(String username) {
         WebTarget target = getTarget("GET", "/" + username);
-        Response response = target.request().accept(MediaType.APPLICATION_JSON).get();
+        return toList(getDevices(target));
+    }
 
-        if (this.status(response) == Response.Status.OK.getStatusCode()) {
-            return response.readEntity(new GenericType<>() {});
-        } else {
-            System.out.println("GET: Fehler bei der Client Server Kommunikation");
-            return null;
-        }
+    /**
+     * Asynchrone Variante von getBorrowedDevices(String username)
+     * @param username Der Benutzername
+     * @return CompletableFuture mit den vom Benutzer ausgeliehenen Geräten
+     */
+    public CompletableFuture<List<Device>> getBorrowedDevicesAsync(String username) {
+        WebTarget target = getTarget("GET", "/" + username);
+        return getDevicesAsync(target, ClientRestEndpoints::toList);
     }
 
     /**
@@ -106,8 +438,18 @@ public class ClientRestEndpoints {
      */
     public boolean putDevice(String id, Device device) {
         WebTarget target = getTarget("PUT", "/" + id);
-        Response response = target.request(MediaType.APPLICATION_JSON).put(Entity.json(device));
-        return status(response) == Response.Status.OK.getStatusCode();
+        return isOk(target.request(ACCEPT).put(Entity.entity(device, WireFormat.APPLICATION_CBOR)));
+    }
+
+    /**
+     * Asynchrone Variante von putDevice(String id, Device device)
+     * @param id ID
+     * @param device Gerät mit den neuen Attributen
+     * @return CompletableFuture mit true, wenn das Bearbeiten erfolgreich war, sonst false
+     */
+    public CompletableFuture<Boolean> putDeviceAsync(String id, Device device) {
+        WebTarget target = getTarget("PUT", "/" + id);
+        return async(target.request(ACCEPT), HttpMethod.PUT, Entity.entity(device, WireFormat.APPLICATION_CBOR), this::isOk);
     }
 
     /**
@@ -117,8 +459,67 @@ public class ClientRestEndpoints {
      */
     public boolean postDevice(Device device) {
         WebTarget target = getTarget("POST", "/postDevice");
-        Response response = target.request(MediaType.APPLICATION_JSON).post(Entity.json(device));
-        return status(response) == Response.Status.OK.getStatusCode();
+        return isOk(target.request(ACCEPT).post(Entity.entity(device, WireFormat.APPLICATION_CBOR)));
+    }
+
+    /**
+     * Asynchrone Variante von postDevice(Device device)
+     * @param device Neues Gerät
+     * @return CompletableFuture mit true, wenn das Hinzufügen erfolgreich war, sonst false
+     */
+    public CompletableFuture<Boolean> postDeviceAsync(Device device) {
+        WebTarget target = getTarget("POST", "/postDevice");
+        return async(target.request(ACCEPT), HttpMethod.POST, Entity.entity(device, WireFormat.APPLICATION_CBOR), this::isOk);
+    }
+
+    /**
+     * Führt eine Anfrage mit dem asynchronen Invoker von Jersey aus. Die Antwort wird auf einem Thread des
+     * asyncExecutor gelesen. Wird das zurückgegebene CompletableFuture abgebrochen, wird die Anfrage abgebrochen.
+     * @param request Die Anfrage
+     * @param method HTTP-Methode
+     * @param entity Inhalt der Anfrage oder null
+     * @param reader Liest das Ergebnis aus der Antwort
+     * @return CompletableFuture mit dem Ergebnis
+     * @param <T> Typ des Ergebnisses
+     */
+    private <T> CompletableFuture<T> async(Invocation.Builder request, String method, Entity<?> entity, Function<Response, T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        InvocationCallback<Response> callback = new InvocationCallback<>() {
+            @Override
+            public void completed(Response response) {
+                try {
+                    result.complete(reader.apply(response));
+                } catch (RuntimeException e) {
+                    response.close();
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) { //Keine Verbindung zum Server oder abgebrochen
+                result.completeExceptionally(throwable);
+            }
+        };
+        Future<Response> call = entity == null
+                ? request.async().method(method, callback)
+                : request.async().method(method, entity, callback);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Prüft, ob die Antwort den Status 200 hat, und schließt sie
+     * @param response Antwort des Servers
+     * @return true bei Status 200, sonst false
+     */
+    private boolean isOk(Response response) {
+        int status = status(response);
+        response.close();
+        return status == Response.Status.OK.getStatusCode();
     }
 
     /**
@@ -128,9 +529,9 @@ public class ClientRestEndpoints {
      * @return WebTarget
      */
     private WebTarget getTarget(String crud, String uri) {
-        final String BASEURI = "http://localhost:8080/rest/lending";
-        System.out.printf("%n>>> %s %s%s <<<%n", crud, BASEURI, uri);
-        return client.target(BASEURI + uri);
+        String lendingURI = factory.getBaseURI() + "/lending";
+        Log.info("http", "\n>>> {} {}{} <<<", crud, lendingURI, uri);
+        return client.target(lendingURI + uri);
     }
 
     /**
@@ -141,7 +542,7 @@ public class ClientRestEndpoints {
     private int status(Response response) {
         int code = response.getStatus();
         String reason = response.getStatusInfo().getReasonPhrase();
-        System.out.printf(">>> Status: %d %s <<<%n", code, reason);
+        Log.info("http", ">>> Status: {} {} <<<", code, reason);
         return code;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das enum ConnectorType legt fest, über welchen HTTP-Client Jersey die Anfragen an den Server schickt.
+ * HTTP_URL_CONNECTION: Der Standard von Jersey über HttpURLConnection. Offene Verbindungen verwaltet der
+ * Keep-Alive-Cache des JDK, dessen Größe sich nur über die Systemeigenschaft http.maxConnections einstellen lässt.
+ * APACHE: Apache HttpClient mit einem eigenen Pool offener Verbindungen, dessen Größe und Lebensdauer
+ * konfiguriert werden.
+ */
+public enum ConnectorType {HTTP_URL_CONNECTION, APACHE}
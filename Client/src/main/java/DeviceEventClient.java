@@ -0,0 +1,158 @@
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceEventClient empfängt die Änderungen an Geräten, die der Server über WebSocket sendet,
+ * und übergibt sie auf dem JavaFX-Thread an einen Consumer. Bricht die Verbindung ab, wird nach
+ * RECONNECT_DELAY Sekunden ein neuer Verbindungsaufbau versucht. Nach einer unterbrochenen Verbindung wird
+ * ein RESYNC übergeben, da in der Zwischenzeit Änderungen verpasst worden sein können.
+ */
+public class DeviceEventClient implements WebSocket.Listener, AutoCloseable {
+    private static final long RECONNECT_DELAY = 5; //Wartezeit bis zum erneuten Verbinden in Sekunden
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ScheduledExecutorService reconnect = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "device-events-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final URI eventsURI; //WebSocket-Endpunkt des Servers
+    private final Consumer<DeviceEvent> consumer; //Verarbeitet die Events auf dem JavaFX-Thread
+    private final StringBuilder text = new StringBuilder(); //Teile einer Nachricht, die in mehreren Frames ankommt
+    private volatile WebSocket socket;
+    private volatile boolean closed;
+    private boolean interrupted; //true, wenn eine Verbindung abgebrochen ist
+
+    /**
+     * Konstruktor der Klasse DeviceEventClient
+     * @param eventsURI WebSocket-Endpunkt des Servers
+     * @param consumer Verarbeitet die Events auf dem JavaFX-Thread
+     */
+    public DeviceEventClient(URI eventsURI, Consumer<DeviceEvent> consumer) {
+        this.eventsURI = eventsURI;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Baut die Verbindung zum Server auf. Schlägt der Verbindungsaufbau fehl, wird es später erneut versucht.
+     */
+    public void connect() {
+        if (closed) {
+            return;
+        }
+        client.newWebSocketBuilder().buildAsync(eventsURI, this).whenComplete((webSocket, e) -> {
+            if (e != null) {
+                scheduleReconnect();
+            }
+        });
+    }
+
+    /**
+     * Plant einen neuen Verbindungsaufbau nach RECONNECT_DELAY Sekunden
+     */
+    private void scheduleReconnect() {
+        interrupted = true;
+        if (!closed) {
+            reconnect.schedule(this::connect, RECONNECT_DELAY, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Aufgerufen, wenn die Verbindung hergestellt ist
+     * @param webSocket Die Verbindung
+     */
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        socket = webSocket;
+        Log.info("events", ">>> Verbunden mit {} <<<", eventsURI);
+        if (interrupted) {
+            interrupted = false;
+            deliver(new DeviceEvent(DeviceEvent.Type.RESYNC, 0, 0, null)); // Änderungen während der Unterbrechung neu laden
+        }
+        webSocket.request(1);
+    }
+
+    /**
+     * Setzt die Teile einer Nachricht zusammen und übergibt das vollständige Event
+     * @param webSocket Die Verbindung
+     * @param data Teil der Nachricht
+     * @param last true, wenn es der letzte Teil der Nachricht ist
+     * @return null, die Daten werden sofort übernommen
+     */
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            try {
+                deliver(MAPPER.readValue(text.toString(), DeviceEvent.class));
+            } catch (IOException e) {
+                Log.warn("events", ">>> Ungültiges Event: {} <<<", e.getMessage());
+            }
+            text.setLength(0);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    /**
+     * Aufgerufen, wenn der Server die Verbindung schließt
+     * @param webSocket Die Verbindung
+     * @param statusCode Statuscode
+     * @param reason Grund
+     * @return null
+     */
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        text.setLength(0);
+        scheduleReconnect();
+        return null;
+    }
+
+    /**
+     * Aufgerufen, wenn die Verbindung abbricht
+     * @param webSocket Die Verbindung
+     * @param error Fehler
+     */
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        text.setLength(0);
+        scheduleReconnect();
+    }
+
+    /**
+     * Übergibt ein Event auf dem JavaFX-Thread an den Consumer
+     * @param event Das Event
+     */
+    private void deliver(DeviceEvent event) {
+        if (!closed) {
+            Platform.runLater(() -> consumer.accept(event));
+        }
+    }
+
+    /**
+     * Schließt die Verbindung und beendet die Verbindungsversuche
+     */
+    @Override
+    public void close() {
+        closed = true;
+        reconnect.shutdownNow();
+        WebSocket current = socket;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "");
+        }
+    }
+}
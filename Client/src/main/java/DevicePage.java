@@ -0,0 +1,18 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record DevicePage enthält eine Seite von Geräten beim seitenweisen Abrufen vom Server
+ * @param devices Geräte der Seite
+ * @param nextCursor Cursor für die nächste Seite oder null, wenn es keine weitere Seite gibt
+ */
+public record DevicePage(List<Device> devices, String nextCursor) {
+
+    /**
+     * Prüft, ob es eine weitere Seite gibt
+     * @return true, wenn es eine weitere Seite gibt, sonst false
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,3 +1,4 @@
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Label;
@@ -7,18 +8,39 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Georg Kunze, m28909, u36363
- * Kontroller für die OnAction-Events der Button in dem Hauptbildschirm der Geräteausleih-Anwendung
+ * Kontroller für die OnAction-Events der Button in dem Hauptbildschirm der Geräteausleih-Anwendung.
+ * Anfragen an den Server werden asynchron gestellt, damit die Oberfläche nicht auf den Server wartet.
+ * Solange Anfragen laufen, zeigt die LendingView einen Fortschritt an. Die Ergebnisse werden auf dem
+ * JavaFX-Thread verarbeitet. Eine neue Suche bricht die vorherige ab.
  */
 public class LendingController {
     private final LoginModel loginModel; //Modell für die Speicherung der Daten vom Benutzer
     private final LendingModel lendingModel; //Modell für die Speicherung der Daten der Geräteausleih-Anwendung
     private final LendingView lendingView; //View für das Anzeigen der Benutzeroberfläche der Geräteausleih-Anwendung
     private final ClientRestEndpoints rest; //Rest Endpunkt des Klienten
+    private final CatalogReplica replica; //Lokale Kopie des Gerätekatalogs
     private final Message message; //Klasse zum Anzeigen einer Pop-up-Nachricht
+    private final Set<CompletableFuture<?>> pending = new HashSet<>(); //Laufende Anfragen, nur auf dem JavaFX-Thread verwendet
+    private CompletableFuture<List<Device>> pendingSearch; //Zuletzt gestartete Suche beim Server
+    private SearchQuery pendingQuery; //Suchbegriff und Kriterium von pendingSearch
+    private SearchQuery lastQuery; //Suchbegriff und Kriterium der letzten vollständigen Antwort des Servers
+    private List<Device> lastResult; //Nicht ausgeliehene Geräte der letzten vollständigen Antwort des Servers
+
+    /**
+     * Suchbegriff und Kriterium einer Suche beim Server
+     * @param search Suchbegriff
+     * @param criteria Suchkriterium
+     */
+    private record SearchQuery(String search, SearchCriteria criteria) {
+    }
 
     /**
      * Konstruktor der LendingController Klasse.
@@ -27,87 +49,234 @@ public class LendingController {
      * @param lendingModel Modell für die Speicherung der Daten der Geräteausleih-Anwendung
      * @param lendingView View für das Anzeigen der Benutzeroberfläche der Geräteausleih-Anwendung
      * @param rest Rest Endpunkt des Klienten
+     * @param replica Lokale Kopie des Gerätekatalogs
      */
-    public LendingController(LoginModel loginModel, LendingModel lendingModel, LendingView lendingView, ClientRestEndpoints rest) {
+    public LendingController(LoginModel loginModel, LendingModel lendingModel, LendingView lendingView, ClientRestEndpoints rest, CatalogReplica replica) {
         this.loginModel = loginModel;
         this.lendingModel = lendingModel;
         this.lendingView = lendingView;
         this.rest = rest;
+        this.replica = replica;
         message = new Message();
     }
 
     /**
-     * Event-Handler für den Such-Button zur Such nach einem oder allen nicht ausgeliehenen Geräten
+     * Event-Handler für den Such-Button zur Such nach einem oder allen nicht ausgeliehenen Geräten.
+     * Wird auch von der Suche während der Eingabe aufgerufen, sobald die Eingabe kurz ruht.
+     * Ist der Katalog geladen, wird lokal gesucht, sonst beim Server. Beim Server gilt:
+     * Läuft dieselbe Suche bereits, wird keine weitere Anfrage gestellt. Enthält der neue Suchbegriff den
+     * Suchbegriff der letzten Antwort, wird deren Ergebnis lokal eingeschränkt. Sonst wird eine laufende
+     * Suche abgebrochen und nur das Ergebnis der neuesten Suche angezeigt.
      */
     public void handleSearchButton() {
         SearchCriteria criteria = lendingModel.getSearchCriteria();
         String searchString = lendingModel.getSearch();
-        List<Device> matchingDevices;
-
+        if (replica.isLoaded()) {
+            lendingModel.setDisplayedDevices(replica.search(searchString, criteria)); // Nicht ausgeliehene Geräte im lokalen Katalog suchen
+            showDisplayedDevices();
+            return;
+        }
+        SearchQuery query = new SearchQuery(searchString, criteria);
+        if (pendingSearch != null && query.equals(pendingQuery)) {
+            return; // Dieselbe Suche läuft bereits
+        }
+        cancelSearch(); // Das Ergebnis der vorherigen Suche wird nicht mehr gebraucht
+        if (isNarrowing(query)) {
+            List<Device> narrowed = new ArrayList<>();
+            for (Device device : lastResult) {
+                if (CatalogReplica.matches(device, searchString, criteria)) {
+                    narrowed.add(device);
+                }
+            }
+            lendingModel.setDisplayedDevices(narrowed); // Ergebnis der letzten Antwort lokal einschränken
+            showDisplayedDevices();
+            return;
+        }
+        CompletableFuture<List<Device>> request;
         if (searchString.isEmpty()) {
-            matchingDevices = rest.getAllDevices(); // Alle Geräte vom Server und der Datenbank holen
+            request = rest.getAllDevicesAsync(); // Alle Geräte vom Server und der Datenbank holen
         } else {
-            matchingDevices = rest.getMatchingDevices(searchString, criteria); // Geräte anhand der Suche und des Kriteriums vom Server und der Datenbank holen
+            request = rest.getMatchingDevicesAsync(searchString, criteria); // Geräte anhand der Suche und des Kriteriums vom Server und der Datenbank holen
         }
+        pendingSearch = request;
+        pendingQuery = query;
 
-        //Ausgeliehene Geräte rausfiltern
-        List <Device> notBorrowedDevices = new ArrayList<>();
-        for (Device device : matchingDevices) {
-            if (device.borrower() == null) {
-                notBorrowedDevices.add(device);
+        track(request).thenAccept(matchingDevices -> {
+            if (pendingSearch != request) {
+                return; // Veraltetes Ergebnis, eine neuere Suche läuft
+            }
+            pendingSearch = null;
+            pendingQuery = null;
+            //Ausgeliehene Geräte rausfiltern
+            List <Device> notBorrowedDevices = new ArrayList<>();
+            if (matchingDevices != null) {
+                for (Device device : matchingDevices) {
+                    if (device.borrower() == null) {
+                        notBorrowedDevices.add(device);
+                    }
+                }
+                lastQuery = query; // Grundlage für das lokale Einschränken längerer Suchbegriffe
+                lastResult = List.copyOf(notBorrowedDevices);
             }
+            lendingModel.setDisplayedDevices(notBorrowedDevices);
+            showDisplayedDevices();
+        });
+    }
+
+    /**
+     * Prüft, ob sich eine Suche aus dem Ergebnis der letzten Antwort des Servers lokal beantworten lässt.
+     * Das ist der Fall, wenn das Kriterium gleich ist und der neue Suchbegriff den alten enthält, denn der
+     * Server sucht mit LIKE '%...%'. Die Suche nach der ID vergleicht exakt und wird daher nicht eingeschränkt,
+     * ebenso Suchbegriffe mit den Platzhaltern % und _ von LIKE.
+     * @param query Die neue Suche
+     * @return true, wenn das letzte Ergebnis lokal eingeschränkt werden kann, sonst false.
+     */
+    private boolean isNarrowing(SearchQuery query) {
+        if (lastQuery == null || lastQuery.criteria() != query.criteria() || query.criteria() == SearchCriteria.ID) {
+            return false;
         }
-        ObservableList<String> matchingDevicesOL = convertToObservableList(notBorrowedDevices); // Kopieren der Liste in eine ObservableList
+        String previous = lastQuery.search().toLowerCase(Locale.ROOT);
+        String current = query.search().toLowerCase(Locale.ROOT);
+        return current.contains(previous) && !current.contains("%") && !current.contains("_");
+    }
+
+    /**
+     * Bricht die laufende Suche beim Server ab
+     */
+    private void cancelSearch() {
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+            pendingQuery = null;
+        }
+    }
+
+    /**
+     * Verwirft das Ergebnis der letzten Antwort, da sich der Katalog geändert hat, und gleicht den lokalen
+     * Katalog ab
+     */
+    private void catalogChanged() {
+        lastQuery = null;
+        lastResult = null;
+        replica.requestSynchronize();
+    }
+
+    /**
+     * Verarbeitet eine Änderung an einem Gerät, die der Server per WebSocket gesendet hat. Die Änderung wird in
+     * den lokalen Katalog übernommen und die letzte Suche lokal wiederholt. Ohne geladenen Katalog wird die
+     * angezeigte Liste direkt angepasst: Das Gerät wird entfernt und wieder eingefügt, wenn es nicht
+     * ausgeliehen ist und zur letzten Suche passt. Bei RESYNC wird der Katalog bzw. die Suche neu geladen.
+     * Wird auf dem JavaFX-Thread aufgerufen.
+     * @param event Die Änderung
+     */
+    public void handleDeviceEvent(DeviceEvent event) {
+        if (replica.isLoaded()) {
+            if (event.type() == DeviceEvent.Type.RESYNC) {
+                replica.requestSynchronize(); // Ruft nach dem Laden handleCatalogChange auf
+            } else {
+                replica.apply(event);
+                handleCatalogChange();
+            }
+            return;
+        }
+        lastQuery = null; // Das Ergebnis der letzten Antwort ist nicht mehr aktuell
+        lastResult = null;
+        List<Device> displayed = lendingModel.getDisplayedDevices();
+        if (displayed == null) {
+            return; // Noch keine Suche angezeigt
+        }
+        if (event.type() == DeviceEvent.Type.RESYNC) {
+            handleSearchButton();
+            return;
+        }
+
+        displayed.removeIf(device -> device.id() == event.previousId() || device.id() == event.id());
+        Device device = event.device();
+        if (device != null && device.borrower() == null
+                && CatalogReplica.matches(device, lendingModel.getSearch(), lendingModel.getSearchCriteria())) {
+            int index = 0;
+            while (index < displayed.size() && displayed.get(index).id() < device.id()) {
+                index++;
+            }
+            displayed.add(index, device);
+        }
+        showDisplayedDevices();
+    }
+
+    /**
+     * Wiederholt die letzte Suche im lokalen Katalog, nachdem er sich geändert hat.
+     * Wird auf dem JavaFX-Thread aufgerufen.
+     */
+    public void handleCatalogChange() {
+        if (lendingModel.getDisplayedDevices() != null) {
+            handleSearchButton();
+        }
+    }
+
+    /**
+     * Zeigt die Geräte aus dem Modell an. Die vorhandene ObservableList wird weiterverwendet, damit die
+     * ListView ihre Einträge nur aktualisiert.
+     */
+    private void showDisplayedDevices() {
+        ObservableList<String> matchingDevicesOL = convertToObservableList(lendingModel.getDisplayedDevices()); // Kopieren der Liste in eine ObservableList
 
         //Wenn kein Gerät gefunden wurde, entsprechende Nachricht für die Anzeige hinzufügen
         if (matchingDevicesOL.isEmpty()) {
             matchingDevicesOL.add("Kein passendes Ger\u00E4t zu der Eingabe gefunden oder das Ger\u00E4t ist nicht mehr ausleihbar");
         }
 
-        lendingModel.setObservableList(matchingDevicesOL);
+        if (lendingModel.getObservableList() == null) {
+            lendingModel.setObservableList(matchingDevicesOL);
+        } else {
+            lendingModel.getObservableList().setAll(matchingDevicesOL);
+        }
     }
 
     /**
      * Event-Handler für den Ausleih-Button zum Ausleihen eines Gerätes
-     * @return true, wenn die Aktion erfolgreich war, sonst false
+     * @return CompletableFuture mit true, wenn die Aktion erfolgreich war, sonst false, auf dem JavaFX-Thread
      */
-    public boolean handleBorrowButton() {
+    public CompletableFuture<Boolean> handleBorrowButton() {
         String id = lendingModel.getId();
 
         if (!id.isEmpty() && isValidId(id)) { //Wenn die Eingabe nicht leer ist und die ID gültig ist
-            boolean successful = rest.putBorrower(loginModel.getUsername(), id, Action.BORROW); //Ausleihen des Gerätes
-            if (successful) {
-                message.show("Ausleihen", "Das Ger\u00E4t wurde erfolgreich ausgeliehen!");
-                return true;
-            } else {
-                message.show("Fehler", "Das Ger\u00E4t wurde schon ausgeliehen oder die ID wurde falsch eingegeben!");
-                return false;
-            }
+            return track(rest.putBorrowerAsync(loginModel.getUsername(), id, Action.BORROW)).thenApply(successful -> { //Ausleihen des Gerätes
+                if (Boolean.TRUE.equals(successful)) {
+                    catalogChanged(); // Eigene Änderung in den lokalen Katalog übernehmen
+                    message.show("Ausleihen", "Das Ger\u00E4t wurde erfolgreich ausgeliehen!");
+                    return true;
+                } else {
+                    message.show("Fehler", "Das Ger\u00E4t wurde schon ausgeliehen oder die ID wurde falsch eingegeben!");
+                    return false;
+                }
+            });
         } else {
             message.show("Fehler", "Bitte eine g\u00FCltige ID eingeben!");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
     /**
      * Event-Handler für den Rückgabe-Button zum Zurückgeben eines Gerätes
-     * @return true, wenn die Aktion erfolgreich war, sonst false
+     * @return CompletableFuture mit true, wenn die Aktion erfolgreich war, sonst false, auf dem JavaFX-Thread
      */
-    public boolean handleReturnButton() {
+    public CompletableFuture<Boolean> handleReturnButton() {
         String id = lendingModel.getId();
 
         if (!id.isEmpty() && isValidId(id)) { //Wenn die Eingabe nicht leer ist und die ID gültig ist
-            boolean successful = rest.putBorrower(loginModel.getUsername(), id, Action.RETURN); //Zurückgeben des Gerätes
-            if (successful) {
-                message.show("Zur\u00FCckgeben", "Das Ger\u00E4t wurde erfolgreich zur\u00FCckgegeben");
-                return true;
-            } else {
-                message.show("Fehler", "Das Ger\u00E4t kann nicht zur\u00FCckgegeben werden oder die ID wurde falsch eingegeben");
-                return false;
-            }
+            return track(rest.putBorrowerAsync(loginModel.getUsername(), id, Action.RETURN)).thenApply(successful -> { //Zurückgeben des Gerätes
+                if (Boolean.TRUE.equals(successful)) {
+                    catalogChanged(); // Eigene Änderung in den lokalen Katalog übernehmen
+                    message.show("Zur\u00FCckgeben", "Das Ger\u00E4t wurde erfolgreich zur\u00FCckgegeben");
+                    return true;
+                } else {
+                    message.show("Fehler", "Das Ger\u00E4t kann nicht zur\u00FCckgegeben werden oder die ID wurde falsch eingegeben");
+                    return false;
+                }
+            });
         } else {
             message.show("Fehler", "Bitte eine g\u00FCltige ID eingeben!");
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -118,18 +287,31 @@ public class LendingController {
     public void handleEditButton() {
         String id = lendingModel.getId();
 
-        if (!id.isEmpty() && (isValidId(id) && isExistingId(id))) { //Wenn die Eingabe nicht leer ist und die ID gültig und vorhanden ist
-            lendingView.showEditStage(id);
-        } else {
+        if (id.isEmpty() || !isValidId(id)) {
             message.show("Fehler", "Bitte eine g\u00FCltige ID eingeben!");
+        } else if (replica.isLoaded()) {
+            Device device = replica.getDevice(id); //Gerät mit der id aus dem lokalen Katalog holen
+            if (device != null) {
+                lendingView.showEditStage(device);
+            } else {
+                message.show("Fehler", "Bitte eine g\u00FCltige ID eingeben!");
+            }
+        } else {
+            track(rest.getMatchingDevicesAsync(id, SearchCriteria.ID)).thenAccept(devices -> { //Gerät mit der id vom Server holen
+                if (devices != null && !devices.isEmpty()) {
+                    lendingView.showEditStage(devices.getFirst());
+                } else {
+                    message.show("Fehler", "Bitte eine g\u00FCltige ID eingeben!");
+                }
+            });
         }
     }
 
     /**
      * Event-Handler für den Bearbeiten-Button zum Bearbeiten eines Gerätes in der Datenbank
-     * @return true, wenn die Aktion erfolgreich war, sonst false
+     * @return CompletableFuture mit true, wenn die Aktion erfolgreich war, sonst false, auf dem JavaFX-Thread
      */
-    public boolean handleEditDeviceButton() {
+    public CompletableFuture<Boolean> handleEditDeviceButton() {
         Device currentDevice = lendingModel.getCurrentDevice();
         TextField[] inputFields = lendingModel.getInputFields();
         List<Label> currentDeviceLabels = lendingModel.getCurrentDeviceLabels();
@@ -149,40 +331,42 @@ public class LendingController {
                         Integer.parseInt(attr); // Überprüfung, ob String in Integer umgewandelt werden kann
                     } else if (i == 4 && (!isValidId(attr) || isExistingId(attr)) && Integer.parseInt(attr)!=currentDevice.id()) { //Überprüfen, ob die ID valide ist und existiert und nicht der aktuellen ID entspricht
                         message.show("Fehler", "Bitte eine g\u00FCltige ID eingeben!");
-                        return false;
+                        return CompletableFuture.completedFuture(false);
                     } else if (i == 5 && attr.equalsIgnoreCase("null")) { //Abfangen, dass der String null in die Datenbank eingefügt wird
                         newAttributes[i] = null;
                     }else if (i == 6) { // Nur für das Attribut returnDate
                         SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
                         parsedDate = dateFormat.parse(attr); // Überprüfung, ob String in Datum umgewandelt werden kann
                         message.show("Fehler", "Bitte ein g\u00FCltiges Datum eingeben!");
-                        return false;
+                        return CompletableFuture.completedFuture(false);
                     }
                 } catch (NumberFormatException | ParseException err) {
                     if (i == 3) {
                         message.show("Fehler", "Bitte ein g\u00FCltiges Kaufjahr eingeben");
                     } else message.show("Fehler", "Bitte ein g\u00FCltiges Datum eingeben");
-                    return false; // Abbruch des setOnAction-Events
+                    return CompletableFuture.completedFuture(false); // Abbruch des setOnAction-Events
                 }
             }
         }
         Device newDevice = new Device(newAttributes[0], newAttributes[1], newAttributes[2], Integer.parseInt(newAttributes[3]), Integer.parseInt(newAttributes[4]), newAttributes[5], parsedDate);
 
-        boolean editDeviceSuccessful = rest.putDevice(String.valueOf(currentDevice.id()), newDevice); // Gerät bearbeiten
-        if (editDeviceSuccessful) {
-            message.show("Ger\u00E4tebearbeitung", "Das Ger\u00E4t wurde erfolgreich bearbeitet");
-            return true;
-        } else {
-            message.show("Fehler", "Fehler: Fehler beim Bearbeiten des Ger\u00E4tes");
-            return false;
-        }
+        return track(rest.putDeviceAsync(String.valueOf(currentDevice.id()), newDevice)).thenApply(editDeviceSuccessful -> { // Gerät bearbeiten
+            if (Boolean.TRUE.equals(editDeviceSuccessful)) {
+                catalogChanged(); // Eigene Änderung in den lokalen Katalog übernehmen
+                message.show("Ger\u00E4tebearbeitung", "Das Ger\u00E4t wurde erfolgreich bearbeitet");
+                return true;
+            } else {
+                message.show("Fehler", "Fehler: Fehler beim Bearbeiten des Ger\u00E4tes");
+                return false;
+            }
+        });
     }
 
     /**
      * Event-Handler für den Hinzufügen-Button zum Hinzufügen eines Gerätes in der Datenbank
-     * @return true, wenn die Aktion erfolgreich war, sonst false
+     * @return CompletableFuture mit true, wenn die Aktion erfolgreich war, sonst false, auf dem JavaFX-Thread
      */
-    public boolean handleAddButton() {
+    public CompletableFuture<Boolean> handleAddButton() {
         TextField[] inputFields = lendingModel.getInputFields();
         String[] attributes = new String[inputFields.length];
         boolean errMessageShowed = false;
@@ -200,24 +384,26 @@ public class LendingController {
                         Integer.parseInt(attr);
                     } else if (i == 4 && (!isValidId(attr) || isExistingId(attr))) { // Überprüfung, ob der String eine gültige und bisher nicht vorhandene id ist
                         message.show("Fehler", "Bitte eine g\u00FCltige oder nicht vorhandene ID eingeben!");
-                        return false;
+                        return CompletableFuture.completedFuture(false);
                     }
                 } catch (NumberFormatException err) {
                     message.show("Fehler", "Bitte ein g\u00FCltiges Kaufjahr eingeben");
-                    return false;
+                    return CompletableFuture.completedFuture(false);
                 }
             }
         }
         Device device = new Device(attributes[0], attributes[1], attributes[2], Integer.parseInt(attributes[3]), Integer.parseInt(attributes[4]), null, null);
 
-        boolean addDeviceSuccessful = rest.postDevice(device); // Übergeben des neuen Gerätes an den Server
-        if (addDeviceSuccessful) {
-            message.show("Ger\u00E4tebearbeitung", "Das Ger\u00E4t wurde erfolgreich hinzugef\u00FCgt");
-            return true;
-        } else {
-            message.show("Fehler", "Fehler: Fehler beim Bearbeiten des Ger\u00E4tes");
-            return false;
-        }
+        return track(rest.postDeviceAsync(device)).thenApply(addDeviceSuccessful -> { // Übergeben des neuen Gerätes an den Server
+            if (Boolean.TRUE.equals(addDeviceSuccessful)) {
+                catalogChanged(); // Eigene Änderung in den lokalen Katalog übernehmen
+                message.show("Ger\u00E4tebearbeitung", "Das Ger\u00E4t wurde erfolgreich hinzugef\u00FCgt");
+                return true;
+            } else {
+                message.show("Fehler", "Fehler: Fehler beim Bearbeiten des Ger\u00E4tes");
+                return false;
+            }
+        });
     }
 
     /**
@@ -234,9 +420,55 @@ public class LendingController {
         }
     }
 
+    /**
+     * Prüft im lokalen Katalog, ob es ein Gerät mit der ID gibt. Ist der Katalog nicht geladen, wird nicht
+     * beim Server nachgefragt, um den JavaFX-Thread nicht zu blockieren; eine doppelte ID lehnt dann der
+     * Server beim Speichern ab.
+     * @param id ID
+     * @return true, wenn das Gerät existiert, sonst false
+     */
     public boolean isExistingId(String id) {
-        List<Device> matchingDevices = rest.getMatchingDevices(id, SearchCriteria.ID);
-        return matchingDevices != null;
+        return replica.isLoaded() && replica.getDevice(id) != null;
+    }
+
+    /**
+     * Lädt die vom Benutzer ausgeliehenen Geräte asynchron
+     * @return CompletableFuture mit den Geräten oder null bei einem Fehler, auf dem JavaFX-Thread
+     */
+    public CompletableFuture<List<Device>> handleShowBorrowedDevices() {
+        return track(rest.getBorrowedDevicesAsync(loginModel.getUsername()));
+    }
+
+    /**
+     * Verfolgt eine asynchrone Anfrage. Solange Anfragen laufen, zeigt die LendingView einen Fortschritt an.
+     * Das zurückgegebene CompletableFuture wird auf dem JavaFX-Thread abgeschlossen, Folgeschritte laufen daher
+     * ebenfalls dort. Ohne Verbindung zum Server ist das Ergebnis wie bei den synchronen Anfragen null.
+     * Wird die Anfrage abgebrochen, wird das zurückgegebene CompletableFuture nie abgeschlossen.
+     * @param request Die laufende Anfrage
+     * @return CompletableFuture mit dem Ergebnis auf dem JavaFX-Thread
+     * @param <T> Typ des Ergebnisses
+     */
+    private <T> CompletableFuture<T> track(CompletableFuture<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.add(request);
+        lendingView.showProgress(true);
+        request.whenComplete((value, error) -> Platform.runLater(() -> {
+            pending.remove(request);
+            lendingView.showProgress(!pending.isEmpty());
+            if (!request.isCancelled()) {
+                result.complete(error == null ? value : null);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Bricht alle laufenden Anfragen ab, z.B. beim Verlassen des Hauptbildschirms
+     */
+    public void cancelPendingRequests() {
+        for (CompletableFuture<?> request : new ArrayList<>(pending)) {
+            request.cancel(true);
+        }
     }
 
     /**
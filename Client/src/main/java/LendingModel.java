@@ -14,6 +14,7 @@ public class LendingModel {
     private String search; //Suchbegriff
     private SearchCriteria searchCriteria; //Suchkriterium
     private ObservableList<String> observableList; //ObservableList zur Anzeige in einer ListView
+    private List<Device> displayedDevices; //Geräte, die in der ObservableList angezeigt werden
     private String id; //ID
     private Device currentDevice; //aktuelles Gerät
     private TextField[] inputFields; //Eingabefelder zur Eingabe der Attribute eines Gerätes
@@ -67,6 +68,22 @@ public class LendingModel {
         this.observableList = observableList;
     }
 
+    /**
+     * Getter der angezeigten Geräte
+     * @return Geräte in der Reihenfolge der ObservableList
+     */
+    public List<Device> getDisplayedDevices() {
+        return displayedDevices;
+    }
+
+    /**
+     * Setter der angezeigten Geräte
+     * @param displayedDevices Geräte in der Reihenfolge der ObservableList
+     */
+    public void setDisplayedDevices(List<Device> displayedDevices) {
+        this.displayedDevices = displayedDevices;
+    }
+
     /**
      * Getter der ID
      * @return ID
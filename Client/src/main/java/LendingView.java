@@ -1,3 +1,4 @@
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -10,6 +11,7 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -24,12 +26,16 @@ import java.util.Objects;
  * und die Admin-Funktionen wie Geräte zu bearbeiten und hinzuzufügen.
  */
 public class LendingView {
+    private static final Duration SEARCH_DELAY = Duration.millis(300); //Ruhezeit der Eingabe, nach der automatisch gesucht wird
     private final Stage stage;
     private Scene scene;
     private final LoginModel loginModel; //Modell für die Speicherung der Daten vom Benutzer
     private final LendingModel lendingModel; //Modell für die Speicherung der Daten der Geräteausleih-Anwendung
     private final LendingController controller; //Controller für das Verarbeiten der Button-Events
     private final ClientRestEndpoints rest; //Rest Endpunkt des Klienten
+    private final DeviceEventClient events; //Empfängt Änderungen an Geräten vom Server
+    private final CatalogReplica replica; //Lokale Kopie des Gerätekatalogs
+    private final ProgressIndicator progress = new ProgressIndicator(); //Wird angezeigt, solange Anfragen an den Server laufen
     private final double screenWidth; //Breite des Bildschirms
     private final double screenHeight; //Höhe des Bildschirms
     private final String CSSPATH = Objects.requireNonNull(getClass().getResource("/style.css")).toExternalForm(); // Pfad zur css Datei (setzt die Schriftart auf "Helvetica" und die Schriftgröße auf 16)
@@ -41,14 +47,24 @@ public class LendingView {
      * @param loginModel Modell für die Speicherung der Daten vom Benutzer
      * @param lendingModel Modell für die Speicherung der Daten der Geräteausleih-Anwendung
      * @param rest Rest Endpunkt des Klienten
+     * @param replica Lokale Kopie des Gerätekatalogs, beim Anmelden geladen
      */
-    public LendingView(Stage stage, LoginModel loginModel, LendingModel lendingModel, ClientRestEndpoints rest) {
+    public LendingView(Stage stage, LoginModel loginModel, LendingModel lendingModel, ClientRestEndpoints rest, CatalogReplica replica) {
         this.stage = stage;
         this.loginModel = loginModel;
         this.lendingModel = lendingModel;
         this.rest = rest;
-
-        controller = new LendingController(loginModel, lendingModel, this, rest);
+        this.replica = replica;
+
+        controller = new LendingController(loginModel, lendingModel, this, rest, replica);
+        events = new DeviceEventClient(rest.getEventsURI(), controller::handleDeviceEvent); // Änderungen anderer Benutzer direkt anzeigen
+        events.connect();
+        replica.start(controller::handleCatalogChange); // Katalog regelmäßig mit den Änderungen abgleichen
+        stage.setOnHidden(e -> {
+            controller.cancelPendingRequests();
+            events.close();
+            replica.close();
+        });
         //Ermitteln der Bildschirmgröße zur Zentrierung auf dem Bildschirm
         Screen screen = Screen.getPrimary();
         Rectangle2D screenBounds = screen.getVisualBounds();
@@ -81,7 +97,11 @@ public class LendingView {
         separator.setStyle("-fx-background-color: #000000;");
         GridPane.setConstraints(separator, 0, 1, 4, 1);
 
-        grid.getChildren().addAll(headlineLabel, separator);
+        progress.setVisible(false);
+        progress.setPrefSize(24, 24);
+        GridPane.setConstraints(progress, 3, 0);
+
+        grid.getChildren().addAll(headlineLabel, separator, progress);
 
         // Bereich zur Gerätesuche
         Label searchLabel = new Label("Ger\u00E4te suchen nach:");
@@ -101,6 +121,7 @@ public class LendingView {
                 und entsprechend nach diesem Kriterium suchen.\n
                 Wenn im Textfeld nichts eingegeben wurde, werden
                 alle zum Ausleihen verf\u00FCgbaren Ger\u00E4te angezeigt.
+                Die Suche startet automatisch w\u00E4hrend der Eingabe.
                 """);
         Tooltip.install(tooltipLabel, tooltip);
 
@@ -110,15 +131,27 @@ public class LendingView {
 
         ListView<String> searchResults = new ListView<>();
         searchResults.setMinHeight(100);
+        lendingModel.setObservableList(FXCollections.observableArrayList());
+        searchResults.setItems(lendingModel.getObservableList()); // Anzeigen der ObservableList, die Suche aktualisiert nur ihre Einträge
         GridPane.setConstraints(searchResults, 0, 4, 4, 1);
 
+        // Suche während der Eingabe: erst suchen, wenn die Eingabe SEARCH_DELAY lang ruht
+        PauseTransition searchDelay = new PauseTransition(SEARCH_DELAY);
+        searchDelay.setOnFinished(e -> {
+            lendingModel.setSearchCriteria(searchCriteria.getValue());
+            lendingModel.setSearch(searchInput.getText());
+            controller.handleSearchButton();
+        });
+        searchInput.textProperty().addListener((observable, oldValue, newValue) -> searchDelay.playFromStart());
+        searchCriteria.valueProperty().addListener((observable, oldValue, newValue) -> searchDelay.playFromStart());
+
         Button searchButton = new Button("Suchen");
         searchButton.setMaxWidth(Double.MAX_VALUE);
         searchButton.setOnAction(e -> {
+            searchDelay.stop();
             lendingModel.setSearchCriteria(searchCriteria.getValue());
             lendingModel.setSearch(searchInput.getText());
             controller.handleSearchButton();
-            searchResults.setItems(lendingModel.getObservableList()); // Anzeigen der ObservableList
         });
         GridPane.setConstraints(searchButton, 3, 3);
 
@@ -147,8 +180,9 @@ public class LendingView {
         borrowButton.setMaxWidth(Double.MAX_VALUE);
         borrowButton.setOnAction(e -> {
             lendingModel.setId(transactionInput.getText());
-            boolean successful = controller.handleBorrowButton();
-            if (successful) transactionInput.clear();
+            controller.handleBorrowButton().thenAccept(successful -> {
+                if (successful) transactionInput.clear();
+            });
         });
         GridPane.setConstraints(borrowButton, 2, 6);
 
@@ -156,8 +190,9 @@ public class LendingView {
         returnButton.setMaxWidth(Double.MAX_VALUE);
         returnButton.setOnAction(e -> {
             lendingModel.setId(transactionInput.getText());
-            boolean successful = controller.handleReturnButton();
-            if (successful) transactionInput.clear();
+            controller.handleReturnButton().thenAccept(successful -> {
+                if (successful) transactionInput.clear();
+            });
         });
         GridPane.setConstraints(returnButton, 3, 6);
 
@@ -173,6 +208,9 @@ public class LendingView {
         Button backToLoginButton = new Button("zur\u00FCck zum Login");
         backToLoginButton.setMaxWidth(Double.MAX_VALUE);
         backToLoginButton.setOnAction(e -> {
+            controller.cancelPendingRequests();
+            events.close();
+            replica.close();
             LoginView loginView = new LoginView(stage, loginModel, rest);
             loginView.showLoginScene();
         });
@@ -260,9 +298,8 @@ public class LendingView {
                 borrowedDevicesListView.setMinWidth(1200);
                 GridPane.setConstraints(borrowedDevicesListView, 0, 2, 4, 1);
 
-                List<Device> borrowedDevicesFromUser = rest.getBorrowedDevices(loginModel.getUsername()); //Geräte vom Server aus der Datenbank holen
-                ObservableList<String> borrowedDevicesOL = convertToBorrowedObservableList(borrowedDevicesFromUser);
-                borrowedDevicesListView.setItems(borrowedDevicesOL);
+                controller.handleShowBorrowedDevices().thenAccept(borrowedDevicesFromUser -> //Geräte vom Server aus der Datenbank holen
+                        borrowedDevicesListView.setItems(convertToBorrowedObservableList(borrowedDevicesFromUser)));
 
                 Button closeButton = new Button("Schlie\u00DFen");
                 closeButton.setMaxWidth(Double.MAX_VALUE);
@@ -334,8 +371,9 @@ public class LendingView {
                 editButton.setMaxWidth(Double.MAX_VALUE);
                 editButton.setOnAction(e -> {
                     lendingModel.setInputFields(inputFields);
-                    boolean successful = controller.handleAddButton();
-                    if (successful) newStage.close();
+                    controller.handleAddButton().thenAccept(successful -> {
+                        if (successful) newStage.close();
+                    });
                 });
                 GridPane.setConstraints(editButton, 1, labels.length + 3);
 
@@ -352,11 +390,9 @@ public class LendingView {
 
     /**
      * Zeigt das Fenster an in dem das über die ID ausgewählte Gerät bearbeitet werden kann.
-     * @param id ID
+     * @param currentDevice Das zu bearbeitende Gerät
      */
-    public void showEditStage(String id) {
-        Device currentDevice = rest.getMatchingDevices(id, SearchCriteria.ID).getFirst(); //Gerät mit der id vom Server von der Datenbank holen
-
+    public void showEditStage(Device currentDevice) {
         Stage newStage = new Stage();
 
         GridPane grid = new GridPane();
@@ -446,8 +482,9 @@ public class LendingView {
             lendingModel.setCurrentDevice(currentDevice);
             lendingModel.setInputFields(inputFields);
             lendingModel.setCurrentDeviceLabels(currentDeviceLabels);
-            boolean successful = controller.handleEditDeviceButton();
-            if (successful) newStage.close();
+            controller.handleEditDeviceButton().thenAccept(successful -> {
+                if (successful) newStage.close();
+            });
         });
         GridPane.setConstraints(editButton, 2, labels.length + 3);
 
@@ -466,6 +503,14 @@ public class LendingView {
         newStage.show();
     }
 
+    /**
+     * Zeigt oder versteckt die Fortschrittsanzeige für laufende Anfragen an den Server
+     * @param active true, solange Anfragen laufen
+     */
+    public void showProgress(boolean active) {
+        progress.setVisible(active);
+    }
+
     /**
      * Konvertiert eine Liste mit Geräten plus ihrem Rückgabedatum in eine ObservableList,
      * um sie in einer ListView anzeigen lassen zu können
@@ -1,5 +1,8 @@
+import javafx.application.Platform;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author Georg Kunze, m28909, u36363
  * Kontroller für die OnAction-Events der Button in dem Anmeldebildschirm
@@ -33,18 +36,29 @@ public class LoginController {
 
     /**
      * Event-Handler für den Login-Button zum Anmelden beim Server und Anzeigen der Benutzeroberfläche
-     * der Geräteausleih-Anwendung
+     * der Geräteausleih-Anwendung. Anmeldung und das erste Laden des Katalogs laufen asynchron,
+     * das Hauptfenster wird danach auf dem JavaFX-Thread angezeigt.
      */
     public void handleLoginButton() {
         String username = loginModel.getUsername();
 
         if (!username.isEmpty()) {
-            boolean loginSuccessful = rest.postUsername(username); //Benutzer mit Benutzernamen am Server und in der Datenbank registrieren
-            if (loginSuccessful) {
-                LendingModel lendingModel = new LendingModel();
-                LendingView lendingView = new LendingView(stage, loginModel, lendingModel, rest);
-                lendingView.showLibraryScene(); //Anzeigen des Hauptfensters der Geräteausleih-Anwendung
-            } else message.show("Login Fehler", "Anmeldung fehlgeschlagen. Keine Verbindung zum Server! Bitte Server starten!");
+            CatalogReplica replica = new CatalogReplica(rest);
+            rest.postUsernameAsync(username) //Benutzer mit Benutzernamen am Server und in der Datenbank registrieren
+                    .thenCompose(loginSuccessful -> Boolean.TRUE.equals(loginSuccessful)
+                            ? replica.synchronizeAsync().handle((changed, e) -> true) //Katalog einmal laden, ohne Katalog wird beim Server gesucht
+                            : CompletableFuture.completedFuture(false))
+                    .handleAsync((loginSuccessful, e) -> {
+                        if (Boolean.TRUE.equals(loginSuccessful)) {
+                            LendingModel lendingModel = new LendingModel();
+                            LendingView lendingView = new LendingView(stage, loginModel, lendingModel, rest, replica);
+                            lendingView.showLibraryScene(); //Anzeigen des Hauptfensters der Geräteausleih-Anwendung
+                        } else {
+                            replica.close();
+                            message.show("Login Fehler", "Anmeldung fehlgeschlagen. Keine Verbindung zum Server! Bitte Server starten!");
+                        }
+                        return null;
+                    }, Platform::runLater);
         } else {
             message.show("Fehler", "Bitte einen Benutzernamen eingeben!");
         }
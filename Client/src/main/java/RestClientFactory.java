@@ -0,0 +1,112 @@
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+
+import java.net.URI;
+import java.util.ResourceBundle;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse RestClientFactory enthält die Verbindungsparameter des Klienten und erstellt damit den Jersey-Client.
+ * Die Parameter stehen in Client.properties: BaseURI des Servers, Connector (siehe ConnectorType),
+ * MaxConnections gleichzeitig offene Verbindungen, ConnectTimeout und ReadTimeout in Millisekunden und
+ * ConnectionTtl, die maximale Lebensdauer einer offenen Verbindung im Pool in Millisekunden.
+ * Mit dem Connector APACHE werden Verbindungen nach einer Anfrage im Pool offen gehalten und von der nächsten
+ * Anfrage wiederverwendet, auch von mehreren gleichzeitigen asynchronen Anfragen. Die Timeouts gelten für
+ * beide Connectoren, MaxConnections und ConnectionTtl nur für APACHE.
+ */
+public class RestClientFactory {
+    private final URI baseURI; //Basis-URI der REST-Endpunkte des Servers
+    private final ConnectorType connector; //HTTP-Client für die Anfragen
+    private final int maxConnections; //Maximale Anzahl gleichzeitig offener Verbindungen
+    private final int connectTimeout; //Timeout für den Verbindungsaufbau in ms
+    private final int readTimeout; //Timeout für das Warten auf die Antwort in ms
+    private final long connectionTtl; //Maximale Lebensdauer einer Verbindung im Pool in ms
+
+    /**
+     * Konstruktor der Klasse RestClientFactory, liest die Parameter aus Client.properties
+     */
+    public RestClientFactory() {
+        this(ResourceBundle.getBundle("Client"));
+    }
+
+    /**
+     * Konstruktor der Klasse RestClientFactory, liest die Parameter aus einem ResourceBundle
+     * @param bundle Verbindungsparameter
+     */
+    public RestClientFactory(ResourceBundle bundle) {
+        this(URI.create(bundle.getString("BaseURI")),
+                ConnectorType.valueOf(bundle.getString("Connector")),
+                Integer.parseInt(bundle.getString("MaxConnections")),
+                Integer.parseInt(bundle.getString("ConnectTimeout")),
+                Integer.parseInt(bundle.getString("ReadTimeout")),
+                Long.parseLong(bundle.getString("ConnectionTtl")));
+    }
+
+    /**
+     * Konstruktor der Klasse RestClientFactory
+     * @param baseURI Basis-URI der REST-Endpunkte des Servers, z.B. http://localhost:8080/rest
+     * @param connector HTTP-Client für die Anfragen
+     * @param maxConnections Maximale Anzahl gleichzeitig offener Verbindungen
+     * @param connectTimeout Timeout für den Verbindungsaufbau in ms, 0 für unbegrenzt
+     * @param readTimeout Timeout für das Warten auf die Antwort in ms, 0 für unbegrenzt
+     * @param connectionTtl Maximale Lebensdauer einer Verbindung im Pool in ms
+     */
+    public RestClientFactory(URI baseURI, ConnectorType connector, int maxConnections, int connectTimeout, int readTimeout, long connectionTtl) {
+        String uri = baseURI.toString();
+        this.baseURI = uri.endsWith("/") ? URI.create(uri.substring(0, uri.length() - 1)) : baseURI;
+        this.connector = connector;
+        this.maxConnections = maxConnections;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.connectionTtl = connectionTtl;
+    }
+
+    /**
+     * Getter der Basis-URI
+     * @return Basis-URI der REST-Endpunkte des Servers ohne abschließenden Schrägstrich
+     */
+    public URI getBaseURI() {
+        return baseURI;
+    }
+
+    /**
+     * Gibt die URI des WebSocket-Endpunktes für die Änderungen an Geräten zurück
+     * @return URI mit dem Schema ws bzw. wss
+     */
+    public URI getEventsURI() {
+        String scheme = "https".equalsIgnoreCase(baseURI.getScheme()) ? "wss" : "ws";
+        return URI.create(scheme + baseURI.toString().substring(baseURI.getScheme().length()) + "/events");
+    }
+
+    /**
+     * Erstellt einen Jersey-Client mit dem konfigurierten Connector und den Timeouts
+     * @param asyncExecutor Pool für den asynchronen Invoker
+     * @return Der Client
+     */
+    public Client createClient(ExecutorService asyncExecutor) {
+        ClientConfig config = new ClientConfig()
+                .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
+                .property(ClientProperties.READ_TIMEOUT, readTimeout);
+        if (connector == ConnectorType.APACHE) {
+            PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(connectionTtl, TimeUnit.MILLISECONDS);
+            pool.setMaxTotal(maxConnections);
+            pool.setDefaultMaxPerRoute(maxConnections); // Alle Anfragen gehen an denselben Server
+            config.connectorProvider(new ApacheConnectorProvider())
+                    .property(ApacheClientProperties.CONNECTION_MANAGER, pool)
+                    .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED); // Kleine Inhalte mit Content-Length statt chunked
+        }
+        Log.info("http", ">>> Connector {} für {} <<<", connector, baseURI);
+        return ClientBuilder.newBuilder()
+                .withConfig(config)
+                .executorService(asyncExecutor) // Eigener Pool für den asynchronen Invoker
+                .build();
+    }
+}
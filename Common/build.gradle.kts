@@ -9,11 +9,15 @@ repositories {
     mavenCentral()
 }
 
+val jacksonVersion: String by extra { "2.15.2" }
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    compileOnly("jakarta.ws.rs:jakarta.ws.rs-api:3.0.0") // Wird von Jersey in Server und Client bereitgestellt
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor:${jacksonVersion}")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record BorrowRequest beschreibt das Ausleihen oder Zurückgeben mehrerer Geräte mit einer Anfrage
+ * @param action Die Aktion (BORROW oder RETURN)
+ * @param ids IDs der Geräte
+ * @param atomic true, um nur alle oder keines der Geräte zu ändern, false, um die möglichen Geräte zu ändern
+ */
+public record BorrowRequest(Action action, List<Integer> ids, boolean atomic) {
+}
@@ -0,0 +1,10 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record BorrowResult ist das Ergebnis eines BorrowRequest
+ * @param changed IDs der ausgeliehenen bzw. zurückgegebenen Geräte
+ * @param rejected IDs der Geräte, die nicht verfügbar bzw. nicht vom Benutzer ausgeliehen sind oder nicht existieren
+ */
+public record BorrowResult(List<Integer> changed, List<Integer> rejected) {
+}
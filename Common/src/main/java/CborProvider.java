@@ -0,0 +1,56 @@
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse CborProvider liest und schreibt Anfrage- und Antwortinhalte im Medientyp application/cbor.
+ * Sie wird in Server und Client registriert, sodass das Format über die Header Accept und Content-Type
+ * gewählt werden kann.
+ */
+@Provider
+@Produces(WireFormat.APPLICATION_CBOR)
+@Consumes(WireFormat.APPLICATION_CBOR)
+public class CborProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isCbor(mediaType);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        return WireFormat.cborMapper().readValue(entityStream, WireFormat.cborMapper().constructType(genericType));
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isCbor(mediaType);
+    }
+
+    @Override
+    public void writeTo(Object value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        WireFormat.cborMapper().writerFor(WireFormat.cborMapper().constructType(genericType)).writeValue(entityStream, value);
+    }
+
+    /**
+     * Prüft, ob der Medientyp application/cbor ist
+     * @param mediaType Der Medientyp
+     * @return true, wenn es application/cbor ist, sonst false.
+     */
+    private static boolean isCbor(MediaType mediaType) {
+        return mediaType != null && "application".equalsIgnoreCase(mediaType.getType()) && "cbor".equalsIgnoreCase(mediaType.getSubtype());
+    }
+}
@@ -0,0 +1,12 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record ChangeSet enthält die Änderungen am Gerätekatalog seit einer Version
+ * @param version Version des Katalogs nach Anwendung der Änderungen, für die nächste Anfrage
+ * @param reset true, wenn devices der ganze Katalog ist und die bisherigen Geräte verworfen werden
+ * @param devices Aktueller Zustand der geänderten Geräte einschließlich ausgeliehener Geräte
+ * @param removed IDs der Geräte, die es nicht mehr gibt, z.B. nach einer Änderung der ID
+ */
+public record ChangeSet(long version, boolean reset, List<Device> devices, List<Integer> removed) {
+}
@@ -0,0 +1,16 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record DeviceEvent beschreibt eine Änderung eines Gerätes, die der Server an alle verbundenen Clients sendet
+ * @param type Art der Änderung
+ * @param previousId Bisherige ID des Gerätes, bei EDITED kann sie sich von id unterscheiden
+ * @param id Aktuelle ID des Gerätes
+ * @param device Zustand des Gerätes beim Senden oder null, wenn es nicht mehr existiert bzw. bei RESYNC
+ */
+public record DeviceEvent(Type type, int previousId, int id, Device device) {
+
+    /**
+     * Das enum Type enthält die Arten von Änderungen. RESYNC bedeutet, dass Änderungen verloren gegangen sind
+     * und der Client seine Anzeige neu laden muss.
+     */
+    public enum Type {ADDED, EDITED, BORROWED, RETURNED, RESYNC}
+}
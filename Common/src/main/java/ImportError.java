@@ -0,0 +1,9 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record ImportError beschreibt eine Zeile eines Geräteimports, die nicht übernommen wurde
+ * @param row Nummer der Zeile bzw. des Array-Elements in den importierten Daten, beginnend bei 1
+ * @param id ID des Gerätes oder null, wenn die Zeile nicht gelesen werden konnte
+ * @param message Grund, warum die Zeile nicht übernommen wurde
+ */
+public record ImportError(int row, Integer id, String message) {
+}
@@ -0,0 +1,11 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record ImportReport ist das Ergebnis eines Geräteimports
+ * @param received Anzahl der gelesenen Zeilen
+ * @param imported Anzahl der hinzugefügten Geräte
+ * @param errors Zeilen, die nicht übernommen wurden, mit ihrem Grund
+ */
+public record ImportReport(int received, int imported, List<ImportError> errors) {
+}
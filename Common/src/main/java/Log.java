@@ -0,0 +1,301 @@
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse Log gibt Meldungen von Server und Client asynchron auf der Konsole aus.
+ * Ein Request-Thread prüft nur Level und Stichprobe seiner Kategorie und legt die Meldung mit ihren Argumenten
+ * unformatiert in einen Ringpuffer fester Größe. Ein Hintergrund-Thread formatiert die Meldungen und schreibt sie
+ * gesammelt auf System.out (DEBUG, INFO) bzw. System.err (WARN, ERROR). Ist der Puffer voll, weil die Konsole
+ * nicht nachkommt, wird die Meldung verworfen statt zu warten; die Anzahl verworfener Meldungen wird später
+ * ausgegeben. Der Ringpuffer ist eine sperrfreie, begrenzte Queue mit einer Sequenznummer je Platz für viele
+ * Erzeuger und einen Verbraucher.
+ * Die Konfiguration steht optional in Logging.properties: Level für alle Kategorien, Level.kategorie für eine
+ * Kategorie, Sample.kategorie = n, um nur etwa jede n-te Meldung unterhalb von WARN auszugeben, und BufferSize.
+ * Platzhalter {} in einer Meldung werden der Reihe nach durch die Argumente ersetzt.
+ */
+public final class Log {
+
+    /**
+     * Das enum Level enthält die Dringlichkeit einer Meldung in aufsteigender Reihenfolge
+     */
+    public enum Level {DEBUG, INFO, WARN, ERROR}
+
+    /**
+     * Der Record Event enthält eine noch nicht formatierte Meldung
+     * @param level Dringlichkeit
+     * @param pattern Meldung mit Platzhaltern oder null, wenn supplier gesetzt ist
+     * @param args Argumente für die Platzhalter
+     * @param supplier Erzeugt die Meldung erst beim Schreiben oder null
+     */
+    private record Event(Level level, String pattern, Object[] args, Supplier<String> supplier) {
+    }
+
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final long IDLE_WAIT = 1_000_000L; //Wartezeit des Schreib-Threads bei leerem Puffer in ns
+
+    private static final Level defaultLevel;
+    private static final Map<String, Level> levels = new HashMap<>(); //Level je Kategorie, nur beim Laden geschrieben
+    private static final Map<String, Integer> samples = new HashMap<>(); //Stichprobe je Kategorie, nur beim Laden geschrieben
+
+    private static final int mask;
+    private static final AtomicReferenceArray<Event> slots;
+    private static final AtomicLongArray sequences; //Sequenznummer je Platz für die sperrfreie Queue
+    private static final AtomicLong tail = new AtomicLong(); //Nächste Schreibposition der Erzeuger
+    private static long head; //Nächste Leseposition, nur vom Schreib-Thread verwendet
+    private static final LongAdder dropped = new LongAdder(); //Verworfene Meldungen bei vollem Puffer
+    private static final Thread writer;
+
+    static {
+        Level level = Level.INFO;
+        int bufferSize = 8192;
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle("Logging");
+            for (String key : bundle.keySet()) {
+                String value = bundle.getString(key).trim();
+                if (key.equals("Level")) {
+                    level = Level.valueOf(value.toUpperCase(Locale.ROOT));
+                } else if (key.equals("BufferSize")) {
+                    bufferSize = Integer.parseInt(value);
+                } else if (key.startsWith("Level.")) {
+                    levels.put(key.substring("Level.".length()), Level.valueOf(value.toUpperCase(Locale.ROOT)));
+                } else if (key.startsWith("Sample.")) {
+                    samples.put(key.substring("Sample.".length()), Integer.parseInt(value));
+                }
+            }
+        } catch (MissingResourceException e) {
+            // Ohne Logging.properties gelten die Standardwerte
+        }
+        defaultLevel = level;
+
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1; // Nächste Zweierpotenz
+        mask = capacity - 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+
+        writer = new Thread(Log::drainLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    /**
+     * Privater Konstruktor, da die Klasse nur statische Methoden enthält
+     */
+    private Log() {
+    }
+
+    /**
+     * Prüft, ob eine Meldung der Kategorie mit dem Level ausgegeben wird
+     * @param level Dringlichkeit
+     * @param category Kategorie
+     * @return true, wenn das Level mindestens dem konfigurierten Level der Kategorie entspricht
+     */
+    public static boolean isEnabled(Level level, String category) {
+        return level.compareTo(levels.getOrDefault(category, defaultLevel)) >= 0;
+    }
+
+    /**
+     * Gibt eine Meldung mit dem Level DEBUG aus
+     * @param category Kategorie
+     * @param pattern Meldung mit Platzhaltern {}
+     * @param args Argumente für die Platzhalter
+     */
+    public static void debug(String category, String pattern, Object... args) {
+        log(Level.DEBUG, category, pattern, args, null);
+    }
+
+    /**
+     * Gibt eine Meldung mit dem Level INFO aus
+     * @param category Kategorie
+     * @param pattern Meldung mit Platzhaltern {}
+     * @param args Argumente für die Platzhalter
+     */
+    public static void info(String category, String pattern, Object... args) {
+        log(Level.INFO, category, pattern, args, null);
+    }
+
+    /**
+     * Gibt eine Meldung mit dem Level WARN aus
+     * @param category Kategorie
+     * @param pattern Meldung mit Platzhaltern {}
+     * @param args Argumente für die Platzhalter
+     */
+    public static void warn(String category, String pattern, Object... args) {
+        log(Level.WARN, category, pattern, args, null);
+    }
+
+    /**
+     * Gibt eine Meldung mit dem Level ERROR aus
+     * @param category Kategorie
+     * @param pattern Meldung mit Platzhaltern {}
+     * @param args Argumente für die Platzhalter
+     */
+    public static void error(String category, String pattern, Object... args) {
+        log(Level.ERROR, category, pattern, args, null);
+    }
+
+    /**
+     * Gibt eine Meldung aus, die erst im Schreib-Thread erzeugt wird, z.B. für aufwendig zusammengesetzte Texte
+     * @param level Dringlichkeit
+     * @param category Kategorie
+     * @param message Erzeugt die Meldung
+     */
+    public static void log(Level level, String category, Supplier<String> message) {
+        log(level, category, null, NO_ARGS, message);
+    }
+
+    /**
+     * Prüft Level und Stichprobe und legt die Meldung in den Ringpuffer
+     * @param level Dringlichkeit
+     * @param category Kategorie
+     * @param pattern Meldung mit Platzhaltern oder null
+     * @param args Argumente für die Platzhalter
+     * @param supplier Erzeugt die Meldung oder null
+     */
+    private static void log(Level level, String category, String pattern, Object[] args, Supplier<String> supplier) {
+        if (!isEnabled(level, category)) {
+            return;
+        }
+        Integer sample = samples.get(category);
+        if (sample != null && sample > 1 && level.compareTo(Level.WARN) < 0
+                && ThreadLocalRandom.current().nextInt(sample) != 0) {
+            return;
+        }
+        if (!offer(new Event(level, pattern, args, supplier))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Legt eine Meldung in den Ringpuffer, ohne zu warten
+     * @param event Die Meldung
+     * @return true, wenn ein Platz frei war, sonst false.
+     */
+    private static boolean offer(Event event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, event);
+                    sequences.set(index, position + 1); // Platz für den Schreib-Thread freigeben
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // Puffer voll
+            } else {
+                position = tail.get(); // Ein anderer Erzeuger war schneller
+            }
+        }
+    }
+
+    /**
+     * Entnimmt die älteste Meldung aus dem Ringpuffer. Wird nur vom Schreib-Thread bzw. unter Sperre aufgerufen.
+     * @return Die Meldung oder null, wenn der Puffer leer ist
+     */
+    private static Event poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Event event = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + mask + 1); // Platz für die nächste Runde der Erzeuger freigeben
+        head++;
+        return event;
+    }
+
+    /**
+     * Schreibt die Meldungen, solange das Programm läuft
+     */
+    private static void drainLoop() {
+        while (true) {
+            int written;
+            try {
+                written = drain();
+            } catch (Throwable e) {
+                written = 0; // Der Schreib-Thread darf nicht enden, sonst füllt sich der Puffer und alle Meldungen gehen verloren
+            }
+            if (written == 0) {
+                LockSupport.parkNanos(IDLE_WAIT);
+            }
+        }
+    }
+
+    /**
+     * Schreibt alle Meldungen im Ringpuffer und meldet verworfene Meldungen
+     * @return Anzahl der geschriebenen Meldungen
+     */
+    private static synchronized int drain() {
+        int written = 0;
+        Event event;
+        while ((event = poll()) != null) {
+            PrintStream out = event.level().compareTo(Level.WARN) >= 0 ? System.err : System.out;
+            try {
+                out.println(format(event));
+            } catch (Throwable e) {
+                // z.B. ein Argument, dessen toString() fehlschlägt; die übrigen Meldungen werden weiter geschrieben
+                System.err.println(">>> Log-Meldung konnte nicht geschrieben werden: " + e + " <<<");
+            }
+            written++;
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            System.err.println(">>> " + lost + " Log-Meldungen verworfen, Ausgabe zu langsam <<<");
+        }
+        if (written > 0) {
+            System.out.flush();
+            System.err.flush();
+        }
+        return written;
+    }
+
+    /**
+     * Schreibt alle noch gepufferten Meldungen sofort, z.B. vor dem Beenden des Programms
+     */
+    public static void flush() {
+        drain();
+    }
+
+    /**
+     * Formatiert eine Meldung, indem die Platzhalter {} der Reihe nach durch die Argumente ersetzt werden
+     * @param event Die Meldung
+     * @return Formatierte Meldung
+     */
+    private static String format(Event event) {
+        if (event.supplier() != null) {
+            return event.supplier().get();
+        }
+        String pattern = event.pattern();
+        Object[] args = event.args();
+        if (args.length == 0) {
+            return pattern;
+        }
+        StringBuilder message = new StringBuilder(pattern.length() + 16 * args.length);
+        int start = 0;
+        int argument = 0;
+        int placeholder;
+        while (argument < args.length && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+            message.append(pattern, start, placeholder).append(args[argument++]);
+            start = placeholder + 2;
+        }
+        return message.append(pattern, start, pattern.length()).toString();
+    }
+}
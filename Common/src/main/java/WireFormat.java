@@ -0,0 +1,69 @@
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse WireFormat beschreibt das binäre Übertragungsformat zwischen Client und Server.
+ * Geräte werden als CBOR übertragen, das die Feldnamen und Zahlen kompakter als JSON kodiert. Das Rückgabedatum
+ * ist ein reines Kalenderdatum und wird als Anzahl der Tage seit dem 1.1.1970 (Epoch-Day) statt als Zeitstempel
+ * in Millisekunden geschrieben. Die Umrechnung erfolgt in der Zeitzone des jeweiligen Rechners, wie beim Lesen
+ * des Datums aus der Datenbank.
+ */
+public final class WireFormat {
+    public static final String APPLICATION_CBOR = "application/cbor"; //Medientyp des binären Formats
+
+    private static final ObjectMapper CBOR_MAPPER = createCborMapper();
+
+    /**
+     * Privater Konstruktor, da die Klasse nur statische Methoden enthält
+     */
+    private WireFormat() {
+    }
+
+    /**
+     * Gibt den gemeinsamen, threadsicheren ObjectMapper für CBOR zurück
+     * @return ObjectMapper für CBOR
+     */
+    public static ObjectMapper cborMapper() {
+        return CBOR_MAPPER;
+    }
+
+    /**
+     * Erzeugt den ObjectMapper für CBOR mit Epoch-Day-Datumswerten. Ein- und Ausgabeströme werden nicht
+     * geschlossen, da sie Jersey gehören.
+     * @return ObjectMapper für CBOR
+     */
+    private static ObjectMapper createCborMapper() {
+        SimpleModule epochDay = new SimpleModule("EpochDay");
+        epochDay.addSerializer(Date.class, new StdSerializer<>(Date.class) {
+            @Override
+            public void serialize(Date value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeNumber(Instant.ofEpochMilli(value.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+            }
+        });
+        epochDay.addDeserializer(Date.class, new StdDeserializer<>(Date.class) {
+            @Override
+            public Date deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                return java.sql.Date.valueOf(LocalDate.ofEpochDay(parser.getLongValue()));
+            }
+        });
+        return CBORMapper.builder()
+                .addModule(epochDay)
+                .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .build();
+    }
+}
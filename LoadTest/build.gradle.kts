@@ -0,0 +1,32 @@
+plugins {
+    id("java")
+    application
+}
+
+group = "de.medieninformatik"
+version = "1.0-SNAPSHOT"
+
+application{
+    mainClass.set("LoadTest")
+}
+
+repositories {
+    mavenCentral()
+}
+
+val grizzlyVersion: String by extra { "4.0.0" }
+val jerseyVersion:  String by extra { "3.1.3" }
+val hdrHistogramVersion: String by extra { "2.1.12" }
+
+dependencies {
+    implementation(project(mapOf("path" to ":Server")))
+    implementation(testFixtures(project(mapOf("path" to ":Server"))))
+    implementation(project(mapOf("path" to ":Common")))
+    implementation("org.glassfish.jersey.core:jersey-server:${jerseyVersion}")
+    implementation("org.glassfish.jersey.inject:jersey-hk2:${jerseyVersion}")
+    implementation("org.glassfish.jersey.media:jersey-media-json-jackson:3.1.0")
+    implementation("org.glassfish.grizzly:grizzly-http-server:${grizzlyVersion}")
+    implementation("org.glassfish.grizzly:grizzly-websockets:${grizzlyVersion}")
+    implementation("org.glassfish.jersey.containers:jersey-container-grizzly2-http:${jerseyVersion}")
+    implementation("org.hdrhistogram:HdrHistogram:${hdrHistogramVersion}")
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse InProcessServer startet ServerRestEndpoints mit EmbeddedServer im Prozess des Lastgenerators.
+ * Anstelle von MySQL dient je nach StorageEngine eine der beiden Speicher-Engines als lokaler Datenbankersatz, der
+ * mit der konfigurierten Anzahl an Geräten befüllt wird:
+ * MEMORY: InMemoryRepository mit einem Journal in einem temporären Verzeichnis.
+ * JDBC: Verbindungspool, DatabaseUtil und UserRegistry gegen eine H2-Datenbank im MySQL-Modus im Hauptspeicher.
+ * Wie beim Server werden die Anfragen je nach ExecutionMode in einem festen Pool oder auf virtuellen Threads
+ * bearbeitet. Schreibende Anfragen warten auf den Group Commit des Journals bzw. den Commit in H2 und blockieren
+ * dabei ihren Thread.
+ */
+public class InProcessServer implements AutoCloseable {
+    private static final String[][] MODELS = {
+            {"Bosch", "UniversalImpact 18V", "Bohrmaschine"},
+            {"Makita", "HR2470", "Bohrhammer"},
+            {"DeWalt", "DCD771C2", "Akku-Schrauber"},
+            {"Einhell", "TE-CD 18/2", "Akku-Schrauber"},
+            {"Metabo", "KHE 2660", "Bohrhammer"}
+    };
+
+    private final Path journalDirectory; //Nur bei MEMORY, sonst null
+    private final AutoCloseable storage; //Die Speicher-Engine, die beim Beenden geschlossen wird
+    private final EmbeddedServer server;
+
+    /**
+     * Startet Speicher-Engine und Server und legt die Geräte mit den IDs 1 bis devices an
+     * @param engine Speicher-Engine des Servers
+     * @param devices Anzahl der Geräte
+     * @param mode Threads, auf denen die Anfragen bearbeitet werden
+     * @param workerPoolSize Anzahl der Plattform-Threads bei POOLED
+     * @throws IOException wenn Journal oder Server nicht gestartet werden können
+     * @throws SQLException wenn die H2-Datenbank nicht angelegt werden kann
+     */
+    public InProcessServer(StorageEngine engine, int devices, ExecutionMode mode, int workerPoolSize) throws IOException, SQLException {
+        List<Device> seed = new ArrayList<>(devices);
+        for (int id = 1; id <= devices; id++) {
+            String[] model = MODELS[id % MODELS.length];
+            seed.add(new Device(model[0], model[1], model[2], 2015 + id % 9, id, null, null));
+        }
+        switch (engine) {
+            case MEMORY -> {
+                journalDirectory = Files.createTempDirectory("lending-loadtest");
+                InMemoryRepository repository = new InMemoryRepository(journalDirectory, 5, Long.MAX_VALUE);
+                repository.addDevices(seed);
+                storage = repository;
+                server = new EmbeddedServer(repository, repository, mode, workerPoolSize);
+            }
+            case JDBC -> {
+                journalDirectory = null;
+                H2Database database = H2Database.inMemory();
+                database.seed(seed);
+                storage = database;
+                server = new EmbeddedServer(database.getDevices(), database.getUsers(), mode, workerPoolSize);
+            }
+            default -> throw new IllegalArgumentException("Unbekannte Speicher-Engine " + engine);
+        }
+    }
+
+    /**
+     * Getter für die Basis-URI des Servers
+     * @return Basis-URI
+     */
+    public URI getBaseURI() {
+        return server.getBaseURI();
+    }
+
+    /**
+     * Beendet Server und Speicher-Engine und löscht das Journal
+     * @throws Exception wenn die Speicher-Engine nicht geschlossen oder das Journal nicht gelöscht werden kann
+     */
+    @Override
+    public void close() throws Exception {
+        server.close();
+        storage.close();
+        if (journalDirectory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse LatencyRecorder sammelt die Antwortzeiten je Operation in HdrHistogrammen.
+ * Für jede Anfrage werden zwei Zeiten erfasst: die Antwortzeit ab dem geplanten Startzeitpunkt und die reine
+ * Bedienzeit ab dem tatsächlichen Senden. Kann der Lastgenerator eine Anfrage nicht pünktlich senden, weil der
+ * Server zu langsam ist, fließt die Wartezeit so in die Antwortzeit ein (Korrektur der Coordinated Omission).
+ * Ohne Taktung (CLOSED mit Rate 0) gibt es keinen geplanten Zeitpunkt und beide Zeiten sind gleich.
+ * Nach stop werden nur noch Anfragen erfasst, deren Antwort vor dem Ende der Messung kam, damit Durchsatz und
+ * Perzentile sich auf dasselbe Zeitfenster beziehen.
+ */
+public class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toMicros(1); //Größte erfasste Zeit in µs
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Operation, Recorder> responseTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, Recorder> serviceTimes = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class); //Antworten mit Status 4xx
+    private final Map<Operation, LongAdder> failed = new EnumMap<>(Operation.class); //Status 5xx und Verbindungsfehler
+    private volatile long end = Long.MAX_VALUE; //Ende der Messung in Nanosekunden
+
+    /**
+     * Konstruktor der Klasse LatencyRecorder, der für jede Operation leere Histogramme anlegt
+     */
+    public LatencyRecorder() {
+        for (Operation operation : Operation.values()) {
+            responseTimes.put(operation, new Recorder(HIGHEST_TRACKABLE, SIGNIFICANT_DIGITS));
+            serviceTimes.put(operation, new Recorder(HIGHEST_TRACKABLE, SIGNIFICANT_DIGITS));
+            rejected.put(operation, new LongAdder());
+            failed.put(operation, new LongAdder());
+        }
+    }
+
+    /**
+     * Erfasst eine abgeschlossene Anfrage
+     * @param operation Die Operation
+     * @param intendedStart Geplanter Startzeitpunkt in Nanosekunden
+     * @param actualStart Tatsächlicher Sendezeitpunkt in Nanosekunden
+     * @param end Zeitpunkt der Antwort in Nanosekunden
+     * @param status Statuscode der Antwort oder -1 bei einem Verbindungsfehler
+     */
+    public void record(Operation operation, long intendedStart, long actualStart, long end, int status) {
+        if (end - this.end > 0) {
+            return; // Antwort nach dem Ende der Messung
+        }
+        responseTimes.get(operation).recordValue(Math.min(toMicros(end - intendedStart), HIGHEST_TRACKABLE));
+        serviceTimes.get(operation).recordValue(Math.min(toMicros(end - actualStart), HIGHEST_TRACKABLE));
+        if (status < 0 || status >= 500) {
+            failed.get(operation).increment();
+        } else if (status >= 400) {
+            rejected.get(operation).increment();
+        }
+    }
+
+    /**
+     * Beendet die Messung. Anfragen, die erst danach beantwortet werden, werden nicht mehr erfasst.
+     * @param end Ende der Messung in Nanosekunden nach System.nanoTime()
+     */
+    public void stop(long end) {
+        this.end = end;
+    }
+
+    /**
+     * Verwirft alle bisher erfassten Werte, z.B. nach der Aufwärmphase
+     */
+    public void reset() {
+        responseTimes.values().forEach(Recorder::reset);
+        serviceTimes.values().forEach(Recorder::reset);
+        rejected.values().forEach(LongAdder::reset);
+        failed.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Gibt Durchsatz und Perzentile je Operation und insgesamt aus
+     * @param out Ausgabestrom
+     * @param elapsed Dauer der Messung
+     */
+    public void report(PrintStream out, Duration elapsed) {
+        double seconds = elapsed.toNanos() / 1e9;
+        Histogram totalResponse = new Histogram(HIGHEST_TRACKABLE, SIGNIFICANT_DIGITS);
+        Histogram totalService = new Histogram(HIGHEST_TRACKABLE, SIGNIFICANT_DIGITS);
+        long totalRejected = 0;
+        long totalFailed = 0;
+
+        out.printf("%n%-20s %9s %9s %9s %9s %9s %9s %9s %9s %7s %7s%n", "Endpunkt", "Anzahl", "Anfr./s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "Bed. p99", "4xx", "Fehler");
+        for (Operation operation : Operation.values()) {
+            Histogram response = responseTimes.get(operation).getIntervalHistogram();
+            Histogram service = serviceTimes.get(operation).getIntervalHistogram();
+            if (response.getTotalCount() == 0) {
+                continue;
+            }
+            long operationRejected = rejected.get(operation).sum();
+            long operationFailed = failed.get(operation).sum();
+            printRow(out, operation.getEndpoint(), response, service, seconds, operationRejected, operationFailed);
+            totalResponse.add(response);
+            totalService.add(service);
+            totalRejected += operationRejected;
+            totalFailed += operationFailed;
+        }
+        printRow(out, "gesamt", totalResponse, totalService, seconds, totalRejected, totalFailed);
+        out.println("Zeiten ab geplantem Start (korrigiert um Coordinated Omission), Bed. p99 = reine Bedienzeit ab Senden");
+    }
+
+    /**
+     * Gibt eine Zeile des Berichts aus
+     * @param out Ausgabestrom
+     * @param name Name der Zeile
+     * @param response Antwortzeiten ab geplantem Start
+     * @param service Bedienzeiten ab Senden
+     * @param seconds Dauer der Messung in Sekunden
+     * @param rejectedCount Anzahl der Antworten mit Status 4xx
+     * @param failedCount Anzahl der Fehler
+     */
+    private static void printRow(PrintStream out, String name, Histogram response, Histogram service, double seconds,
+                                 long rejectedCount, long failedCount) {
+        out.printf("%-20s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %7d%n", name,
+                response.getTotalCount(), response.getTotalCount() / seconds,
+                millis(response.getValueAtPercentile(50)), millis(response.getValueAtPercentile(90)),
+                millis(response.getValueAtPercentile(99)), millis(response.getValueAtPercentile(99.9)),
+                millis(response.getMaxValue()), millis(service.getValueAtPercentile(99)),
+                rejectedCount, failedCount);
+    }
+
+    /**
+     * Wandelt Nanosekunden in Mikrosekunden um
+     * @param nanos Zeit in Nanosekunden
+     * @return Zeit in Mikrosekunden, mindestens 0
+     */
+    private static long toMicros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Wandelt Mikrosekunden in Millisekunden um
+     * @param micros Zeit in Mikrosekunden
+     * @return Zeit in Millisekunden
+     */
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
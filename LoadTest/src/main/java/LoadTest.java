@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse LoadTest enthält die Hauptmethode des Lastgenerators. Er ruft die REST-Endpunkte des Servers mit
+ * dem konfigurierten Mix auf und gibt am Ende Durchsatz und Perzentile der Antwortzeiten je Endpunkt aus.
+ * CLOSED: concurrency Benutzer schicken jeweils nacheinander Anfragen, bei rate &gt; 0 getaktet mit
+ * rate / concurrency Anfragen pro Sekunde und Benutzer.
+ * OPEN: Anfragen werden mit rate Anfragen pro Sekunde gestartet, höchstens concurrency gleichzeitig.
+ * Ohne Target wird ein Server im selben Prozess mit der Speicher-Engine StorageEngine gestartet, der die Anfragen
+ * je nach ExecutionMode in einem Pool von WorkerPoolSize Plattform-Threads oder auf virtuellen Threads bearbeitet.
+ * Gezählt werden nur Anfragen, die innerhalb der Messung beantwortet werden.
+ */
+public class LoadTest {
+    private final LoadTestConfig config;
+    private final Workload workload;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final HttpClient client;
+    private volatile boolean running = true;
+
+    /**
+     * Konstruktor der Klasse LoadTest
+     * @param config Parameter des Lasttests
+     * @param baseURI Basis-URI des Servers
+     */
+    public LoadTest(LoadTestConfig config, URI baseURI) {
+        this.config = config;
+        this.workload = new Workload(baseURI, config);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Hauptmethode des Lastgenerators
+     * @param args Parameter der Form Schlüssel=Wert, die LoadTest.properties überschreiben
+     * @throws Exception wenn der Server nicht gestartet werden kann oder der Test unterbrochen wird
+     */
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.load(args);
+        if (config.loopMode() == LoopMode.OPEN && config.rate() <= 0) {
+            throw new IllegalArgumentException("LoopMode OPEN benötigt eine Rate größer 0");
+        }
+
+        InProcessServer inProcessServer = config.target().isEmpty() ? new InProcessServer(config.storageEngine(), config.devices(), config.executionMode(), config.workerPoolSize()) : null;
+        URI baseURI = inProcessServer != null
+                ? inProcessServer.getBaseURI()
+                : URI.create(config.target().endsWith("/") ? config.target() : config.target() + "/");
+        try {
+            System.out.println(">>> Lasttest gegen " + baseURI + ": " + config + " <<<");
+            new LoadTest(config, baseURI).run();
+        } finally {
+            if (inProcessServer != null) {
+                inProcessServer.close();
+            }
+        }
+    }
+
+    /**
+     * Führt Aufwärmphase und Messung aus und gibt den Bericht aus
+     * @throws InterruptedException wenn der Thread unterbrochen wird
+     */
+    public void run() throws InterruptedException {
+        ExecutorService generators = Executors.newVirtualThreadPerTaskExecutor();
+        Semaphore inFlight = new Semaphore(config.concurrency());
+        switch (config.loopMode()) {
+            case CLOSED -> {
+                for (int i = 0; i < config.concurrency(); i++) {
+                    generators.execute(this::closedLoop);
+                }
+            }
+            case OPEN -> generators.execute(() -> openLoop(inFlight));
+        }
+
+        Thread.sleep(config.warmup().toMillis());
+        recorder.reset();
+        long measurementStart = System.nanoTime();
+        Thread.sleep(config.duration().toMillis());
+        long measurementEnd = System.nanoTime();
+        recorder.stop(measurementEnd); // Später beantwortete Anfragen gehören nicht mehr zur Messung
+        running = false;
+        Duration elapsed = Duration.ofNanos(measurementEnd - measurementStart);
+
+        generators.shutdown();
+        generators.awaitTermination(1, TimeUnit.MINUTES);
+        if (config.loopMode() == LoopMode.OPEN) {
+            inFlight.acquire(config.concurrency()); // Auf die noch offenen Anfragen warten
+        }
+        recorder.report(System.out, elapsed);
+    }
+
+    /**
+     * Ein Benutzer der geschlossenen Schleife. Mit Taktung wird die Antwortzeit ab dem geplanten Zeitpunkt
+     * gemessen, auch wenn die vorherige Antwort so lange gedauert hat, dass die Anfrage verspätet gesendet wird.
+     */
+    private void closedLoop() {
+        long interval = config.rate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(config.concurrency()) / config.rate()) : 0;
+        long intendedStart = System.nanoTime();
+        while (running) {
+            if (interval > 0) {
+                waitUntil(intendedStart);
+            }
+            Workload.Call call = workload.next();
+            long actualStart = System.nanoTime();
+            int status = send(call);
+            recorder.record(call.operation(), interval > 0 ? intendedStart : actualStart, actualStart, System.nanoTime(), status);
+            call.onStatus().accept(status);
+            intendedStart += interval;
+        }
+    }
+
+    /**
+     * Die offene Schleife startet Anfragen im festen Abstand, ohne auf Antworten zu warten. Sind bereits
+     * concurrency Anfragen offen, wird gewartet; die Wartezeit zählt zur Antwortzeit der verspäteten Anfrage.
+     * @param inFlight Begrenzung der gleichzeitig offenen Anfragen
+     */
+    private void openLoop(Semaphore inFlight) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / config.rate());
+        long intendedStart = System.nanoTime();
+        while (running) {
+            waitUntil(intendedStart);
+            inFlight.acquireUninterruptibly();
+            Workload.Call call = workload.next();
+            long scheduled = intendedStart;
+            long actualStart = System.nanoTime();
+            client.sendAsync(call.request(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                int status = error == null ? response.statusCode() : -1;
+                recorder.record(call.operation(), scheduled, actualStart, System.nanoTime(), status);
+                call.onStatus().accept(status);
+                inFlight.release();
+            });
+            intendedStart += interval;
+        }
+    }
+
+    /**
+     * Schickt eine Anfrage und wartet auf die Antwort
+     * @param call Die Anfrage
+     * @return Statuscode der Antwort oder -1 bei einem Verbindungsfehler
+     */
+    private int send(Workload.Call call) {
+        try {
+            return client.send(call.request(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Wartet bis zum angegebenen Zeitpunkt
+     * @param deadline Zeitpunkt in Nanosekunden nach System.nanoTime()
+     */
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
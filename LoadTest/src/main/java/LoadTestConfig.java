@@ -0,0 +1,82 @@
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record LoadTestConfig enthält die Parameter eines Lasttests. Die Standardwerte stehen in LoadTest.properties
+ * und können beim Start mit Argumenten der Form Schlüssel=Wert überschrieben werden.
+ * @param target Basis-URI eines laufenden Servers oder leer, um einen Server im selben Prozess zu starten
+ * @param storageEngine Speicher-Engine des Servers im selben Prozess, JDBC mit H2 anstelle von MySQL
+ * @param executionMode Threads, auf denen der Server im selben Prozess die Anfragen bearbeitet
+ * @param workerPoolSize Anzahl der Plattform-Threads des Servers im selben Prozess bei POOLED
+ * @param loopMode Geschlossene oder offene Lastschleife
+ * @param concurrency Anzahl der Benutzer (CLOSED) bzw. maximale Anzahl offener Anfragen (OPEN)
+ * @param rate Anfragen pro Sekunde insgesamt, 0 für CLOSED ohne Taktung
+ * @param warmup Dauer der Aufwärmphase, deren Messwerte verworfen werden
+ * @param duration Dauer der Messung
+ * @param mix Gewicht jeder Operation
+ * @param users Anzahl der unterschiedlichen Benutzernamen
+ * @param devices Anzahl der Geräte, die der Server im selben Prozess anlegt und aus denen ausgeliehen wird
+ * @param pageSize Seitengröße für getAllDevices und searchDevices
+ * @param hotDevices Anzahl der besonders gefragten Geräte mit den IDs 1 bis hotDevices
+ * @param hotDeviceShare Anteil der Ausleihen, die eines der gefragten Geräte betreffen
+ */
+public record LoadTestConfig(String target, StorageEngine storageEngine, ExecutionMode executionMode, int workerPoolSize, LoopMode loopMode, int concurrency, double rate, Duration warmup,
+                             Duration duration, Map<Operation, Integer> mix, int users, int devices, int pageSize,
+                             int hotDevices, double hotDeviceShare) {
+
+    /**
+     * Lädt die Parameter aus LoadTest.properties und überschreibt sie mit den Argumenten
+     * @param args Argumente der Form Schlüssel=Wert
+     * @return Die Parameter
+     * @throws IllegalArgumentException wenn ein Argument oder Wert ungültig ist
+     */
+    public static LoadTestConfig load(String[] args) {
+        ResourceBundle bundle = ResourceBundle.getBundle("LoadTest");
+        Map<String, String> values = new HashMap<>();
+        for (String key : bundle.keySet()) {
+            values.put(key, bundle.getString(key).trim());
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !values.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Ungültiges Argument: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1).trim());
+        }
+
+        return new LoadTestConfig(
+                values.get("Target"),
+                StorageEngine.valueOf(values.get("StorageEngine")),
+                ExecutionMode.valueOf(values.get("ExecutionMode")),
+                Integer.parseInt(values.get("WorkerPoolSize")),
+                LoopMode.valueOf(values.get("LoopMode")),
+                Integer.parseInt(values.get("Concurrency")),
+                Double.parseDouble(values.get("Rate")),
+                Duration.ofSeconds(Long.parseLong(values.get("Warmup"))),
+                Duration.ofSeconds(Long.parseLong(values.get("Duration"))),
+                parseMix(values.get("Mix")),
+                Integer.parseInt(values.get("Users")),
+                Integer.parseInt(values.get("Devices")),
+                Integer.parseInt(values.get("PageSize")),
+                Integer.parseInt(values.get("HotDevices")),
+                Double.parseDouble(values.get("HotDeviceShare")));
+    }
+
+    /**
+     * Liest den Mix der Form endpunkt=gewicht,endpunkt=gewicht
+     * @param mix Der Mix als String
+     * @return Gewicht jeder angegebenen Operation
+     */
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            weights.put(Operation.ofEndpoint(entry[0].trim()), Integer.parseInt(entry[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das enum LoopMode legt fest, wie der Lastgenerator Anfragen erzeugt.
+ * CLOSED: Eine feste Anzahl an Benutzern schickt die nächste Anfrage erst nach der Antwort auf die vorherige.
+ * OPEN: Anfragen werden mit fester Ankunftsrate erzeugt, unabhängig davon, wie schnell der Server antwortet.
+ */
+public enum LoopMode {CLOSED, OPEN}
@@ -0,0 +1,44 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das enum Operation enthält die Endpunkte von ServerRestEndpoints, die der Lastgenerator aufruft
+ */
+public enum Operation {
+    REGISTER_USER("registerUser"),
+    SEARCH_DEVICES("searchDevices"),
+    GET_ALL_DEVICES("getAllDevices"),
+    CHANGE_BORROWER("changeBorrower"),
+    GET_RESERVED_DEVICES("getReservedDevices");
+
+    private final String endpoint; //Name der Endpunkt-Methode, wie er im Mix angegeben wird
+
+    /**
+     * Konstruktor des enums Operation
+     * @param endpoint Name der Endpunkt-Methode
+     */
+    Operation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Getter für den Namen der Endpunkt-Methode
+     * @return Name der Endpunkt-Methode
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Sucht die Operation zum Namen der Endpunkt-Methode
+     * @param endpoint Name der Endpunkt-Methode
+     * @return Die Operation
+     * @throws IllegalArgumentException wenn es keine Operation mit dem Namen gibt
+     */
+    public static Operation ofEndpoint(String endpoint) {
+        for (Operation operation : values()) {
+            if (operation.endpoint.equals(endpoint)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unbekannter Endpunkt: " + endpoint);
+    }
+}
@@ -0,0 +1,155 @@
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse Workload erzeugt die Anfragen des Lasttests entsprechend dem Mix der Operationen.
+ * Ausgeliehene Geräte werden gemerkt, damit changeBorrower etwa gleich oft ausleiht wie zurückgibt und der
+ * Bestand an verfügbaren Geräten während des Tests nicht ausgeht. Mit hotDeviceShare wird ein Teil der Ausleihen
+ * auf wenige Geräte gelenkt, um gleichzeitige Ausleihen desselben Gerätes zu erzeugen.
+ */
+public class Workload {
+    // Suchbegriffe mit Suchkriterium, passend zu den Geräten des Servers im selben Prozess
+    private static final String[][] SEARCHES = {
+            {"bosch", "Marke"}, {"kita", "Marke"}, {"Walt", "Marke"},
+            {"HR24", "Modell"}, {"18V", "Modell"},
+            {"hammer", "Kategorie"}, {"Akku", "Kategorie"}, {"schrauber", "Kategorie"},
+            {"202", "Kaufjahr"}
+    };
+
+    private final URI baseURI;
+    private final LoadTestConfig config;
+    private final Operation[] operations; //Operationen mit ihrem kumulierten Gewicht
+    private final int[] cumulativeWeights;
+    private final Queue<Borrowing> borrowed = new ConcurrentLinkedQueue<>(); //Erfolgreiche Ausleihen, die noch zurückgegeben werden
+
+    /**
+     * Der Record Borrowing merkt sich ein ausgeliehenes Gerät
+     * @param username Der Ausleiher
+     * @param id ID des Gerätes
+     */
+    private record Borrowing(String username, int id) {
+    }
+
+    /**
+     * Der Record Call beschreibt eine einzelne Anfrage des Lasttests
+     * @param operation Die Operation
+     * @param request Die HTTP-Anfrage
+     * @param onStatus Wird mit dem Statuscode der Antwort aufgerufen
+     */
+    public record Call(Operation operation, HttpRequest request, IntConsumer onStatus) {
+    }
+
+    /**
+     * Konstruktor der Klasse Workload
+     * @param baseURI Basis-URI des Servers, z.B. http://localhost:8080/rest/
+     * @param config Parameter des Lasttests
+     */
+    public Workload(URI baseURI, LoadTestConfig config) {
+        this.baseURI = baseURI;
+        this.config = config;
+        operations = config.mix().keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += config.mix().get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * Wählt die nächste Operation entsprechend dem Mix und baut ihre Anfrage
+     * @return Die Anfrage
+     */
+    public Call next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= pick) {
+            index++;
+        }
+        Operation operation = operations[index];
+        String username = "last" + random.nextInt(config.users());
+
+        return switch (operation) {
+            case REGISTER_USER -> new Call(operation, post("lending/" + username, "\"" + username + "\""), status -> {});
+            case SEARCH_DEVICES -> {
+                String[] search = SEARCHES[random.nextInt(SEARCHES.length)];
+                yield new Call(operation, get("lending/" + search[0] + "/" + search[1] + "?limit=" + config.pageSize()), status -> {});
+            }
+            case GET_ALL_DEVICES -> new Call(operation, get("lending/getAllDevices?limit=" + config.pageSize()), status -> {});
+            case CHANGE_BORROWER -> changeBorrower(username, random);
+            case GET_RESERVED_DEVICES -> new Call(operation, get("lending/" + username), status -> {});
+        };
+    }
+
+    /**
+     * Gibt mit Wahrscheinlichkeit 1/2 ein gemerktes Gerät zurück, sonst wird ein Gerät ausgeliehen
+     * @param username Benutzername für eine neue Ausleihe
+     * @param random Zufallsgenerator des Threads
+     * @return Die Anfrage
+     */
+    private Call changeBorrower(String username, ThreadLocalRandom random) {
+        if (random.nextBoolean()) {
+            Borrowing borrowing = borrowed.poll();
+            if (borrowing != null) {
+                return new Call(Operation.CHANGE_BORROWER,
+                        put("lending/" + borrowing.username() + "/" + borrowing.id(), "\"RETURN\""),
+                        status -> {
+                            if (status != 200) {
+                                borrowed.offer(borrowing); // Nochmals versuchen
+                            }
+                        });
+            }
+        }
+        boolean hot = config.hotDevices() > 0 && random.nextDouble() < config.hotDeviceShare();
+        int id = 1 + random.nextInt(hot ? config.hotDevices() : config.devices());
+        Borrowing borrowing = new Borrowing(username, id);
+        return new Call(Operation.CHANGE_BORROWER,
+                put("lending/" + username + "/" + id, "\"BORROW\""),
+                status -> {
+                    if (status == 200) {
+                        borrowed.offer(borrowing);
+                    }
+                });
+    }
+
+    /**
+     * Baut eine GET-Anfrage
+     * @param path Pfad relativ zur Basis-URI
+     * @return Die Anfrage
+     */
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseURI.resolve(path)).header("Accept", "application/json").GET().build();
+    }
+
+    /**
+     * Baut eine PUT-Anfrage mit JSON-Inhalt
+     * @param path Pfad relativ zur Basis-URI
+     * @param json Inhalt der Anfrage
+     * @return Die Anfrage
+     */
+    private HttpRequest put(String path, String json) {
+        return HttpRequest.newBuilder(baseURI.resolve(path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    /**
+     * Baut eine POST-Anfrage mit JSON-Inhalt
+     * @param path Pfad relativ zur Basis-URI
+     * @param json Inhalt der Anfrage
+     * @return Die Anfrage
+     */
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(baseURI.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
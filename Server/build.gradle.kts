@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    `java-test-fixtures`
     application
 }
 
@@ -18,10 +19,14 @@ repositories {
 val grizzlyVersion: String by extra { "4.0.0" }
 val jerseyVersion:  String by extra { "3.1.3" }
 val jdbcVersion: String by extra { "8.0.28" }
+val hikariVersion: String by extra { "5.1.0" }
+val caffeineVersion: String by extra { "3.1.8" }
+val h2Version: String by extra { "2.2.224" }
 
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.9.1"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
     implementation(project(mapOf("path" to ":Common")))
     implementation("org.glassfish.jersey.core:jersey-server:${jerseyVersion}")
     implementation("org.glassfish.jersey.inject:jersey-hk2:${jerseyVersion}")
@@ -31,10 +36,40 @@ dependencies {
     implementation("org.glassfish.grizzly:grizzly-websockets:${grizzlyVersion}")
     implementation("org.glassfish.jersey.containers:jersey-container-grizzly2-http:${jerseyVersion}")
     implementation("mysql:mysql-connector-java:${jdbcVersion}")
+    implementation("com.zaxxer:HikariCP:${hikariVersion}")
+    runtimeOnly("org.slf4j:slf4j-simple:2.0.9")
+    implementation("com.github.ben-manes.caffeine:caffeine:${caffeineVersion}")
     implementation("jakarta.activation:jakarta.activation-api:1.2.1")
+    // EmbeddedServer für Tests, Lastgenerator und Benchmarks
+    testFixturesImplementation(project(mapOf("path" to ":Common")))
+    testFixturesImplementation("org.glassfish.jersey.core:jersey-server:${jerseyVersion}")
+    testFixturesImplementation("org.glassfish.jersey.inject:jersey-hk2:${jerseyVersion}")
+    testFixturesImplementation("org.glassfish.jersey.media:jersey-media-json-jackson:3.1.0")
+    testFixturesImplementation("org.glassfish.grizzly:grizzly-http-server:${grizzlyVersion}")
+    testFixturesImplementation("org.glassfish.grizzly:grizzly-websockets:${grizzlyVersion}")
+    testFixturesImplementation("org.glassfish.jersey.containers:jersey-container-grizzly2-http:${jerseyVersion}")
+    testFixturesImplementation("com.h2database:h2:${h2Version}")
 
 }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("export")
+    }
+}
+
+// Streamt eine Million Geräte mit einem Heap, in den die Antwort nicht passen würde
+val exportTest by tasks.registering(Test::class) {
+    description = "Runs the streaming export test with a small heap."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("export")
+    }
+    maxHeapSize = "32m"
+}
+
+tasks.check {
+    dependsOn(exportTest)
 }
\ No newline at end of file
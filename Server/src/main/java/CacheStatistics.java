@@ -0,0 +1,11 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record CacheStatistics enthält eine Momentaufnahme der Trefferstatistik des Gerätecaches
+ * @param size Geschätzte Anzahl an Einträgen
+ * @param hitCount Anzahl der Treffer
+ * @param missCount Anzahl der Fehltreffer
+ * @param hitRate Anteil der Treffer an allen Zugriffen
+ * @param evictionCount Anzahl der verdrängten Einträge
+ */
+public record CacheStatistics(long size, long hitCount, long missCount, double hitRate, long evictionCount) {
+}
@@ -0,0 +1,76 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse CatalogVersions zählt Änderungen am Gerätekatalog und an den Ausleihen jedes Benutzers.
+ * Aus den Versionen bilden die Endpunkte starke ETags, mit denen der Client unveränderte Listen per
+ * If-None-Match erneut bestätigen lassen kann, statt sie neu zu laden.
+ * Die Versionen werden vor dem Lesen der Daten abgefragt. Eine gleichzeitige Änderung führt daher höchstens zu
+ * einem veralteten ETag und einem unnötigen erneuten Laden, nie zu einer falschen Bestätigung. Wie der Suchindex
+ * sieht der Zähler nur Änderungen dieser Serverinstanz. Wie beim ChangeFeed beginnen die Zähler bei der Startzeit
+ * des Servers in Millisekunden mal 1000, damit ETags einer früheren Serverinstanz nach einem Neustart nicht
+ * erneut für andere Daten vergeben werden.
+ */
+public class CatalogVersions {
+    private final AtomicLong catalog = new AtomicLong(System.currentTimeMillis() * 1000); //Jede Änderung an einem Gerät
+    private final AtomicLong edits = new AtomicLong(catalog.get()); //Bearbeitungen und Importe, die den Ausleiher beliebiger Geräte ändern können
+    private final Map<String, AtomicLong> users = new ConcurrentHashMap<>(); //Ausleihen und Rückgaben je Benutzer
+
+    /**
+     * Meldet ein neues Gerät. Ist es bereits ausgeliehen, ändert sich auch die Version des Ausleihers.
+     * @param device Das neue Gerät
+     */
+    public void deviceAdded(Device device) {
+        if (device.borrower() != null) {
+            borrowerChanged(device.borrower());
+        } else {
+            catalog.incrementAndGet();
+        }
+    }
+
+    /**
+     * Meldet einen Import vieler Geräte. Da importierte Geräte bereits ausgeliehen sein können, ändern sich
+     * die Versionen aller Benutzer.
+     */
+    public void devicesImported() {
+        deviceEdited();
+    }
+
+    /**
+     * Meldet ein bearbeitetes Gerät. Da dabei auch der Ausleiher gesetzt werden kann, ändern sich
+     * die Versionen aller Benutzer.
+     */
+    public void deviceEdited() {
+        catalog.incrementAndGet();
+        edits.incrementAndGet();
+    }
+
+    /**
+     * Meldet eine Ausleihe oder Rückgabe
+     * @param username Der Ausleiher
+     */
+    public void borrowerChanged(String username) {
+        catalog.incrementAndGet();
+        users.computeIfAbsent(username, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Gibt das ETag des Gerätekatalogs zurück, das für alle Listen von Geräten gilt
+     * @return Wert des ETags ohne Anführungszeichen
+     */
+    public String catalogTag() {
+        return "c" + catalog.get();
+    }
+
+    /**
+     * Gibt das ETag der vom Benutzer ausgeliehenen Geräte zurück
+     * @param username Der Benutzername
+     * @return Wert des ETags ohne Anführungszeichen
+     */
+    public String userTag(String username) {
+        AtomicLong version = users.get(username);
+        return "u" + edits.get() + "." + (version == null ? 0 : version.get());
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse ChangeFeed vergibt für jede Änderung an einem Gerät eine aufsteigende Version und merkt sich die
+ * IDs der letzten Änderungen in einem Ringpuffer fester Größe. Ein Client, der den Katalog mit Version v kennt,
+ * erhält mit since(v) die IDs aller seitdem geänderten Geräte und lädt nur diese neu.
+ * Liegt v vor der ältesten gespeicherten Änderung oder vor einem reset, z.B. nach einem Import, muss der Client
+ * den ganzen Katalog neu laden. Die Versionen beginnen bei der Startzeit des Servers in Millisekunden mal 1000,
+ * damit Versionen einer früheren Serverinstanz als veraltet erkannt werden. Wie CatalogVersions sieht der
+ * ChangeFeed nur Änderungen dieser Serverinstanz.
+ */
+public class ChangeFeed {
+    private final int[] previousIds; //Bisherige ID je Änderung, Index ist die Version modulo Kapazität
+    private final int[] ids; //Aktuelle ID je Änderung
+    private long version; //Version der letzten Änderung
+    private long oldest; //Älteste Version, ab der Änderungen beantwortet werden können
+
+    /**
+     * Konstruktor der Klasse ChangeFeed
+     * @param capacity Anzahl der gespeicherten Änderungen
+     */
+    public ChangeFeed(int capacity) {
+        previousIds = new int[capacity];
+        ids = new int[capacity];
+        version = System.currentTimeMillis() * 1000;
+        oldest = version;
+    }
+
+    /**
+     * Meldet die Änderung eines Gerätes
+     * @param previousId Bisherige ID des Gerätes
+     * @param id Aktuelle ID des Gerätes
+     */
+    public synchronized void record(int previousId, int id) {
+        version++;
+        int index = (int) (version % ids.length);
+        previousIds[index] = previousId;
+        ids[index] = id;
+        oldest = Math.max(oldest, version - ids.length);
+    }
+
+    /**
+     * Meldet, dass sich viele Geräte auf einmal geändert haben. Alle Clients laden den Katalog neu.
+     */
+    public synchronized void reset() {
+        version++;
+        oldest = version;
+    }
+
+    /**
+     * Gibt die Version der letzten Änderung zurück
+     * @return Version
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Gibt die IDs aller Geräte zurück, die sich nach der Version since geändert haben. Unter der Sperre werden
+     * nur die benötigten Einträge des Ringpuffers kopiert, die Menge wird außerhalb gebildet, damit record
+     * nicht auf das Durchsuchen vieler Änderungen warten muss.
+     * @param since Version, die der Client kennt
+     * @return IDs der geänderten Geräte in der Reihenfolge der Änderungen oder null, wenn der Client den ganzen
+     * Katalog neu laden muss
+     */
+    public Set<Integer> since(long since) {
+        int[] copiedPreviousIds;
+        int[] copiedIds;
+        synchronized (this) {
+            if (since < oldest || since > version) {
+                return null;
+            }
+            int count = (int) (version - since);
+            copiedPreviousIds = new int[count];
+            copiedIds = new int[count];
+            int start = (int) ((since + 1) % ids.length);
+            int first = Math.min(count, ids.length - start); // Bis zum Ende des Ringpuffers, der Rest steht am Anfang
+            System.arraycopy(previousIds, start, copiedPreviousIds, 0, first);
+            System.arraycopy(ids, start, copiedIds, 0, first);
+            System.arraycopy(previousIds, 0, copiedPreviousIds, first, count - first);
+            System.arraycopy(ids, 0, copiedIds, first, count - first);
+        }
+        Set<Integer> changed = new LinkedHashSet<>();
+        for (int i = 0; i < copiedIds.length; i++) {
+            changed.add(copiedPreviousIds[i]);
+            changed.add(copiedIds[i]);
+        }
+        return changed;
+    }
+}
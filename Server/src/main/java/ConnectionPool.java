@@ -0,0 +1,107 @@
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ResourceBundle;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse ConnectionPool verwaltet einen begrenzten Pool von Datenbankverbindungen, der von allen
+ * Anfragen des Servers gemeinsam genutzt wird.
+ * Der Pool hält eine Mindestanzahl an freien Verbindungen bereit, prüft Verbindungen vor der Ausgabe,
+ * ersetzt sie nach ihrer maximalen Lebensdauer und meldet Verbindungen, die zu lange nicht zurückgegeben werden.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final HikariDataSource dataSource; //DataSource mit dem Verbindungspool
+    private final Metrics metrics; //Erfasst die Wartezeit auf eine Verbindung
+
+    /**
+     * Konstruktor der Klasse ConnectionPool, der die Parameter aus der Konfigurationsdatei lädt
+     * und den Verbindungspool aufbaut.
+     * @param metrics Kennzahlen des Servers
+     */
+    public ConnectionPool(Metrics metrics) {
+        this(ResourceBundle.getBundle("Select"), metrics); //Laden der Datenbankverbindungs- und Poolparameter aus der Konfigurationsdatei
+    }
+
+    /**
+     * Konstruktor der Klasse ConnectionPool mit eigenen Parametern, z.B. für eine H2-Datenbank in Tests
+     * @param bundle Datenbankverbindungs- und Poolparameter mit den Schlüsseln aus Select.properties
+     * @param metrics Kennzahlen des Servers
+     */
+    public ConnectionPool(ResourceBundle bundle, Metrics metrics) {
+        this.metrics = metrics;
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("lending-pool");
+        config.setDriverClassName(bundle.getString("Driver"));
+        config.setJdbcUrl(bundle.getString("URL"));
+        config.setUsername(bundle.getString("User"));
+        config.setPassword(bundle.getString("Password"));
+        config.setAutoCommit(false);
+        config.setMaximumPoolSize(Integer.parseInt(bundle.getString("PoolMaximumSize")));
+        config.setMinimumIdle(Integer.parseInt(bundle.getString("PoolMinimumIdle")));
+        config.setConnectionTimeout(Long.parseLong(bundle.getString("PoolConnectionTimeout")));
+        config.setValidationTimeout(Long.parseLong(bundle.getString("PoolValidationTimeout")));
+        config.setIdleTimeout(Long.parseLong(bundle.getString("PoolIdleTimeout")));
+        config.setMaxLifetime(Long.parseLong(bundle.getString("PoolMaxLifetime")));
+        config.setLeakDetectionThreshold(Long.parseLong(bundle.getString("PoolLeakDetectionThreshold")));
+        //Serverseitige Prepared Statements, die der Treiber pro Verbindung zwischenspeichert
+        config.addDataSourceProperty("useServerPrepStmts", bundle.getString("UseServerPrepStmts"));
+        config.addDataSourceProperty("cachePrepStmts", bundle.getString("CachePrepStmts"));
+        config.addDataSourceProperty("prepStmtCacheSize", bundle.getString("PrepStmtCacheSize"));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", bundle.getString("PrepStmtCacheSqlLimit"));
+        //Batches von INSERT-Anweisungen als mehrzeilige INSERT-Anweisungen senden
+        config.addDataSourceProperty("rewriteBatchedStatements", bundle.getString("RewriteBatchedStatements"));
+
+        HikariDataSource hikariDataSource = null;
+        try {
+            hikariDataSource = new HikariDataSource(config);
+        } catch (HikariPool.PoolInitializationException e) {
+            System.err.println("\n>>> Fehler: Keine Verbindung zur Datenbank! Bitte Verbindung zur Datenbank herstellen! <<<\n>>> " + e.getMessage() + " <<<\n>>> Programm wird beendet! <<<");
+            System.exit(0);
+        }
+        dataSource = hikariDataSource;
+    }
+
+    /**
+     * Leiht eine Verbindung aus dem Pool aus. Die Verbindung muss nach der Verwendung mit close()
+     * wieder an den Pool zurückgegeben werden. Die Wartezeit wird in den Metrics erfasst.
+     * @return Verbindung zur Datenbank
+     * @throws SQLException wenn innerhalb des Timeouts keine Verbindung verfügbar ist
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            metrics.recordConnectionAcquire(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gibt eine Momentaufnahme der Poolstatistik zurück
+     * @return Statistik des Verbindungspools
+     */
+    public PoolStatistics getStatistics() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return new PoolStatistics(
+                pool.getTotalConnections(),
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(),
+                dataSource.getMaximumPoolSize(),
+                dataSource.getMinimumIdle());
+    }
+
+    /**
+     * Schließt alle Verbindungen des Pools
+     */
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
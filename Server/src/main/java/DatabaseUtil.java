@@ -1,203 +1,324 @@
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.sql.*;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 
 /**
  * @author Georg Kunze, m28909, u36363
  * Die Klasse DatabaseUtil stellt Methoden für die Interaktion mit der Datenbank
- * der Geräteausleih-Anwendung bereit.
+ * der Geräteausleih-Anwendung bereit. Sie ist die Speicher-Engine JDBC des DeviceRepository.
+ * Schreibende Methoden bestätigen ihre Transaktion und aktualisieren den Suchindex unter einer gemeinsamen
+ * Sperre. Da eine Änderung derselben Zeile erst nach dem Commit der vorherigen möglich ist, wird der Index so
+ * in derselben Reihenfolge wie die Datenbank geändert.
  */
-public class DatabaseUtil {
-    Connection connection; //Connection für die Datenbank
+public class DatabaseUtil implements DeviceRepository {
+    // Feste SQL-Befehle. Durch den immer gleichen Text werden sie vom Treiber pro Verbindung
+    // als serverseitige Prepared Statements zwischengespeichert und nur einmal geparst.
+    private static final String SELECT_ALL_DEVICES = "SELECT * FROM devices";
+    private static final String SELECT_DEVICE_BY_ID = "SELECT * FROM devices WHERE id = ?";
+    private static final String SELECT_AVAILABLE_DEVICES = "SELECT * FROM devices WHERE borrower IS NULL AND id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_CATALOG = "SELECT * FROM devices WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_DEVICES_BY_BORROWER = "SELECT * FROM devices WHERE borrower = ?";
+    private static final String UPDATE_SET_BORROWER = "UPDATE devices SET borrower = ?, returndate = ? WHERE id = ? AND borrower IS NULL";
+    private static final String UPDATE_DELETE_BORROWER = "UPDATE devices SET borrower = null, returndate = null WHERE id = ? AND borrower = ?";
+    // Für mehrere Geräte wird die Liste der Platzhalter auf die nächste Zweierpotenz aufgefüllt, damit nur
+    // wenige verschiedene SQL-Texte entstehen. SELECT ... FOR UPDATE sperrt die Zeilen bis zum Ende der Transaktion.
+    private static final String SELECT_DEVICES_BY_IDS = "SELECT * FROM devices WHERE id IN (%s)";
+    private static final String SELECT_DEVICES_FOR_UPDATE = "SELECT * FROM devices WHERE id IN (%s) FOR UPDATE";
+    private static final String UPDATE_BORROWERS = "UPDATE devices SET borrower = ?, returndate = ? WHERE id IN (%s)";
+    private static final String INSERT_DEVICE = "INSERT INTO devices (brand, model, category, purchaseyear, id, borrower, returndate) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_DEVICE = """
+             UPDATE devices SET
+             brand = ?,
+             model = ?,
+             category = ?,
+             purchaseyear = ?,
+             id = ?,
+             borrower = ?,
+             returndate = ?\s
+             WHERE id = ?
+            """;
+    // Suchabfrage je Suchkriterium, damit für jede Spalte immer derselbe SQL-Text verwendet wird.
+    // Geblättert wird über den Primärschlüssel (Keyset), nicht über OFFSET.
+    private static final Map<SearchCriteria, String> SELECT_DEVICES_BY_CRITERIA = new EnumMap<>(SearchCriteria.class);
+
+    static {
+        for (SearchCriteria criteria : SearchCriteria.values()) {
+            SELECT_DEVICES_BY_CRITERIA.put(criteria, "SELECT * FROM devices WHERE " + criteria.getSqlColumnName() + " LIKE ? AND id > ? ORDER BY id LIMIT ?");
+        }
+    }
+
+    private static final int MAX_IDS_PER_QUERY = 256; //Größte IN-Liste in getDevicesByIds
+
+    private final ConnectionPool pool; //Gemeinsamer Verbindungspool für die Datenbank
+    private final DeviceSearchIndex searchIndex = new DeviceSearchIndex(); //Trigramm-Index für die Teilstring-Suche
+    private final DeviceCache deviceCache; //Cache für Geräte nach ID
+    private final Metrics metrics; //Erfasst die Dauer jeder SQL-Anweisung
+    private final int streamingFetchSize; //Fetch Size, mit der der Treiber die Zeilen beim Streamen nachlädt
 
     /**
-     * Konstruktor der Klasse DatabaseUtil, der eine Verbindung zur Datenbank herstellt.
+     * Konstruktor der Klasse DatabaseUtil, der die Verbindungen zur Datenbank aus dem übergebenen Pool bezieht.
+     * @param pool Verbindungspool des Servers
+     * @param metrics Kennzahlen des Servers
      */
-    public DatabaseUtil() {
-        //Laden der Datenbankverbindungsparameter aus der Konfigurationsdatei
-        ResourceBundle bundle = ResourceBundle.getBundle("Select");
-        String driver = bundle.getString("Driver");
-        String url = bundle.getString("URL");
-        String user = bundle.getString("User");
-        String password = bundle.getString("Password");
+    public DatabaseUtil(ConnectionPool pool, Metrics metrics) {
+        this(pool, metrics, ResourceBundle.getBundle("Select")); //Laden der Parameter aus der Konfigurationsdatei
+    }
 
-        try {
-            //JDBC Treiber laden
-            Class.forName(driver);
-            //Verbindung zur Datenbank herstellen
-            connection = DriverManager.getConnection(url , user , password);
-            connection.setAutoCommit(false);
-        } catch (SQLException e) {
-            System.err.println("\n>>> Fehler: Keine Verbindung zur Datenbank! Bitte Verbindung zur Datenbank herstellen! <<<\n>>> " + e.getMessage() + " <<<\n>>> Programm wird beendet! <<<");
-            System.exit(0);
-        } catch (ClassNotFoundException e) {
-            System.err.println(e.getMessage());
-        }
+    /**
+     * Konstruktor der Klasse DatabaseUtil mit eigenen Parametern, z.B. für eine H2-Datenbank in Tests
+     * @param pool Verbindungspool
+     * @param metrics Kennzahlen des Servers
+     * @param bundle Cache- und Streamingparameter mit den Schlüsseln aus Select.properties
+     */
+    public DatabaseUtil(ConnectionPool pool, Metrics metrics, ResourceBundle bundle) {
+        this.pool = pool;
+        this.metrics = metrics;
+        streamingFetchSize = Integer.parseInt(bundle.getString("StreamingFetchSize"));
+        long maximumSize = Long.parseLong(bundle.getString("DeviceCacheMaximumSize"));
+        Duration timeToLive = Duration.ofSeconds(Long.parseLong(bundle.getString("DeviceCacheTimeToLive")));
+        deviceCache = new DeviceCache(maximumSize, timeToLive);
     }
 
     /**
-     * Initialisierung der Datenbank, falls sie leer ist.
+     * Initialisierung der Datenbank mit dem SQL-Skript und den Beispielgeräten, falls sie leer ist.
+     * Skript und Geräte werden in Batches von batchSize Befehlen bzw. Geräten gesendet und in einer gemeinsamen
+     * Transaktion bestätigt. Schlägt ein Befehl fehl, wird alles zurückgerollt, die Datenbank bleibt leer und
+     * wird beim nächsten Start erneut initialisiert. Eine nur teilweise befüllte Datenbank entsteht so nicht.
+     * Fehlt das Skript, werden nur die Geräte eingefügt.
+     * Das Schema muss vorher durch den MigrationRunner angelegt worden sein.
+     * @param scriptName Name des SQL-Skripts in den Ressourcen
+     * @param devices Die bereits geprüften Beispielgeräte
+     * @param batchSize Anzahl der Befehle bzw. Geräte pro Batch
+     * @return true, wenn die Datenbank befüllt war oder initialisiert wurde, false bei einem Fehler.
      */
-    public void initialize() {
-        if (isDatabaseEmpty()) {
+    public boolean initialize(String scriptName, List<Device> devices, int batchSize) {
+        try (Connection connection = pool.getConnection()) {
+            if (!isDatabaseEmpty(connection)) {
+                return true;
+            }
             System.out.println(">>> Datenbank ist leer. Initialisierung... <<<");
-            try {
-                //Laden der SQL Befehle aus initial_data.sql
-                String fileName = "initial_data.sql";
-                ArrayList<String> sqlCommands = getSqlCommands(fileName);
-
-                Statement statement = connection.createStatement();
-                for (String sql: sqlCommands) {
-                    statement.execute(sql);
-                    connection.commit();
-                }
+            //Laden der SQL Befehle aus dem Skript
+            String script = SqlScript.read(scriptName);
+            if (script == null) {
+                System.err.println(">>> SQL-Datei nicht gefunden. <<<");
+                script = "";
+            }
 
-                System.out.println(">>> Datenbank erfolgreich initialisiert. <<<");
+            long start = System.nanoTime();
+            int count = 0;
+            try (Statement statement = connection.createStatement();
+                 PreparedStatement prep = connection.prepareStatement(INSERT_DEVICE)) {
+                for (String sql : SqlScript.split(script)) {
+                    statement.addBatch(sql);
+                    if (++count % batchSize == 0) {
+                        executeBatch("seed_script", statement);
+                    }
+                }
+                executeBatch("seed_script", statement);
+                for (int i = 0; i < devices.size(); i++) {
+                    setInsertParameters(prep, devices.get(i));
+                    prep.addBatch();
+                    if ((i + 1) % batchSize == 0) {
+                        executeBatch("seed_devices", prep);
+                    }
+                }
+                executeBatch("seed_devices", prep);
+                connection.commit();
             } catch (SQLException e) {
-                printSqlErr(e);
+                connection.rollback();
+                throw e;
             }
+
+            System.out.println(">>> " + count + " SQL-Befehle aus " + scriptName + " und " + devices.size()
+                    + " Geräte in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms eingefügt <<<");
+            return true;
+        } catch (SQLException e) {
+            printSqlErr(e);
+            return false;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return false;
         }
     }
 
     /**
-     * Überprüfung, ob die Datenbank leer ist durch das Zählen der Einträge in der devices Tabelle.
-     * Wenn die Tabelle nicht existiert und eine SQLException geworfen wird, werden die Tabellen erstellt
+     * Überprüfung, ob die Datenbank leer ist durch das Zählen der Einträge in der devices und users Tabelle.
+     * Da die Initialisierung nur ganz oder gar nicht bestätigt wird, ist eine Datenbank mit Einträgen in nur
+     * einer der Tabellen keine abgebrochene Initialisierung, sondern bereits in Benutzung.
+     * @param connection Verbindung zur Datenbank
      * @return true, wenn die Datenbank leer ist, sonst false.
+     * @throws SQLException wenn die Tabellen nicht gelesen werden können
      */
-    private boolean isDatabaseEmpty() {
-        try {
-            Statement statement = connection.createStatement();
-            ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM devices");
-            resultSet.next();
-            int deviceCount = resultSet.getInt(1);
+    private boolean isDatabaseEmpty(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int deviceCount;
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM devices")) {
+                resultSet.next();
+                deviceCount = resultSet.getInt(1);
+            }
 
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery("SELECT COUNT(*) FROM users");
-            resultSet.next();
-            int userCount = resultSet.getInt(1);
+            int userCount;
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM users")) {
+                resultSet.next();
+                userCount = resultSet.getInt(1);
+            }
 
             return deviceCount == 0 && userCount == 0;
-        } catch (SQLException e) {
-            createTables(); // Erstellen der Tabellen
-            return true;
         }
     }
 
     /**
-     * Erstellung der benötigten Tabellen in der Datenbank.
+     * Lädt alle Geräte aus der Datenbank in den Suchindex
      */
-    private void createTables() {
-        try {
-            //Laden der SQL Befehle aus create_tables.sql
-            String fileName = "create_tables.sql";
-            ArrayList<String> sqlCommands = getSqlCommands(fileName);
+    public void loadSearchIndex() {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_ALL_DEVICES)) {
+            List<Device> devices = queryDevices("select_all_devices", prep);
+            searchIndex.load(devices);
+            System.out.println(">>> Suchindex mit " + devices.size() + " Geräten geladen <<<");
+        } catch (SQLException e) {
+            printSqlErr(e);
+        }
+    }
 
-            Statement statement = connection.createStatement();
-            for (String sql: sqlCommands) {
-                statement.execute(sql);
-                connection.commit();
-            }
+    /**
+     * Holt eine Seite der Geräte, die mit Suchbegriff und Kriterium übereinstimmen, aufsteigend nach ID.
+     * Marke, Modell und Kategorie werden über den Suchindex beantwortet, die ID über den Gerätecache und
+     * das Kaufjahr über die Datenbank.
+     * @param search Der Suchbegriff
+     * @param criteria Das Suchkriterium
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit den passenden Geräten
+     */
+    @Override
+    public List<Device> getMatchingDevices(String search, SearchCriteria criteria, int afterId, int limit) {
+        if (DeviceSearchIndex.supports(criteria)) {
+            return searchIndex.search(search, criteria, afterId, limit);
+        }
+        if (criteria == SearchCriteria.ID) {
+            Device device = getDeviceById(search);
+            return device != null && device.id() > afterId && limit > 0 ? List.of(device) : List.of();
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_DEVICES_BY_CRITERIA.get(criteria))) {
+            prep.setString(1, "%" + search + "%");
+            prep.setInt(2, afterId);
+            prep.setInt(3, limit);
+            return queryDevices("select_devices_by_" + criteria.name().toLowerCase(Locale.ROOT), prep);
         } catch (SQLException e) {
             printSqlErr(e);
+            return null;
         }
     }
 
     /**
-     * Liest SQL-Befehle aus einer Datei und gibt sie als Liste zurück.
-     * @param fileName Dateiname der Sql-Datei
-     * @return ArrayList mit den Sql Befehlen
+     * Holt das Gerät mit der ID aus dem Cache oder bei einem Fehltreffer aus der Datenbank
+     * @param id ID des Gerätes
+     * @return Das Gerät oder null, wenn kein Gerät mit der ID existiert
      */
-    private ArrayList<String> getSqlCommands(String fileName) {
+    @Override
+    public Device getDeviceById(String id) {
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream(fileName);
-            if (inputStream != null) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                String line;
-                ArrayList<String> sqlCommands = new ArrayList<>();
-
-                while ((line = reader.readLine()) != null) {
-                    sqlCommands.add(line);
-                }
-
-                return sqlCommands;
-            } else {
-                System.err.println(">>> SQL-Datei nicht gefunden. <<<");
-                return null;
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            return deviceCache.get(Integer.parseInt(id), this::loadDevice);
+        } catch (NumberFormatException e) {
+            return null;
         }
-
     }
 
-
     /**
-     * Prüft, ob der Benutzer bereits in der Datenbank ist, indem alle Benutzer aus der Datenbank
-     * geholt und mit dem übergebenen Benutzernamen verglichen werden.
-     * @param username Der Benutzername
-     * @return true, wenn der Benutzer in der Datenbank ist, sonst false.
+     * Lädt das Gerät mit der ID aus der Datenbank
+     * @param id ID des Gerätes
+     * @return Das Gerät oder null, wenn kein Gerät mit der ID existiert
      */
-    public boolean isRegistered(String username) {
-        try {
-            PreparedStatement prep = connection.prepareStatement("SELECT * FROM users");
-            ResultSet resultSet = prep.executeQuery();
+    private Device loadDevice(int id) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_DEVICE_BY_ID)) {
+            prep.setInt(1, id);
+            List<Device> devices = queryDevices("select_device_by_id", prep);
+            return devices.isEmpty() ? null : devices.getFirst();
+        } catch (SQLException e) {
+            printSqlErr(e);
+            return null;
+        }
+    }
 
-            boolean isregistred = false;
-            while (resultSet.next()) {
-                String userString = resultSet.getString("username");
-                if (username.equals(userString)) {
-                    isregistred = true;
+    /**
+     * Lädt die Geräte mit den IDs direkt aus der Datenbank. Die IDs werden in Blöcken von höchstens
+     * MAX_IDS_PER_QUERY abgefragt, damit die Anzahl unterschiedlicher Anweisungen im Statement-Cache begrenzt bleibt.
+     * @param ids IDs der Geräte
+     * @return List mit den vorhandenen Geräten oder null bei einem Fehler
+     */
+    @Override
+    public List<Device> getDevicesByIds(List<Integer> ids) {
+        List<Device> devices = new ArrayList<>(ids.size());
+        try (Connection connection = pool.getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Integer> block = ids.subList(from, Math.min(ids.size(), from + MAX_IDS_PER_QUERY));
+                try (PreparedStatement prep = connection.prepareStatement(String.format(SELECT_DEVICES_BY_IDS, placeholders(block.size())))) {
+                    setIds(prep, 1, block);
+                    devices.addAll(queryDevices("select_devices_by_ids", prep));
                 }
             }
-            return isregistred;
+            return devices;
         } catch (SQLException e) {
             printSqlErr(e);
-            return false;
+            return null;
         }
     }
 
     /**
-     * Fügt den übergebenen Benutzernamen in die Datenbank ein
-     * @param username Der Benutzername
-     * @return true, wenn der Benutzer in die Datenbank hinzugefügt wurde, sonst false.
+     * Gibt die Trefferstatistik des Gerätecaches zurück
+     * @return Statistik des Gerätecaches
      */
-    public boolean addUser(String username) {
-        try {
-            PreparedStatement prep = connection.prepareStatement("INSERT INTO users (username) VALUES (?)");
-            prep.setString(1, username);
+    public CacheStatistics getCacheStatistics() {
+        return deviceCache.getStatistics();
+    }
 
-            int affectedRows = prep.executeUpdate();
-            connection.commit();
-            return affectedRows > 0;
+    /**
+     * Gibt eine Seite der Geräte zurück, die in der Datenbank und nicht ausgeliehen sind, aufsteigend nach ID
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit nicht ausgeliehenen Geräten
+     */
+    @Override
+    public List<Device> getAllDevices(int afterId, int limit) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_AVAILABLE_DEVICES)) {
+            prep.setInt(1, afterId);
+            prep.setInt(2, limit);
+            return queryDevices("select_available_devices", prep);
         } catch (SQLException e) {
             printSqlErr(e);
-            return false;
+            return null;
         }
     }
 
     /**
-     * Holt alle Geräte aus der Datenbank die mit Suchbegriff und Kriterium übereinstimmen
-     * @param search Der Suchbegriff
-     * @param criteria Das Suchkriterium
-     * @return List mit den passenden Geräten
+     * Gibt eine Seite aller Geräte in der Datenbank einschließlich der ausgeliehenen zurück, aufsteigend nach ID
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit den Geräten
      */
-    public List<Device> getMatchingDevices(String search, SearchCriteria criteria) {
-        try {
-            PreparedStatement prep = connection.prepareStatement("SELECT * FROM devices WHERE " + criteria.getSqlColumnName() + " LIKE ?");
-            if (criteria == SearchCriteria.ID) {
-                prep.setString(1, search);
-            } else {
-                prep.setString(1, "%" + search + "%");
-            }
-            ResultSet resultSet = prep.executeQuery();
-            return resultSetToList(resultSet);
+    @Override
+    public List<Device> getCatalog(int afterId, int limit) {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_CATALOG)) {
+            prep.setInt(1, afterId);
+            prep.setInt(2, limit);
+            return queryDevices("select_catalog", prep);
         } catch (SQLException e) {
             printSqlErr(e);
             return null;
@@ -205,37 +326,68 @@ public class DatabaseUtil {
     }
 
     /**
-     * Gibt alle Geräte zurück, die in der Datenbank und nicht ausgeliehen sind
-     * @return List mit allen nicht ausgeliehenen Geräten
+     * Übergibt die nicht ausgeliehenen Geräte aufsteigend nach ID einzeln an den DeviceSink, während sie
+     * aus der Datenbank gelesen werden. Die Verbindung bleibt bis zum letzten Gerät ausgeliehen.
+     * @param afterId Nur Geräte mit einer größeren ID werden übergeben
+     * @param limit Maximale Anzahl an Geräten
+     * @param sink Empfänger der Geräte
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     * @throws IOException wenn der DeviceSink ein Gerät nicht schreiben kann
      */
-    public List<Device> getAllDevices() {
-        try {
-            PreparedStatement prep = connection.prepareStatement("SELECT * FROM devices WHERE borrower IS NULL");
-            ResultSet resultSet = prep.executeQuery();
-            return resultSetToList(resultSet);
-        } catch (SQLException e) {
-            printSqlErr(e);
-            return null;
+    @Override
+    public void streamAllDevices(int afterId, int limit, DeviceSink sink) throws SQLException, IOException {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_AVAILABLE_DEVICES, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            prep.setFetchSize(streamingFetchSize);
+            prep.setInt(1, afterId);
+            prep.setInt(2, limit);
+            long start = System.nanoTime();
+            boolean successful = false;
+            try (ResultSet resultSet = prep.executeQuery()) {
+                while (resultSet.next()) {
+                    sink.accept(readDevice(resultSet));
+                }
+                successful = true;
+            } finally {
+                metrics.recordSql("stream_available_devices", System.nanoTime() - start, successful);
+            }
+            connection.commit();
         }
     }
 
     /**
      * Ausleihung eines Gerätes, indem der borrower auf den Benutzernamen gesetzt und
-     * das Rückgabedatum eingefügt wird
+     * das Rückgabedatum eingefügt wird.
+     * Die Prüfung, ob das Gerät noch verfügbar ist, erfolgt in derselben UPDATE-Anweisung, sodass bei
+     * gleichzeitigen Anfragen genau ein Benutzer das Gerät ausleiht.
      * @param id ID des Gerätes
      * @param username Der Benutzername des Ausleihers
-     * @return true, wenn der Benutzer und das Rückgabedatum in die Datenbank eingefügt wurden, sonst false.
+     * @return true, wenn das Gerät verfügbar war und ausgeliehen wurde, sonst false.
      */
+    @Override
     public boolean setBorrower(String id, String username) {
+        int key;
         try {
-            PreparedStatement prep = connection.prepareStatement("UPDATE devices SET borrower = ?, returndate = ? WHERE id like ?");
+            key = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(UPDATE_SET_BORROWER)) {
             prep.setString(1, username);
-            LocalDate returnDate = LocalDate.now().plusWeeks(2); // Datum 2 Wochen in der Zukunft
-            prep.setDate(2, java.sql.Date.valueOf(returnDate));
-            prep.setString(3, id);
-
-            int affectedRows = prep.executeUpdate();
-            connection.commit();
+            Date returnDate = Date.valueOf(LocalDate.now().plusWeeks(2)); // Datum 2 Wochen in der Zukunft
+            prep.setDate(2, returnDate);
+            prep.setInt(3, key);
+
+            int affectedRows = executeUpdate("update_set_borrower", prep);
+            commit(connection, version -> {
+                if (affectedRows > 0) {
+                    searchIndex.updateBorrower(key, username, returnDate, version);
+                }
+            });
+            if (affectedRows > 0) {
+                deviceCache.invalidate(key);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             printSqlErr(e);
@@ -244,17 +396,35 @@ public class DatabaseUtil {
     }
 
     /**
-     * Zurückgeben eines Gerätes, indem der borrower und das Rückgabedatum auf null gesetzt wird
+     * Zurückgeben eines Gerätes, indem der borrower und das Rückgabedatum auf null gesetzt wird.
+     * Das Gerät wird nur zurückgegeben, wenn es vom übergebenen Benutzer ausgeliehen ist. Die Prüfung
+     * erfolgt in derselben UPDATE-Anweisung.
      * @param id ID des Gerätes
-     * @return true, wenn der Benutzer und das Rückgabedatum auf null gesetzt wurden, sonst false.
+     * @param username Der Benutzername des Ausleihers
+     * @return true, wenn das Gerät vom Benutzer ausgeliehen war und zurückgegeben wurde, sonst false.
      */
-    public boolean deleteBorrower(String id) {
+    @Override
+    public boolean deleteBorrower(String id, String username) {
+        int key;
         try {
-            PreparedStatement prep = connection.prepareStatement("UPDATE devices SET borrower = null, returndate = null WHERE id like ?");
-            prep.setString(1, id);
-
-            int affectedRows = prep.executeUpdate();
-            connection.commit();
+            key = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(UPDATE_DELETE_BORROWER)) {
+            prep.setInt(1, key);
+            prep.setString(2, username);
+
+            int affectedRows = executeUpdate("update_delete_borrower", prep);
+            commit(connection, version -> {
+                if (affectedRows > 0) {
+                    searchIndex.updateBorrower(key, null, null, version);
+                }
+            });
+            if (affectedRows > 0) {
+                deviceCache.invalidate(key);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             printSqlErr(e);
@@ -262,17 +432,121 @@ public class DatabaseUtil {
         }
     }
 
+    /**
+     * Ausleihung mehrerer Geräte in einer Transaktion
+     * @param ids IDs der Geräte ohne Duplikate
+     * @param username Der Benutzername des Ausleihers
+     * @param atomic true, um nur alle oder keines der Geräte auszuleihen
+     * @return IDs der ausgeliehenen Geräte oder null bei einem Fehler
+     */
+    @Override
+    public List<Integer> setBorrowers(List<Integer> ids, String username, boolean atomic) {
+        Date returnDate = Date.valueOf(LocalDate.now().plusWeeks(2)); // Datum 2 Wochen in der Zukunft
+        return changeBorrowers(ids, atomic, borrower -> borrower == null, username, returnDate);
+    }
+
+    /**
+     * Zurückgeben mehrerer Geräte des Benutzers in einer Transaktion
+     * @param ids IDs der Geräte ohne Duplikate
+     * @param username Der Benutzername des Ausleihers
+     * @param atomic true, um nur alle oder keines der Geräte zurückzugeben
+     * @return IDs der zurückgegebenen Geräte oder null bei einem Fehler
+     */
+    @Override
+    public List<Integer> deleteBorrowers(List<Integer> ids, String username, boolean atomic) {
+        return changeBorrowers(ids, atomic, borrower -> username != null && username.equals(borrower), null, null);
+    }
+
+    /**
+     * Ändert Ausleiher und Rückgabedatum mehrerer Geräte in einer Transaktion mit zwei Anweisungen.
+     * Zuerst werden alle angefragten Zeilen mit SELECT ... FOR UPDATE gesperrt und geprüft, danach werden die
+     * passenden Geräte mit einer UPDATE-Anweisung geändert. Durch die Sperre kann keine andere Anfrage die
+     * Geräte zwischen Prüfung und Änderung ausleihen oder zurückgeben.
+     * @param ids IDs der Geräte ohne Duplikate
+     * @param atomic true, um nur alle oder keines der Geräte zu ändern
+     * @param eligible Bedingung an den bisherigen Ausleiher
+     * @param borrower Neuer Ausleiher oder null
+     * @param returnDate Neues Rückgabedatum oder null
+     * @return IDs der geänderten Geräte oder null bei einem Fehler
+     */
+    private List<Integer> changeBorrowers(List<Integer> ids, boolean atomic, Predicate<String> eligible, String borrower, Date returnDate) {
+        try (Connection connection = pool.getConnection()) {
+            List<Integer> changed = new ArrayList<>();
+            try (PreparedStatement prep = connection.prepareStatement(String.format(SELECT_DEVICES_FOR_UPDATE, placeholders(ids.size())))) {
+                setIds(prep, 1, ids);
+                for (Device device : queryDevices("select_devices_for_update", prep)) {
+                    if (eligible.test(device.borrower())) {
+                        changed.add(device.id());
+                    }
+                }
+            }
+            if (changed.isEmpty() || atomic && changed.size() != ids.size()) {
+                connection.rollback(); // Sperren freigeben
+                return List.of();
+            }
+            try (PreparedStatement prep = connection.prepareStatement(String.format(UPDATE_BORROWERS, placeholders(changed.size())))) {
+                prep.setString(1, borrower);
+                prep.setDate(2, returnDate);
+                setIds(prep, 3, changed);
+                executeUpdate("update_borrowers", prep);
+            }
+            commit(connection, version -> {
+                for (int id : changed) {
+                    searchIndex.updateBorrower(id, borrower, returnDate, version);
+                }
+            });
+            for (int id : changed) {
+                deviceCache.invalidate(id);
+            }
+            return changed;
+        } catch (SQLException e) {
+            printSqlErr(e);
+            return null;
+        }
+    }
+
+    /**
+     * Erzeugt die Platzhalter einer IN-Liste, aufgefüllt auf die nächste Zweierpotenz
+     * @param count Anzahl der IDs
+     * @return Platzhalter getrennt durch Kommas
+     */
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(paddedSize(count), "?"));
+    }
+
+    /**
+     * Rundet die Anzahl der IDs auf die nächste Zweierpotenz auf
+     * @param count Anzahl der IDs
+     * @return Anzahl der Platzhalter
+     */
+    private static int paddedSize(int count) {
+        return count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    }
+
+    /**
+     * Setzt die IDs als Parameter einer IN-Liste. Die aufgefüllten Platzhalter erhalten die letzte ID.
+     * @param prep Die vorbereitete Anweisung
+     * @param first Index des ersten Platzhalters der IN-Liste
+     * @param ids Die IDs
+     * @throws SQLException wenn ein Parameter nicht gesetzt werden kann
+     */
+    private static void setIds(PreparedStatement prep, int first, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < paddedSize(ids.size()); i++) {
+            prep.setInt(first + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+    }
+
     /**
      * Holt sich alle Geräte aus der Datenbank, die vom Nutzer ausgeliehen sind
      * @param username Der Benutzername
      * @return List mit den vom Nutzer ausgeliehenen Geräte
      */
+    @Override
     public List<Device> getBorrowedDevicesByUser(String username) {
-        try {
-            PreparedStatement prep = connection.prepareStatement("SELECT * FROM devices WHERE borrower LIKE ?");
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_DEVICES_BY_BORROWER)) {
             prep.setString(1, username);
-            ResultSet resultSet = prep.executeQuery();
-            return resultSetToList(resultSet);
+            return queryDevices("select_devices_by_borrower", prep);
         } catch (SQLException e) {
             printSqlErr(e);
             return null;
@@ -285,19 +559,16 @@ public class DatabaseUtil {
      * @param device Gerät mit neuen Attributen
      * @return true, wenn das Gerät erfolgreich bearbeitet wurde, sonst false.
      */
+    @Override
     public boolean editDevice(String id, Device device) {
+        int key;
         try {
-            PreparedStatement prep = connection.prepareStatement("""
-             UPDATE devices SET
-             brand = ?,
-             model = ?,
-             category = ?,
-             purchaseyear = ?,
-             id = ?,
-             borrower = ?,
-             returndate = ?\s
-             WHERE id like ?
-            """);
+            key = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(UPDATE_DEVICE)) {
             prep.setString(1, device.brand());
             prep.setString(2, device.model());
             prep.setString(3, device.category());
@@ -315,10 +586,18 @@ public class DatabaseUtil {
             } else {
                 prep.setNull(7, Types.DATE);
             }
-            prep.setString(8, id);
+            prep.setInt(8, key);
 
-            int affectedRows = prep.executeUpdate();
-            connection.commit();
+            int affectedRows = executeUpdate("update_device", prep);
+            commit(connection, version -> {
+                if (affectedRows > 0) {
+                    searchIndex.replace(key, device, version);
+                }
+            });
+            if (affectedRows > 0) {
+                deviceCache.invalidate(key);
+                deviceCache.invalidate(device.id());
+            }
             return (affectedRows > 0);
         } catch (SQLException e) {
             printSqlErr(e);
@@ -331,19 +610,21 @@ public class DatabaseUtil {
      * @param device Gerät mit den Attributen
      * @return true, wenn das Gerät erfolgreich hinzugefügt wurde, sonst false.
      */
+    @Override
     public boolean addDevice(Device device) {
-        try {
-            PreparedStatement prep = connection.prepareStatement("INSERT INTO devices (brand, model, category, purchaseyear, id, borrower, returndate) VALUES (?, ?, ?, ?, ?, ?, ?);");
-            prep.setString(1, device.brand());
-            prep.setString(2, device.model());
-            prep.setString(3, device.category());
-            prep.setInt(4, device.purchaseyear());
-            prep.setInt(5, device.id());
-            prep.setString(6, device.borrower());
-            prep.setDate(7, (Date) device.returnDate());
-
-            int affectedRows = prep.executeUpdate();
-            connection.commit();
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(INSERT_DEVICE)) {
+            setInsertParameters(prep, device);
+
+            int affectedRows = executeUpdate("insert_device", prep);
+            commit(connection, version -> {
+                if (affectedRows > 0) {
+                    searchIndex.put(device, version);
+                }
+            });
+            if (affectedRows > 0) {
+                deviceCache.invalidate(device.id());
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
             printSqlErr(e);
@@ -352,18 +633,196 @@ public class DatabaseUtil {
     }
 
     /**
-     * Ausgabe der SQLException in übersichtlicherer Weise auf der Konsole
-     * @param e Die SQLException
+     * Hinzufügen mehrerer Geräte in einer Transaktion. Die Geräte werden zunächst als Batch gesendet, den der
+     * Treiber mit rewriteBatchedStatements zu mehrzeiligen INSERT-Anweisungen zusammenfasst. Schlägt der Batch
+     * fehl, z.B. weil eine ID bereits existiert, wird er zurückgerollt und die Geräte werden in derselben
+     * Verbindung einzeln eingefügt, um die fehlerhaften Geräte zu bestimmen.
+     * @param devices Die Geräte
+     * @return Je Gerät null, wenn es hinzugefügt wurde, sonst der Grund
      */
-    private void printSqlErr(SQLException e) {
-        System.err.printf("%n--- Eine SQLException ist aufgetreten ---%n%n");
-        while(e != null) {
-            System.err.printf("""
-                    Message: %s
-                    SQLState: %s
-                    ErrorCode: %d
-                """.stripIndent(), e.getMessage(), e.getSQLState(), e.getErrorCode());
-            e = e.getNextException ();
+    @Override
+    public List<String> addDevices(List<Device> devices) {
+        String[] errors = new String[devices.size()];
+        try (Connection connection = pool.getConnection()) {
+            if (!insertBatch(connection, devices)) {
+                insertEach(connection, devices, errors);
+            }
+        } catch (SQLException e) {
+            printSqlErr(e);
+            Arrays.fill(errors, "Datenbankfehler: " + e.getMessage());
+            return Arrays.asList(errors);
+        }
+        for (int i = 0; i < devices.size(); i++) {
+            if (errors[i] == null) {
+                deviceCache.invalidate(devices.get(i).id());
+            }
+        }
+        return Arrays.asList(errors);
+    }
+
+    /**
+     * Fügt alle Geräte als ein Batch ein und bestätigt die Transaktion
+     * @param connection Verbindung zur Datenbank
+     * @param devices Die Geräte
+     * @return true, wenn alle Geräte eingefügt wurden, false, wenn der Batch fehlschlug und zurückgerollt wurde
+     * @throws SQLException wenn das Zurückrollen oder Bestätigen fehlschlägt
+     */
+    private boolean insertBatch(Connection connection, List<Device> devices) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement(INSERT_DEVICE)) {
+            for (Device device : devices) {
+                setInsertParameters(prep, device);
+                prep.addBatch();
+            }
+            executeBatch("insert_devices_batch", prep);
+        } catch (BatchUpdateException e) {
+            connection.rollback();
+            return false;
+        }
+        commit(connection, version -> devices.forEach(device -> searchIndex.put(device, version)));
+        return true;
+    }
+
+    /**
+     * Fügt die Geräte einzeln in einer Transaktion ein. Eine fehlgeschlagene INSERT-Anweisung wird von MySQL
+     * allein zurückgerollt, die übrigen Geräte bleiben in der Transaktion.
+     * @param connection Verbindung zur Datenbank
+     * @param devices Die Geräte
+     * @param errors Hier wird für jedes nicht eingefügte Gerät der Grund eingetragen
+     * @throws SQLException wenn die Transaktion nicht bestätigt werden kann
+     */
+    private void insertEach(Connection connection, List<Device> devices, String[] errors) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement(INSERT_DEVICE)) {
+            for (int i = 0; i < devices.size(); i++) {
+                setInsertParameters(prep, devices.get(i));
+                try {
+                    executeUpdate("insert_device", prep);
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    errors[i] = "ID existiert bereits";
+                } catch (SQLException e) {
+                    errors[i] = "Datenbankfehler: " + e.getMessage();
+                }
+            }
+        }
+        commit(connection, version -> {
+            for (int i = 0; i < devices.size(); i++) {
+                if (errors[i] == null) {
+                    searchIndex.put(devices.get(i), version);
+                }
+            }
+        });
+    }
+
+    /**
+     * Bestätigt die Transaktion und aktualisiert danach den Suchindex. Die Version der Änderung wird vor dem
+     * Commit vergeben, solange die Transaktion ihre Zeilensperren hält. Eine konkurrierende Änderung derselben
+     * Zeilen wartet auf diese Sperren und erhält daher eine größere Version; der Index übernimmt so je ID nur die
+     * neueste Änderung, auch wenn die Aktualisierungen in anderer Reihenfolge eintreffen. Änderungen
+     * verschiedener Geräte warten nicht aufeinander.
+     * @param connection Verbindung mit offener Transaktion
+     * @param indexUpdate Änderung des Suchindex nach einem erfolgreichen Commit mit der Version der Änderung
+     * @throws SQLException wenn die Transaktion nicht bestätigt werden kann
+     */
+    private void commit(Connection connection, LongConsumer indexUpdate) throws SQLException {
+        long version = searchIndex.nextVersion();
+        connection.commit();
+        indexUpdate.accept(version);
+    }
+
+    /**
+     * Setzt die Parameter von INSERT_DEVICE für ein Gerät
+     * @param prep Die vorbereitete Anweisung INSERT_DEVICE
+     * @param device Das Gerät
+     * @throws SQLException wenn ein Parameter nicht gesetzt werden kann
+     */
+    private void setInsertParameters(PreparedStatement prep, Device device) throws SQLException {
+        prep.setString(1, device.brand());
+        prep.setString(2, device.model());
+        prep.setString(3, device.category());
+        prep.setInt(4, device.purchaseyear());
+        prep.setInt(5, device.id());
+        prep.setString(6, device.borrower());
+        // Setzen des Rückgabedatums, falls vorhanden, sonst setzen auf NULL.
+        if (device.returnDate() != null) {
+            prep.setDate(7, new java.sql.Date(device.returnDate().getTime()));
+        } else {
+            prep.setNull(7, Types.DATE);
+        }
+    }
+
+    /**
+     * Ausgabe der SQLException in übersichtlicherer Weise auf der Konsole.
+     * Der Text wird erst im Schreib-Thread des Logs zusammengesetzt.
+     * @param exception Die SQLException
+     */
+    private void printSqlErr(SQLException exception) {
+        Log.log(Log.Level.ERROR, "sql", () -> {
+            StringBuilder message = new StringBuilder(String.format("%n--- Eine SQLException ist aufgetreten ---%n%n"));
+            for (SQLException e = exception; e != null; e = e.getNextException()) {
+                message.append(String.format("""
+                        Message: %s
+                        SQLState: %s
+                        ErrorCode: %d
+                    """.stripIndent(), e.getMessage(), e.getSQLState(), e.getErrorCode()));
+            }
+            return message.toString();
+        });
+    }
+
+    /**
+     * Führt die vorbereitete Abfrage aus und konvertiert das Ergebnis in eine Liste von Gerät-Objekten.
+     * Das ResultSet wird nach dem Auslesen sofort geschlossen. Die Dauer wird in den Metrics erfasst.
+     * @param statement Kurzname der Anweisung für die Metrics
+     * @param prep Die vorbereitete Abfrage mit gesetzten Parametern
+     * @return List mit Geräten
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     */
+    private List<Device> queryDevices(String statement, PreparedStatement prep) throws SQLException {
+        long start = System.nanoTime();
+        boolean successful = false;
+        try (ResultSet resultSet = prep.executeQuery()) {
+            List<Device> devices = resultSetToList(resultSet);
+            successful = true;
+            return devices;
+        } finally {
+            metrics.recordSql(statement, System.nanoTime() - start, successful);
+        }
+    }
+
+    /**
+     * Führt die vorbereitete Änderung aus. Die Dauer wird in den Metrics erfasst.
+     * @param statement Kurzname der Anweisung für die Metrics
+     * @param prep Die vorbereitete Änderung mit gesetzten Parametern
+     * @return Anzahl der betroffenen Zeilen
+     * @throws SQLException wenn die Änderung fehlschlägt
+     */
+    private int executeUpdate(String statement, PreparedStatement prep) throws SQLException {
+        long start = System.nanoTime();
+        boolean successful = false;
+        try {
+            int affectedRows = prep.executeUpdate();
+            successful = true;
+            return affectedRows;
+        } finally {
+            metrics.recordSql(statement, System.nanoTime() - start, successful);
+        }
+    }
+
+    /**
+     * Führt den Batch aus. Die Dauer wird in den Metrics erfasst.
+     * @param statement Kurzname der Anweisung für die Metrics
+     * @param prep Die Anweisung mit allen Befehlen bzw. Parametersätzen des Batches
+     * @return Anzahl der betroffenen Zeilen je Befehl bzw. Parametersatz
+     * @throws SQLException wenn der Batch fehlschlägt
+     */
+    private int[] executeBatch(String statement, Statement prep) throws SQLException {
+        long start = System.nanoTime();
+        boolean successful = false;
+        try {
+            int[] affectedRows = prep.executeBatch();
+            successful = true;
+            return affectedRows;
+        } finally {
+            metrics.recordSql(statement, System.nanoTime() - start, successful);
         }
     }
 
@@ -376,15 +835,7 @@ public class DatabaseUtil {
         try {
             List<Device> devices = new ArrayList<>();
             while (resultSet.next()) {
-                String brand = resultSet.getString("brand");
-                String model = resultSet.getString("model");
-                String category = resultSet.getString("category");
-                int purchaseyear = resultSet.getInt("purchaseyear");
-                int id = resultSet.getInt("id");
-                String borrower = resultSet.getString("borrower");
-                Date returnDate = resultSet.getDate("returndate");
-                Device device = new Device(brand, model, category, purchaseyear, id, borrower, returnDate);
-                devices.add(device);
+                devices.add(readDevice(resultSet));
             }
             return devices;
         } catch (SQLException e) {
@@ -392,4 +843,21 @@ public class DatabaseUtil {
             return null;
         }
     }
+
+    /**
+     * Liest das Gerät in der aktuellen Zeile des ResultSets
+     * @param resultSet Das ResultSet-Objekt aus der SQL-Abfrage
+     * @return Das Gerät
+     * @throws SQLException wenn eine Spalte nicht gelesen werden kann
+     */
+    private Device readDevice(ResultSet resultSet) throws SQLException {
+        String brand = resultSet.getString("brand");
+        String model = resultSet.getString("model");
+        String category = resultSet.getString("category");
+        int purchaseyear = resultSet.getInt("purchaseyear");
+        int id = resultSet.getInt("id");
+        String borrower = resultSet.getString("borrower");
+        Date returnDate = resultSet.getDate("returndate");
+        return new Device(brand, model, category, purchaseyear, id, borrower, returnDate);
+    }
 }
@@ -0,0 +1,58 @@
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceCache implementiert einen begrenzten, nebenläufigen Cache für Geräte nach ihrer ID.
+ * Einträge werden bei Überschreiten der maximalen Größe verdrängt und verfallen nach einer festen Zeit,
+ * damit Änderungen anderer Serverinstanzen spätestens nach Ablauf der TTL sichtbar werden.
+ * Nicht vorhandene Geräte werden nicht zwischengespeichert.
+ */
+public class DeviceCache {
+    private final Cache<Integer, Device> cache;
+
+    /**
+     * Konstruktor der Klasse DeviceCache
+     * @param maximumSize Maximale Anzahl an Geräten im Cache
+     * @param timeToLive Zeit, nach der ein Eintrag verfällt
+     */
+    public DeviceCache(long maximumSize, Duration timeToLive) {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Gibt das Gerät aus dem Cache zurück oder lädt es bei einem Fehltreffer über den Loader.
+     * Gleichzeitige Fehltreffer für dieselbe ID lösen nur einen Ladevorgang aus.
+     * @param id ID des Gerätes
+     * @param loader Lädt das Gerät aus der Datenbank und gibt null zurück, wenn es nicht existiert
+     * @return Das Gerät oder null, wenn es nicht existiert
+     */
+    public Device get(int id, Function<Integer, Device> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * Entfernt das Gerät mit der ID aus dem Cache
+     * @param id ID des Gerätes
+     */
+    public void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Gibt eine Momentaufnahme der Cachestatistik zurück
+     * @return Statistik des Caches
+     */
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,229 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.WebSocket;
+import org.glassfish.grizzly.websockets.WebSocketApplication;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceEventBroadcaster sendet Änderungen an Geräten über WebSocket an alle verbundenen Clients.
+ * Die Endpunkte melden eine Änderung mit publish zusammen mit dem geänderten Gerät. publish legt nur einen
+ * kleinen Eintrag in eine begrenzte Queue und wartet nie. Ein eigener Thread serialisiert das DeviceEvent
+ * einmal als JSON und verteilt den Text auf die Verbindungen, ohne die Datenbank zu lesen.
+ * Jede Verbindung hat eine eigene begrenzte Queue, die von einem virtuellen Thread abgearbeitet wird. Es ist
+ * höchstens ein Frame pro Verbindung unterwegs. Läuft die Queue eines langsamen Clients über, wird sie verworfen
+ * und durch ein RESYNC ersetzt, nach dem der Client neu lädt. Antwortet ein Client nicht innerhalb von
+ * SendTimeout, wird die Verbindung geschlossen. Andere Clients und die Endpunkte werden dadurch nicht gebremst.
+ */
+public class DeviceEventBroadcaster extends WebSocketApplication implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper(); // Serialisiert Geräte wie der JSON-Provider von Jersey
+    private static final String RESYNC = toJson(new DeviceEvent(DeviceEvent.Type.RESYNC, 0, 0, null));
+
+    /**
+     * Der Record Change ist eine gemeldete, noch nicht verteilte Änderung
+     * @param type Art der Änderung
+     * @param previousId Bisherige ID des Gerätes
+     * @param id Aktuelle ID des Gerätes
+     * @param device Zustand des Gerätes nach der Änderung oder null
+     */
+    private record Change(DeviceEvent.Type type, int previousId, int id, Device device) {
+    }
+
+    private final BlockingQueue<Change> changes; //Gemeldete Änderungen
+    private final AtomicBoolean overflow = new AtomicBoolean(); //true, wenn Änderungen verworfen wurden
+    private final Map<WebSocket, Subscriber> subscribers = new ConcurrentHashMap<>(); //Verbundene Clients
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("device-events-send-", 0).factory());
+    private final int subscriberCapacity; //Länge der Queue je Verbindung
+    private final long sendTimeout; //Maximale Wartezeit auf das Senden eines Frames in Millisekunden
+    private final Thread dispatcher;
+
+    /**
+     * Konstruktor der Klasse DeviceEventBroadcaster, der den Verteil-Thread startet
+     * @param capacity Länge der Queue für gemeldete Änderungen
+     * @param subscriberCapacity Länge der Queue je Verbindung
+     * @param sendTimeout Maximale Wartezeit auf das Senden eines Frames in Millisekunden
+     */
+    public DeviceEventBroadcaster(int capacity, int subscriberCapacity, long sendTimeout) {
+        this.changes = new ArrayBlockingQueue<>(capacity);
+        this.subscriberCapacity = subscriberCapacity;
+        this.sendTimeout = sendTimeout;
+        dispatcher = new Thread(this::dispatchLoop, "device-events");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Meldet die Änderung eines Gerätes, ohne zu warten. Ist die Queue voll, wird die Änderung verworfen und
+     * die Clients erhalten stattdessen ein RESYNC.
+     * @param type Art der Änderung
+     * @param previousId Bisherige ID des Gerätes
+     * @param id Aktuelle ID des Gerätes
+     * @param device Zustand des Gerätes nach der Änderung oder null, wenn es nicht mehr existiert
+     */
+    public void publish(DeviceEvent.Type type, int previousId, int id, Device device) {
+        if (!changes.offer(new Change(type, previousId, id, device))) {
+            overflow.set(true);
+        }
+    }
+
+    /**
+     * Meldet, dass sich viele Geräte auf einmal geändert haben, z.B. nach einem Import. Die Clients laden neu.
+     */
+    public void publishResync() {
+        publish(DeviceEvent.Type.RESYNC, 0, 0, null);
+    }
+
+    /**
+     * Gibt an, ob Clients verbunden sind. Ohne Clients müssen die Endpunkte das geänderte Gerät nicht lesen.
+     * @return true, wenn mindestens ein Client verbunden ist
+     */
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Verteilt die gemeldeten Änderungen, bis der Thread unterbrochen wird
+     */
+    private void dispatchLoop() {
+        while (true) {
+            Change change;
+            try {
+                change = changes.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean lost = overflow.getAndSet(false);
+            if (subscribers.isEmpty()) {
+                continue; // Ohne Clients muss nichts serialisiert werden
+            }
+            if (lost || change.type() == DeviceEvent.Type.RESYNC) {
+                broadcast(RESYNC);
+                continue;
+            }
+            broadcast(toJson(new DeviceEvent(change.type(), change.previousId(), change.id(), change.device())));
+        }
+    }
+
+    /**
+     * Legt den Text in die Queues aller Verbindungen. Package-private, damit Tests den Verteil-Thread anhalten können.
+     * @param message Das serialisierte DeviceEvent
+     */
+    void broadcast(String message) {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.offer(message);
+        }
+    }
+
+    /**
+     * Serialisiert ein DeviceEvent als JSON
+     * @param event Das DeviceEvent
+     * @return JSON-Text
+     */
+    private static String toJson(DeviceEvent event) {
+        try {
+            return MAPPER.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Registriert einen neu verbundenen Client
+     * @param socket Verbindung des Clients
+     */
+    @Override
+    public void onConnect(WebSocket socket) {
+        subscribers.put(socket, new Subscriber(socket));
+        Log.info("events", ">>> WebSocket verbunden, {} Clients <<<", subscribers.size());
+    }
+
+    /**
+     * Entfernt einen Client, dessen Verbindung geschlossen wurde
+     * @param socket Verbindung des Clients
+     * @param frame Frame zum Schließen
+     */
+    @Override
+    public void onClose(WebSocket socket, DataFrame frame) {
+        subscribers.remove(socket);
+    }
+
+    /**
+     * Beendet den Verteil-Thread und schließt alle Verbindungen
+     */
+    @Override
+    public void close() {
+        dispatcher.interrupt();
+        senders.shutdownNow();
+        for (WebSocket socket : subscribers.keySet()) {
+            socket.close();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Die Klasse Subscriber enthält die begrenzte Queue einer Verbindung
+     */
+    private final class Subscriber {
+        private final WebSocket socket;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(subscriberCapacity);
+        private final AtomicBoolean sending = new AtomicBoolean(); //true, solange ein Thread die Queue abarbeitet
+
+        /**
+         * Konstruktor der Klasse Subscriber
+         * @param socket Verbindung des Clients
+         */
+        private Subscriber(WebSocket socket) {
+            this.socket = socket;
+        }
+
+        /**
+         * Legt einen Text in die Queue und startet das Senden, falls es nicht schon läuft
+         * @param message Der Text
+         */
+        private void offer(String message) {
+            if (!queue.offer(message)) {
+                queue.clear(); // Client ist zu langsam, die ausstehenden Änderungen durch ein RESYNC ersetzen
+                queue.offer(RESYNC);
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        /**
+         * Sendet die Texte der Queue nacheinander und wartet jeweils, bis der Frame geschrieben ist
+         */
+        private void drain() {
+            try {
+                String message;
+                while ((message = queue.poll()) != null) {
+                    socket.send(message).get(sendTimeout, TimeUnit.MILLISECONDS);
+                }
+            } catch (ExecutionException | TimeoutException e) {
+                Log.warn("events", ">>> WebSocket wird geschlossen: {} <<<", e.getMessage());
+                subscribers.remove(socket);
+                socket.close();
+                return;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // Während des Beendens eingetroffene Texte nicht liegen lassen
+            if (!queue.isEmpty() && sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.core.MediaType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceImportReader liest die Geräte eines Imports nacheinander aus dem Anfrageinhalt, ohne den
+ * gesamten Inhalt in den Speicher zu laden. Unterstützt werden:
+ * JSON: Ein Array von Geräten wie bei postDevice, die Zeilennummer ist die Position im Array.
+ * NDJSON: Ein Gerät als JSON-Objekt pro Zeile.
+ * CSV: Eine Kopfzeile mit den Spalten brand, model, category, purchaseyear, id und optional borrower und
+ * returndate (yyyy-MM-dd) in beliebiger Reihenfolge, danach ein Gerät pro Zeile. Felder können in doppelten
+ * Anführungszeichen stehen, dürfen aber keinen Zeilenumbruch enthalten.
+ * Bei NDJSON und CSV ist die Zeilennummer die Zeile im Text. Fehlerhafte Zeilen werden mit ihrem Grund
+ * zurückgegeben, damit der Import fortgesetzt werden kann.
+ */
+public class DeviceImportReader implements AutoCloseable {
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper(); // Liest Geräte wie der JSON-Provider von Jersey
+    private static final String[] REQUIRED_COLUMNS = {"brand", "model", "category", "purchaseyear", "id"};
+
+    /**
+     * Das enum Format enthält die unterstützten Formate eines Imports
+     */
+    public enum Format {JSON, NDJSON, CSV}
+
+    private final Format format;
+    private final JsonParser parser; //Nur bei JSON
+    private final BufferedReader lines; //Nur bei NDJSON und CSV
+    private List<String> columns; //Spaltennamen der CSV-Kopfzeile
+    private int row; //Nummer der zuletzt gelesenen Zeile bzw. des Array-Elements
+
+    /**
+     * Konstruktor der Klasse DeviceImportReader, der bei JSON den Beginn des Arrays und bei CSV die Kopfzeile liest
+     * @param mediaType Content-Type der Anfrage
+     * @param input Anfrageinhalt
+     * @throws IOException wenn das Format nicht unterstützt wird, kein JSON-Array beginnt oder die Kopfzeile
+     * Spalten vermissen lässt
+     */
+    public DeviceImportReader(MediaType mediaType, InputStream input) throws IOException {
+        format = formatOf(mediaType);
+        if (format == null) {
+            throw new IOException("Nicht unterstütztes Format: " + mediaType);
+        }
+        if (format == Format.JSON) {
+            parser = MAPPER.createParser(input);
+            lines = null;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("JSON-Array erwartet");
+            }
+            return;
+        }
+        parser = null;
+        lines = new BufferedReader(new InputStreamReader(input, charsetOf(mediaType)));
+        if (format == Format.CSV) {
+            readHeader();
+        }
+    }
+
+    /**
+     * Bestimmt das Format aus dem Content-Type
+     * @param mediaType Content-Type der Anfrage
+     * @return Das Format oder null, wenn es nicht unterstützt wird
+     */
+    private static Format formatOf(MediaType mediaType) {
+        if (mediaType == null) {
+            return null;
+        }
+        String type = mediaType.getType().toLowerCase(Locale.ROOT) + "/" + mediaType.getSubtype().toLowerCase(Locale.ROOT);
+        return switch (type) {
+            case MediaType.APPLICATION_JSON -> Format.JSON;
+            case APPLICATION_NDJSON -> Format.NDJSON;
+            case TEXT_CSV -> Format.CSV;
+            default -> null;
+        };
+    }
+
+    /**
+     * Bestimmt den Zeichensatz aus dem Content-Type, ohne Angabe UTF-8
+     * @param mediaType Content-Type der Anfrage
+     * @return Zeichensatz des Textes
+     */
+    private static Charset charsetOf(MediaType mediaType) {
+        String charset = mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+        return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Liest die Kopfzeile eines CSV-Imports und prüft, ob alle benötigten Spalten vorhanden sind
+     * @throws IOException wenn die Kopfzeile nicht gelesen werden kann oder Spalten fehlen
+     */
+    private void readHeader() throws IOException {
+        String header = lines.readLine();
+        row++;
+        if (header == null) {
+            columns = List.of();
+            return;
+        }
+        columns = new ArrayList<>();
+        for (String column : parseCsvLine(header.replace("\uFEFF", ""))) { // Byte Order Mark z.B. von Excel entfernen
+            columns.add(column.strip().toLowerCase(Locale.ROOT));
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.contains(column)) {
+                throw new IOException("Spalte " + column + " fehlt in der CSV-Kopfzeile");
+            }
+        }
+    }
+
+    /**
+     * Liest die nächste Zeile
+     * @return Die Zeile mit Gerät oder Fehler, oder null, wenn alle Zeilen gelesen wurden
+     * @throws IOException wenn der Inhalt nicht weiter gelesen werden kann, z.B. bei fehlerhafter JSON-Syntax
+     */
+    public ImportRow next() throws IOException {
+        return switch (format) {
+            case JSON -> nextJson();
+            case NDJSON -> nextLine(this::parseJsonLine);
+            case CSV -> nextLine(this::parseCsvDevice);
+        };
+    }
+
+    /**
+     * Liest das nächste Element des JSON-Arrays. Ein Element, das kein gültiges Gerät ist, wird als Fehler
+     * zurückgegeben; das Array wird danach weiter gelesen.
+     * @return Die Zeile oder null am Ende des Arrays
+     * @throws IOException bei fehlerhafter JSON-Syntax
+     */
+    private ImportRow nextJson() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        row++;
+        JsonNode node = parser.readValueAsTree();
+        try {
+            return new ImportRow(row, MAPPER.treeToValue(node, Device.class), null);
+        } catch (JsonProcessingException e) {
+            return new ImportRow(row, null, "Ungültiges Gerät: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Das Interface LineParser wandelt eine nicht leere Textzeile in ein Gerät um
+     */
+    @FunctionalInterface
+    private interface LineParser {
+        /**
+         * Wandelt die Zeile in ein Gerät um
+         * @param line Die Zeile
+         * @return Das Gerät
+         * @throws IllegalArgumentException wenn die Zeile kein gültiges Gerät enthält
+         */
+        Device parse(String line);
+    }
+
+    /**
+     * Liest die nächste nicht leere Textzeile und wandelt sie in ein Gerät um
+     * @param lineParser Wandelt die Zeile um
+     * @return Die Zeile oder null am Ende des Textes
+     * @throws IOException wenn der Text nicht gelesen werden kann
+     */
+    private ImportRow nextLine(LineParser lineParser) throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                return null;
+            }
+            row++;
+        } while (line.isBlank());
+        try {
+            return new ImportRow(row, lineParser.parse(line), null);
+        } catch (IllegalArgumentException e) {
+            return new ImportRow(row, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Wandelt eine NDJSON-Zeile in ein Gerät um
+     * @param line Die Zeile
+     * @return Das Gerät
+     */
+    private Device parseJsonLine(String line) {
+        try {
+            return MAPPER.readValue(line, Device.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Ungültiges Gerät: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Wandelt eine CSV-Zeile anhand der Kopfzeile in ein Gerät um
+     * @param line Die Zeile
+     * @return Das Gerät
+     */
+    private Device parseCsvDevice(String line) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() != columns.size()) {
+            throw new IllegalArgumentException(columns.size() + " Felder erwartet, aber " + fields.size() + " gelesen");
+        }
+        try {
+            String returnDate = field(fields, "returndate");
+            return new Device(
+                    field(fields, "brand"),
+                    field(fields, "model"),
+                    field(fields, "category"),
+                    Integer.parseInt(field(fields, "purchaseyear").strip()),
+                    Integer.parseInt(field(fields, "id").strip()),
+                    field(fields, "borrower"),
+                    returnDate == null ? null : java.sql.Date.valueOf(LocalDate.parse(returnDate.strip())));
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Kaufjahr und ID müssen ganze Zahlen sein");
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Rückgabedatum muss das Format yyyy-MM-dd haben");
+        }
+    }
+
+    /**
+     * Gibt den Wert einer Spalte zurück
+     * @param fields Felder der Zeile
+     * @param column Name der Spalte
+     * @return Wert der Spalte oder null, wenn die Spalte fehlt oder das Feld leer ist
+     */
+    private String field(List<String> fields, String column) {
+        int index = columns.indexOf(column);
+        if (index < 0 || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    /**
+     * Zerlegt eine CSV-Zeile in ihre Felder. Felder in Anführungszeichen dürfen Kommas und verdoppelte
+     * Anführungszeichen enthalten.
+     * @param line Die Zeile
+     * @return Die Felder der Zeile
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Anführungszeichen nicht geschlossen");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Schließt den Parser bzw. Reader und damit den Anfrageinhalt
+     * @throws IOException wenn das Schließen fehlschlägt
+     */
+    @Override
+    public void close() throws IOException {
+        if (parser != null) {
+            parser.close();
+        }
+        if (lines != null) {
+            lines.close();
+        }
+    }
+}
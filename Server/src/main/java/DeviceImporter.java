@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceImporter fügt die Geräte eines Imports in Blöcken von ImportBatchSize Geräten hinzu.
+ * Jede Zeile wird beim Lesen geprüft. Gültige Geräte werden gesammelt und je Block mit einem Aufruf von
+ * DeviceRepository.addDevices gespeichert, bei JDBC in einer Transaktion. Fehlerhafte Zeilen werden im
+ * ImportReport gemeldet, ohne den übrigen Import abzubrechen. Nur wenn der Inhalt nicht weiter gelesen werden
+ * kann, endet der Import vorzeitig; bereits gespeicherte Blöcke bleiben erhalten.
+ */
+public class DeviceImporter {
+    private static final int MAX_TEXT_LENGTH = 50; //Länge von brand, model und category in der Datenbank
+    private static final int MAX_USERNAME_LENGTH = 30; //Länge von borrower in der Datenbank
+
+    private final DeviceRepository repository;
+    private final int batchSize; //Anzahl der Geräte pro Block
+
+    /**
+     * Konstruktor der Klasse DeviceImporter
+     * @param repository Gerätespeicherung der konfigurierten Speicher-Engine
+     * @param batchSize Anzahl der Geräte pro Block
+     */
+    public DeviceImporter(DeviceRepository repository, int batchSize) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Liest alle Zeilen, prüft sie und fügt die gültigen Geräte blockweise hinzu
+     * @param reader Quelle der Zeilen
+     * @return Ergebnis des Imports mit allen nicht übernommenen Zeilen
+     */
+    public ImportReport importDevices(DeviceImportReader reader) {
+        List<ImportError> errors = new ArrayList<>();
+        Set<Integer> ids = new HashSet<>(); //IDs der bisher gelesenen gültigen Geräte
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        int received = 0;
+        int imported = 0;
+        try {
+            ImportRow row;
+            while ((row = reader.next()) != null) {
+                received++;
+                String error = row.error() != null ? row.error() : validate(row.device(), ids);
+                if (error != null) {
+                    errors.add(new ImportError(row.row(), row.device() != null ? row.device().id() : null, error));
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    imported += store(batch, errors);
+                }
+            }
+        } catch (IOException e) {
+            errors.add(new ImportError(received + 1, null, "Import abgebrochen: " + e.getMessage()));
+        }
+        imported += store(batch, errors);
+        return new ImportReport(received, imported, errors);
+    }
+
+    /**
+     * Liest alle Zeilen und prüft sie, ohne die Geräte zu speichern. So können die Beispielgeräte bei JDBC
+     * zusammen mit dem SQL-Skript in einer Transaktion eingefügt werden.
+     * @param reader Quelle der Zeilen
+     * @param errors Nicht übernommene Zeilen werden hier ergänzt
+     * @return Die gültigen Geräte
+     * @throws IOException wenn der Inhalt nicht gelesen werden kann
+     */
+    public static List<Device> readDevices(DeviceImportReader reader, List<ImportError> errors) throws IOException {
+        Set<Integer> ids = new HashSet<>(); //IDs der bisher gelesenen gültigen Geräte
+        List<Device> devices = new ArrayList<>();
+        ImportRow row;
+        while ((row = reader.next()) != null) {
+            String error = row.error() != null ? row.error() : validate(row.device(), ids);
+            if (error != null) {
+                errors.add(new ImportError(row.row(), row.device() != null ? row.device().id() : null, error));
+            } else {
+                devices.add(row.device());
+            }
+        }
+        return devices;
+    }
+
+    /**
+     * Prüft ein gelesenes Gerät
+     * @param device Das Gerät
+     * @param ids IDs der bisher gelesenen gültigen Geräte, die ID des Gerätes wird hinzugefügt
+     * @return Grund, warum das Gerät ungültig ist, oder null
+     */
+    private static String validate(Device device, Set<Integer> ids) {
+        if (isBlank(device.brand()) || isBlank(device.model()) || isBlank(device.category())) {
+            return "Marke, Modell und Kategorie dürfen nicht leer sein";
+        }
+        if (device.brand().length() > MAX_TEXT_LENGTH || device.model().length() > MAX_TEXT_LENGTH
+                || device.category().length() > MAX_TEXT_LENGTH) {
+            return "Marke, Modell und Kategorie dürfen höchstens " + MAX_TEXT_LENGTH + " Zeichen lang sein";
+        }
+        if (device.borrower() != null && device.borrower().length() > MAX_USERNAME_LENGTH) {
+            return "Ausleiher darf höchstens " + MAX_USERNAME_LENGTH + " Zeichen lang sein";
+        }
+        if (device.purchaseyear() < 1900 || device.purchaseyear() > Year.now().getValue() + 1) {
+            return "Ungültiges Kaufjahr " + device.purchaseyear();
+        }
+        if (device.id() <= 0) {
+            return "ID muss positiv sein";
+        }
+        if (!ids.add(device.id())) {
+            return "ID kommt im Import mehrfach vor";
+        }
+        return null;
+    }
+
+    /**
+     * Prüft, ob ein Text fehlt oder nur aus Leerzeichen besteht
+     * @param text Der Text
+     * @return true, wenn der Text null oder leer ist, sonst false.
+     */
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+
+    /**
+     * Speichert einen Block von Geräten und leert ihn
+     * @param batch Die gelesenen Zeilen des Blocks
+     * @param errors Nicht übernommene Geräte werden hier ergänzt
+     * @return Anzahl der hinzugefügten Geräte
+     */
+    private int store(List<ImportRow> batch, List<ImportError> errors) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Device> devices = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            devices.add(row.device());
+        }
+        List<String> results = repository.addDevices(devices);
+        int imported = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (results.get(i) == null) {
+                imported++;
+            } else {
+                errors.add(new ImportError(batch.get(i).row(), devices.get(i).id(), results.get(i)));
+            }
+        }
+        batch.clear();
+        return imported;
+    }
+}
@@ -0,0 +1,47 @@
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceJsonStream schreibt die Geräte einer Abfrage als JSON-Array direkt in die HTTP-Antwort.
+ * Jedes Gerät wird geschrieben, sobald es aus dem ResultSet gelesen wurde, sodass der Speicherbedarf
+ * unabhängig von der Anzahl der Geräte bleibt.
+ */
+public class DeviceJsonStream implements StreamingOutput {
+    // Serialisiert Geräte wie der JSON-Provider von Jersey. Ohne FLUSH_AFTER_WRITE_VALUE wird nicht nach jedem
+    // Gerät geflusht, sondern erst, wenn der Puffer des Generators voll ist.
+    private static final ObjectMapper MAPPER = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final DeviceSource source; //Quelle der Geräte
+
+    /**
+     * Konstruktor der Klasse DeviceJsonStream
+     * @param source Quelle der Geräte, die erst beim Schreiben der Antwort abgefragt wird
+     */
+    public DeviceJsonStream(DeviceSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Schreibt die Geräte als JSON-Array in den Ausgabestrom
+     * @param output Ausgabestrom der HTTP-Antwort
+     * @throws IOException wenn die Abfrage oder das Schreiben fehlschlägt. Die Antwort ist dann unvollständig
+     * und die Verbindung wird abgebrochen.
+     */
+    @Override
+    public void write(OutputStream output) throws IOException {
+        try (JsonGenerator generator = MAPPER.createGenerator(output)) {
+            generator.writeStartArray();
+            source.forEach(generator::writeObject);
+            generator.writeEndArray();
+        } catch (SQLException e) {
+            throw new IOException("Abfrage beim Streamen fehlgeschlagen: " + e.getMessage(), e);
+        }
+    }
+}
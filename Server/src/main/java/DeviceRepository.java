@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das Interface DeviceRepository beschreibt die Speicherung der Geräte unabhängig von der Speicher-Engine.
+ * Implementiert wird es von DatabaseUtil (MySQL über JDBC) und InMemoryRepository (Hauptspeicher mit Journal).
+ */
+public interface DeviceRepository {
+
+    /**
+     * Holt eine Seite der Geräte, die mit Suchbegriff und Kriterium übereinstimmen, aufsteigend nach ID.
+     * @param search Der Suchbegriff
+     * @param criteria Das Suchkriterium
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit den passenden Geräten oder null bei einem Fehler
+     */
+    List<Device> getMatchingDevices(String search, SearchCriteria criteria, int afterId, int limit);
+
+    /**
+     * Holt das Gerät mit der ID
+     * @param id ID des Gerätes
+     * @return Das Gerät oder null, wenn kein Gerät mit der ID existiert
+     */
+    Device getDeviceById(String id);
+
+    /**
+     * Holt die Geräte mit den IDs in einem Zugriff. IDs ohne Gerät werden übergangen.
+     * @param ids IDs der Geräte
+     * @return List mit den vorhandenen Geräten oder null bei einem Fehler
+     */
+    List<Device> getDevicesByIds(List<Integer> ids);
+
+    /**
+     * Gibt eine Seite der nicht ausgeliehenen Geräte zurück, aufsteigend nach ID
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit nicht ausgeliehenen Geräten oder null bei einem Fehler
+     */
+    List<Device> getAllDevices(int afterId, int limit);
+
+    /**
+     * Gibt eine Seite aller Geräte einschließlich der ausgeliehenen zurück, aufsteigend nach ID
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit den Geräten oder null bei einem Fehler
+     */
+    List<Device> getCatalog(int afterId, int limit);
+
+    /**
+     * Übergibt die nicht ausgeliehenen Geräte aufsteigend nach ID einzeln an den DeviceSink
+     * @param afterId Nur Geräte mit einer größeren ID werden übergeben
+     * @param limit Maximale Anzahl an Geräten
+     * @param sink Empfänger der Geräte
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     * @throws IOException wenn der DeviceSink ein Gerät nicht schreiben kann
+     */
+    void streamAllDevices(int afterId, int limit, DeviceSink sink) throws SQLException, IOException;
+
+    /**
+     * Leiht das Gerät an den Benutzer aus, falls es nicht ausgeliehen ist
+     * @param id ID des Gerätes
+     * @param username Der Benutzername des Ausleihers
+     * @return true, wenn das Gerät verfügbar war und ausgeliehen wurde, sonst false.
+     */
+    boolean setBorrower(String id, String username);
+
+    /**
+     * Gibt das Gerät zurück, falls es vom Benutzer ausgeliehen ist
+     * @param id ID des Gerätes
+     * @param username Der Benutzername des Ausleihers
+     * @return true, wenn das Gerät vom Benutzer ausgeliehen war und zurückgegeben wurde, sonst false.
+     */
+    boolean deleteBorrower(String id, String username);
+
+    /**
+     * Leiht mehrere Geräte in einer Transaktion an den Benutzer aus
+     * @param ids IDs der Geräte ohne Duplikate
+     * @param username Der Benutzername des Ausleihers
+     * @param atomic true, um nur alle oder keines der Geräte auszuleihen
+     * @return IDs der ausgeliehenen Geräte oder null bei einem Fehler
+     */
+    List<Integer> setBorrowers(List<Integer> ids, String username, boolean atomic);
+
+    /**
+     * Gibt mehrere Geräte des Benutzers in einer Transaktion zurück
+     * @param ids IDs der Geräte ohne Duplikate
+     * @param username Der Benutzername des Ausleihers
+     * @param atomic true, um nur alle oder keines der Geräte zurückzugeben
+     * @return IDs der zurückgegebenen Geräte oder null bei einem Fehler
+     */
+    List<Integer> deleteBorrowers(List<Integer> ids, String username, boolean atomic);
+
+    /**
+     * Holt alle Geräte, die vom Benutzer ausgeliehen sind
+     * @param username Der Benutzername
+     * @return List mit den vom Benutzer ausgeliehenen Geräten oder null bei einem Fehler
+     */
+    List<Device> getBorrowedDevicesByUser(String username);
+
+    /**
+     * Ersetzt das Gerät mit der ID durch das übergebene Gerät
+     * @param id ID des zu bearbeitenden Gerätes
+     * @param device Gerät mit neuen Attributen
+     * @return true, wenn das Gerät erfolgreich bearbeitet wurde, sonst false.
+     */
+    boolean editDevice(String id, Device device);
+
+    /**
+     * Fügt ein neues Gerät hinzu
+     * @param device Gerät mit den Attributen
+     * @return true, wenn das Gerät erfolgreich hinzugefügt wurde, sonst false.
+     */
+    boolean addDevice(Device device);
+
+    /**
+     * Fügt mehrere neue Geräte hinzu. Ein Gerät, das nicht hinzugefügt werden kann, verhindert nicht das
+     * Hinzufügen der übrigen Geräte.
+     * @param devices Die Geräte
+     * @return Je Gerät in derselben Reihenfolge null, wenn es hinzugefügt wurde, sonst der Grund
+     */
+    List<String> addDevices(List<Device> devices);
+}
@@ -0,0 +1,338 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse DeviceSearchIndex implementiert einen Trigramm-Index über Marke, Modell und Kategorie
+ * aller Geräte im Speicher des Servers.
+ * Für jedes Suchkriterium wird jedes Trigramm (drei aufeinanderfolgende Zeichen) eines Attributs auf die
+ * IDs der Geräte abgebildet, die es enthalten. Eine Teilstring-Suche schneidet die Posting-Listen aller
+ * Trigramme des Suchbegriffs und prüft die verbleibenden Kandidaten, statt die devices Tabelle mit
+ * LIKE '%...%' komplett zu durchsuchen. Geräte und Posting-Listen sind nach ID sortiert, eine Seite beginnt
+ * daher direkt hinter afterId und endet, sobald limit Treffer gefunden sind. Wie die Standard-Collation von MySQL unterscheidet die Suche
+ * nicht zwischen Groß- und Kleinschreibung.
+ * Der Index wird beim Start geladen und bei jeder Änderung eines Gerätes durch diese Serverinstanz
+ * aktualisiert. Änderungen anderer Serverinstanzen an derselben Datenbank sieht er erst nach einem Neustart.
+ * Jede Änderung trägt eine Version aus nextVersion(). DatabaseUtil vergibt sie, solange die Transaktion die
+ * Zeilensperren hält; eine spätere Änderung derselben Zeile erhält daher immer eine größere Version. Der Index
+ * übernimmt eine Änderung nur, wenn sie neuer ist als die zuletzt übernommene derselben ID, und führt
+ * Ausleiher und Rückgabedatum getrennt von den übrigen Attributen, damit eine früher bestätigte, aber später
+ * eintreffende Änderung eine neuere Ausleihe nicht überschreibt.
+ */
+public class DeviceSearchIndex {
+    private static final int GRAM_LENGTH = 3; // Länge der N-Gramme
+    private static final Set<SearchCriteria> INDEXED_CRITERIA = EnumSet.of(SearchCriteria.BRAND, SearchCriteria.MODEL, SearchCriteria.CATEGORY);
+
+    private final NavigableMap<Integer, Device> devices = new TreeMap<>(); // Alle Geräte nach ID
+    private final Map<SearchCriteria, Map<String, NavigableSet<Integer>>> postings = new EnumMap<>(SearchCriteria.class); // Posting-Listen je Suchkriterium
+    private final Map<Integer, Stamp> stamps = new HashMap<>(); // Versionen der übernommenen Änderungen je ID, auch gelöschter IDs
+    private final AtomicLong versions = new AtomicLong(); // Zuletzt vergebene Version
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // Viele parallele Suchen, exklusive Änderungen
+
+    /**
+     * Der Record Stamp enthält die Versionen der zuletzt übernommenen Änderungen einer ID
+     * @param version Version des zuletzt übernommenen Gerätes oder seiner Löschung
+     * @param borrowerVersion Version des zuletzt übernommenen Ausleihers
+     * @param borrower Der zuletzt übernommene Ausleiher oder null
+     * @param returnDate Das zuletzt übernommene Rückgabedatum oder null
+     */
+    private record Stamp(long version, long borrowerVersion, String borrower, Date returnDate) {
+    }
+
+    /**
+     * Konstruktor der Klasse DeviceSearchIndex, der einen leeren Index anlegt
+     */
+    public DeviceSearchIndex() {
+        for (SearchCriteria criteria : INDEXED_CRITERIA) {
+            postings.put(criteria, new HashMap<>());
+        }
+    }
+
+    /**
+     * Prüft, ob ein Suchkriterium über den Index beantwortet werden kann
+     * @param criteria Das Suchkriterium
+     * @return true, wenn das Kriterium indexiert ist, sonst false.
+     */
+    public static boolean supports(SearchCriteria criteria) {
+        return INDEXED_CRITERIA.contains(criteria);
+    }
+
+    /**
+     * Vergibt die Version einer Änderung. Für Änderungen derselben ID muss die Version in der Reihenfolge
+     * vergeben werden, in der die Änderungen bestätigt werden.
+     * @return Die Version
+     */
+    public long nextVersion() {
+        return versions.incrementAndGet();
+    }
+
+    /**
+     * Ersetzt den Inhalt des Index durch die übergebenen Geräte
+     * @param allDevices Alle Geräte aus der Datenbank
+     */
+    public void load(List<Device> allDevices) {
+        lock.writeLock().lock();
+        try {
+            devices.clear();
+            stamps.clear();
+            postings.values().forEach(Map::clear);
+            for (Device device : allDevices) {
+                addPostings(device);
+                devices.put(device.id(), device);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fügt ein Gerät hinzu oder ersetzt das Gerät mit derselben ID in der Reihenfolge der Aufrufe
+     * @param device Das Gerät
+     */
+    public void put(Device device) {
+        put(device, nextVersion());
+    }
+
+    /**
+     * Fügt ein Gerät hinzu oder ersetzt das Gerät mit derselben ID, wenn die Änderung neuer ist
+     * @param device Das Gerät
+     * @param version Version der Änderung
+     */
+    public void put(Device device, long version) {
+        lock.writeLock().lock();
+        try {
+            store(device, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ersetzt ein Gerät, dessen ID sich beim Bearbeiten geändert haben kann, in der Reihenfolge der Aufrufe
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Das Gerät mit den neuen Attributen
+     */
+    public void replace(int previousId, Device device) {
+        replace(previousId, device, nextVersion());
+    }
+
+    /**
+     * Ersetzt ein Gerät, dessen ID sich beim Bearbeiten geändert haben kann, wenn die Änderung neuer ist
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Das Gerät mit den neuen Attributen
+     * @param version Version der Änderung
+     */
+    public void replace(int previousId, Device device, long version) {
+        lock.writeLock().lock();
+        try {
+            if (previousId != device.id()) {
+                Stamp stamp = stamps.get(previousId);
+                if (stamp == null || stamp.version() < version) {
+                    stamps.put(previousId, new Stamp(version, Math.max(version, stamp == null ? 0 : stamp.borrowerVersion()), null, null));
+                    Device previous = devices.remove(previousId);
+                    if (previous != null) {
+                        removePostings(previous);
+                    }
+                }
+            }
+            store(device, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Setzt Ausleiher und Rückgabedatum eines Gerätes, wenn die Änderung neuer ist. Die indexierten Attribute
+     * ändern sich dabei nicht. Ist das Gerät noch nicht im Index, wird der Ausleiher für das spätere Gerät gemerkt.
+     * @param id ID des Gerätes
+     * @param borrower Der Ausleiher oder null
+     * @param returnDate Das Rückgabedatum oder null
+     * @param version Version der Änderung
+     */
+    public void updateBorrower(int id, String borrower, Date returnDate, long version) {
+        lock.writeLock().lock();
+        try {
+            Stamp stamp = stamps.get(id);
+            if (stamp != null && stamp.borrowerVersion() >= version) {
+                return;
+            }
+            stamps.put(id, new Stamp(stamp == null ? 0 : stamp.version(), version, borrower, returnDate));
+            devices.computeIfPresent(id, (key, d) -> new Device(d.brand(), d.model(), d.category(), d.purchaseyear(), d.id(), borrower, returnDate));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt ein Gerät, wenn die Änderung neuer ist als die zuletzt übernommene. Ein neuerer Ausleiher bleibt
+     * erhalten. Muss mit gehaltener Schreibsperre aufgerufen werden.
+     * @param device Das Gerät
+     * @param version Version der Änderung
+     */
+    private void store(Device device, long version) {
+        Stamp stamp = stamps.get(device.id());
+        if (stamp != null && stamp.version() >= version) {
+            return; // Eine neuere Änderung ist bereits übernommen
+        }
+        if (stamp != null && stamp.borrowerVersion() > version) {
+            device = new Device(device.brand(), device.model(), device.category(), device.purchaseyear(), device.id(), stamp.borrower(), stamp.returnDate());
+        }
+        stamps.put(device.id(), new Stamp(version, Math.max(version, stamp == null ? 0 : stamp.borrowerVersion()), device.borrower(), device.returnDate()));
+        Device previous = devices.put(device.id(), device);
+        if (previous != null) {
+            removePostings(previous);
+        }
+        addPostings(device);
+    }
+
+    /**
+     * Sucht eine Seite der Geräte, deren Attribut zum Suchkriterium den Suchbegriff enthält
+     * @param search Der Suchbegriff
+     * @param criteria Das Suchkriterium (Marke, Modell oder Kategorie)
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return List mit den passenden Geräten, aufsteigend nach ID sortiert
+     */
+    public List<Device> search(String search, SearchCriteria criteria, int afterId, int limit) {
+        String term = normalize(search);
+        lock.readLock().lock();
+        try {
+            List<Device> result = new ArrayList<>();
+            if (term.length() < GRAM_LENGTH) {
+                // Zu kurze Suchbegriffe enthalten kein Trigramm, die Geräte ab afterId der Reihe nach prüfen
+                for (Device device : devices.tailMap(afterId, false).values()) {
+                    if (result.size() >= limit) {
+                        break;
+                    }
+                    if (matches(device, criteria, term)) {
+                        result.add(device);
+                    }
+                }
+                return result;
+            }
+            List<NavigableSet<Integer>> lists = postingLists(criteria, term);
+            if (lists.isEmpty()) {
+                return result;
+            }
+            // Die kürzeste Liste ab afterId durchlaufen und jede ID in den übrigen Listen nachschlagen
+            for (Integer id : lists.getFirst().tailSet(afterId, false)) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++) {
+                    inAll = lists.get(i).contains(id);
+                }
+                Device device = devices.get(id);
+                if (inAll && matches(device, criteria, term)) { // Trigramme können auch verteilt vorkommen
+                    result.add(device);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gibt die Posting-Listen aller Trigramme des Suchbegriffs zurück, die kürzeste Liste zuerst
+     * @param criteria Das Suchkriterium
+     * @param term Der normalisierte Suchbegriff
+     * @return Die Posting-Listen oder eine leere Liste, wenn ein Trigramm in keinem Gerät vorkommt
+     */
+    private List<NavigableSet<Integer>> postingLists(SearchCriteria criteria, String term) {
+        Map<String, NavigableSet<Integer>> index = postings.get(criteria);
+        List<NavigableSet<Integer>> lists = new ArrayList<>();
+        for (String gram : grams(term)) {
+            NavigableSet<Integer> ids = index.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        return lists;
+    }
+
+    /**
+     * Trägt die Trigramme aller indexierten Attribute des Gerätes ein
+     * @param device Das Gerät
+     */
+    private void addPostings(Device device) {
+        for (SearchCriteria criteria : INDEXED_CRITERIA) {
+            Map<String, NavigableSet<Integer>> index = postings.get(criteria);
+            for (String gram : grams(normalize(attribute(device, criteria)))) {
+                index.computeIfAbsent(gram, key -> new TreeSet<>()).add(device.id());
+            }
+        }
+    }
+
+    /**
+     * Entfernt die Trigramme aller indexierten Attribute des Gerätes
+     * @param device Das Gerät
+     */
+    private void removePostings(Device device) {
+        for (SearchCriteria criteria : INDEXED_CRITERIA) {
+            Map<String, NavigableSet<Integer>> index = postings.get(criteria);
+            for (String gram : grams(normalize(attribute(device, criteria)))) {
+                NavigableSet<Integer> ids = index.get(gram);
+                if (ids != null) {
+                    ids.remove(device.id());
+                    if (ids.isEmpty()) {
+                        index.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Prüft, ob das Attribut des Gerätes den Suchbegriff enthält
+     * @param device Das Gerät
+     * @param criteria Das Suchkriterium
+     * @param term Der normalisierte Suchbegriff
+     * @return true, wenn das Attribut den Suchbegriff enthält, sonst false.
+     */
+    private static boolean matches(Device device, SearchCriteria criteria, String term) {
+        return device != null && normalize(attribute(device, criteria)).contains(term);
+    }
+
+    /**
+     * Zerlegt einen String in seine unterschiedlichen Trigramme
+     * @param value Der normalisierte String
+     * @return Set mit den Trigrammen
+     */
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Gibt das Attribut des Gerätes zum Suchkriterium zurück
+     * @param device Das Gerät
+     * @param criteria Das Suchkriterium
+     * @return Wert des Attributs
+     */
+    private static String attribute(Device device, SearchCriteria criteria) {
+        return switch (criteria) {
+            case BRAND -> device.brand();
+            case MODEL -> device.model();
+            case CATEGORY -> device.category();
+            default -> throw new IllegalArgumentException("Nicht indexiertes Suchkriterium: " + criteria);
+        };
+    }
+
+    /**
+     * Wandelt einen String für den Vergleich in Kleinbuchstaben um
+     * @param value Der String
+     * @return Normalisierter String, leer bei null
+     */
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
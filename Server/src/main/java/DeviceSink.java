@@ -0,0 +1,16 @@
+import java.io.IOException;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das Interface DeviceSink nimmt beim Streamen einer Abfrage jedes Gerät entgegen, sobald es gelesen wurde
+ */
+@FunctionalInterface
+public interface DeviceSink {
+
+    /**
+     * Verarbeitet ein gelesenes Gerät
+     * @param device Das Gerät
+     * @throws IOException wenn das Gerät nicht geschrieben werden kann
+     */
+    void accept(Device device) throws IOException;
+}
@@ -0,0 +1,19 @@
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das Interface DeviceSource liefert die Geräte einer Abfrage nacheinander an einen DeviceSink,
+ * ohne sie vorher in einer Liste zu sammeln
+ */
+@FunctionalInterface
+public interface DeviceSource {
+
+    /**
+     * Übergibt alle Geräte der Abfrage nacheinander an den DeviceSink
+     * @param sink Empfänger der Geräte
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     * @throws IOException wenn ein Gerät nicht geschrieben werden kann
+     */
+    void forEach(DeviceSink sink) throws SQLException, IOException;
+}
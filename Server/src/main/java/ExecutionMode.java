@@ -0,0 +1,7 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das enum ExecutionMode legt fest, auf welchen Threads der Server die Anfragen bearbeitet.
+ * POOLED: Ein fester Pool von Plattform-Threads, dessen Größe die Anzahl gleichzeitiger Anfragen begrenzt.
+ * VIRTUAL: Ein virtueller Thread pro Anfrage, der beim Warten auf die Datenbank seinen Träger-Thread freigibt.
+ */
+public enum ExecutionMode {POOLED, VIRTUAL}
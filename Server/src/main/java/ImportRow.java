@@ -0,0 +1,9 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record ImportRow enthält eine gelesene Zeile eines Geräteimports
+ * @param row Nummer der Zeile bzw. des Array-Elements, beginnend bei 1
+ * @param device Das gelesene Gerät oder null, wenn die Zeile nicht gelesen werden konnte
+ * @param error Grund, warum die Zeile nicht gelesen werden konnte, oder null
+ */
+public record ImportRow(int row, Device device, String error) {
+}
@@ -0,0 +1,45 @@
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ext.Provider;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse InFlightListener zählt die laufenden Anfragen in den Metrics. Jersey meldet jeder Anfrage den Beginn
+ * und genau einmal FINISHED, nachdem die Antwort geschrieben wurde, auch wenn keine Ressource passt, ein Filter
+ * abbricht, eine Ausnahme auftritt oder eine gestreamte Antwort abbricht. Anders als im Antwortfilter, der in
+ * diesen Fällen nicht läuft, wird die Zählung dadurch immer wieder ausgeglichen.
+ */
+@Provider
+public class InFlightListener implements ApplicationEventListener, RequestEventListener {
+    @Inject
+    Metrics metrics; //Gemeinsame Kennzahlen des Servers
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    /**
+     * Zählt eine neue Anfrage und gibt den Listener zurück, der ihr Ende meldet
+     * @param requestEvent Beginn der Anfrage
+     * @return Dieser Listener, er hat keinen Zustand je Anfrage
+     */
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        metrics.requestStarted();
+        return this;
+    }
+
+    /**
+     * Meldet das Ende einer Anfrage
+     * @param event Ereignis der Anfrage
+     */
+    @Override
+    public void onEvent(RequestEvent event) {
+        if (event.getType() == RequestEvent.Type.FINISHED) {
+            metrics.requestCompleted();
+        }
+    }
+}
@@ -0,0 +1,499 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse InMemoryRepository ist die Speicher-Engine MEMORY. Geräte und Benutzer liegen vollständig im
+ * Hauptspeicher und werden über ein Journal dauerhaft gesichert.
+ * Lesende Anfragen greifen ohne Sperre auf eine nach ID sortierte ConcurrentSkipListMap zu, Marke, Modell und
+ * Kategorie werden wie bei JDBC über den DeviceSearchIndex gesucht. Schreibende Anfragen werden unter einer Sperre
+ * geprüft und in derselben Reihenfolge ins Journal geschrieben. Bis ihr Eintrag per Group Commit auf der Platte ist,
+ * liegt die Änderung nur vorgemerkt in staged, das allein die Prüfungen weiterer schreibender Anfragen sehen.
+ * Sobald der Eintrag dauerhaft ist, werden die vorgemerkten Änderungen in der Reihenfolge des Journals übernommen
+ * und die Anfrage meldet Erfolg. Lesende Anfragen sehen daher nur gesicherte Änderungen. Schlägt das Sichern fehl,
+ * wird die Änderung verworfen.
+ * Nach jeweils SnapshotEvery Einträgen wird ein Snapshot im Hintergrund geschrieben.
+ */
+public class InMemoryRepository implements DeviceRepository, UserRepository, AutoCloseable {
+    private final NavigableMap<Integer, Device> devices = new ConcurrentSkipListMap<>(); //Alle Geräte nach ID
+    private final Map<String, Set<Integer>> devicesByBorrower = new ConcurrentHashMap<>(); //IDs der ausgeliehenen Geräte je Ausleiher
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet(); //Registrierte Benutzernamen
+    private final DeviceSearchIndex searchIndex = new DeviceSearchIndex(); //Trigramm-Index für die Teilstring-Suche
+    private final ReentrantLock writeLock = new ReentrantLock(); //Serialisiert Prüfung, Journal und Übernahme der Änderungen
+    private final Queue<Pending> pending = new ArrayDeque<>(); //Noch nicht übernommene Journaleinträge in Journalreihenfolge, nur mit writeLock
+    private final Map<Integer, Pending> staged = new HashMap<>(); //Vorgemerkte Änderungen je betroffener ID, nur mit writeLock
+    private final Set<String> stagedUsernames = new HashSet<>(); //Vorgemerkte Benutzernamen, nur mit writeLock
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Journal journal;
+    private final long snapshotEvery; //Anzahl der Einträge zwischen zwei Snapshots
+    private long entriesSinceSnapshot; //Nur mit gehaltenem writeLock verwenden
+
+    /**
+     * Der Record Pending enthält einen Journaleintrag, der noch nicht in den Speicher übernommen wurde
+     * @param durable Future des Journaleintrags
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Neuer Zustand des Gerätes oder null bei einem Benutzer
+     * @param username Neuer Benutzer oder null bei einem Gerät
+     */
+    private record Pending(CompletableFuture<Void> durable, int previousId, Device device, String username) {
+    }
+
+    /**
+     * Konstruktor der Klasse InMemoryRepository, der den Zustand aus Snapshot und Journal wiederherstellt
+     * @param directory Verzeichnis des Journals
+     * @param syncInterval Intervall des Group Commit in Millisekunden
+     * @param snapshotEvery Anzahl der Einträge zwischen zwei Snapshots
+     * @throws IOException wenn das Journal nicht gelesen werden kann
+     */
+    public InMemoryRepository(Path directory, long syncInterval, long snapshotEvery) throws IOException {
+        this.snapshotEvery = snapshotEvery;
+        journal = new Journal(directory, syncInterval);
+        journal.recover(snapshot -> {
+            snapshot.devices().forEach(device -> apply(device.id(), device));
+            usernames.addAll(snapshot.users());
+        }, entry -> {
+            switch (entry.type()) {
+                case DEVICE -> apply(entry.previousId(), entry.device());
+                case BATCH -> entry.devices().forEach(device -> apply(device.id(), device));
+                case USER -> usernames.add(entry.username());
+            }
+        });
+        searchIndex.load(new ArrayList<>(devices.values()));
+        System.out.println(">>> " + devices.size() + " Geräte und " + usernames.size() + " Benutzer aus dem Journal geladen <<<");
+    }
+
+    /**
+     * Prüft, ob weder Geräte noch Benutzer gespeichert sind
+     * @return true, wenn der Speicher leer ist, sonst false.
+     */
+    public boolean isEmpty() {
+        return devices.isEmpty() && usernames.isEmpty();
+    }
+
+    @Override
+    public List<Device> getMatchingDevices(String search, SearchCriteria criteria, int afterId, int limit) {
+        if (DeviceSearchIndex.supports(criteria)) {
+            return searchIndex.search(search, criteria, afterId, limit);
+        }
+        if (criteria == SearchCriteria.ID) {
+            Device device = getDeviceById(search);
+            return device != null && device.id() > afterId && limit > 0 ? List.of(device) : List.of();
+        }
+        // Kaufjahr wie LIKE '%...%' auf der Zahl
+        List<Device> result = new ArrayList<>();
+        for (Device device : devices.tailMap(afterId, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (String.valueOf(device.purchaseyear()).contains(search)) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Device getDeviceById(String id) {
+        try {
+            return devices.get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public List<Device> getDevicesByIds(List<Integer> ids) {
+        return ids.stream().map(devices::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public List<Device> getAllDevices(int afterId, int limit) {
+        return available(afterId, limit).toList();
+    }
+
+    @Override
+    public List<Device> getCatalog(int afterId, int limit) {
+        return devices.tailMap(afterId, false).values().stream().limit(limit).toList();
+    }
+
+    @Override
+    public void streamAllDevices(int afterId, int limit, DeviceSink sink) throws IOException {
+        for (Iterator<Device> iterator = available(afterId, limit).iterator(); iterator.hasNext(); ) {
+            sink.accept(iterator.next());
+        }
+    }
+
+    /**
+     * Gibt die nicht ausgeliehenen Geräte aufsteigend nach ID zurück, ohne sie zu kopieren
+     * @param afterId Nur Geräte mit einer größeren ID werden zurückgegeben
+     * @param limit Maximale Anzahl an Geräten
+     * @return Stream der Geräte
+     */
+    private Stream<Device> available(int afterId, int limit) {
+        return devices.tailMap(afterId, false).values().stream()
+                .filter(device -> device.borrower() == null)
+                .limit(limit);
+    }
+
+    @Override
+    public boolean setBorrower(String id, String username) {
+        Date returnDate = Date.valueOf(LocalDate.now().plusWeeks(2)); // Datum 2 Wochen in der Zukunft
+        return write(id, device -> device.borrower() == null,
+                device -> new Device(device.brand(), device.model(), device.category(), device.purchaseyear(), device.id(), username, returnDate));
+    }
+
+    @Override
+    public boolean deleteBorrower(String id, String username) {
+        return write(id, device -> username != null && username.equals(device.borrower()),
+                device -> new Device(device.brand(), device.model(), device.category(), device.purchaseyear(), device.id(), null, null));
+    }
+
+    @Override
+    public List<Integer> setBorrowers(List<Integer> ids, String username, boolean atomic) {
+        Date returnDate = Date.valueOf(LocalDate.now().plusWeeks(2)); // Datum 2 Wochen in der Zukunft
+        return writeAll(ids, atomic, device -> device.borrower() == null,
+                device -> new Device(device.brand(), device.model(), device.category(), device.purchaseyear(), device.id(), username, returnDate));
+    }
+
+    @Override
+    public List<Integer> deleteBorrowers(List<Integer> ids, String username, boolean atomic) {
+        return writeAll(ids, atomic, device -> username != null && username.equals(device.borrower()),
+                device -> new Device(device.brand(), device.model(), device.category(), device.purchaseyear(), device.id(), null, null));
+    }
+
+    @Override
+    public List<Device> getBorrowedDevicesByUser(String username) {
+        List<Device> result = new ArrayList<>();
+        for (Integer id : devicesByBorrower.getOrDefault(username, Set.of())) {
+            Device device = devices.get(id);
+            if (device != null && username.equals(device.borrower())) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean editDevice(String id, Device device) {
+        // Wie beim Primärschlüssel darf die neue ID keinem anderen Gerät gehören
+        return write(id, current -> current.id() == device.id() || current(device.id()) == null, current -> device);
+    }
+
+    @Override
+    public boolean addDevice(Device device) {
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            if (current(device.id()) != null) {
+                return false;
+            }
+            durable = stage(device.id(), device);
+        } finally {
+            writeLock.unlock();
+        }
+        return awaitDurable(durable);
+    }
+
+    @Override
+    public List<String> addDevices(List<Device> batch) {
+        String[] errors = new String[batch.size()];
+        List<CompletableFuture<Void>> durable = new ArrayList<>(batch.size());
+        writeLock.lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Device device = batch.get(i);
+                if (current(device.id()) != null) {
+                    errors[i] = "ID existiert bereits";
+                    continue;
+                }
+                durable.add(stage(device.id(), device));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // Alle Einträge des Blocks werden gemeinsam per Group Commit gesichert
+        if (!awaitDurable(CompletableFuture.allOf(durable.toArray(CompletableFuture[]::new)))) {
+            for (int i = 0; i < errors.length; i++) {
+                if (errors[i] == null) {
+                    errors[i] = "Journaleintrag konnte nicht gespeichert werden";
+                }
+            }
+        }
+        return Arrays.asList(errors);
+    }
+
+    @Override
+    public RegistrationResult register(String username) {
+        if (usernames.contains(username)) {
+            return RegistrationResult.KNOWN;
+        }
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            if (usernames.contains(username) || stagedUsernames.contains(username)) {
+                return RegistrationResult.KNOWN;
+            }
+            durable = journal.appendUser(username);
+            Pending entry = new Pending(durable, 0, null, username);
+            pending.add(entry);
+            stagedUsernames.add(username);
+            afterAppend();
+        } finally {
+            writeLock.unlock();
+        }
+        return awaitDurable(durable) ? RegistrationResult.REGISTERED : RegistrationResult.FAILED;
+    }
+
+    /**
+     * Ändert ein vorhandenes Gerät, falls die Bedingung erfüllt ist
+     * @param id ID des Gerätes
+     * @param condition Bedingung an den aktuellen Zustand des Gerätes
+     * @param change Berechnet den neuen Zustand aus dem aktuellen
+     * @return true, wenn das Gerät existiert, die Bedingung erfüllt war und die Änderung gesichert wurde, sonst false.
+     */
+    private boolean write(String id, Predicate<Device> condition, UnaryOperator<Device> change) {
+        int key;
+        try {
+            key = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            Device current = current(key);
+            if (current == null || !condition.test(current)) {
+                return false;
+            }
+            durable = stage(key, change.apply(current));
+        } finally {
+            writeLock.unlock();
+        }
+        return awaitDurable(durable);
+    }
+
+    /**
+     * Ändert mehrere vorhandene Geräte unter einer Sperre. Andere Anfragen sehen die Änderungen erst, wenn alle
+     * geprüft sind. Alle Änderungen stehen in einem einzigen Journaleintrag und werden daher nach einem Absturz
+     * ganz oder gar nicht wiederhergestellt.
+     * @param ids IDs der Geräte ohne Duplikate
+     * @param atomic true, um nur alle oder keines der Geräte zu ändern
+     * @param condition Bedingung an den aktuellen Zustand eines Gerätes
+     * @param change Berechnet den neuen Zustand aus dem aktuellen
+     * @return IDs der geänderten Geräte oder null, wenn die Änderungen nicht gesichert wurden
+     */
+    private List<Integer> writeAll(List<Integer> ids, boolean atomic, Predicate<Device> condition, UnaryOperator<Device> change) {
+        List<Integer> changed = new ArrayList<>();
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            for (Integer id : ids) {
+                Device current = current(id);
+                if (current != null && condition.test(current)) {
+                    changed.add(id);
+                }
+            }
+            if (changed.isEmpty() || atomic && changed.size() != ids.size()) {
+                return List.of();
+            }
+            List<Device> batch = new ArrayList<>(changed.size());
+            for (Integer id : changed) {
+                batch.add(change.apply(current(id)));
+            }
+            durable = stageAll(batch);
+        } finally {
+            writeLock.unlock();
+        }
+        return awaitDurable(durable) ? changed : null;
+    }
+
+    /**
+     * Gibt den Zustand eines Gerätes einschließlich der vorgemerkten Änderungen zurück.
+     * Muss mit gehaltenem writeLock aufgerufen werden.
+     * @param id ID des Gerätes
+     * @return Das Gerät oder null, wenn es nicht existiert
+     */
+    private Device current(int id) {
+        Pending entry = staged.get(id);
+        if (entry == null) {
+            return devices.get(id);
+        }
+        return entry.device().id() == id ? entry.device() : null; // Sonst wurde die ID des Gerätes geändert
+    }
+
+    /**
+     * Schreibt die Änderung eines Gerätes ins Journal und merkt sie bis zur Übernahme vor.
+     * Muss mit gehaltenem writeLock aufgerufen werden.
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Neuer Zustand des Gerätes
+     * @return Future des Journaleintrags
+     */
+    private CompletableFuture<Void> stage(int previousId, Device device) {
+        CompletableFuture<Void> durable = journal.appendDevice(previousId, device);
+        Pending entry = new Pending(durable, previousId, device, null);
+        pending.add(entry);
+        staged.put(previousId, entry);
+        staged.put(device.id(), entry);
+        afterAppend();
+        return durable;
+    }
+
+    /**
+     * Schreibt die Änderungen mehrerer Geräte als einen Eintrag ins Journal und merkt sie bis zur Übernahme vor.
+     * Alle Geräte teilen sich das Future des Eintrags und werden daher gemeinsam übernommen.
+     * Muss mit gehaltenem writeLock aufgerufen werden.
+     * @param batch Neue Zustände der Geräte mit unveränderter ID
+     * @return Future des Journaleintrags
+     */
+    private CompletableFuture<Void> stageAll(List<Device> batch) {
+        CompletableFuture<Void> durable = journal.appendDevices(batch);
+        for (Device device : batch) {
+            Pending entry = new Pending(durable, device.id(), device, null);
+            pending.add(entry);
+            staged.put(device.id(), entry);
+        }
+        afterAppend();
+        return durable;
+    }
+
+    /**
+     * Übernimmt alle abgeschlossenen Journaleinträge in der Reihenfolge des Journals in den Speicher.
+     * Fehlgeschlagene Einträge werden verworfen. Da das Journal seine Einträge der Reihe nach abschließt,
+     * endet die Übernahme beim ersten noch offenen Eintrag. Muss mit gehaltenem writeLock aufgerufen werden.
+     */
+    private void drain() {
+        Pending entry;
+        while ((entry = pending.peek()) != null && entry.durable().isDone()) {
+            pending.poll();
+            boolean successful = !entry.durable().isCompletedExceptionally();
+            if (entry.username() != null) {
+                stagedUsernames.remove(entry.username());
+                if (successful) {
+                    usernames.add(entry.username());
+                }
+                continue;
+            }
+            staged.remove(entry.previousId(), entry);
+            staged.remove(entry.device().id(), entry);
+            if (successful) {
+                apply(entry.previousId(), entry.device());
+                searchIndex.replace(entry.previousId(), entry.device());
+            }
+        }
+    }
+
+    /**
+     * Übernimmt den neuen Zustand eines Gerätes in die Map und den Ausleiher-Index, ohne den Suchindex.
+     * Bei gleicher ID wird der Eintrag ersetzt, damit lesende Anfragen das Gerät nie vermissen. Nur bei einer
+     * geänderten ID wird der bisherige Eintrag nach dem Einfügen des neuen entfernt.
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Neuer Zustand des Gerätes
+     */
+    private void apply(int previousId, Device device) {
+        Device previous = devices.put(device.id(), device);
+        if (previousId != device.id()) {
+            previous = devices.remove(previousId);
+        }
+        if (device.borrower() != null) {
+            devicesByBorrower.compute(device.borrower(), (borrower, ids) -> {
+                Set<Integer> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                result.add(device.id());
+                return result;
+            });
+        }
+        if (previous != null && previous.borrower() != null
+                && (previousId != device.id() || !previous.borrower().equals(device.borrower()))) {
+            // Leere Mengen werden entfernt, damit der Index nicht mit jedem früheren Ausleiher wächst
+            devicesByBorrower.computeIfPresent(previous.borrower(), (borrower, ids) -> {
+                ids.remove(previousId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Zählt den geschriebenen Eintrag und stößt nach SnapshotEvery Einträgen einen Snapshot an.
+     * Das Segment wird unter dem writeLock gewechselt und der Zustand kopiert, geschrieben wird im Hintergrund.
+     */
+    private void afterAppend() {
+        if (++entriesSinceSnapshot < snapshotEvery) {
+            return;
+        }
+        entriesSinceSnapshot = 0;
+        try {
+            long sequence = journal.rotate();
+            drain(); // Nach rotate sind alle Einträge bis sequence abgeschlossen
+            JournalSnapshot snapshot = new JournalSnapshot(sequence, new ArrayList<>(devices.values()), new ArrayList<>(usernames));
+            snapshotExecutor.execute(() -> {
+                try {
+                    journal.writeSnapshot(snapshot);
+                } catch (IOException e) {
+                    Log.error("journal", ">>> Snapshot konnte nicht geschrieben werden: {} <<<", e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            Log.error("journal", ">>> Journalsegment konnte nicht gewechselt werden: {} <<<", e.getMessage());
+        }
+    }
+
+    /**
+     * Wartet, bis der Journaleintrag dauerhaft gespeichert ist, und übernimmt ihn in den Speicher
+     * @param durable Future des Journaleintrags
+     * @return true, wenn der Eintrag gespeichert wurde, sonst false.
+     */
+    private boolean awaitDurable(CompletableFuture<Void> durable) {
+        boolean successful;
+        try {
+            durable.join();
+            successful = true;
+        } catch (CompletionException e) {
+            Log.error("journal", ">>> Journaleintrag konnte nicht gespeichert werden: {} <<<", e.getCause().getMessage());
+            successful = false;
+        }
+        writeLock.lock();
+        try {
+            drain();
+        } finally {
+            writeLock.unlock();
+        }
+        return successful;
+    }
+
+    /**
+     * Schreibt alle wartenden Einträge und schließt das Journal
+     * @throws IOException wenn das Journal nicht geschrieben werden kann
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotExecutor.shutdown();
+        journal.close();
+    }
+}
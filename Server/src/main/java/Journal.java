@@ -0,0 +1,399 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse Journal sichert die Änderungen der InMemoryRepository in einem Append-only-Log auf der Festplatte.
+ * Einträge werden als JSON-Zeilen in Segmentdateien journal-&lt;erste Nummer&gt;.log geschrieben. Ein Hintergrund-Thread
+ * schreibt alle wartenden Einträge gesammelt im konfigurierten Intervall mit einem einzigen fsync auf die Platte
+ * (Group Commit) und meldet sie erst danach als dauerhaft. Unter dem lock werden nur die wartenden Einträge
+ * übernommen und der Puffer geleert, der fsync läuft ohne ihn, damit neue Einträge währenddessen nicht warten.
+ * Ein Snapshot enthält den gesamten Zustand bis zu einer Nummer. Er wird in eine temporäre Datei geschrieben und
+ * atomar umbenannt. Erst nachdem auch das Verzeichnis synchronisiert ist, die Umbenennung also einen Absturz
+ * übersteht, werden die abgedeckten Segmente gelöscht. Bei der Wiederherstellung wird der Snapshot
+ * geladen und alle neueren Einträge werden angewendet. Eine beim Absturz unvollständig geschriebene letzte Zeile
+ * des letzten nicht leeren Segments wird dabei verworfen und abgeschnitten, damit spätere Einträge nicht an sie angehängt
+ * werden. Eine unlesbare Zeile an anderer Stelle oder eine Lücke in den Nummern kann kein Absturz beim Schreiben
+ * verursacht haben; die Wiederherstellung schlägt dann fehl, statt bestätigte Einträge stillschweigend zu verlieren.
+ * Schlägt ein fsync fehl, ist unklar, was im Segment steht. Das Journal nimmt dann keine Einträge mehr an,
+ * bis der Server neu gestartet und das Journal wiederhergestellt wurde.
+ */
+public class Journal implements AutoCloseable {
+    private static final String SNAPSHOT = "snapshot.json";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path directory; //Verzeichnis mit Snapshot und Segmenten
+    private final long syncInterval; //Intervall des Group Commit in Millisekunden
+    private final Object lock = new Object(); //Schützt Segment, Nummer und wartende Einträge
+    private final Object syncLock = new Object(); //Serialisiert fsync und Segmentwechsel, wird vor lock genommen
+    private final Thread syncThread;
+
+    private FileChannel segment; //Aktuelles Segment
+    private OutputStream output; //Gepufferter Ausgabestrom in das aktuelle Segment
+    private long sequence; //Nummer des zuletzt vergebenen Eintrags
+    private List<CompletableFuture<Void>> pending = new ArrayList<>(); //Einträge, die noch nicht synchronisiert sind
+    private IOException failure; //Fehler des ersten fehlgeschlagenen fsync, danach werden keine Einträge mehr angenommen
+    private volatile boolean running = true;
+
+    /**
+     * Konstruktor der Klasse Journal
+     * @param directory Verzeichnis für Snapshot und Segmente
+     * @param syncInterval Intervall des Group Commit in Millisekunden
+     * @throws IOException wenn das Verzeichnis nicht angelegt werden kann
+     */
+    public Journal(Path directory, long syncInterval) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.syncInterval = syncInterval;
+        syncThread = new Thread(this::syncLoop, "journal-sync");
+        syncThread.setDaemon(true);
+    }
+
+    /**
+     * Liest Snapshot und Segmente und öffnet danach ein neues Segment für weitere Einträge.
+     * Muss vor dem ersten append aufgerufen werden.
+     * @param snapshotConsumer Erhält den Snapshot, falls vorhanden
+     * @param entryConsumer Erhält alle Einträge nach dem Snapshot in ihrer Reihenfolge
+     * @throws IOException wenn Snapshot oder Segmente nicht gelesen werden können oder beschädigt sind
+     */
+    public void recover(Consumer<JournalSnapshot> snapshotConsumer,
+                        Consumer<JournalEntry> entryConsumer) throws IOException {
+        long snapshotSequence = 0;
+        Path snapshotFile = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshotFile)) {
+            JournalSnapshot snapshot = mapper.readValue(snapshotFile.toFile(), JournalSnapshot.class);
+            snapshotSequence = snapshot.sequence();
+            snapshotConsumer.accept(snapshot);
+        }
+
+        long lastSequence = snapshotSequence;
+        List<Path> segments = segments();
+        int lastWritten = segments.size() - 1; //Letztes nicht leeres Segment, leere entstehen beim Öffnen
+        while (lastWritten > 0 && Files.size(segments.get(lastWritten)) == 0) {
+            lastWritten--;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            byte[] content = Files.readAllBytes(file);
+            int start = 0;
+            while (start < content.length) {
+                int end = lineEnd(content, start);
+                JournalEntry entry = end < 0 ? null : parse(content, start, end);
+                if (entry == null) {
+                    // Nur die letzte Zeile des letzten Segments kann beim Absturz unvollständig geschrieben worden sein
+                    if (i < lastWritten || (end >= 0 && end < content.length - 1)) {
+                        throw new IOException("Unlesbarer Journaleintrag in " + file.getFileName() + " an Position " + start);
+                    }
+                    Log.warn("journal", ">>> Unvollständiger Journaleintrag in {} wird verworfen <<<", file.getFileName());
+                    truncate(file, start);
+                    break;
+                }
+                if (entry.sequence() > lastSequence + 1) {
+                    throw new IOException("Lücke im Journal: Eintrag " + (lastSequence + 1) + " fehlt vor "
+                            + entry.sequence() + " in " + file.getFileName());
+                }
+                if (entry.sequence() == lastSequence + 1) {
+                    entryConsumer.accept(entry);
+                    lastSequence = entry.sequence();
+                } else if (entry.sequence() > snapshotSequence) {
+                    throw new IOException("Journaleintrag " + entry.sequence() + " in " + file.getFileName() + " doppelt");
+                }
+                start = end + 1;
+            }
+        }
+
+        synchronized (lock) {
+            sequence = lastSequence;
+            openSegment();
+        }
+        syncThread.start();
+    }
+
+    /**
+     * Sucht das Ende einer Zeile
+     * @param content Inhalt des Segments
+     * @param start Beginn der Zeile
+     * @return Position des Zeilenendes oder -1, wenn die Zeile nicht abgeschlossen ist
+     */
+    private static int lineEnd(byte[] content, int start) {
+        for (int i = start; i < content.length; i++) {
+            if (content[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Liest einen Eintrag aus einer Zeile
+     * @param content Inhalt des Segments
+     * @param start Beginn der Zeile
+     * @param end Position des Zeilenendes
+     * @return Der Eintrag oder null, wenn die Zeile kein gültiger Eintrag ist
+     * @throws IOException wenn die Zeile nicht gelesen werden kann
+     */
+    private JournalEntry parse(byte[] content, int start, int end) throws IOException {
+        try {
+            return mapper.readValue(content, start, end - start, JournalEntry.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Kürzt ein Segment auf seine vollständigen Einträge
+     * @param file Segmentdatei
+     * @param size Länge der vollständigen Einträge in Bytes
+     * @throws IOException wenn das Segment nicht gekürzt werden kann
+     */
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Hängt eine Änderung an einem Gerät an
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Neuer Zustand des Gerätes
+     * @return Future, das abgeschlossen wird, sobald der Eintrag dauerhaft gespeichert ist
+     */
+    public CompletableFuture<Void> appendDevice(int previousId, Device device) {
+        return append(JournalEntry.Type.DEVICE, previousId, device, null, null);
+    }
+
+    /**
+     * Hängt gemeinsame Änderungen an mehreren Geräten als einen Eintrag an. Die IDs der Geräte bleiben gleich.
+     * @param devices Neue Zustände der Geräte
+     * @return Future, das abgeschlossen wird, sobald der Eintrag dauerhaft gespeichert ist
+     */
+    public CompletableFuture<Void> appendDevices(List<Device> devices) {
+        return append(JournalEntry.Type.BATCH, null, null, null, List.copyOf(devices));
+    }
+
+    /**
+     * Hängt einen neu registrierten Benutzer an
+     * @param username Der Benutzername
+     * @return Future, das abgeschlossen wird, sobald der Eintrag dauerhaft gespeichert ist
+     */
+    public CompletableFuture<Void> appendUser(String username) {
+        return append(JournalEntry.Type.USER, null, null, username, null);
+    }
+
+    /**
+     * Schreibt einen Eintrag in den Puffer des aktuellen Segments
+     * @param type Art des Eintrags
+     * @param previousId Bisherige ID des Gerätes oder null
+     * @param device Neuer Zustand des Gerätes oder null
+     * @param username Neuer Benutzer oder null
+     * @param devices Neue Zustände mehrerer Geräte oder null
+     * @return Future, das abgeschlossen wird, sobald der Eintrag dauerhaft gespeichert ist
+     */
+    private CompletableFuture<Void> append(JournalEntry.Type type, Integer previousId, Device device, String username, List<Device> devices) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (lock) {
+            if (failure != null) {
+                durable.completeExceptionally(failure);
+                return durable;
+            }
+            try {
+                JournalEntry entry = new JournalEntry(sequence + 1, type, previousId, device, username, devices);
+                output.write(mapper.writeValueAsBytes(entry));
+                output.write('\n');
+                sequence++;
+                pending.add(durable);
+            } catch (IOException e) {
+                failure = e; // Ein Teil des Eintrags kann schon im Puffer stehen
+                durable.completeExceptionally(e);
+            }
+        }
+        return durable;
+    }
+
+    /**
+     * Beendet das aktuelle Segment und beginnt ein neues. Alle bisherigen Einträge sind danach dauerhaft gespeichert.
+     * @return Nummer des letzten Eintrags im beendeten Segment
+     * @throws IOException wenn das Segment nicht geschrieben werden kann
+     */
+    public long rotate() throws IOException {
+        return sync(true);
+    }
+
+    /**
+     * Schreibt einen Snapshot atomar und löscht alle Segmente, deren Einträge er abdeckt.
+     * Der Snapshot muss bis zu einer Nummer reichen, die von rotate() zurückgegeben wurde.
+     * @param snapshot Der Snapshot
+     * @throws IOException wenn der Snapshot nicht geschrieben werden kann
+     */
+    public void writeSnapshot(JournalSnapshot snapshot) throws IOException {
+        Path temporary = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(mapper.writeValueAsBytes(snapshot)));
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+
+        for (Path file : segments()) {
+            if (startOf(file) <= snapshot.sequence()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Schreibt die Einträge des Verzeichnisses mit einem fsync auf die Platte, damit Umbenennungen dauerhaft sind.
+     * Unter Windows lassen sich Verzeichnisse nicht öffnen; NTFS sichert die Umbenennung dort selbst.
+     * @throws IOException wenn das Verzeichnis nicht synchronisiert werden kann
+     */
+    private void syncDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            Log.debug("journal", ">>> Verzeichnis {} kann nicht synchronisiert werden <<<", directory);
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Synchronisiert im festen Intervall alle wartenden Einträge
+     */
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncInterval);
+                sync(false);
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                Log.error("journal", ">>> Journal konnte nicht synchronisiert werden: {} <<<", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Schreibt den Puffer mit einem fsync auf die Platte und schließt die wartenden Futures ab. Unter dem lock
+     * werden nur die wartenden Futures übernommen, der Puffer in das Segment geschrieben und beim Segmentwechsel
+     * das neue Segment geöffnet. Der fsync des bisherigen Segments erfolgt danach ohne lock; syncLock sorgt dafür,
+     * dass die Futures in der Reihenfolge des Journals abgeschlossen werden.
+     * @param rotate true, wenn danach ein neues Segment beginnen soll
+     * @return Nummer des letzten Eintrags vor dem fsync
+     * @throws IOException wenn das Schreiben fehlschlägt; die wartenden Futures und alle weiteren Einträge
+     * schlagen dann fehl
+     */
+    private long sync(boolean rotate) throws IOException {
+        synchronized (syncLock) {
+            List<CompletableFuture<Void>> batch;
+            FileChannel channel;
+            OutputStream previous = null;
+            long last;
+            synchronized (lock) {
+                last = sequence;
+                if (pending.isEmpty() && !rotate) {
+                    return last;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                channel = segment;
+                try {
+                    output.flush();
+                    if (rotate) {
+                        previous = output;
+                        openSegment();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                    batch.forEach(future -> future.completeExceptionally(e));
+                    throw e;
+                }
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    channel.force(false);
+                }
+                if (previous != null) {
+                    previous.close();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    batch.addAll(pending); // Auch während des fsync angehängte Einträge gelten als verloren
+                    pending = new ArrayList<>();
+                }
+                batch.forEach(future -> future.completeExceptionally(e));
+                throw e;
+            }
+            batch.forEach(future -> future.complete(null));
+            return last;
+        }
+    }
+
+    /**
+     * Öffnet ein neues Segment, das mit dem nächsten Eintrag beginnt. Muss mit gehaltenem lock aufgerufen werden.
+     * @throws IOException wenn das Segment nicht angelegt werden kann
+     */
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(SEGMENT_PREFIX + (sequence + 1) + SEGMENT_SUFFIX);
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        output = new BufferedOutputStream(Channels.newOutputStream(segment), 64 * 1024);
+    }
+
+    /**
+     * Gibt alle Segmente aufsteigend nach ihrer ersten Nummer zurück
+     * @return List mit den Segmentdateien
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann
+     */
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(startOf(a), startOf(b)))
+                    .toList();
+        }
+    }
+
+    /**
+     * Liest die erste Nummer eines Segments aus dem Dateinamen
+     * @param file Segmentdatei
+     * @return Erste Nummer des Segments
+     */
+    private static long startOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Synchronisiert alle wartenden Einträge und schließt das Journal
+     * @throws IOException wenn das Segment nicht geschrieben werden kann
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        synchronized (syncLock) {
+            syncThread.interrupt(); // Mit syncLock schläft oder wartet der Thread, er unterbricht also keinen fsync
+            sync(false);
+            synchronized (lock) {
+                output.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record JournalEntry beschreibt eine Änderung im Journal der InMemoryRepository.
+ * Jede Änderung an einem Gerät wird als neuer vollständiger Zustand des Gerätes gespeichert, damit die
+ * Wiederherstellung nur Einträge in der richtigen Reihenfolge anwenden muss. Ein Eintrag BATCH enthält mehrere
+ * Geräte, die gemeinsam geändert wurden. Da er in einer Zeile steht, wird er ganz oder gar nicht wiederhergestellt.
+ * @param sequence Fortlaufende Nummer des Eintrags
+ * @param type Art des Eintrags
+ * @param previousId Bisherige ID des Gerätes (bei DEVICE), sonst null
+ * @param device Neuer Zustand des Gerätes (bei DEVICE), sonst null
+ * @param username Neuer Benutzer (bei USER), sonst null
+ * @param devices Neue Zustände der Geräte mit unveränderter ID (bei BATCH), sonst null
+ */
+public record JournalEntry(long sequence, Type type, Integer previousId, Device device, String username, List<Device> devices) {
+
+    /**
+     * Das enum Type unterscheidet Änderungen an einem Gerät, gemeinsame Änderungen an mehreren Geräten und
+     * neu registrierte Benutzer
+     */
+    public enum Type {DEVICE, BATCH, USER}
+}
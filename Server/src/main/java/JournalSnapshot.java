@@ -0,0 +1,11 @@
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record JournalSnapshot enthält den vollständigen Zustand der InMemoryRepository bis zu einem Journaleintrag
+ * @param sequence Nummer des letzten Journaleintrags, der im Snapshot enthalten ist
+ * @param devices Alle Geräte
+ * @param users Alle registrierten Benutzer
+ */
+public record JournalSnapshot(long sequence, List<Device> devices, List<String> users) {
+}
@@ -0,0 +1,68 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse LatencyHistogram zählt Dauern in festen, etwa logarithmisch wachsenden Buckets von 0,5 ms bis 10 s.
+ * Jeder Bucket, die Summe und die Anzahl sind LongAdder, die Schreibzugriffe mehrerer Threads auf getrennte
+ * Zellen verteilen. Das Erfassen einer Dauer ist damit sperrfrei und ohne Konflikte zwischen den Request-Threads.
+ * Die Buckets sind nicht kumuliert gespeichert; kumuliert wird erst bei der Ausgabe.
+ */
+public class LatencyHistogram {
+    // Obere Grenzen der Buckets in Nanosekunden, ein letzter Bucket für alle größeren Werte (+Inf)
+    static final long[] BOUNDS = {
+            500_000L, 1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sum = new LongAdder(); //Summe aller Dauern in Nanosekunden
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Konstruktor der Klasse LatencyHistogram, der leere Buckets anlegt
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Erfasst eine Dauer
+     * @param nanos Dauer in Nanosekunden
+     */
+    public void record(long nanos) {
+        int index = 0;
+        while (index < BOUNDS.length && nanos > BOUNDS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        sum.add(nanos);
+        count.increment();
+    }
+
+    /**
+     * Gibt die Anzahl der Dauern im Bucket zurück
+     * @param index Index des Buckets, BOUNDS.length für +Inf
+     * @return Anzahl der Dauern im Bucket
+     */
+    long bucket(int index) {
+        return buckets[index].sum();
+    }
+
+    /**
+     * Gibt die Summe aller Dauern zurück
+     * @return Summe in Nanosekunden
+     */
+    long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Gibt die Anzahl aller Dauern zurück
+     * @return Anzahl
+     */
+    long count() {
+        return count.sum();
+    }
+}
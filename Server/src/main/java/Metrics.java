@@ -0,0 +1,174 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse Metrics sammelt die Betriebskennzahlen des Servers: Anfragen je Endpunkt und Statuscode,
+ * Antwortzeiten je Endpunkt, laufende Anfragen, Dauer je SQL-Anweisung und die Wartezeit auf eine
+ * Datenbankverbindung. Alle Zähler sind LongAdder oder LatencyHistogramme und werden ohne Sperre erfasst.
+ * Über MetricsEndpoints werden sie im Textformat von Prometheus ausgegeben.
+ */
+public class Metrics {
+    private static final String PREFIX = "lending_";
+
+    /**
+     * Der Record RequestKey identifiziert einen Zähler für Anfragen
+     * @param method HTTP-Methode
+     * @param resource Endpunkt als Klasse.Methode
+     * @param status Statuscode der Antwort
+     */
+    private record RequestKey(String method, String resource, int status) {
+    }
+
+    private final Map<RequestKey, LongAdder> requests = new ConcurrentHashMap<>(); //Anfragen je Endpunkt und Statuscode
+    private final Map<String, LatencyHistogram> requestDurations = new ConcurrentHashMap<>(); //Antwortzeiten je Endpunkt
+    private final LongAdder requestsInFlight = new LongAdder(); //Gerade bearbeitete Anfragen
+    private final Map<String, LatencyHistogram> sqlDurations = new ConcurrentHashMap<>(); //Dauer je SQL-Anweisung
+    private final LongAdder sqlErrors = new LongAdder(); //Fehlgeschlagene SQL-Anweisungen
+    private final LatencyHistogram connectionAcquire = new LatencyHistogram(); //Wartezeit auf eine Verbindung aus dem Pool
+
+    /**
+     * Meldet den Beginn einer Anfrage
+     */
+    public void requestStarted() {
+        requestsInFlight.increment();
+    }
+
+    /**
+     * Meldet das Ende einer Anfrage, nachdem die Antwort geschrieben wurde oder die Bearbeitung abbrach
+     */
+    public void requestCompleted() {
+        requestsInFlight.decrement();
+    }
+
+    /**
+     * Erfasst eine beendete Anfrage
+     * @param method HTTP-Methode
+     * @param resource Endpunkt als Klasse.Methode
+     * @param status Statuscode der Antwort
+     * @param nanos Dauer der Anfrage in Nanosekunden oder -1, wenn der Beginn nicht erfasst wurde
+     */
+    public void requestFinished(String method, String resource, int status, long nanos) {
+        requests.computeIfAbsent(new RequestKey(method, resource, status), key -> new LongAdder()).increment();
+        if (nanos >= 0) {
+            requestDurations.computeIfAbsent(resource, key -> new LatencyHistogram()).record(nanos);
+        }
+    }
+
+    /**
+     * Erfasst die Dauer einer SQL-Anweisung
+     * @param statement Kurzname der Anweisung
+     * @param nanos Dauer in Nanosekunden
+     * @param successful false, wenn die Anweisung mit einer SQLException abgebrochen wurde
+     */
+    public void recordSql(String statement, long nanos, boolean successful) {
+        sqlDurations.computeIfAbsent(statement, key -> new LatencyHistogram()).record(nanos);
+        if (!successful) {
+            sqlErrors.increment();
+        }
+    }
+
+    /**
+     * Erfasst die Wartezeit auf eine Datenbankverbindung
+     * @param nanos Wartezeit in Nanosekunden
+     */
+    public void recordConnectionAcquire(long nanos) {
+        connectionAcquire.record(nanos);
+    }
+
+    /**
+     * Gibt alle Kennzahlen im Textformat von Prometheus (Version 0.0.4) aus
+     * @return Die Kennzahlen
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+
+        header(out, "http_requests_total", "counter", "Beantwortete HTTP-Anfragen je Endpunkt und Statuscode");
+        for (Map.Entry<RequestKey, LongAdder> entry : requestsSorted().entrySet()) {
+            RequestKey key = entry.getKey();
+            out.append(PREFIX).append("http_requests_total{method=\"").append(key.method())
+                    .append("\",resource=\"").append(escape(key.resource()))
+                    .append("\",status=\"").append(key.status()).append("\"} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+
+        header(out, "http_requests_in_flight", "gauge", "Gerade bearbeitete HTTP-Anfragen");
+        out.append(PREFIX).append("http_requests_in_flight ").append(requestsInFlight.sum()).append('\n');
+
+        header(out, "http_request_duration_seconds", "histogram", "Antwortzeit je Endpunkt");
+        new TreeMap<>(requestDurations).forEach((resource, histogram) ->
+                histogram(out, "http_request_duration_seconds", "resource=\"" + escape(resource) + "\"", histogram));
+
+        header(out, "sql_duration_seconds", "histogram", "Dauer je SQL-Anweisung");
+        new TreeMap<>(sqlDurations).forEach((statement, histogram) ->
+                histogram(out, "sql_duration_seconds", "statement=\"" + escape(statement) + "\"", histogram));
+
+        header(out, "sql_errors_total", "counter", "Mit einer SQLException abgebrochene SQL-Anweisungen");
+        out.append(PREFIX).append("sql_errors_total ").append(sqlErrors.sum()).append('\n');
+
+        header(out, "db_connection_acquire_seconds", "histogram", "Wartezeit auf eine Verbindung aus dem Pool");
+        histogram(out, "db_connection_acquire_seconds", "", connectionAcquire);
+
+        return out.toString();
+    }
+
+    /**
+     * Gibt die Zähler der Anfragen nach Endpunkt, Methode und Statuscode sortiert zurück
+     * @return Sortierte Kopie der Zähler
+     */
+    private Map<RequestKey, LongAdder> requestsSorted() {
+        Map<RequestKey, LongAdder> sorted = new TreeMap<>((a, b) -> {
+            int result = a.resource().compareTo(b.resource());
+            if (result == 0) {
+                result = a.method().compareTo(b.method());
+            }
+            return result != 0 ? result : Integer.compare(a.status(), b.status());
+        });
+        sorted.putAll(requests);
+        return sorted;
+    }
+
+    /**
+     * Schreibt die HELP- und TYPE-Zeilen einer Kennzahl
+     * @param out Ausgabe
+     * @param name Name ohne Präfix
+     * @param type Typ der Kennzahl
+     * @param help Beschreibung
+     */
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Schreibt ein Histogramm mit kumulierten Buckets, Summe und Anzahl
+     * @param out Ausgabe
+     * @param name Name ohne Präfix
+     * @param labels Labels ohne Klammern, leer für keine
+     * @param histogram Das Histogramm
+     */
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        String separator = labels.isEmpty() ? "" : ",";
+        long cumulative = 0;
+        for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+            cumulative += histogram.bucket(i);
+            String le = i < LatencyHistogram.BOUNDS.length ? Double.toString(LatencyHistogram.BOUNDS[i] / 1e9) : "+Inf";
+            out.append(PREFIX).append(name).append("_bucket{").append(labels).append(separator)
+                    .append("le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(PREFIX).append(name).append("_sum").append(braces).append(' ').append(histogram.sum() / 1e9).append('\n');
+        out.append(PREFIX).append(name).append("_count").append(braces).append(' ').append(histogram.count()).append('\n');
+    }
+
+    /**
+     * Maskiert Backslash, Anführungszeichen und Zeilenumbruch in einem Labelwert
+     * @param value Der Labelwert
+     * @return Maskierter Labelwert
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,25 @@
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse MetricsEndpoints stellt die Betriebskennzahlen des Servers im Textformat von Prometheus bereit
+ */
+@Path("metrics")
+public class MetricsEndpoints {
+    @Inject
+    Metrics metrics; //Gemeinsame Kennzahlen des Servers
+
+    /**
+     * Verwaltet die serverseitige GET Anfrage für das Abrufen der Kennzahlen
+     * @return HTTP-Antwort, die die Kennzahlen im Textformat von Prometheus enthält.
+     */
+    @GET
+    @Produces("text/plain; version=0.0.4; charset=utf-8")
+    public Response getMetrics() {
+        return Response.ok().entity(metrics.toPrometheus()).build();
+    }
+}
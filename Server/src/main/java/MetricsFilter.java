@@ -0,0 +1,47 @@
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+import java.lang.reflect.Method;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse MetricsFilter erfasst für jede Anfrage Endpunkt, Statuscode und Antwortzeit in den Metrics.
+ * Der Anfragefilter läuft erst nach der Zuordnung zum Endpunkt; Anfragen ohne passenden Endpunkt werden daher
+ * nur gezählt, aber ohne Antwortzeit unter "unmatched" erfasst. Bei gestreamten Antworten endet die Messung,
+ * bevor der Inhalt geschrieben wird. Die laufenden Anfragen zählt InFlightListener, da dieser Filter nicht für
+ * jede Anfrage läuft.
+ */
+@Provider
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final String START_PROPERTY = MetricsFilter.class.getName() + ".start";
+
+    @Inject
+    Metrics metrics; //Gemeinsame Kennzahlen des Servers
+    @Context
+    ResourceInfo resourceInfo; //Zugeordneter Endpunkt der aktuellen Anfrage
+
+    /**
+     * Merkt sich den Beginn der Anfrage
+     * @param requestContext Kontext der Anfrage
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    /**
+     * Erfasst Endpunkt, Statuscode und Dauer der beantworteten Anfrage
+     * @param requestContext Kontext der Anfrage
+     * @param responseContext Kontext der Antwort
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object start = requestContext.getProperty(START_PROPERTY);
+        long nanos = start instanceof Long startNanos ? System.nanoTime() - startNanos : -1;
+        Method method = resourceInfo.getResourceMethod();
+        String resource = method == null ? "unmatched" : resourceInfo.getResourceClass().getSimpleName() + "." + method.getName();
+        metrics.requestFinished(requestContext.getMethod(), resource, responseContext.getStatus(), nanos);
+    }
+}
@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse MigrationRunner bringt das Datenbankschema auf den aktuellen Stand.
+ * Die Migrationen liegen als versionierte Skripte unter db/migration/V&lt;Version&gt;__&lt;Beschreibung&gt;.sql,
+ * werden lückenlos ab Version 1 nummeriert und in db/migration/migrations.list aufgeführt. Jede angewendete Migration wird mit einer Prüfsumme in der
+ * Tabelle schema_version festgehalten. Wurde ein bereits angewendetes Skript nachträglich verändert,
+ * bricht die Migration ab.
+ * Jede Migration wird zusammen mit ihrem Eintrag in schema_version in einer Transaktion ausgeführt.
+ * MySQL schreibt DDL-Befehle allerdings sofort fest, deshalb kann eine fehlgeschlagene Migration mit
+ * mehreren DDL-Befehlen teilweise angewendet sein und muss dann von Hand bereinigt werden.
+ */
+public class MigrationRunner {
+    private static final String LOCATION = "db/migration/";
+    private static final String LOCK_NAME = "lending_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final ConnectionPool pool; //Gemeinsamer Verbindungspool für die Datenbank
+
+    /**
+     * Konstruktor der Klasse MigrationRunner
+     * @param pool Verbindungspool des Servers
+     */
+    public MigrationRunner(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Wendet alle noch nicht angewendeten Migrationen in aufsteigender Reihenfolge an.
+     * Ein Datenbank-Lock verhindert, dass mehrere Serverinstanzen gleichzeitig migrieren.
+     * @return true, wenn das Schema aktuell ist, sonst false.
+     */
+    public boolean migrate() {
+        try (Connection connection = pool.getConnection()) {
+            if (!acquireLock(connection)) {
+                System.err.println(">>> Fehler: Migrations-Lock konnte nicht gesetzt werden <<<");
+                return false;
+            }
+            try {
+                createVersionTable(connection);
+                Map<Integer, Long> applied = getAppliedMigrations(connection);
+                if (applied.isEmpty() && tableExists(connection, "devices")) {
+                    baseline(connection); // Bestehende Datenbank ohne schema_version übernehmen
+                    applied = getAppliedMigrations(connection);
+                }
+
+                int version = 1;
+                Migration migration;
+                while ((migration = loadMigration(version)) != null) {
+                    Long checksum = applied.get(version);
+                    if (checksum == null) {
+                        apply(connection, migration);
+                    } else if (checksum != migration.checksum()) {
+                        System.err.println(">>> Fehler: Prüfsumme der Migration V" + version + " stimmt nicht überein. Wurde das Skript nach dem Anwenden verändert? <<<");
+                        return false;
+                    }
+                    version++;
+                }
+                System.out.println(">>> Datenbankschema ist aktuell (Version " + (version - 1) + ") <<<");
+                return true;
+            } finally {
+                releaseLock(connection);
+            }
+        } catch (SQLException e) {
+            System.err.println(">>> Fehler bei der Migration: " + e.getMessage() + " <<<");
+            return false;
+        } catch (IOException e) {
+            System.err.println(">>> Fehler beim Lesen der Migrationen: " + e.getMessage() + " <<<");
+            return false;
+        }
+    }
+
+    /**
+     * Führt eine Migration aus und trägt sie in schema_version ein
+     * @param connection Verbindung zur Datenbank
+     * @param migration Die Migration
+     * @throws SQLException wenn ein Befehl fehlschlägt; die Transaktion wird dann zurückgerollt
+     */
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        System.out.println(">>> Migration V" + migration.version() + " " + migration.description() + "... <<<");
+        long start = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : SqlScript.split(migration.script())) {
+                statement.execute(sql);
+            }
+            insertVersion(connection, migration, (int) (System.currentTimeMillis() - start));
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Übernimmt eine bestehende Datenbank, die vor der Einführung der Migrationen angelegt wurde,
+     * indem V1 als angewendet eingetragen wird, ohne sie auszuführen
+     * @param connection Verbindung zur Datenbank
+     * @throws SQLException wenn der Eintrag fehlschlägt
+     * @throws IOException wenn V1 nicht gelesen werden kann
+     */
+    private void baseline(Connection connection) throws SQLException, IOException {
+        Migration baseline = loadMigration(1);
+        if (baseline != null) {
+            insertVersion(connection, baseline, 0);
+            connection.commit();
+            System.out.println(">>> Bestehende Datenbank als Version 1 übernommen <<<");
+        }
+    }
+
+    /**
+     * Erstellt die Tabelle schema_version, falls sie noch nicht existiert
+     * @param connection Verbindung zur Datenbank
+     * @throws SQLException wenn die Tabelle nicht erstellt werden kann
+     */
+    private void createVersionTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    description VARCHAR(200) NOT NULL,
+                    checksum BIGINT NOT NULL,
+                    installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    execution_time INT NOT NULL)
+                    """);
+            connection.commit();
+        }
+    }
+
+    /**
+     * Holt alle bereits angewendeten Migrationen mit ihrer Prüfsumme
+     * @param connection Verbindung zur Datenbank
+     * @return Map von Version auf Prüfsumme
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     */
+    private Map<Integer, Long> getAppliedMigrations(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement prep = connection.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet resultSet = prep.executeQuery()) {
+            while (resultSet.next()) {
+                applied.put(resultSet.getInt("version"), resultSet.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Trägt eine Migration in schema_version ein
+     * @param connection Verbindung zur Datenbank
+     * @param migration Die Migration
+     * @param executionTime Ausführungsdauer in Millisekunden
+     * @throws SQLException wenn der Eintrag fehlschlägt
+     */
+    private void insertVersion(Connection connection, Migration migration, int executionTime) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement("INSERT INTO schema_version (version, description, checksum, execution_time) VALUES (?, ?, ?, ?)")) {
+            prep.setInt(1, migration.version());
+            prep.setString(2, migration.description());
+            prep.setLong(3, migration.checksum());
+            prep.setInt(4, executionTime);
+            prep.executeUpdate();
+        }
+    }
+
+    /**
+     * Prüft, ob eine Tabelle im aktuellen Schema existiert
+     * @param connection Verbindung zur Datenbank
+     * @param table Name der Tabelle
+     * @return true, wenn die Tabelle existiert, sonst false.
+     * @throws SQLException wenn die Metadaten nicht gelesen werden können
+     */
+    private boolean tableExists(Connection connection, String table) throws SQLException {
+        try (ResultSet resultSet = connection.getMetaData().getTables(connection.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * Setzt ein benanntes Lock in MySQL, das nur eine Serverinstanz gleichzeitig halten kann
+     * @param connection Verbindung zur Datenbank
+     * @return true, wenn das Lock gesetzt wurde, sonst false.
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     */
+    private boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            prep.setString(1, LOCK_NAME);
+            prep.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = prep.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    /**
+     * Gibt das Migrations-Lock wieder frei
+     * @param connection Verbindung zur Datenbank
+     * @throws SQLException wenn die Abfrage fehlschlägt
+     */
+    private void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement prep = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            prep.setString(1, LOCK_NAME);
+            prep.executeQuery().close();
+        }
+    }
+
+    /**
+     * Lädt die Migration mit der angegebenen Version aus den Ressourcen.
+     * Die Dateinamen werden über die Indexdatei db/migration/migrations.list ermittelt.
+     * @param version Version der Migration
+     * @return Die Migration oder null, wenn es keine Migration mit dieser Version gibt
+     * @throws IOException wenn das Skript nicht gelesen werden kann
+     */
+    private Migration loadMigration(int version) throws IOException {
+        String index = SqlScript.read(LOCATION + "migrations.list");
+        if (index == null) {
+            return null;
+        }
+        String prefix = "V" + version + "__";
+        for (String fileName : index.split("\\R")) {
+            fileName = fileName.strip();
+            if (fileName.startsWith(prefix) && fileName.endsWith(".sql")) {
+                String script = SqlScript.read(LOCATION + fileName);
+                if (script == null) {
+                    throw new IOException("Migration " + fileName + " nicht gefunden");
+                }
+                String description = fileName.substring(prefix.length(), fileName.length() - 4).replace('_', ' ');
+                return new Migration(version, description, script, checksum(script));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Berechnet die CRC32-Prüfsumme eines Skripts. Zeilenenden werden vereinheitlicht, damit die Prüfsumme
+     * nicht vom Betriebssystem abhängt.
+     * @param script Inhalt des Skripts
+     * @return Prüfsumme
+     */
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Der Record Migration beschreibt ein versioniertes Migrationsskript
+     * @param version Version
+     * @param description Beschreibung aus dem Dateinamen
+     * @param script Inhalt des Skripts
+     * @param checksum Prüfsumme des Skripts
+     */
+    private record Migration(int version, String description, String script, long checksum) {
+    }
+}
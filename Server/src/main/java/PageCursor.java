@@ -0,0 +1,45 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse PageCursor kodiert die Position einer Seite beim Blättern durch Gerätelisten.
+ * Der Cursor enthält die ID des letzten Gerätes der vorherigen Seite und ist für den Klienten undurchsichtig.
+ */
+public final class PageCursor {
+    public static final String HEADER = "Next-Cursor"; // Header, in dem der Cursor der nächsten Seite steht
+    public static final int MAX_LIMIT = 1000; // Maximale Seitengröße
+    private static final String PREFIX = "id:";
+
+    /**
+     * Privater Konstruktor, da die Klasse nur statische Methoden enthält
+     */
+    private PageCursor() {
+    }
+
+    /**
+     * Kodiert die ID des letzten Gerätes einer Seite als Cursor
+     * @param lastId ID des letzten Gerätes
+     * @return Cursor für die nächste Seite
+     */
+    public static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekodiert einen Cursor
+     * @param cursor Cursor aus der Anfrage oder null für die erste Seite
+     * @return ID, nach der die nächste Seite beginnt
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist
+     */
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!value.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+        }
+        return Integer.parseInt(value.substring(PREFIX.length()));
+    }
+}
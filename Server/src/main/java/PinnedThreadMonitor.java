@@ -0,0 +1,57 @@
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse PinnedThreadMonitor meldet virtuelle Threads, die ihren Träger-Thread blockieren.
+ * Das passiert, wenn ein virtueller Thread innerhalb eines synchronized-Blocks wartet, wie es der
+ * MySQL-Treiber beim Lesen vom Socket tut. Dazu wird das JFR-Ereignis jdk.VirtualThreadPinned
+ * im laufenden Prozess ausgewertet und mit den obersten Aufrufen auf der Konsole ausgegeben.
+ */
+public class PinnedThreadMonitor implements AutoCloseable {
+    private static final int PRINTED_FRAMES = 8; // Anzahl der ausgegebenen Aufrufe je Ereignis
+
+    private final RecordingStream stream;
+
+    /**
+     * Konstruktor der Klasse PinnedThreadMonitor, der die Überwachung im Hintergrund startet
+     * @param threshold Minimale Dauer, ab der ein blockierter Träger-Thread gemeldet wird
+     */
+    public PinnedThreadMonitor(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::print);
+        stream.startAsync();
+    }
+
+    /**
+     * Gibt ein Ereignis mit Dauer und den obersten Aufrufen aus
+     * @param event Das JFR-Ereignis
+     */
+    private void print(RecordedEvent event) {
+        StringBuilder message = new StringBuilder(">>> Virtueller Thread blockiert Träger-Thread für ")
+                .append(event.getDuration().toMillis()).append(" ms <<<");
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            for (int i = 0; i < Math.min(PRINTED_FRAMES, frames.size()); i++) {
+                RecordedFrame frame = frames.get(i);
+                message.append("\n    at ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(':').append(frame.getLineNumber());
+            }
+        }
+        Log.warn("jfr", "{}", message);
+    }
+
+    /**
+     * Beendet die Überwachung
+     */
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
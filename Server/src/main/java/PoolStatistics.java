@@ -0,0 +1,13 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Der Record PoolStatistics enthält eine Momentaufnahme der Auslastung des Verbindungspools
+ * @param totalConnections Anzahl aller geöffneten Verbindungen
+ * @param activeConnections Anzahl der aktuell ausgeliehenen Verbindungen
+ * @param idleConnections Anzahl der freien Verbindungen
+ * @param threadsAwaitingConnection Anzahl der Threads, die auf eine Verbindung warten
+ * @param maximumPoolSize Maximale Größe des Pools
+ * @param minimumIdle Minimale Anzahl an freien Verbindungen
+ */
+public record PoolStatistics(int totalConnections, int activeConnections, int idleConnections,
+                             int threadsAwaitingConnection, int maximumPoolSize, int minimumIdle) {
+}
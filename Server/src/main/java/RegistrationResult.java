@@ -0,0 +1,8 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das enum RegistrationResult repräsentiert das Ergebnis einer Anmeldung beim Server.
+ * REGISTERED: Der Benutzer wurde neu registriert.
+ * KNOWN: Der Benutzer war bereits registriert und wurde angemeldet.
+ * FAILED: Der Benutzer konnte nicht registriert werden.
+ */
+public enum RegistrationResult {REGISTERED, KNOWN, FAILED}
@@ -0,0 +1,130 @@
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse RepresentationInterceptor bearbeitet Antworten, bevor ihr Inhalt geschrieben wird.
+ * Listen und ChangeSets ab GzipThreshold Geräten werden mit gzip komprimiert, wenn der Client dies mit
+ * Accept-Encoding erlaubt.
+ * Kleine Listen und einzelne Werte bleiben unkomprimiert, da sich der Aufwand dort nicht lohnt.
+ * Da JSON, CBOR und gzip unterschiedliche Bytes für dieselbe Version liefern, erhält das ETag je Darstellung eine
+ * Endung (z.B. "c12-cbor-gzip"). ServerRestEndpoints vergleicht If-None-Match nur mit dem Teil vor der Endung.
+ * Jede Antwort mit Inhalt erhält Vary, auch ohne ETag, damit Caches die Darstellungen nicht vermischen.
+ */
+@Provider
+public class RepresentationInterceptor implements WriterInterceptor {
+    private static final String CBOR_SUFFIX = "-cbor";
+    private static final String GZIP_SUFFIX = "-gzip";
+    static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING; //Header, nach denen die Darstellung gewählt wird
+
+    private final int gzipThreshold; //Mindestanzahl an Einträgen für die Komprimierung
+
+    @Context
+    HttpHeaders headers; //Header der aktuellen Anfrage
+
+    /**
+     * Konstruktor der Klasse RepresentationInterceptor
+     * @param gzipThreshold Mindestanzahl an Einträgen einer Liste für die Komprimierung
+     */
+    public RepresentationInterceptor(int gzipThreshold) {
+        this.gzipThreshold = gzipThreshold;
+    }
+
+    /**
+     * Ergänzt das ETag um die Darstellung und komprimiert große Listen
+     * @param context Kontext der Antwort
+     * @throws IOException wenn der Inhalt nicht geschrieben werden kann
+     */
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        MultivaluedMap<String, Object> responseHeaders = context.getHeaders();
+        String suffix = isCbor(context.getMediaType()) ? CBOR_SUFFIX : "";
+        boolean gzip = entries(context.getEntity()) >= gzipThreshold && acceptsGzip();
+        if (gzip) {
+            suffix += GZIP_SUFFIX;
+            responseHeaders.putSingle(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        responseHeaders.putSingle(HttpHeaders.VARY, VARY);
+        if (responseHeaders.getFirst(HttpHeaders.ETAG) instanceof EntityTag tag) {
+            responseHeaders.putSingle(HttpHeaders.ETAG, new EntityTag(tag.getValue() + suffix, tag.isWeak()));
+        }
+        if (!gzip) {
+            context.proceed();
+            return;
+        }
+        GZIPOutputStream compressed = new GZIPOutputStream(context.getOutputStream());
+        context.setOutputStream(compressed);
+        try {
+            context.proceed();
+        } finally {
+            compressed.finish(); // Nur abschließen, der eigentliche Ausgabestrom gehört Jersey
+        }
+    }
+
+    /**
+     * Zählt die Einträge einer Antwort
+     * @param entity Inhalt der Antwort
+     * @return Anzahl der Einträge einer Liste bzw. der Geräte eines ChangeSets, sonst 0
+     */
+    private static int entries(Object entity) {
+        if (entity instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (entity instanceof ChangeSet changeSet) {
+            return changeSet.devices().size();
+        }
+        return 0;
+    }
+
+    /**
+     * Entfernt die Endung der Darstellung von einem ETag
+     * @param value Wert des ETags ohne Anführungszeichen
+     * @return Wert des ETags der Version
+     */
+    static String versionOf(String value) {
+        if (value.endsWith(GZIP_SUFFIX)) {
+            value = value.substring(0, value.length() - GZIP_SUFFIX.length());
+        }
+        if (value.endsWith(CBOR_SUFFIX)) {
+            value = value.substring(0, value.length() - CBOR_SUFFIX.length());
+        }
+        return value;
+    }
+
+    /**
+     * Prüft, ob der Client gzip mit Accept-Encoding erlaubt
+     * @return true, wenn gzip erlaubt ist, sonst false.
+     */
+    private boolean acceptsGzip() {
+        String acceptEncoding = headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prüft, ob die Antwort als CBOR geschrieben wird
+     * @param mediaType Medientyp der Antwort
+     * @return true, wenn es application/cbor ist, sonst false.
+     */
+    private static boolean isCbor(MediaType mediaType) {
+        return mediaType != null && "application".equalsIgnoreCase(mediaType.getType()) && "cbor".equalsIgnoreCase(mediaType.getSubtype());
+    }
+}
@@ -1,20 +1,41 @@
+import jakarta.ws.rs.core.MediaType;
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.grizzly.websockets.WebSocketAddOn;
+import org.glassfish.grizzly.websockets.WebSocketEngine;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * @author Georg Kunze, m28909, u36363
- * Die Klasse Server implementiert einen Grizzly Server und initialisiert die Datenbank
+ * Die Klasse Server implementiert einen Grizzly Server und initialisiert die Speicher-Engine
  */
 public class Server {
     private static Server instance;  // Statische Instanz für das Singleton-Entwurfsmuster
 
+    /**
+     * Der Record Storage enthält die gestartete Speicher-Engine
+     * @param devices Gerätespeicherung für die Endpunkte
+     * @param resource Wird beim Beenden geschlossen
+     */
+    private record Storage(DeviceRepository devices, AutoCloseable resource) {
+    }
+
     /**
      * Privater Konstruktor der Server Klasse um die externe Instanziierung zu verhindern
      */
@@ -34,27 +55,246 @@ public class Server {
 
     /**
      * Stellt die Verbindung zum HTTP-Server her und startet ihn.
-     * Initialisiert die Datenbank.
+     * Initialisiert die konfigurierte Speicher-Engine und stellt sie über einen HK2-Binder
+     * den REST-Endpunkten zur Verfügung.
      */
     public void startServer() {
+        long start = System.nanoTime(); // Beginn für die Zeit bis zur Bereitschaft
         try {
             Logger.getLogger("org.glassfish").setLevel(Level.SEVERE);
 
-            URI baseURI = new URI("http://localhost:8080/rest"); // Uri für den Server
-            ResourceConfig config = new ResourceConfig(ServerRestEndpoints.class); // Konfigurierung für den REST-Server mit der ServerRestEndpoints Klasse
-            HttpServer server = GrizzlyHttpServerFactory.createHttpServer(baseURI, config); // Grizzly HTTP-Server mit der URI und Konfiguration
+            //Laden der Serverparameter aus der Konfigurationsdatei
+            ResourceBundle bundle = ResourceBundle.getBundle("Server");
+            URI baseURI = new URI(bundle.getString("BaseURI")); // Uri für den Server
+            ExecutionMode mode = ExecutionMode.valueOf(bundle.getString("ExecutionMode"));
+            StorageEngine engine = StorageEngine.valueOf(bundle.getString("StorageEngine"));
+            ResourceConfig config = new ResourceConfig(ServerRestEndpoints.class, MetricsEndpoints.class, MetricsFilter.class, InFlightListener.class); // Konfigurierung für den REST-Server mit den Endpunkt-Klassen
+            Metrics metrics = new Metrics(); // Gemeinsame Kennzahlen aller Anfragen
+            CatalogVersions versions = new CatalogVersions(); // Versionen für die ETags der Gerätelisten
+            ChangeFeed changes = new ChangeFeed(Integer.parseInt(bundle.getString("ChangeFeedCapacity"))); // Änderungen für den Katalog der Clients
+            config.register(CborProvider.class); // Binäres Übertragungsformat neben JSON
+            config.register(new RepresentationInterceptor(Integer.parseInt(bundle.getString("GzipThreshold")))); // Komprimierung großer Listen
+            config.register(new AbstractBinder() {
+                @Override
+                protected void configure() {
+                    bind(metrics).to(Metrics.class);
+                    bind(versions).to(CatalogVersions.class);
+                    bind(changes).to(ChangeFeed.class);
+                }
+            });
+            Storage storage = switch (engine) {
+                case JDBC -> startJdbcStorage(config, metrics, bundle);
+                case MEMORY -> startMemoryStorage(config, bundle);
+            };
+            DeviceEventBroadcaster events = new DeviceEventBroadcaster( // Änderungen an Geräten per WebSocket senden
+                    Integer.parseInt(bundle.getString("EventQueueCapacity")),
+                    Integer.parseInt(bundle.getString("EventSubscriberCapacity")),
+                    Long.parseLong(bundle.getString("EventSendTimeout")));
+            config.register(new AbstractBinder() {
+                @Override
+                protected void configure() {
+                    bind(events).to(DeviceEventBroadcaster.class);
+                }
+            });
+
+            HttpServer server = GrizzlyHttpServerFactory.createHttpServer(baseURI, config, false); // Grizzly HTTP-Server mit der URI und Konfiguration
+            PinnedThreadMonitor pinnedThreadMonitor = configureWorkers(server, mode, bundle);
+            enableWebSockets(server, baseURI, events);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> { // Server und Speicher beim Beenden schließen
+                server.shutdownNow();
+                events.close();
+                try {
+                    storage.resource().close();
+                } catch (Exception e) {
+                    System.err.println(e.getMessage());
+                }
+                if (pinnedThreadMonitor != null) {
+                    pinnedThreadMonitor.close();
+                }
+            }));
 
             if (!server.isStarted()) {
                 server.start();
             }
 
-            System.out.println(">>> Server gestartet " + baseURI + " <<<");
-
-            //Initialisierung der Datenbank
-            DatabaseUtil db = new DatabaseUtil();
-            db.initialize();
+            System.out.println(">>> Server gestartet " + baseURI + " (" + mode + ", " + engine + ") nach "
+                    + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms <<<");
         } catch (URISyntaxException | IOException e) {
             System.err.println(e.getMessage());
         }
     }
+
+    /**
+     * Initialisiert den Verbindungspool, das Datenbankschema und die Datenbank und registriert sie
+     * zusammen mit den Status-Endpunkten in der Konfiguration. Eine leere Datenbank wird in einer Transaktion
+     * mit dem SQL-Skript SeedScript und den Geräten aus SeedDevices gefüllt.
+     * @param config Konfiguration des REST-Servers
+     * @param metrics Kennzahlen des Servers, in denen Verbindungspool und SQL-Anweisungen erfasst werden
+     * @param bundle Serverparameter aus der Konfigurationsdatei
+     * @return Die Datenbank und der Verbindungspool, der beim Beenden geschlossen wird
+     */
+    private Storage startJdbcStorage(ResourceConfig config, Metrics metrics, ResourceBundle bundle) {
+        ConnectionPool pool = new ConnectionPool(metrics);
+        if (!new MigrationRunner(pool).migrate()) {
+            System.err.println(">>> Datenbankschema konnte nicht aktualisiert werden! Programm wird beendet! <<<");
+            pool.close();
+            System.exit(0);
+        }
+        DatabaseUtil database = new DatabaseUtil(pool, metrics);
+        int seedBatchSize = Integer.parseInt(bundle.getString("SeedBatchSize"));
+        List<Device> seedDevices = readSeedDevices(bundle);
+        if (seedDevices == null || !database.initialize(bundle.getString("SeedScript"), seedDevices, seedBatchSize)) {
+            System.err.println(">>> Datenbank konnte nicht initialisiert werden! Programm wird beendet! <<<");
+            pool.close();
+            System.exit(0);
+        }
+        database.loadSearchIndex();
+        UserRegistry users = new UserRegistry(pool);
+        users.warmUp();
+
+        config.register(StatusEndpoints.class);
+        config.register(new AbstractBinder() { // Gemeinsame Instanzen für alle Anfragen bereitstellen
+            @Override
+            protected void configure() {
+                bind(pool).to(ConnectionPool.class);
+                bind(database).to(DatabaseUtil.class).to(DeviceRepository.class);
+                bind(users).to(UserRegistry.class).to(UserRepository.class);
+            }
+        });
+        return new Storage(database, pool);
+    }
+
+    /**
+     * Stellt die InMemoryRepository aus dem Journal wieder her und registriert sie in der Konfiguration.
+     * Ist das Journal leer, werden die Geräte aus SeedDevices geladen.
+     * @param config Konfiguration des REST-Servers
+     * @param bundle Serverparameter aus der Konfigurationsdatei
+     * @return Die InMemoryRepository, die beim Beenden geschlossen wird
+     * @throws IOException wenn das Journal nicht gelesen werden kann
+     */
+    private Storage startMemoryStorage(ResourceConfig config, ResourceBundle bundle) throws IOException {
+        InMemoryRepository repository = new InMemoryRepository(
+                Path.of(bundle.getString("JournalDirectory")),
+                Long.parseLong(bundle.getString("JournalSyncInterval")),
+                Long.parseLong(bundle.getString("SnapshotEvery")));
+        if (repository.isEmpty()) {
+            seedDevices(repository, bundle);
+        }
+
+        config.register(new AbstractBinder() { // Gemeinsame Instanz für alle Anfragen bereitstellen
+            @Override
+            protected void configure() {
+                bind(repository).to(DeviceRepository.class).to(UserRepository.class);
+            }
+        });
+        return new Storage(repository, repository);
+    }
+
+    /**
+     * Aktiviert WebSocket auf allen Listenern und registriert den DeviceEventBroadcaster unter /rest/events
+     * @param server Der noch nicht gestartete HTTP-Server
+     * @param baseURI Basis-URI des Servers
+     * @param events Sendet die Änderungen an Geräten
+     */
+    private void enableWebSockets(HttpServer server, URI baseURI, DeviceEventBroadcaster events) {
+        for (NetworkListener listener : server.getListeners()) {
+            listener.registerAddOn(new WebSocketAddOn());
+        }
+        String contextPath = baseURI.getPath().endsWith("/") ? baseURI.getPath().substring(0, baseURI.getPath().length() - 1) : baseURI.getPath();
+        WebSocketEngine.getEngine().register(contextPath, "/events", events);
+    }
+
+    /**
+     * Lädt die Beispielgeräte aus der CSV-Datei SeedDevices in den Ressourcen. Die Geräte werden wie beim Import
+     * geprüft und in Blöcken von SeedBatchSize Geräten mit DeviceRepository.addDevices gespeichert.
+     * Fehlt die Datei, werden keine Geräte geladen.
+     * @param repository Gerätespeicherung der konfigurierten Speicher-Engine
+     * @param bundle Serverparameter aus der Konfigurationsdatei
+     */
+    private void seedDevices(DeviceRepository repository, ResourceBundle bundle) {
+        String resourceName = bundle.getString("SeedDevices");
+        try (InputStream input = Server.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (input == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            try (DeviceImportReader reader = new DeviceImportReader(new MediaType("text", "csv"), input)) {
+                ImportReport report = new DeviceImporter(repository, Integer.parseInt(bundle.getString("SeedBatchSize"))).importDevices(reader);
+                for (ImportError error : report.errors()) {
+                    Log.warn("import", ">>> {} Zeile {}: {} <<<", resourceName, error.row(), error.message());
+                }
+                System.out.println(">>> " + report.imported() + " Geräte aus " + resourceName + " in "
+                        + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms geladen <<<");
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Liest und prüft die Beispielgeräte aus der CSV-Datei SeedDevices in den Ressourcen, ohne sie zu speichern.
+     * Fehlerhafte Zeilen werden gemeldet und übergangen. Fehlt die Datei, wird eine leere Liste zurückgegeben.
+     * @param bundle Serverparameter aus der Konfigurationsdatei
+     * @return Die gültigen Geräte oder null, wenn die Datei nicht gelesen werden kann
+     */
+    private List<Device> readSeedDevices(ResourceBundle bundle) {
+        String resourceName = bundle.getString("SeedDevices");
+        try (InputStream input = Server.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (input == null) {
+                return List.of();
+            }
+            try (DeviceImportReader reader = new DeviceImportReader(new MediaType("text", "csv"), input)) {
+                List<ImportError> errors = new ArrayList<>();
+                List<Device> devices = DeviceImporter.readDevices(reader, errors);
+                for (ImportError error : errors) {
+                    Log.warn("import", ">>> {} Zeile {}: {} <<<", resourceName, error.row(), error.message());
+                }
+                return devices;
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Legt fest, auf welchen Threads Grizzly die Anfragen an Jersey übergibt, siehe useWorkers.
+     * Bei VIRTUAL wird zusätzlich ein PinnedThreadMonitor gestartet, der meldet, wenn der JDBC-Treiber in einem
+     * synchronized-Block den Träger-Thread blockiert.
+     * Die Anzahl gleichzeitiger Datenbankzugriffe bleibt in beiden Fällen durch den Verbindungspool begrenzt.
+     * @param server Der noch nicht gestartete HTTP-Server
+     * @param mode Die Ausführungsart
+     * @param bundle Serverparameter aus der Konfigurationsdatei
+     * @return Der PinnedThreadMonitor bei virtuellen Threads, sonst null
+     */
+    private PinnedThreadMonitor configureWorkers(HttpServer server, ExecutionMode mode, ResourceBundle bundle) {
+        useWorkers(server, mode, Integer.parseInt(bundle.getString("WorkerPoolSize")));
+        if (mode == ExecutionMode.VIRTUAL) {
+            Duration threshold = Duration.ofMillis(Long.parseLong(bundle.getString("PinnedThreadThreshold")));
+            return new PinnedThreadMonitor(threshold);
+        }
+        return null;
+    }
+
+    /**
+     * Setzt die Threads, auf denen Grizzly die Anfragen an Jersey übergibt. Wird auch vom Lastgenerator für
+     * seinen Server im selben Prozess verwendet.
+     * POOLED: Fester Pool von Plattform-Threads mit der angegebenen Größe.
+     * VIRTUAL: Ein virtueller Thread pro Anfrage.
+     * @param server Der noch nicht gestartete HTTP-Server
+     * @param mode Die Ausführungsart
+     * @param poolSize Anzahl der Plattform-Threads bei POOLED
+     */
+    public static void useWorkers(HttpServer server, ExecutionMode mode, int poolSize) {
+        for (NetworkListener listener : server.getListeners()) {
+            switch (mode) {
+                case POOLED -> listener.getTransport().setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig()
+                        .setPoolName("lending-worker")
+                        .setCorePoolSize(poolSize)
+                        .setMaxPoolSize(poolSize));
+                case VIRTUAL -> listener.getTransport().setWorkerThreadPool(
+                        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lending-virtual-", 0).factory()));
+            }
+        }
+    }
 }
@@ -1,16 +1,39 @@
+import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * @author Georg Kunze, m28909, u36363
- * Die Klasse ServerRestEndpoints stellt REST-Endpunkte für Geräte-Ausleihfunktionen bereit
+ * Die Klasse ServerRestEndpoints stellt REST-Endpunkte für Geräte-Ausleihfunktionen bereit.
+ * Alle Endpunkte lesen und schreiben JSON oder CBOR, je nach Content-Type und Accept der Anfrage.
+ * Ohne Angabe wird wie bisher JSON verwendet.
  */
 @Path("lending")
 public class ServerRestEndpoints {
-    DatabaseUtil database = new DatabaseUtil();
+    //Anzahl der Geräte, die beim Import gemeinsam in einer Transaktion gespeichert werden
+    private static final int IMPORT_BATCH_SIZE = Integer.parseInt(ResourceBundle.getBundle("Server").getString("ImportBatchSize"));
+    private static final int MAX_BORROW_IDS = 100; //Maximale Anzahl an Geräten pro Sammelausleihe
+
+    @Inject
+    DeviceRepository database; //Gemeinsame Gerätespeicherung der konfigurierten Speicher-Engine, die über den Binder im Server injiziert wird
+    @Inject
+    UserRepository users; //Registrierte Benutzer
+    @Inject
+    CatalogVersions versions; //Versionen für die ETags der Gerätelisten
+    @Inject
+    DeviceEventBroadcaster events; //Sendet Änderungen an Geräten per WebSocket an die Clients
+    @Inject
+    ChangeFeed changes; //Versionierte Änderungen für den Katalog der Clients
+    @Context
+    HttpHeaders headers; //Header der aktuellen Anfrage für die Auswertung von If-None-Match
 
     /**
      * Aufgerufen durch post(String username) von ClientRestEndpoints.
@@ -21,46 +44,105 @@ public class ServerRestEndpoints {
      */
     @POST
     @Path("{username}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
     public Response registerUser(@PathParam("username") String username) {
-        boolean isRegistered = database.isRegistered(username); // Prüfung ob Benutzer bereits in der Datenbank ist
-        if (!isRegistered) {
-            boolean addSuccessful = database.addUser(username); // Einfügen des Benutzernamens in der Datenbank
-            if (addSuccessful) {
-                System.out.println(">>> Benutzer registriert: " + username + " <<<");
+        RegistrationResult result = users.register(username); // Registrieren des Benutzers, falls er noch nicht bekannt ist
+        switch (result) {
+            case REGISTERED -> {
+                Log.info("user", ">>> Benutzer registriert: {} <<<", username);
                 return Response.noContent().status(Response.Status.OK).build();
-            } else return Response.noContent().status(Response.Status.NOT_FOUND).build();
-        } else {
-            System.out.println(">>> Benutzer angemeldet: " + username + " <<<");
-            return Response.noContent().status(Response.Status.OK).build();
+            }
+            case KNOWN -> {
+                Log.info("user", ">>> Benutzer angemeldet: {} <<<", username);
+                return Response.noContent().status(Response.Status.OK).build();
+            }
+            default -> {
+                return Response.noContent().status(Response.Status.NOT_FOUND).build();
+            }
         }
-
     }
 
     /**
      * Aufgerufen durch getMatchingDevices(String search, SearchCriteria criteria) von ClientRestEndpoints.
      * Verwaltet die serverseitige GET Anfrage für die Suche nach einem Gerät mit einem String nach einem
-     * bestimmten Kriterium
+     * bestimmten Kriterium. Mit limit wird seitenweise geantwortet, der Cursor der nächsten Seite steht
+     * dann im Header Next-Cursor. Stimmt If-None-Match mit der Katalogversion überein, wird mit 304 geantwortet.
      * @param search Der Suchbegriff.
      * @param criteria Das Suchkriterium (Marke, Modell, Kategorie, Kaufdatum, ID)
-     * @return HTTP-Antwort, die die gefundenen Geräte im JSON-Format enthält.
+     * @param limit Maximale Anzahl an Geräten pro Seite (optional)
+     * @param cursor Cursor der angeforderten Seite aus dem Header Next-Cursor (optional)
+     * @return HTTP-Antwort, die die gefundenen Geräte im JSON- oder CBOR-Format enthält.
      */
     @GET
     @Path("{search}/{criteria}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response searchDevices(@PathParam("search") String search, @PathParam("criteria") String criteria) {
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    public Response searchDevices(@PathParam("search") String search, @PathParam("criteria") String criteria,
+                                  @QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
         SearchCriteria searchCriteria = convertBackToSearchCriteria(criteria); //String des Suchkriteriums zurückkonvertieren
-        List<Device> matchingDevices = database.getMatchingDevices(search, searchCriteria); //Passende Geräte nach dem Suchbegriff und Kriterium aus der Datenbank holen
+        if (searchCriteria == null || !isValidPage(limit, cursor)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        EntityTag tag = new EntityTag(versions.catalogTag()); // Version vor dem Lesen der Geräte bestimmen
+        Response.ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        int pageSize = pageSize(limit);
+        //Passende Geräte nach dem Suchbegriff und Kriterium holen, eines mehr als angefordert um eine weitere Seite zu erkennen
+        List<Device> matchingDevices = database.getMatchingDevices(search, searchCriteria, PageCursor.decode(cursor), pageSize + 1);
 
-        if (!matchingDevices.isEmpty()) {
-            return Response.ok().entity(matchingDevices).build();
+        if (matchingDevices != null && !matchingDevices.isEmpty()) {
+            return page(matchingDevices, pageSize, tag);
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
     }
 
+    /**
+     * Meldet die Änderung eines Gerätes an den ChangeFeed und an die per WebSocket verbundenen Clients
+     * @param type Art der Änderung
+     * @param previousId Bisherige ID des Gerätes
+     * @param device Zustand des Gerätes nach der Änderung
+     */
+    private void deviceChanged(DeviceEvent.Type type, int previousId, Device device) {
+        changes.record(previousId, device.id());
+        events.publish(type, previousId, device.id(), device);
+    }
+
+    /**
+     * Meldet die Änderung der Ausleihe von Geräten. Den neuen Zustand kennt nur die Gerätespeicherung, er wird
+     * daher nur gelesen, wenn Clients verbunden sind, und zwar in einer Abfrage auf dem Thread der Anfrage.
+     * @param type BORROWED oder RETURNED
+     * @param ids IDs der geänderten Geräte
+     */
+    private void borrowersChanged(DeviceEvent.Type type, List<Integer> ids) {
+        ids.forEach(id -> changes.record(id, id));
+        if (!events.hasSubscribers()) {
+            return;
+        }
+        List<Device> devices = database.getDevicesByIds(ids);
+        if (devices == null) {
+            events.publishResync(); // Zustand unbekannt, die Clients laden neu
+            return;
+        }
+        devices.forEach(device -> events.publish(type, device.id(), device.id(), device));
+    }
+
+    /**
+     * Prüft die ID aus dem Pfad, bevor sie an die Datenbank geht
+     * @param id ID als String
+     * @return Die ID oder null, wenn sie keine Zahl ist
+     */
+    private static Integer parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Konvertiert einen String in ein Enum-Objekt vom Typ SearchCriteria.
      * @param criteria Suchkriterium als String
@@ -79,80 +161,256 @@ public class ServerRestEndpoints {
 
     /**
      * Aufgerufen durch getAllDevices() von ClientRestEndpoints.
-     * Verwaltet die serverseitige GET Anfrage für das Zurückliefern aller Geräte
-     * @return HTTP-Antwort, die alle Geräte im JSON-Format enthält.
+     * Verwaltet die serverseitige GET Anfrage für das Zurückliefern aller Geräte. Mit limit wird seitenweise
+     * geantwortet, der Cursor der nächsten Seite steht dann im Header Next-Cursor.
+     * Mit stream=true werden die Geräte direkt beim Lesen aus der Datenbank geschrieben. Die Antwort ist dann
+     * auch ohne Geräte ein (leeres) Array und enthält keinen Next-Cursor. Gestreamt wird immer JSON.
+     * Stimmt If-None-Match mit der Katalogversion überein, wird mit 304 geantwortet.
+     * @param limit Maximale Anzahl an Geräten pro Seite (optional)
+     * @param cursor Cursor der angeforderten Seite aus dem Header Next-Cursor (optional)
+     * @param stream true, um die Geräte ohne Zwischenspeicherung zu streamen (optional)
+     * @return HTTP-Antwort, die alle Geräte im JSON- oder CBOR-Format enthält.
      */
     @GET
     @Path("getAllDevices")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response getAllDevices() {
-        List<Device> matchingDevices = database.getAllDevices(); //Holen von allen Geräten aus der Datenbank
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    public Response getAllDevices(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor,
+                                  @QueryParam("stream") boolean stream) {
+        if (!isValidPage(limit, cursor)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        EntityTag tag = new EntityTag(versions.catalogTag()); // Version vor dem Lesen der Geräte bestimmen
+        Response.ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        int pageSize = pageSize(limit);
+        if (stream) {
+            int afterId = PageCursor.decode(cursor);
+            return Response.ok(new DeviceJsonStream(sink -> database.streamAllDevices(afterId, pageSize, sink)), MediaType.APPLICATION_JSON)
+                    .tag(tag).cacheControl(revalidate()).build();
+        }
+        List<Device> matchingDevices = database.getAllDevices(PageCursor.decode(cursor), pageSize + 1); //Holen der nicht ausgeliehenen Geräte aus der Datenbank
 
-        if (!matchingDevices.isEmpty()) {
-            return Response.ok().entity(matchingDevices).build();
+        if (matchingDevices != null && !matchingDevices.isEmpty()) {
+            return page(matchingDevices, pageSize, tag);
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
     }
 
+    /**
+     * Aufgerufen durch getChanges(long since) von ClientRestEndpoints.
+     * Verwaltet die serverseitige GET Anfrage für die Änderungen am Gerätekatalog seit der Version since.
+     * Geantwortet wird mit dem aktuellen Zustand der seitdem geänderten Geräte einschließlich ausgeliehener Geräte.
+     * Ohne since oder wenn die Änderungen seit since nicht mehr gespeichert sind, wird der ganze Katalog mit
+     * reset gesendet. Die Version wird vor dem Lesen der Geräte bestimmt, eine gleichzeitige Änderung wird daher
+     * spätestens mit der nächsten Anfrage noch einmal gesendet. Die geänderten Geräte werden gemeinsam mit
+     * getDevicesByIds gelesen, nicht mehr einzeln pro ID.
+     * @param since Version des Katalogs, die der Client kennt (optional)
+     * @return HTTP-Antwort mit dem ChangeSet im JSON- oder CBOR-Format
+     */
+    @GET
+    @Path("changes")
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    public Response getChanges(@QueryParam("since") Long since) {
+        long version = changes.version();
+        Set<Integer> changedIds = since != null ? changes.since(since) : null;
+        if (changedIds == null) {
+            List<Device> catalog = database.getCatalog(0, Integer.MAX_VALUE); //Ganzer Katalog für den ersten Abgleich
+            if (catalog == null) {
+                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+            }
+            return Response.ok().entity(new ChangeSet(version, true, catalog, List.of())).build();
+        }
+        List<Device> changedDevices = database.getDevicesByIds(List.copyOf(changedIds)); //Aktueller Zustand in einer Abfrage
+        if (changedDevices == null) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+        Set<Integer> removed = new TreeSet<>(changedIds);
+        changedDevices.forEach(device -> removed.remove(device.id()));
+        return Response.ok().entity(new ChangeSet(version, false, changedDevices, List.copyOf(removed))).build();
+    }
+
+    /**
+     * Prüft die Parameter für das seitenweise Abrufen
+     * @param limit Maximale Anzahl an Geräten pro Seite oder null
+     * @param cursor Cursor der angeforderten Seite oder null
+     * @return true, wenn limit positiv und der Cursor gültig ist, sonst false.
+     */
+    private boolean isValidPage(Integer limit, String cursor) {
+        try {
+            PageCursor.decode(cursor);
+            return limit == null || limit > 0;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Bestimmt die Seitengröße. Ohne limit werden wie bisher alle Geräte auf einmal zurückgegeben.
+     * @param limit Angeforderte Seitengröße oder null
+     * @return Seitengröße, höchstens PageCursor.MAX_LIMIT
+     */
+    private int pageSize(Integer limit) {
+        return limit == null ? Integer.MAX_VALUE - 1 : Math.min(limit, PageCursor.MAX_LIMIT);
+    }
+
+    /**
+     * Baut die Antwort für eine Seite. Enthält die Liste mehr Geräte als die Seitengröße, gibt es eine
+     * weitere Seite und deren Cursor wird im Header Next-Cursor mitgeschickt.
+     * @param devices Geräte der Seite plus höchstens ein weiteres Gerät
+     * @param pageSize Seitengröße
+     * @param tag ETag der Version, aus der die Geräte gelesen wurden
+     * @return HTTP-Antwort mit den Geräten der Seite
+     */
+    private Response page(List<Device> devices, int pageSize, EntityTag tag) {
+        if (devices.size() > pageSize) {
+            List<Device> page = new ArrayList<>(devices.subList(0, pageSize));
+            return Response.ok().entity(page).tag(tag).cacheControl(revalidate())
+                    .header(PageCursor.HEADER, PageCursor.encode(page.getLast().id())).build();
+        }
+        return Response.ok().entity(devices).tag(tag).cacheControl(revalidate()).build();
+    }
+
+    /**
+     * Prüft If-None-Match der Anfrage gegen das aktuelle ETag. Verglichen wird nur die Version ohne die Endung
+     * der Darstellung, die der RepresentationInterceptor anhängt.
+     * @param tag Aktuelles ETag
+     * @return Antwort 304 mit dem ETag des Clients, wenn er die aktuelle Version hat, sonst null
+     */
+    private Response.ResponseBuilder evaluatePreconditions(EntityTag tag) {
+        String ifNoneMatch = headers.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.equals("*") || RepresentationInterceptor.versionOf(value).equals(tag.getValue())) {
+                EntityTag matched = value.equals("*") ? tag : new EntityTag(value);
+                return Response.notModified(matched).cacheControl(revalidate())
+                        .header(HttpHeaders.VARY, RepresentationInterceptor.VARY); // 304 hat keinen Inhalt, der Interceptor läuft nicht
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gibt die Cache-Control-Angabe für Gerätelisten zurück: Der Client darf sie speichern, muss sie aber vor
+     * jeder Verwendung mit If-None-Match bestätigen lassen.
+     * @return Cache-Control no-cache
+     */
+    private static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        return cacheControl;
+    }
+
 
     /**
      * Aufgerufen durch putBorrower(Action action, String id) von ClientRestEndpoints.
      * Verwaltet die serverseitige PUT Anfrage für das Hinzufügen oder Entfernen eines Ausleihers zu dem
-     * jeweiligen Gerät
+     * jeweiligen Gerät. Prüfung und Änderung erfolgen in einer einzigen bedingten UPDATE-Anweisung,
+     * deren Anzahl betroffener Zeilen über die Antwort entscheidet. Nur bei einer abgelehnten Änderung wird
+     * nachgesehen, ob das Gerät existiert.
      * @param username Der Benutzername des Ausleihers.
      * @param id Die ID des Gerätes.
      * @param action Die Aktion (BORROW oder RETURN)
-     * @return HTTP-Antwort, die den Erfolg der Aktion angibt.
+     * @return HTTP-Antwort, die den Erfolg der Aktion angibt, 400 bei einer ungültigen ID, 404, wenn das Gerät
+     * nicht existiert, und 409, wenn es bereits ausgeliehen bzw. nicht vom Benutzer ausgeliehen ist.
      */
     @PUT
     @Path("{username}/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
     public Response changeBorrower(@PathParam("username") String username, @PathParam("id") String id, Action action) {
-        Device device = database.getMatchingDevices(id, SearchCriteria.ID).getFirst(); //Gerät dessen Status geändert werden soll aus der Datenbank holen
-        try {
-            boolean isBorrowed = device.borrower() != null;
-            switch (action) {
-                case BORROW -> { //Aktion: Ausleihen eines Gerätes
-                    if (!isBorrowed) {
-                        boolean setSuccessful = database.setBorrower(id, username); //Username und Rückgabedatum in dem Datenbankeintrag des Gerätes hinzufügen
-                        if (setSuccessful) {
-                            return Response.noContent().status(Response.Status.OK).build();
-                        } else return Response.noContent().status(Response.Status.NOT_FOUND).build();
-                    } else return Response.status(Response.Status.NOT_FOUND).build();
-                }
-                case RETURN -> { //Aktion: Zurückgeben eines Gerätes
-                    if (isBorrowed && (Objects.equals(username, device.borrower()))) {
-                        boolean deleteSuccessful = database.deleteBorrower(id); //Username und Rückgabedatum in dem Datenbankeintrag des Gerätes auf null setzten
-                        if (deleteSuccessful) {
-                            return Response.noContent().status(Response.Status.OK).build();
-                        } else return Response.status(Response.Status.NOT_FOUND).build();
-                    } else return Response.status(Response.Status.NOT_FOUND).build();
-                }
-                default -> {
-                    return Response.noContent().status(Response.Status.NOT_FOUND).build();
-                }
-            }
-        } catch (Exception e) {
+        if (action == null) {
             return Response.noContent().status(Response.Status.NOT_FOUND).build();
         }
+        Integer deviceId = parseId(id);
+        if (deviceId == null) {
+            return Response.noContent().status(Response.Status.BAD_REQUEST).build();
+        }
+        boolean successful = switch (action) {
+            case BORROW -> database.setBorrower(String.valueOf(deviceId), username); //Username und Rückgabedatum setzen, falls das Gerät nicht ausgeliehen ist
+            case RETURN -> database.deleteBorrower(String.valueOf(deviceId), username); //Username und Rückgabedatum auf null setzen, falls der Benutzer das Gerät ausgeliehen hat
+            default -> false;
+        };
+
+        if (successful) {
+            versions.borrowerChanged(username);
+            borrowersChanged(action == Action.BORROW ? DeviceEvent.Type.BORROWED : DeviceEvent.Type.RETURNED, List.of(deviceId));
+            return Response.noContent().status(Response.Status.OK).build();
+        } else if (database.getDeviceById(String.valueOf(deviceId)) == null) {
+            return Response.noContent().status(Response.Status.NOT_FOUND).build();
+        } else {
+            return Response.noContent().status(Response.Status.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Aufgerufen durch putBorrowers(String username, List ids, Action action, boolean atomic) von ClientRestEndpoints.
+     * Verwaltet die serverseitige PUT Anfrage für das Ausleihen oder Zurückgeben mehrerer Geräte in einer
+     * Transaktion. Mit atomic werden nur alle oder keines der Geräte geändert, sonst alle möglichen Geräte.
+     * @param username Der Benutzername des Ausleihers.
+     * @param borrowRequest Aktion (BORROW oder RETURN), IDs der Geräte und atomic
+     * @return HTTP-Antwort mit geänderten und abgelehnten IDs, 400 bei einer ungültigen Anfrage
+     */
+    @PUT
+    @Path("{username}/borrowings")
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    public Response changeBorrowers(@PathParam("username") String username, BorrowRequest borrowRequest) {
+        if (borrowRequest == null || (borrowRequest.action() != Action.BORROW && borrowRequest.action() != Action.RETURN)
+                || borrowRequest.ids() == null || borrowRequest.ids().isEmpty()
+                || borrowRequest.ids().size() > MAX_BORROW_IDS || borrowRequest.ids().contains(null)) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(borrowRequest.ids())); // Ohne Duplikate und aufsteigend, damit Zeilen immer in derselben Reihenfolge gesperrt werden
+        List<Integer> changed = borrowRequest.action() == Action.BORROW
+                ? database.setBorrowers(ids, username, borrowRequest.atomic()) //Alle bzw. alle verfügbaren Geräte ausleihen
+                : database.deleteBorrowers(ids, username, borrowRequest.atomic()); //Alle bzw. alle vom Benutzer ausgeliehenen Geräte zurückgeben
+        if (changed == null) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+
+        if (!changed.isEmpty()) {
+            versions.borrowerChanged(username);
+            DeviceEvent.Type type = borrowRequest.action() == Action.BORROW ? DeviceEvent.Type.BORROWED : DeviceEvent.Type.RETURNED;
+            borrowersChanged(type, changed);
+        }
+        List<Integer> rejected = new ArrayList<>(ids);
+        rejected.removeAll(changed);
+        return Response.ok().entity(new BorrowResult(changed, rejected)).build();
     }
 
     /**
      * Aufgerufen von getReservedDevices(String username) von ClientRestEndpoints.
-     * Verwaltet die serverseitige GET Anfrage für das Zurückliefern aller vom Benutzer ausgeliehenen Geräte
+     * Verwaltet die serverseitige GET Anfrage für das Zurückliefern aller vom Benutzer ausgeliehenen Geräte.
+     * Stimmt If-None-Match mit der Version des Benutzers überein, wird mit 304 geantwortet.
      * @param username Der Benutzername.
-     * @return HTTP-Antwort, die die ausgeliehenen Geräte im JSON-Format enthält.
+     * @return HTTP-Antwort, die die ausgeliehenen Geräte im JSON- oder CBOR-Format enthält.
      */
     @GET
     @Path("{username}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
     public Response getReservedDevices(@PathParam("username") String username) {
+        EntityTag tag = new EntityTag(versions.userTag(username)); // Version vor dem Lesen der Geräte bestimmen
+        Response.ResponseBuilder notModified = evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
         List<Device> borrowedDevicesByUser = database.getBorrowedDevicesByUser(username); //Geräte die vom User ausgeliehen sind aus der Datenbank holen
-        return Response.ok().entity(borrowedDevicesByUser).build();
+        return Response.ok().entity(borrowedDevicesByUser).tag(tag).cacheControl(revalidate()).build();
     }
 
     /**
@@ -160,16 +418,22 @@ public class ServerRestEndpoints {
      * Verwaltet die serverseitige PUT Anfrage für das Bearbeiten der Informationen eines Gerätes anhand seiner ID.
      * @param id Die ID des zu bearbeitenden Gerätes.
      * @param device Das Gerät-Objekt mit den aktualisierten Informationen.
-     * @return HTTP-Antwort, die den Erfolg der Bearbeitung angibt.
+     * @return HTTP-Antwort, die den Erfolg der Bearbeitung angibt, 400 bei einer ungültigen ID.
      */
     @PUT
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
     public Response editDevice(@PathParam("id") String id, Device device) {
-        boolean editSuccessful = database.editDevice(id, device); //Gerät mit den neuen Geräteinformationen in der Datenbank bearbeiten
+        Integer previousId = parseId(id);
+        if (previousId == null || device == null) {
+            return Response.noContent().status(Response.Status.BAD_REQUEST).build();
+        }
+        boolean editSuccessful = database.editDevice(String.valueOf(previousId), device); //Gerät mit den neuen Geräteinformationen in der Datenbank bearbeiten
 
         if (editSuccessful) {
+            versions.deviceEdited();
+            deviceChanged(DeviceEvent.Type.EDITED, previousId, device);
             return Response.noContent().status(Response.Status.OK).build();
         } else {
             return Response.status(Response.Status.NOT_FOUND).build();
@@ -184,14 +448,51 @@ public class ServerRestEndpoints {
      */
     @POST
     @Path("/postDevice")
-    @Produces(MediaType.APPLICATION_JSON)
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
     public Response addDevice(Device device) {
         boolean addSuccessful = database.addDevice(device); //Hinzufügen des Gerätes in die Datenbank
 
         if (addSuccessful) {
+            versions.deviceAdded(device);
+            deviceChanged(DeviceEvent.Type.ADDED, device.id(), device);
             return Response.noContent().status(Response.Status.OK).build();
         } else return Response.noContent().status(Response.Status.NOT_FOUND).build();
     }
 
+    /**
+     * Verwaltet die serverseitige POST Anfrage für den Import vieler Geräte auf einmal.
+     * Der Inhalt ist ein JSON-Array von Geräten, NDJSON oder CSV mit Kopfzeile und wird beim Lesen
+     * verarbeitet. Die Geräte werden in Blöcken von ImportBatchSize Geräten gespeichert. Fehlerhafte Zeilen
+     * brechen den Import nicht ab, sondern werden im Ergebnis gemeldet.
+     * @param body Der Anfrageinhalt
+     * @return HTTP-Antwort mit dem ImportReport oder 400, wenn Format, Zeichensatz oder Kopfzeile ungültig sind
+     */
+    @POST
+    @Path("import")
+    @Produces({MediaType.APPLICATION_JSON, WireFormat.APPLICATION_CBOR})
+    @Consumes({MediaType.APPLICATION_JSON, DeviceImportReader.APPLICATION_NDJSON, DeviceImportReader.TEXT_CSV})
+    public Response importDevices(InputStream body) {
+        DeviceImportReader reader;
+        try {
+            reader = new DeviceImportReader(headers.getMediaType(), body);
+        } catch (IOException | IllegalArgumentException e) {
+            // IllegalArgumentException: Kopfzeile mit offenem Anführungszeichen oder unbekannter Zeichensatz
+            return Response.noContent().status(Response.Status.BAD_REQUEST).build();
+        }
+        ImportReport report = new DeviceImporter(database, IMPORT_BATCH_SIZE).importDevices(reader);
+        try {
+            reader.close();
+        } catch (IOException e) {
+            Log.warn("import", ">>> Anfrageinhalt des Imports nicht geschlossen: {} <<<", e.getMessage());
+        }
+        if (report.imported() > 0) {
+            versions.devicesImported();
+            changes.reset(); // Zu viele Änderungen für einzelne Events, die Clients laden den Katalog neu
+            events.publishResync();
+        }
+        Log.info("import", ">>> Import: {} Zeilen gelesen, {} Geräte hinzugefügt, {} Fehler <<<",
+                report.received(), report.imported(), report.errors().size());
+        return Response.ok().entity(report).build();
+    }
 }
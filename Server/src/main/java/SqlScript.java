@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse SqlScript liest SQL-Skripte aus den Ressourcen und zerlegt sie in einzelne SQL-Befehle.
+ * Das Skript wird Zeichen für Zeichen gelesen: Ein Befehl endet mit einem Semikolon außerhalb von Zeichenketten
+ * und kann über mehrere Zeilen gehen oder mit anderen Befehlen in einer Zeile stehen. Zeichenketten in '...',
+ * "..." und `...` mit verdoppelten oder per Backslash maskierten Anführungszeichen werden unverändert
+ * übernommen. Kommentare mit -- und # bis zum Zeilenende sowie Blockkommentare werden entfernt. Wie bei MySQL
+ * beginnt ein Kommentar mit -- nur, wenn ein Leerzeichen, ein Zeilenumbruch oder das Ende des Skripts folgt,
+ * sodass z.B. 1--1 erhalten bleibt.
+ */
+public final class SqlScript {
+
+    /**
+     * Privater Konstruktor, da die Klasse nur statische Methoden enthält
+     */
+    private SqlScript() {
+    }
+
+    /**
+     * Liest ein SQL-Skript aus den Ressourcen
+     * @param resourceName Name der Ressource
+     * @return Inhalt des Skripts oder null, wenn die Ressource nicht existiert
+     * @throws IOException wenn die Ressource nicht gelesen werden kann
+     */
+    public static String read(String resourceName) throws IOException {
+        try (InputStream inputStream = SqlScript.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (inputStream == null) {
+                return null;
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Zerlegt ein SQL-Skript in einzelne Befehle ohne abschließendes Semikolon
+     * @param script Inhalt des Skripts
+     * @return Liste mit den SQL-Befehlen
+     */
+    public static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int length = script.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = script.charAt(i);
+            char next = i + 1 < length ? script.charAt(i + 1) : 0;
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = endOfQuoted(script, i);
+                current.append(script, i, end + 1);
+                i = end;
+            } else if (c == '-' && next == '-' && isCommentStart(script, i + 2) || c == '#') {
+                int end = script.indexOf('\n', i);
+                i = (end < 0 ? length : end) - 1; // Zeilenumbruch als Trennzeichen behalten
+            } else if (c == '/' && next == '*') {
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 1;
+                current.append(' ');
+            } else if (c == ';') {
+                addStatement(statements, current);
+            } else {
+                current.append(c);
+            }
+        }
+        // Letzter Befehl ohne Semikolon
+        addStatement(statements, current);
+        return statements;
+    }
+
+    /**
+     * Prüft, ob nach -- ein Kommentar beginnt
+     * @param script Inhalt des Skripts
+     * @param index Position nach --
+     * @return true, wenn an der Position ein Leerzeichen steht oder das Skript endet, sonst false.
+     */
+    private static boolean isCommentStart(String script, int index) {
+        return index >= script.length() || Character.isWhitespace(script.charAt(index));
+    }
+
+    /**
+     * Sucht das Ende einer Zeichenkette. Verdoppelte Anführungszeichen und außer bei `...` ein vorangestellter
+     * Backslash maskieren das Anführungszeichen.
+     * @param script Inhalt des Skripts
+     * @param start Position des öffnenden Anführungszeichens
+     * @return Position des schließenden Anführungszeichens oder die letzte Position, wenn es fehlt
+     */
+    private static int endOfQuoted(String script, int start) {
+        char quote = script.charAt(start);
+        for (int i = start + 1; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i++; // Maskiertes Zeichen überspringen
+            } else if (c == quote) {
+                if (i + 1 < script.length() && script.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return script.length() - 1;
+    }
+
+    /**
+     * Fügt den aktuellen Befehl ohne umgebende Leerzeichen hinzu, falls er nicht leer ist, und leert den Puffer
+     * @param statements Liste mit den SQL-Befehlen
+     * @param current Puffer des aktuellen Befehls
+     */
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().strip();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,41 @@
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse StatusEndpoints stellt REST-Endpunkte für den Betrieb des Servers bereit,
+ * über die der Zustand der Serverkomponenten abgefragt werden kann
+ */
+@Path("status")
+public class StatusEndpoints {
+    @Inject
+    ConnectionPool pool; //Gemeinsamer Verbindungspool des Servers
+    @Inject
+    DatabaseUtil database; //Gemeinsamer Datenbankzugriff mit dem Gerätecache
+
+    /**
+     * Verwaltet die serverseitige GET Anfrage für das Abrufen der Statistik des Verbindungspools
+     * @return HTTP-Antwort, die die Poolstatistik im JSON-Format enthält.
+     */
+    @GET
+    @Path("pool")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getPoolStatistics() {
+        return Response.ok().entity(pool.getStatistics()).build();
+    }
+
+    /**
+     * Verwaltet die serverseitige GET Anfrage für das Abrufen der Trefferstatistik des Gerätecaches
+     * @return HTTP-Antwort, die die Cachestatistik im JSON-Format enthält.
+     */
+    @GET
+    @Path("cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCacheStatistics() {
+        return Response.ok().entity(database.getCacheStatistics()).build();
+    }
+}
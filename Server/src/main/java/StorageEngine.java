@@ -0,0 +1,7 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das enum StorageEngine legt fest, wo der Server Geräte und Benutzer speichert.
+ * JDBC: In der MySQL-Datenbank aus Select.properties.
+ * MEMORY: Im Hauptspeicher, dauerhaft gesichert über ein Journal mit regelmäßigen Snapshots.
+ */
+public enum StorageEngine {JDBC, MEMORY}
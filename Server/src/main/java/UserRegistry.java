@@ -0,0 +1,102 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse UserRegistry verwaltet die registrierten Benutzer in einem nebenläufigen Set im Speicher.
+ * Das Set wird beim Start aus der users Tabelle befüllt, sodass bekannte Benutzer ohne Datenbankzugriff
+ * angemeldet werden. Unbekannte Benutzer werden mit einem einzigen INSERT eingefügt, dessen
+ * Eindeutigkeit durch den Unique Key auf users.username garantiert wird. Da Benutzer nie gelöscht werden,
+ * speichert das Set nur positive Einträge und bleibt auch mit mehreren Serverinstanzen auf derselben
+ * Datenbank konsistent: ein von einer anderen Instanz angelegter Benutzer führt nur zu einem doppelten
+ * Schlüssel, der als bekannter Benutzer gewertet wird. Anders als INSERT IGNORE verschluckt das keine
+ * anderen Fehler wie zu lange Namen, die MySQL sonst abgeschnitten speichern würde.
+ */
+public class UserRegistry implements UserRepository {
+    private static final String SELECT_USERNAMES = "SELECT username FROM users";
+    private static final String INSERT_USER = "INSERT INTO users (username) VALUES (?)";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062; //ER_DUP_ENTRY von MySQL
+    private static final String DUPLICATE_KEY_SQL_STATE = "23505"; //Doppelter Schlüssel nach SQL-Standard, z.B. H2
+    private static final int MAX_USERNAME_LENGTH = 30; //Länge von users.username in der Datenbank
+
+    private final ConnectionPool pool; //Gemeinsamer Verbindungspool für die Datenbank
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet(); //Bereits registrierte Benutzernamen
+
+    /**
+     * Konstruktor der Klasse UserRegistry
+     * @param pool Verbindungspool des Servers
+     */
+    public UserRegistry(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Lädt alle registrierten Benutzernamen aus der Datenbank in das Set
+     */
+    public void warmUp() {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(SELECT_USERNAMES);
+             ResultSet resultSet = prep.executeQuery()) {
+            while (resultSet.next()) {
+                usernames.add(resultSet.getString("username"));
+            }
+            System.out.println(">>> " + usernames.size() + " Benutzer geladen <<<");
+        } catch (SQLException e) {
+            System.err.println(">>> Benutzer konnten nicht geladen werden: " + e.getMessage() + " <<<");
+        }
+    }
+
+    /**
+     * Registriert den Benutzer, falls er noch nicht bekannt ist
+     * @param username Der Benutzername
+     * @return REGISTERED, wenn der Benutzer neu angelegt wurde, KNOWN, wenn er bereits registriert war,
+     * sonst FAILED, auch für leere oder zu lange Benutzernamen
+     */
+    @Override
+    public RegistrationResult register(String username) {
+        if (usernames.contains(username)) {
+            return RegistrationResult.KNOWN;
+        }
+        if (username == null || username.isEmpty() || username.length() > MAX_USERNAME_LENGTH) {
+            Log.warn("user", ">>> Ungültiger Benutzername mit {} Zeichen <<<", username == null ? 0 : username.length());
+            return RegistrationResult.FAILED;
+        }
+
+        try (Connection connection = pool.getConnection();
+             PreparedStatement prep = connection.prepareStatement(INSERT_USER)) {
+            prep.setString(1, username);
+            try {
+                prep.executeUpdate();
+                connection.commit();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                if (!isDuplicateKey(e)) {
+                    throw e;
+                }
+                // Der Benutzer wurde bereits von einer anderen Anfrage oder Serverinstanz angelegt
+                connection.rollback();
+                usernames.add(username);
+                return RegistrationResult.KNOWN;
+            }
+            usernames.add(username);
+            return RegistrationResult.REGISTERED;
+        } catch (SQLException e) {
+            Log.error("user", ">>> Benutzer konnte nicht registriert werden: {} <<<", e.getMessage());
+            return RegistrationResult.FAILED;
+        }
+    }
+
+    /**
+     * Prüft, ob eine Ausnahme einen doppelten Schlüssel meldet. MySQL meldet alle verletzten
+     * Integritätsbedingungen mit SQLState 23000 und unterscheidet sie nur über den Fehlercode.
+     * @param e Die Ausnahme
+     * @return true bei einem doppelten Schlüssel, sonst false.
+     */
+    private static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == MYSQL_DUPLICATE_ENTRY || DUPLICATE_KEY_SQL_STATE.equals(e.getSQLState());
+    }
+}
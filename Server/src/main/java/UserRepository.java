@@ -0,0 +1,15 @@
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Das Interface UserRepository beschreibt die Speicherung der registrierten Benutzer unabhängig von der Speicher-Engine.
+ * Implementiert wird es von UserRegistry (MySQL über JDBC) und InMemoryRepository (Hauptspeicher mit Journal).
+ */
+public interface UserRepository {
+
+    /**
+     * Registriert den Benutzer, falls er noch nicht bekannt ist
+     * @param username Der Benutzername
+     * @return REGISTERED, wenn der Benutzer neu angelegt wurde, KNOWN, wenn er bereits registriert war,
+     * sonst FAILED
+     */
+    RegistrationResult register(String username);
+}
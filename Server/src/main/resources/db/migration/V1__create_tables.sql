@@ -1,2 +1,3 @@
+-- Ausgangsschema der Geräteausleih-Anwendung
 CREATE TABLE devices (brand VARCHAR(50), model VARCHAR(50), category VARCHAR(50), purchaseyear INT, id INT, borrower VARCHAR(30), returndate DATE);
-CREATE TABLE users (username VARCHAR(30));
\ No newline at end of file
+CREATE TABLE users (username VARCHAR(30));
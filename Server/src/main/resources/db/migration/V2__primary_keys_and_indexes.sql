@@ -0,0 +1,9 @@
+-- Primärschlüssel und Unique Key, damit Zugriffe über id und username keinen Full Table Scan benötigen
+ALTER TABLE devices ADD PRIMARY KEY (id);
+ALTER TABLE users ADD CONSTRAINT uk_users_username UNIQUE (username);
+
+-- Sekundärindizes für die Suche nach Ausleiher, Kategorie, Marke und Rückgabedatum
+CREATE INDEX idx_devices_borrower ON devices (borrower);
+CREATE INDEX idx_devices_category ON devices (category);
+CREATE INDEX idx_devices_brand ON devices (brand);
+CREATE INDEX idx_devices_returndate ON devices (returndate);
@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Versionen für die ETags der Gerätelisten
+ */
+class CatalogVersionsTest {
+
+    /**
+     * Ein neues, bereits ausgeliehenes Gerät ändert das ETag seines Ausleihers
+     */
+    @Test
+    void addedBorrowedDeviceChangesUserTag() {
+        CatalogVersions versions = new CatalogVersions();
+        String before = versions.userTag("anna");
+        versions.deviceAdded(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 7, "anna", null));
+        assertNotEquals(before, versions.userTag("anna"));
+    }
+
+    /**
+     * Ein Import ändert die ETags aller Benutzer
+     */
+    @Test
+    void importChangesUserTags() {
+        CatalogVersions versions = new CatalogVersions();
+        String before = versions.userTag("anna");
+        versions.devicesImported();
+        assertNotEquals(before, versions.userTag("anna"));
+    }
+
+    /**
+     * Eine neue Serverinstanz vergibt nicht dieselben ETags wie eine frühere
+     * @throws InterruptedException wenn der Thread unterbrochen wird
+     */
+    @Test
+    void restartDoesNotReuseTags() throws InterruptedException {
+        CatalogVersions before = new CatalogVersions();
+        Thread.sleep(2);
+        CatalogVersions after = new CatalogVersions();
+        assertNotEquals(before.catalogTag(), after.catalogTag());
+        assertNotEquals(before.userTag("anna"), after.userTag("anna"));
+    }
+}
@@ -0,0 +1,124 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Übertragung von Geräten als CBOR mit dem Rückgabedatum als Epoch-Day, direkt mit WireFormat und über
+ * die REST-Schnittstelle. Der Server läuft mit der Speicher-Engine MEMORY in einem Grizzly-Server im Testprozess.
+ */
+class CborRoundTripTest {
+    private static final ObjectMapper CBOR = WireFormat.cborMapper();
+
+    @TempDir
+    Path directory;
+
+    private InMemoryRepository repository;
+    private EmbeddedServer server;
+    private URI baseURI;
+
+    /**
+     * Startet den Server ohne Geräte
+     * @throws IOException wenn Journal oder Server nicht gestartet werden können
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        repository = new InMemoryRepository(directory, 1, 1000);
+        server = new EmbeddedServer(repository, repository);
+        baseURI = server.getBaseURI();
+    }
+
+    /**
+     * Beendet Server und Speicher-Engine
+     * @throws IOException wenn das Journal nicht geschrieben werden kann
+     */
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+        repository.close();
+    }
+
+    /**
+     * Das Rückgabedatum wird als Anzahl der Tage seit dem 1.1.1970 geschrieben und zum selben Datum gelesen,
+     * ein fehlendes Datum bleibt null
+     * @throws IOException wenn CBOR nicht geschrieben oder gelesen werden kann
+     */
+    @Test
+    void returnDateIsWrittenAsEpochDay() throws IOException {
+        LocalDate returnDate = LocalDate.of(2024, 2, 29);
+        Device borrowed = new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1, "anna", Date.valueOf(returnDate));
+        Device available = new Device("Makita", "HR2470", "Bohrhammer", 2019, 2, null, null);
+
+        byte[] bytes = CBOR.writeValueAsBytes(List.of(borrowed, available));
+        JsonNode tree = CBOR.readTree(bytes);
+        assertTrue(tree.get(0).get("returnDate").isIntegralNumber());
+        assertEquals(returnDate.toEpochDay(), tree.get(0).get("returnDate").asLong());
+        assertEquals(List.of(borrowed, available), CBOR.readValue(bytes, new TypeReference<List<Device>>() {}));
+    }
+
+    /**
+     * Ein als CBOR gesendetes Gerät wird mit Rückgabedatum gespeichert und als CBOR unverändert zurückgeliefert.
+     * Auch die Antwort ohne ETag trägt Vary.
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void deviceSurvivesRestRoundTrip() throws Exception {
+        LocalDate returnDate = LocalDate.now().plusWeeks(2);
+        Device device = new Device("Stihl", "MS 170", "Kettensäge", 2021, 3, "anna", Date.valueOf(returnDate));
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpResponse<Void> posted = client.send(HttpRequest.newBuilder(baseURI.resolve("lending/postDevice"))
+                .header("Content-Type", WireFormat.APPLICATION_CBOR)
+                .header("Accept", WireFormat.APPLICATION_CBOR)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(CBOR.writeValueAsBytes(device)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(200, posted.statusCode());
+        assertEquals(device, repository.getDeviceById("3"));
+
+        HttpResponse<byte[]> borrowed = get(client, "lending/anna");
+        assertEquals(200, borrowed.statusCode());
+        assertEquals(WireFormat.APPLICATION_CBOR, borrowed.headers().firstValue("Content-Type").orElseThrow());
+        List<Device> devices = CBOR.readValue(borrowed.body(), new TypeReference<>() {});
+        assertEquals(List.of(device), devices);
+        assertEquals(returnDate, LocalDate.ofEpochDay(CBOR.readTree(borrowed.body()).get(0).get("returnDate").asLong()));
+
+        HttpResponse<byte[]> changes = get(client, "lending/changes");
+        assertEquals(200, changes.statusCode());
+        assertNull(changes.headers().firstValue("ETag").orElse(null));
+        assertEquals(RepresentationInterceptor.VARY, changes.headers().firstValue("Vary").orElse(null));
+        ChangeSet changeSet = CBOR.readValue(changes.body(), ChangeSet.class);
+        assertEquals(List.of(device), changeSet.devices());
+    }
+
+    /**
+     * Fragt eine Ressource als CBOR ab
+     * @param client Der HTTP-Client
+     * @param path Pfad relativ zur Basis-URI
+     * @return Die Antwort
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    private HttpResponse<byte[]> get(HttpClient client, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(baseURI.resolve(path))
+                .header("Accept", WireFormat.APPLICATION_CBOR)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
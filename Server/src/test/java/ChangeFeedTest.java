@@ -0,0 +1,36 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests des Ringpuffers der Änderungen
+ */
+class ChangeFeedTest {
+
+    /**
+     * Änderungen über das Ende des Ringpuffers hinweg werden in ihrer Reihenfolge geliefert, zu alte und
+     * unbekannte Versionen verlangen das Neuladen des Katalogs
+     */
+    @Test
+    void sinceReadsAcrossTheEndOfTheRing() {
+        ChangeFeed feed = new ChangeFeed(4);
+        long start = feed.version();
+        for (int id = 1; id <= 6; id++) {
+            feed.record(id, id);
+        }
+        feed.record(7, 8); // ID geändert, beide IDs müssen neu geladen werden
+
+        assertNull(feed.since(start + 2)); // Änderung 3 ist bereits überschrieben
+        assertEquals(List.of(4, 5, 6, 7, 8), List.copyOf(feed.since(start + 3)));
+        assertEquals(List.of(6, 7, 8), List.copyOf(feed.since(start + 5)));
+        assertEquals(List.of(), List.copyOf(feed.since(feed.version())));
+        assertNull(feed.since(feed.version() + 1));
+
+        feed.reset();
+        assertNull(feed.since(start + 6));
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Test gleichzeitiger Ausleihen desselben Gerätes über die REST-Schnittstelle. Der Server läuft in einem
+ * Grizzly-Server im Testprozess, einmal mit der Speicher-Engine MEMORY und einmal mit JDBC auf einer H2-Datenbank
+ * im MySQL-Modus. Der Durchsatz der gleichzeitigen Anfragen wird ausgegeben.
+ */
+class ConcurrentBorrowTest {
+    private static final int REQUESTS = 400;
+    private static final Device DEVICE = new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1, null, null);
+
+    @TempDir
+    Path directory;
+
+    private AutoCloseable storage;
+    private DeviceRepository repository;
+    private EmbeddedServer server;
+    private URI baseURI;
+
+    /**
+     * Startet den Server mit einem nicht ausgeliehenen Gerät
+     * @param engine Speicher-Engine des Servers
+     * @throws IOException wenn Journal oder Server nicht gestartet werden können
+     * @throws SQLException wenn die H2-Datenbank nicht angelegt werden kann
+     */
+    private void startServer(StorageEngine engine) throws IOException, SQLException {
+        if (engine == StorageEngine.MEMORY) {
+            InMemoryRepository memory = new InMemoryRepository(directory, 1, 1000);
+            memory.addDevice(DEVICE);
+            storage = memory;
+            repository = memory;
+            server = new EmbeddedServer(memory, memory);
+        } else {
+            H2Database database = H2Database.inMemory();
+            database.seed(List.of(DEVICE));
+            storage = database;
+            repository = database.getDevices();
+            server = new EmbeddedServer(database.getDevices(), database.getUsers());
+        }
+        baseURI = server.getBaseURI();
+    }
+
+    /**
+     * Beendet Server und Speicher-Engine
+     * @throws Exception wenn Journal oder Datenbank nicht geschlossen werden können
+     */
+    @AfterEach
+    void stopServer() throws Exception {
+        server.close();
+        storage.close();
+    }
+
+    /**
+     * Viele Benutzer leihen gleichzeitig dasselbe Gerät aus. Genau eine Anfrage ist erfolgreich, alle anderen
+     * werden mit 409 abgelehnt.
+     * @throws Exception wenn eine Anfrage nicht gesendet werden kann
+     */
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    void exactlyOneConcurrentBorrowSucceeds(StorageEngine engine) throws Exception {
+        startServer(engine);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(REQUESTS)) {
+            for (int i = 0; i < REQUESTS; i++) {
+                HttpRequest request = HttpRequest.newBuilder(baseURI.resolve("lending/benutzer" + i + "/1"))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString("\"BORROW\""))
+                        .build();
+                statuses.add(executor.submit(() -> {
+                    start.await(); // Alle Anfragen gleichzeitig starten
+                    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+
+            List<Integer> codes = new ArrayList<>();
+            for (Future<Integer> status : statuses) {
+                codes.add(status.get());
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            System.out.printf(Locale.ROOT, ">>> %s: %d gleichzeitige Ausleihen in %.0f ms, %.0f Anfr./s <<<%n",
+                    engine, REQUESTS, seconds * 1000, REQUESTS / seconds);
+            Map<Integer, Long> counts = codes.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            assertEquals(Map.of(200, 1L, 409, (long) REQUESTS - 1), counts);
+        }
+
+        String borrower = repository.getDeviceById("1").borrower();
+        HttpRequest other = HttpRequest.newBuilder(baseURI.resolve("lending/" + borrower + "x/1"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("\"RETURN\""))
+                .build();
+        assertEquals(409, client.send(other, HttpResponse.BodyHandlers.discarding()).statusCode());
+        HttpRequest missing = HttpRequest.newBuilder(baseURI.resolve("lending/" + borrower + "/2"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("\"BORROW\""))
+                .build();
+        assertEquals(404, client.send(missing, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+}
@@ -0,0 +1,213 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.grizzly.impl.FutureImpl;
+import org.glassfish.grizzly.utils.Futures;
+import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.WebSocket;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Queues des DeviceEventBroadcaster bei langsamen Clients und bei zu vielen gemeldeten Änderungen.
+ * Die Verbindungen sind Attrappen, die die gesendeten Texte aufzeichnen.
+ */
+class DeviceEventBroadcasterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Das Gerät aus publish wird unverändert gesendet, ohne die Datenbank zu lesen
+     * @throws Exception wenn die Events nicht rechtzeitig ankommen
+     */
+    @Test
+    void publishedDeviceIsSent() throws Exception {
+        FakeSocket socket = new FakeSocket(Futures::createSafeFuture, true);
+        try (DeviceEventBroadcaster events = new DeviceEventBroadcaster(10, 10, 1000)) {
+            events.onConnect(socket.proxy);
+            events.publish(DeviceEvent.Type.EDITED, 1, 2, device(2));
+            DeviceEvent event = socket.await(1).getFirst();
+            assertEquals(new DeviceEvent(DeviceEvent.Type.EDITED, 1, 2, device(2)), event);
+        }
+    }
+
+    /**
+     * Läuft die Queue eines Clients über, dessen Frame noch unterwegs ist, werden die ausstehenden Änderungen
+     * durch ein RESYNC ersetzt
+     * @throws Exception wenn die Events nicht rechtzeitig ankommen
+     */
+    @Test
+    void slowClientGetsResync() throws Exception {
+        FutureImpl<DataFrame> firstFrame = Futures.createSafeFuture();
+        AtomicInteger sends = new AtomicInteger();
+        FakeSocket socket = new FakeSocket(() -> {
+            if (sends.getAndIncrement() == 0) {
+                return firstFrame; // Der erste Frame hängt, bis der Test ihn freigibt
+            }
+            FutureImpl<DataFrame> sent = Futures.createSafeFuture();
+            sent.result(null);
+            return sent;
+        }, false);
+        CountDownLatch broadcasts = new CountDownLatch(5);
+        try (DeviceEventBroadcaster events = new DeviceEventBroadcaster(10, 2, 10_000) {
+            @Override
+            void broadcast(String message) {
+                super.broadcast(message);
+                broadcasts.countDown();
+            }
+        }) {
+            events.onConnect(socket.proxy);
+            events.publish(DeviceEvent.Type.BORROWED, 1, 1, device(1));
+            socket.await(1); // Der erste Frame ist unterwegs, die Queue ist leer
+            for (int id = 2; id <= 5; id++) {
+                events.publish(DeviceEvent.Type.BORROWED, id, id, device(id));
+            }
+            assertTrue(broadcasts.await(5, TimeUnit.SECONDS));
+            firstFrame.result(null);
+            // 2 und 3 füllen die Queue, 4 ersetzt sie durch RESYNC, 5 folgt danach
+            assertEquals(List.of(1, 0, 5), socket.await(3).stream().map(DeviceEvent::id).toList());
+            assertEquals(DeviceEvent.Type.RESYNC, socket.await(3).get(1).type());
+            assertEquals(0, socket.closed.get());
+        }
+    }
+
+    /**
+     * Antwortet ein Client nicht innerhalb von SendTimeout, wird die Verbindung geschlossen und erhält keine
+     * weiteren Events
+     * @throws Exception wenn die Verbindung nicht rechtzeitig geschlossen wird
+     */
+    @Test
+    void unresponsiveClientIsClosed() throws Exception {
+        FakeSocket socket = new FakeSocket(Futures::createSafeFuture, false); // Kein Frame wird je fertig
+        try (DeviceEventBroadcaster events = new DeviceEventBroadcaster(10, 10, 100)) {
+            events.onConnect(socket.proxy);
+            events.publish(DeviceEvent.Type.ADDED, 1, 1, device(1));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (socket.closed.get() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, socket.closed.get());
+            assertFalse(events.hasSubscribers());
+            events.publish(DeviceEvent.Type.ADDED, 2, 2, device(2));
+            Thread.sleep(200);
+            assertEquals(1, socket.await(1).size());
+        }
+    }
+
+    /**
+     * Ist die Queue der gemeldeten Änderungen voll, wird die nächste verteilte Änderung durch ein RESYNC ersetzt
+     * @throws Exception wenn die Events nicht rechtzeitig ankommen
+     */
+    @Test
+    void publishOverflowSendsResync() throws Exception {
+        FakeSocket socket = new FakeSocket(Futures::createSafeFuture, true);
+        CountDownLatch dispatching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (DeviceEventBroadcaster events = new DeviceEventBroadcaster(2, 10, 1000) {
+            @Override
+            void broadcast(String message) {
+                dispatching.countDown();
+                try {
+                    release.await(); // Verteil-Thread anhalten, bis die Queue übergelaufen ist
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.broadcast(message);
+            }
+        }) {
+            events.onConnect(socket.proxy);
+            events.publish(DeviceEvent.Type.ADDED, 1, 1, device(1));
+            assertTrue(dispatching.await(5, TimeUnit.SECONDS));
+            for (int id = 2; id <= 4; id++) {
+                events.publish(DeviceEvent.Type.ADDED, id, id, device(id)); // 4 passt nicht mehr in die Queue
+            }
+            release.countDown();
+            List<DeviceEvent> received = socket.await(3);
+            assertEquals(List.of(DeviceEvent.Type.ADDED, DeviceEvent.Type.RESYNC, DeviceEvent.Type.ADDED),
+                    received.stream().map(DeviceEvent::type).toList());
+            assertEquals(3, received.get(2).id());
+        }
+    }
+
+    /**
+     * Erzeugt ein Testgerät
+     * @param id ID des Gerätes
+     * @return Das Gerät
+     */
+    private static Device device(int id) {
+        return new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, id, null, null);
+    }
+
+    /**
+     * Die Klasse FakeSocket zeichnet die an eine Verbindung gesendeten Texte auf
+     */
+    private static final class FakeSocket {
+        private final List<String> sent = new ArrayList<>();
+        private final AtomicInteger closed = new AtomicInteger();
+        private final WebSocket proxy;
+
+        /**
+         * Konstruktor der Klasse FakeSocket
+         * @param frames Liefert die Future für jeden gesendeten Frame
+         * @param complete true, wenn jeder Frame sofort als geschrieben gilt
+         */
+        private FakeSocket(Supplier<FutureImpl<DataFrame>> frames, boolean complete) {
+            proxy = (WebSocket) Proxy.newProxyInstance(WebSocket.class.getClassLoader(), new Class<?>[]{WebSocket.class},
+                    (self, method, args) -> switch (method.getName()) {
+                        case "send" -> {
+                            synchronized (sent) {
+                                sent.add((String) args[0]);
+                                sent.notifyAll();
+                            }
+                            FutureImpl<DataFrame> future = frames.get();
+                            if (complete) {
+                                future.result(null);
+                            }
+                            yield future;
+                        }
+                        case "close" -> {
+                            closed.incrementAndGet();
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(self);
+                        case "equals" -> self == args[0];
+                        case "toString" -> "FakeSocket";
+                        default -> null;
+                    });
+        }
+
+        /**
+         * Wartet, bis count Texte gesendet wurden
+         * @param count Anzahl der erwarteten Texte
+         * @return Die gesendeten Events
+         * @throws InterruptedException wenn das Warten unterbrochen wird
+         * @throws IOException wenn ein Text kein DeviceEvent ist
+         */
+        private List<DeviceEvent> await(int count) throws InterruptedException, IOException {
+            long deadline = System.currentTimeMillis() + 5000;
+            List<String> copy;
+            synchronized (sent) {
+                while (sent.size() < count && System.currentTimeMillis() < deadline) {
+                    sent.wait(100);
+                }
+                copy = List.copyOf(sent);
+            }
+            assertEquals(count, copy.size());
+            List<DeviceEvent> events = new ArrayList<>();
+            for (String text : copy) {
+                events.add(MAPPER.readValue(text, DeviceEvent.class));
+            }
+            return events;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Aufteilung eines Imports in Blöcke und des Einfügens einzelner Geräte bei JDBC, wenn ein Block
+ * wegen einer vorhandenen ID fehlschlägt. JDBC läuft auf einer H2-Datenbank im MySQL-Modus.
+ */
+class DeviceImporterTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Die Geräte werden in Blöcken der angegebenen Größe gespeichert, ungültige Zeilen zählen nicht mit
+     * @throws IOException wenn Journal oder Import nicht gelesen werden können
+     */
+    @Test
+    void storesDevicesInBatches() throws IOException {
+        List<Integer> batches = new ArrayList<>();
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 1000) {
+            @Override
+            public List<String> addDevices(List<Device> batch) {
+                batches.add(batch.size());
+                return super.addDevices(batch);
+            }
+        }) {
+            ImportReport report = new DeviceImporter(repository, 2).importDevices(csv("""
+                    brand,model,category,purchaseyear,id
+                    Bosch,GSR 18V,Akku-Schrauber,2020,1
+                    Makita,HR2470,Bohrhammer,2019,2
+                    Stihl,MS 170,Kettensäge,1800,3
+                    Stihl,MS 170,Kettensäge,2021,4
+                    Hilti,TE 2,Bohrhammer,2019,5
+                    Fein,Multimaster,Multitool,2018,6
+                    """));
+            assertEquals(6, report.received());
+            assertEquals(5, report.imported());
+            assertEquals(List.of(2, 2, 1), batches);
+        }
+    }
+
+    /**
+     * Schlägt ein Block wegen einer vorhandenen ID fehl, werden seine Geräte einzeln eingefügt. Nur das Gerät
+     * mit der vorhandenen ID wird abgelehnt, die übrigen Geräte sind gespeichert und im Suchindex.
+     * @throws Exception wenn die H2-Datenbank nicht angelegt werden kann
+     */
+    @Test
+    void failedJdbcBatchFallsBackToSingleInserts() throws Exception {
+        try (H2Database database = H2Database.inMemory()) {
+            database.seed(List.of(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 2, null, null)));
+            DatabaseUtil devices = database.getDevices();
+            ImportReport report = new DeviceImporter(devices, 10).importDevices(csv("""
+                    brand,model,category,purchaseyear,id
+                    Makita,HR2470,Bohrhammer,2019,1
+                    Makita,HR2470,Bohrhammer,2019,2
+                    Makita,HR2470,Bohrhammer,2019,3
+                    """));
+            assertEquals(3, report.received());
+            assertEquals(2, report.imported());
+            assertEquals(List.of(new ImportError(3, 2, "ID existiert bereits")), report.errors());
+            assertEquals("Makita", devices.getDeviceById("1").brand());
+            assertEquals("Bosch", devices.getDeviceById("2").brand());
+            assertEquals("Makita", devices.getDeviceById("3").brand());
+            assertEquals(List.of(1, 3), devices.getMatchingDevices("HR2470", SearchCriteria.MODEL, 0, 10).stream().map(Device::id).toList());
+        }
+    }
+
+    /**
+     * Erzeugt einen Leser für einen CSV-Import
+     * @param text Der CSV-Text
+     * @return Der Leser
+     * @throws IOException wenn die Kopfzeile nicht gelesen werden kann
+     */
+    private static DeviceImportReader csv(String text) throws IOException {
+        return new DeviceImportReader(MediaType.valueOf("text/csv"), new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests des Trigramm-Index der Teilstring-Suche
+ */
+class DeviceSearchIndexTest {
+
+    /**
+     * Trifft eine früher bestätigte Änderung erst nach einer neueren ein, bleibt die neuere erhalten
+     */
+    @Test
+    void olderChangeArrivingLateIsIgnored() {
+        DeviceSearchIndex index = new DeviceSearchIndex();
+        long added = index.nextVersion();
+        long borrowed = index.nextVersion();
+        long edited = index.nextVersion();
+        long renamed = index.nextVersion();
+
+        // Die Ausleihe trifft vor dem Hinzufügen ein, das Gerät übernimmt den Ausleiher trotzdem
+        index.updateBorrower(1, "anna", Date.valueOf("2024-03-01"), borrowed);
+        index.put(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1, null, null), added);
+        assertEquals("anna", search(index, "gsr").getFirst().borrower());
+
+        // Das Bearbeiten setzt alle Attribute, auch den Ausleiher
+        index.put(new Device("Bosch", "GSR 12V", "Akku-Schrauber", 2020, 1, "ben", null), edited);
+        index.put(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1, null, null), added);
+        index.updateBorrower(1, "anna", Date.valueOf("2024-03-01"), borrowed);
+        assertEquals("GSR 12V", search(index, "gsr").getFirst().model());
+        assertEquals("ben", search(index, "gsr").getFirst().borrower());
+
+        // Nach dem Ändern der ID darf eine verspätete Änderung die alte ID nicht wiederherstellen
+        index.replace(1, new Device("Bosch", "GSR 12V", "Akku-Schrauber", 2020, 2, null, null), renamed);
+        index.put(new Device("Bosch", "GSR 12V", "Akku-Schrauber", 2020, 1, "anna", null), edited);
+        assertEquals(List.of(2), search(index, "gsr").stream().map(Device::id).toList());
+        assertNull(search(index, "gsr").getFirst().borrower());
+    }
+
+    /**
+     * Seiten beginnen hinter afterId und enthalten höchstens limit Geräte in aufsteigender ID, auch bei
+     * Suchbegriffen ohne Trigramm
+     */
+    @Test
+    void pagesStartAfterIdAndStopAtLimit() {
+        DeviceSearchIndex index = new DeviceSearchIndex();
+        for (int id = 100; id >= 1; id--) {
+            index.put(new Device("Bosch", id % 2 == 0 ? "GSR " + id : "PSB " + id, "Akku-Schrauber", 2020, id, null, null));
+        }
+        assertEquals(List.of(2, 4, 6), ids(index.search("GSR", SearchCriteria.MODEL, 0, 3)));
+        assertEquals(List.of(8, 10, 12), ids(index.search("GSR", SearchCriteria.MODEL, 6, 3)));
+        assertEquals(List.of(98, 100), ids(index.search("gsr", SearchCriteria.MODEL, 96, 3)));
+        assertEquals(List.of(51, 53), ids(index.search("ps", SearchCriteria.MODEL, 50, 2)));
+        assertEquals(List.of(10, 100), ids(index.search("sr 10", SearchCriteria.MODEL, 0, 5)));
+        assertEquals(List.of(), ids(index.search("xyz", SearchCriteria.MODEL, 0, 3)));
+    }
+
+    /**
+     * Gibt die IDs der Geräte zurück
+     * @param devices Die Geräte
+     * @return IDs in der Reihenfolge der Geräte
+     */
+    private static List<Integer> ids(List<Device> devices) {
+        return devices.stream().map(Device::id).toList();
+    }
+
+    /**
+     * Sucht alle Modelle mit dem Suchbegriff
+     * @param index Der Index
+     * @param term Der Suchbegriff
+     * @return Die gefundenen Geräte
+     */
+    private static List<Device> search(DeviceSearchIndex index, String term) {
+        return index.search(term, SearchCriteria.MODEL, 0, 100);
+    }
+}
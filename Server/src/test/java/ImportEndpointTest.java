@@ -0,0 +1,194 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests des Imports über die REST-Schnittstelle mit JSON, NDJSON und CSV sowie mit ungültigem Inhalt. Der Server
+ * läuft mit der Speicher-Engine MEMORY in einem Grizzly-Server im Testprozess.
+ */
+class ImportEndpointTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    private InMemoryRepository repository;
+    private EmbeddedServer server;
+    private URI baseURI;
+
+    /**
+     * Startet den Server ohne Geräte
+     * @throws IOException wenn Journal oder Server nicht gestartet werden können
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        repository = new InMemoryRepository(directory, 1, 1000);
+        server = new EmbeddedServer(repository, repository);
+        baseURI = server.getBaseURI();
+    }
+
+    /**
+     * Beendet Server und Speicher-Engine
+     * @throws IOException wenn das Journal nicht geschrieben werden kann
+     */
+    @AfterEach
+    void stopServer() throws IOException {
+        server.close();
+        repository.close();
+    }
+
+    /**
+     * Ein JSON-Array wird importiert, ein ungültiges Element als Fehler mit seiner Position gemeldet
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void importsJsonArray() throws Exception {
+        ImportReport report = importDevices("application/json", """
+                [{"brand":"Bosch","model":"GSR 18V","category":"Akku-Schrauber","purchaseyear":2020,"id":1},
+                 {"brand":"Makita","model":"HR2470","category":"Bohrhammer","purchaseyear":"alt","id":2},
+                 {"brand":"Stihl","model":"MS 170","category":"Kettensäge","purchaseyear":2021,"id":3,"borrower":"anna"}]
+                """);
+        assertEquals(3, report.received());
+        assertEquals(2, report.imported());
+        assertEquals(List.of(2), report.errors().stream().map(ImportError::row).toList());
+        assertEquals("Kettensäge", repository.getDeviceById("3").category());
+        assertEquals("anna", repository.getDeviceById("3").borrower());
+        assertNull(repository.getDeviceById("2"));
+    }
+
+    /**
+     * NDJSON wird zeilenweise importiert. Leere Zeilen werden übersprungen, zählen aber für die Zeilennummer.
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void importsNdjsonLineByLine() throws Exception {
+        ImportReport report = importDevices("application/x-ndjson", """
+                {"brand":"Bosch","model":"GSR 18V","category":"Akku-Schrauber","purchaseyear":2020,"id":1}
+
+                {"brand":"Makita","model":
+                {"brand":"Stihl","model":"MS 170","category":"Kettensäge","purchaseyear":2021,"id":3}
+                """);
+        assertEquals(3, report.received());
+        assertEquals(2, report.imported());
+        assertEquals(List.of(3), report.errors().stream().map(ImportError::row).toList());
+        assertEquals("Stihl", repository.getDeviceById("3").brand());
+    }
+
+    /**
+     * CSV mit vertauschten Spalten, Feldern in Anführungszeichen und optionalen Spalten. Fehlerhafte Zeilen werden
+     * mit ihrer Zeilennummer gemeldet, ohne den Import abzubrechen.
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void importsCsvAndReportsRowErrors() throws Exception {
+        ImportReport report = importDevices("text/csv", """
+                id,brand,model,category,purchaseyear,borrower,returndate
+                1,Bosch,"GSR 18V, ""Professional""\",Akku-Schrauber,2020,,
+                2,Makita,HR2470,Bohrhammer,neu,,
+                3,Stihl,MS 170,Kettensäge,2021,anna,2024-03-01
+                4,Hilti,TE 2,,2019,,
+                1,Bosch,GSR 12V,Akku-Schrauber,2022,,
+                5,Fein,Multimaster,Multitool,2018,ben,01.03.2024
+                """);
+        assertEquals(6, report.received());
+        assertEquals(2, report.imported());
+        assertEquals(List.of(3, 5, 6, 7), report.errors().stream().map(ImportError::row).toList());
+        assertEquals("GSR 18V, \"Professional\"", repository.getDeviceById("1").model());
+        assertEquals("anna", repository.getDeviceById("3").borrower());
+    }
+
+    /**
+     * Ein Import über mehrere Blöcke von ImportBatchSize Geräten übernimmt alle Geräte und meldet eine
+     * bereits vorhandene ID nur für ihre Zeile
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void importsSeveralBatches() throws Exception {
+        repository.addDevice(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1500, null, null));
+        StringBuilder csv = new StringBuilder("brand,model,category,purchaseyear,id\n");
+        for (int id = 1; id <= 2500; id++) {
+            csv.append("Makita,HR2470,Bohrhammer,2019,").append(id).append('\n');
+        }
+        ImportReport report = importDevices("text/csv", csv.toString());
+        assertEquals(2500, report.received());
+        assertEquals(2499, report.imported());
+        assertEquals(List.of(1501), report.errors().stream().map(ImportError::row).toList());
+        assertEquals("Bosch", repository.getDeviceById("1500").brand());
+        assertEquals("Makita", repository.getDeviceById("2500").brand());
+    }
+
+    /**
+     * Eine Kopfzeile mit offenem Anführungszeichen wird mit 400 abgelehnt
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void unclosedQuoteInHeaderIsBadRequest() throws Exception {
+        assertEquals(400, postImport("text/csv", "\"brand,model,category,purchaseyear,id\nBosch,GSR 18V,Akku-Schrauber,2020,1\n"));
+    }
+
+    /**
+     * Ein unbekannter Zeichensatz im Content-Type wird mit 400 abgelehnt
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    @Test
+    void unknownCharsetIsBadRequest() throws Exception {
+        assertEquals(400, postImport("text/csv; charset=keinzeichensatz", "brand,model,category,purchaseyear,id\n"));
+    }
+
+    /**
+     * Sendet einen Import an den Server und liest das Ergebnis
+     * @param contentType Content-Type der Anfrage
+     * @param body Inhalt der Anfrage
+     * @return Ergebnis des Imports
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    private ImportReport importDevices(String contentType, String body) throws Exception {
+        HttpResponse<String> response = send(contentType, body, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        return MAPPER.readValue(response.body(), ImportReport.class);
+    }
+
+    /**
+     * Sendet einen Import an den Server
+     * @param contentType Content-Type der Anfrage
+     * @param body Inhalt der Anfrage
+     * @return HTTP-Status der Antwort
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    private int postImport(String contentType, String body) throws Exception {
+        return send(contentType, body, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Sendet einen Import an den Server
+     * @param contentType Content-Type der Anfrage
+     * @param body Inhalt der Anfrage
+     * @param handler Liest den Inhalt der Antwort
+     * @return Die Antwort
+     * @param <T> Typ des Antwortinhalts
+     * @throws Exception wenn die Anfrage nicht gesendet werden kann
+     */
+    private <T> HttpResponse<T> send(String contentType, String body, HttpResponse.BodyHandler<T> handler) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest request = HttpRequest.newBuilder(baseURI.resolve("lending/import"))
+                .header("Content-Type", contentType)
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, handler);
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Speicher-Engine MEMORY
+ */
+class InMemoryRepositoryTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Bestätigte Änderungen sind sofort sichtbar und nach einem Neustart wiederhergestellt
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void confirmedChangesAreVisibleAndRecovered() throws IOException {
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 1000)) {
+            assertEquals(RegistrationResult.REGISTERED, repository.register("anna"));
+            assertTrue(repository.addDevice(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 7, null, null)));
+            assertTrue(repository.setBorrower("7", "anna"));
+            assertFalse(repository.setBorrower("7", "ben")); // Die vorgemerkte oder übernommene Ausleihe zählt
+
+            assertEquals("anna", repository.getDeviceById("7").borrower());
+            assertEquals(RegistrationResult.KNOWN, repository.register("anna"));
+        }
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 1000)) {
+            assertEquals("anna", repository.getDeviceById("7").borrower());
+            assertEquals(RegistrationResult.KNOWN, repository.register("anna"));
+        }
+    }
+
+    /**
+     * Eine Änderung der ID gibt die bisherige ID frei
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void editedIdReleasesPreviousId() throws IOException {
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 2)) { // Snapshot nach zwei Einträgen
+            assertTrue(repository.addDevice(new Device("Makita", "HR2470", "Bohrhammer", 2019, 1, null, null)));
+            assertTrue(repository.editDevice("1", new Device("Makita", "HR2470", "Bohrhammer", 2019, 2, null, null)));
+            assertNull(repository.getDeviceById("1"));
+            assertTrue(repository.addDevice(new Device("Stihl", "MS 170", "Kettensäge", 2021, 1, null, null)));
+            assertFalse(repository.addDevice(new Device("Stihl", "MS 170", "Kettensäge", 2021, 2, null, null)));
+        }
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 2)) {
+            assertEquals("Stihl", repository.getDeviceById("1").brand());
+            assertEquals("Makita", repository.getDeviceById("2").brand());
+        }
+    }
+
+    /**
+     * Eine atomare Sammelausleihe ändert alle oder keines der Geräte und wird vollständig wiederhergestellt
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void atomicBatchIsRecoveredCompletely() throws IOException {
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 1000)) {
+            assertTrue(repository.addDevice(new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1, null, null)));
+            assertTrue(repository.addDevice(new Device("Makita", "HR2470", "Bohrhammer", 2019, 2, null, null)));
+            assertTrue(repository.addDevice(new Device("Stihl", "MS 170", "Kettensäge", 2021, 3, "ben", null)));
+
+            assertEquals(List.of(), repository.setBorrowers(List.of(1, 2, 3), "anna", true));
+            assertEquals(List.of(1, 2), repository.setBorrowers(List.of(1, 2), "anna", true));
+        }
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 1000)) {
+            assertEquals("anna", repository.getDeviceById("1").borrower());
+            assertEquals("anna", repository.getDeviceById("2").borrower());
+            assertEquals("ben", repository.getDeviceById("3").borrower());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Wiederherstellung des Journals nach einem Absturz
+ */
+class JournalTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Eine unvollständige erste Zeile eines Segments darf spätere Einträge im selben Segment nicht verdecken
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void entriesAfterTornFirstLineSurviveNextRecovery() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendUser("anna").join();
+        journal.close();
+
+        // Absturz beim Schreiben des zweiten Eintrags, der ein neues Segment beginnt
+        Files.writeString(directory.resolve("journal-2.log"), "{\"sequence\":2,\"type\":\"USER\",\"prev", StandardCharsets.UTF_8);
+
+        assertEquals(List.of("anna"), recoverUsers());
+
+        journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendUser("ben").join();
+        journal.appendUser("carla").join();
+        journal.close();
+
+        assertEquals(List.of("anna", "ben", "carla"), recoverUsers());
+    }
+
+    /**
+     * Eine letzte Zeile ohne Zeilenende wurde nie bestätigt und wird verworfen, auch wenn sie lesbar ist
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void unterminatedLastLineIsDiscarded() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendUser("anna").join();
+        journal.close();
+
+        Files.writeString(directory.resolve("journal-1.log"), "{\"sequence\":2,\"type\":\"USER\",\"username\":\"ben\"}",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertEquals(List.of("anna"), recoverUsers());
+    }
+
+    /**
+     * Ein gemeinsamer Eintrag mehrerer Geräte wird nach einem Absturz ganz oder gar nicht wiederhergestellt
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void tornBatchIsDiscardedCompletely() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendDevices(List.of(
+                new Device("Bosch", "GSR 18V", "Akku-Schrauber", 2020, 1, "anna", null),
+                new Device("Makita", "HR2470", "Bohrhammer", 2019, 2, "anna", null))).join();
+        journal.close();
+
+        List<JournalEntry> entries = recoverEntries();
+        assertEquals(1, entries.size());
+        assertEquals(2, entries.getFirst().devices().size());
+
+        // Absturz, bevor der Eintrag vollständig auf der Platte war
+        Path segment = directory.resolve("journal-1.log");
+        byte[] content = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(content, content.length - 20));
+
+        assertEquals(List.of(), recoverEntries());
+    }
+
+    /**
+     * Eine unlesbare Zeile vor bestätigten Einträgen ist kein Absturz beim Schreiben und wird nicht abgeschnitten
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void corruptLineBeforeLaterEntriesFailsRecovery() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendUser("anna").join();
+        journal.appendUser("ben").join();
+        journal.close();
+
+        Path segment = directory.resolve("journal-1.log");
+        String content = Files.readString(segment, StandardCharsets.UTF_8);
+        Files.writeString(segment, content.replaceFirst("anna\"", "anna"), StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, this::recoverEntries);
+        assertEquals(content.length() - 1, Files.size(segment)); // Das Segment bleibt unverändert
+    }
+
+    /**
+     * Ein unlesbarer Eintrag am Ende eines älteren Segments wird nicht als unvollständig verworfen
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void tornTailOfEarlierSegmentFailsRecovery() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendUser("anna").join();
+        journal.rotate();
+        journal.appendUser("ben").join();
+        journal.close();
+
+        Files.writeString(directory.resolve("journal-1.log"), "{\"sequence\":2,\"type\"",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertThrows(IOException.class, this::recoverEntries);
+    }
+
+    /**
+     * Fehlt ein Eintrag zwischen zwei Segmenten, schlägt die Wiederherstellung fehl
+     * @throws IOException wenn das Journal nicht gelesen oder geschrieben werden kann
+     */
+    @Test
+    void sequenceGapFailsRecovery() throws IOException {
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entry -> { });
+        journal.appendUser("anna").join();
+        journal.rotate();
+        journal.appendUser("ben").join();
+        journal.rotate();
+        journal.appendUser("carla").join();
+        journal.close();
+
+        Files.delete(directory.resolve("journal-2.log"));
+
+        assertThrows(IOException.class, this::recoverEntries);
+    }
+
+    /**
+     * Stellt das Journal wieder her und gibt die Benutzer aller Einträge zurück
+     * @return Benutzernamen in der Reihenfolge des Journals
+     * @throws IOException wenn das Journal nicht gelesen werden kann
+     */
+    private List<String> recoverUsers() throws IOException {
+        return recoverEntries().stream().map(JournalEntry::username).toList();
+    }
+
+    /**
+     * Stellt das Journal wieder her und gibt alle Einträge zurück
+     * @return Einträge in der Reihenfolge des Journals
+     * @throws IOException wenn das Journal nicht gelesen werden kann
+     */
+    private List<JournalEntry> recoverEntries() throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        Journal journal = new Journal(directory, 1);
+        journal.recover(snapshot -> { }, entries::add);
+        journal.close();
+        return entries;
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Kennzahlen des Servers über die REST-Schnittstelle
+ */
+class MetricsTest {
+    private static final String IN_FLIGHT = "lending_http_requests_in_flight ";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Nach beantworteten, abgelehnten, fehlgeschlagenen und keinem Endpunkt zugeordneten Anfragen läuft nur noch
+     * die Abfrage der Kennzahlen selbst. Bei einer nicht behandelten Ausnahme läuft kein Antwortfilter.
+     * @throws Exception wenn Server oder Anfrage fehlschlagen
+     */
+    @Test
+    void inFlightReturnsToZeroForEveryOutcome() throws Exception {
+        try (InMemoryRepository repository = new InMemoryRepository(directory, 1, 1000) {
+            @Override
+            public List<Device> getAllDevices(int afterId, int limit) {
+                throw new IllegalStateException("Speicher-Engine nicht verfügbar");
+            }
+        };
+             EmbeddedServer server = new EmbeddedServer(repository, repository)) {
+            URI baseURI = server.getBaseURI();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            assertEquals(200, send(client, HttpRequest.newBuilder(baseURI.resolve("lending/anna"))
+                    .header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.noBody())).statusCode());
+            assertEquals(404, send(client, HttpRequest.newBuilder(baseURI.resolve("gibtesnicht"))).statusCode());
+            assertEquals(400, send(client, HttpRequest.newBuilder(baseURI.resolve("lending/import"))
+                    .header("Content-Type", "text/csv").POST(HttpRequest.BodyPublishers.ofString("brand\n"))).statusCode());
+            assertEquals(500, send(client, HttpRequest.newBuilder(baseURI.resolve("lending/getAllDevices"))).statusCode());
+            assertEquals(406, send(client, HttpRequest.newBuilder(baseURI.resolve("lending/getAllDevices"))
+                    .header("Accept", "image/png")).statusCode());
+
+            // FINISHED folgt erst nach dem Schreiben der Antwort, der Client kann also schneller sein
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            String inFlight;
+            do {
+                inFlight = inFlight(client, baseURI);
+            } while (!inFlight.equals("1") && System.nanoTime() < deadline);
+            assertEquals("1", inFlight);
+        }
+    }
+
+    /**
+     * Liest die Anzahl der laufenden Anfragen aus den Kennzahlen
+     * @param client Der HTTP-Client
+     * @param baseURI Basis-URI des Servers
+     * @return Anzahl der laufenden Anfragen als Text
+     * @throws Exception wenn die Anfrage fehlschlägt
+     */
+    private static String inFlight(HttpClient client, URI baseURI) throws Exception {
+        String body = client.send(HttpRequest.newBuilder(baseURI.resolve("metrics")).build(), HttpResponse.BodyHandlers.ofString()).body();
+        return body.lines().filter(line -> line.startsWith(IN_FLIGHT)).findFirst().orElseThrow().substring(IN_FLIGHT.length());
+    }
+
+    /**
+     * Sendet eine Anfrage und verwirft den Inhalt der Antwort
+     * @param client Der HTTP-Client
+     * @param request Die Anfrage
+     * @return Die Antwort
+     * @throws Exception wenn die Anfrage fehlschlägt
+     */
+    private static HttpResponse<Void> send(HttpClient client, HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+}
@@ -0,0 +1,54 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Zerlegung von SQL-Skripten in einzelne Befehle
+ */
+class SqlScriptTest {
+
+    /**
+     * Ein Semikolon trennt Befehle über mehrere Zeilen und in einer Zeile, der letzte Befehl braucht keines
+     */
+    @Test
+    void splitsAtSemicolons() {
+        assertEquals(List.of("CREATE TABLE a (id INT)", "INSERT INTO a VALUES (1)", "INSERT INTO a\n VALUES (2)", "SELECT 1"),
+                SqlScript.split("""
+                        CREATE TABLE a (id INT);
+                        INSERT INTO a VALUES (1); INSERT INTO a
+                         VALUES (2);;
+                        SELECT 1"""));
+        assertEquals(List.of(), SqlScript.split(" ;\n; "));
+    }
+
+    /**
+     * Semikolons, Kommentarzeichen und maskierte Anführungszeichen in Zeichenketten werden nicht ausgewertet
+     */
+    @Test
+    void keepsQuotedText() {
+        assertEquals(List.of("INSERT INTO a VALUES ('x;y', 'it''s', 'a\\'b', \"-- c\", `#d`)", "SELECT 2"),
+                SqlScript.split("INSERT INTO a VALUES ('x;y', 'it''s', 'a\\'b', \"-- c\", `#d`); SELECT 2"));
+        assertEquals(List.of("SELECT '/* kein Kommentar */'"), SqlScript.split("SELECT '/* kein Kommentar */';"));
+    }
+
+    /**
+     * Kommentare mit -- und Leerzeichen, mit # und als Block werden entfernt, auch wenn sie ein Semikolon
+     * enthalten. -- ohne folgendes Leerzeichen ist wie bei MySQL kein Kommentar.
+     */
+    @Test
+    void removesComments() {
+        assertEquals(List.of("CREATE TABLE a (id INT)", "SELECT 1--1", "SELECT 2", "SELECT   3", "SELECT 4"),
+                SqlScript.split("""
+                        -- Tabelle; wird angelegt
+                        CREATE TABLE a (id INT); # Kommentar; mit Semikolon
+                        SELECT 1--1;
+                        SELECT 2 --
+                        ;
+                        SELECT /* Block; Kommentar */ 3;
+                        SELECT 4 --\tTabulator
+                        ; --"""));
+    }
+}
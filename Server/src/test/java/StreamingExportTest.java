@@ -0,0 +1,91 @@
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Test des Streamens von getAllDevices mit einer Million Geräten. Läuft über die Gradle-Task exportTest mit
+ * einem kleinen Heap, in den die Geräte weder als Liste noch als fertige Antwort passen würden.
+ * Die Geräte liegen in einer H2-Datenbank auf der Festplatte, gelesen wird über DatabaseUtil.streamAllDevices
+ * mit der Fetch Size aus der Konfiguration, also über denselben JDBC-Pfad wie mit MySQL.
+ */
+@Tag("export")
+class StreamingExportTest {
+    private static final int ROWS = 1_000_000;
+    private static final int ROWS_PER_TRANSACTION = 100_000;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Füllt die Datenbank in mehreren Transaktionen, damit H2 die Änderungen nicht im Heap halten muss
+     * @param database Die H2-Datenbank
+     * @throws Exception wenn die Geräte nicht eingefügt werden können
+     */
+    private static void insertDevices(H2Database database) throws Exception {
+        try (Connection connection = database.getPool().getConnection();
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO devices (brand, model, category, purchaseyear, id) "
+                     + "SELECT 'Bosch', 'GSR 18V', 'Akku-Schrauber', 2015 + MOD(\"X\", 9), \"X\" FROM SYSTEM_RANGE(?, ?)")) {
+            for (int first = 1; first <= ROWS; first += ROWS_PER_TRANSACTION) {
+                insert.setInt(1, first);
+                insert.setInt(2, Math.min(ROWS, first + ROWS_PER_TRANSACTION - 1));
+                insert.executeUpdate();
+                connection.commit();
+            }
+        }
+    }
+
+    /**
+     * Streamt alle Geräte über HTTP und zählt die Geräte der Antwort, ohne sie zu sammeln
+     * @throws Exception wenn Datenbank, Server oder Anfrage fehlschlagen
+     */
+    @Test
+    void streamsOneMillionRowsWithSmallHeap() throws Exception {
+        try (H2Database database = H2Database.inDirectory(directory)) {
+            insertDevices(database);
+            try (EmbeddedServer server = new EmbeddedServer(database.getDevices(), database.getUsers())) {
+                URI baseURI = server.getBaseURI();
+                HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                HttpRequest request = HttpRequest.newBuilder(baseURI.resolve("lending/getAllDevices?stream=true"))
+                        .header("Accept", "application/json")
+                        .build();
+                HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                assertEquals(200, response.statusCode());
+
+                int rows = 0;
+                int lastId = 0;
+                try (JsonParser parser = new JsonFactory().createParser(response.body())) {
+                    assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() != JsonToken.END_OBJECT) {
+                            if ("id".equals(parser.currentName())) {
+                                parser.nextToken();
+                                lastId = parser.getIntValue();
+                            } else {
+                                parser.nextToken();
+                                parser.skipChildren();
+                            }
+                        }
+                        rows++;
+                    }
+                }
+                assertEquals(ROWS, rows);
+                assertEquals(ROWS, lastId);
+            }
+        }
+    }
+}
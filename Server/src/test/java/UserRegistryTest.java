@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Tests der Benutzerverwaltung bei JDBC auf einer H2-Datenbank im MySQL-Modus
+ */
+class UserRegistryTest {
+
+    /**
+     * Ein von einer anderen Serverinstanz angelegter Benutzer wird über den doppelten Schlüssel als bekannt erkannt
+     * @throws Exception wenn die H2-Datenbank nicht angelegt werden kann
+     */
+    @Test
+    void duplicateKeyFromOtherInstanceIsKnown() throws Exception {
+        try (H2Database database = H2Database.inMemory()) {
+            assertEquals(RegistrationResult.REGISTERED, database.getUsers().register("anna"));
+            assertEquals(RegistrationResult.KNOWN, database.getUsers().register("anna"));
+
+            UserRegistry otherInstance = new UserRegistry(database.getPool()); // Ohne warmUp, kennt anna nicht
+            assertEquals(RegistrationResult.KNOWN, otherInstance.register("anna"));
+            assertEquals(RegistrationResult.REGISTERED, otherInstance.register("ben"));
+        }
+    }
+
+    /**
+     * Zu lange und leere Benutzernamen werden abgelehnt und weder gespeichert noch gemerkt
+     * @throws Exception wenn die H2-Datenbank nicht angelegt werden kann
+     */
+    @Test
+    void invalidUsernamesAreRejected() throws Exception {
+        try (H2Database database = H2Database.inMemory()) {
+            String tooLong = "a".repeat(31);
+            assertEquals(RegistrationResult.FAILED, database.getUsers().register(tooLong));
+            assertEquals(RegistrationResult.FAILED, database.getUsers().register(tooLong));
+            assertEquals(RegistrationResult.FAILED, database.getUsers().register(""));
+            assertEquals(RegistrationResult.REGISTERED, database.getUsers().register("a".repeat(30)));
+
+            try (Connection connection = database.getPool().getConnection();
+                 PreparedStatement prep = connection.prepareStatement("SELECT COUNT(*) FROM users");
+                 ResultSet resultSet = prep.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.ResourceBundle;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse EmbeddedServer startet ServerRestEndpoints in einem Grizzly-Server im selben Prozess auf einem freien
+ * Port. Sie wird von den Tests, dem Lastgenerator und den Benchmarks gemeinsam verwendet, damit eine neue
+ * Abhängigkeit der Endpunkte nur hier ergänzt werden muss.
+ * Die Endpunkte erhalten dieselben Provider und Parameter aus Server.properties wie im Server, nur die
+ * Speicher-Engine wird übergeben. Sie gehört dem Aufrufer und wird beim Beenden nicht geschlossen.
+ */
+public class EmbeddedServer implements AutoCloseable {
+    private final CatalogVersions versions = new CatalogVersions();
+    private final ChangeFeed changes;
+    private final DeviceEventBroadcaster events;
+    private final HttpServer server;
+    private final URI baseURI;
+
+    /**
+     * Startet den Server mit den Worker-Threads von Grizzly
+     * @param devices Gerätespeicherung der Speicher-Engine
+     * @param users Benutzerverwaltung der Speicher-Engine
+     * @throws IOException wenn der Server nicht gestartet werden kann
+     */
+    public EmbeddedServer(DeviceRepository devices, UserRepository users) throws IOException {
+        this(devices, users, null, 0);
+    }
+
+    /**
+     * Startet den Server
+     * @param devices Gerätespeicherung der Speicher-Engine
+     * @param users Benutzerverwaltung der Speicher-Engine
+     * @param mode Threads, auf denen die Anfragen bearbeitet werden, oder null für die Worker-Threads von Grizzly
+     * @param workerPoolSize Anzahl der Plattform-Threads bei POOLED
+     * @throws IOException wenn der Server nicht gestartet werden kann
+     */
+    public EmbeddedServer(DeviceRepository devices, UserRepository users, ExecutionMode mode, int workerPoolSize) throws IOException {
+        ResourceBundle bundle = ResourceBundle.getBundle("Server");
+        changes = new ChangeFeed(Integer.parseInt(bundle.getString("ChangeFeedCapacity")));
+        events = new DeviceEventBroadcaster( // Ohne Clients werden keine Events gesendet
+                Integer.parseInt(bundle.getString("EventQueueCapacity")),
+                Integer.parseInt(bundle.getString("EventSubscriberCapacity")),
+                Long.parseLong(bundle.getString("EventSendTimeout")));
+
+        Metrics metrics = new Metrics();
+        ResourceConfig config = new ResourceConfig(ServerRestEndpoints.class, MetricsEndpoints.class, MetricsFilter.class, InFlightListener.class);
+        config.register(JacksonFeature.class); // In Fat-Jars fehlen die META-INF/services-Dateien, Jackson wird daher explizit registriert
+        config.register(CborProvider.class);
+        config.register(new RepresentationInterceptor(Integer.parseInt(bundle.getString("GzipThreshold"))));
+        config.register(new AbstractBinder() {
+            @Override
+            protected void configure() {
+                bind(metrics).to(Metrics.class);
+                bind(devices).to(DeviceRepository.class);
+                bind(users).to(UserRepository.class);
+                bind(versions).to(CatalogVersions.class);
+                bind(events).to(DeviceEventBroadcaster.class);
+                bind(changes).to(ChangeFeed.class);
+            }
+        });
+        baseURI = URI.create("http://localhost:" + freePort() + "/rest/");
+        server = GrizzlyHttpServerFactory.createHttpServer(baseURI, config, false);
+        if (mode != null) {
+            Server.useWorkers(server, mode, workerPoolSize);
+        }
+        server.start();
+    }
+
+    /**
+     * Getter für die Basis-URI des Servers
+     * @return Basis-URI der REST-Endpunkte mit abschließendem Schrägstrich
+     */
+    public URI getBaseURI() {
+        return baseURI;
+    }
+
+    /**
+     * Sucht einen freien Port für den Server
+     * @return Der Port
+     * @throws IOException wenn kein Port gefunden wird
+     */
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Beendet Server und DeviceEventBroadcaster
+     */
+    @Override
+    public void close() {
+        server.shutdownNow();
+        events.close();
+    }
+}
@@ -0,0 +1,173 @@
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Georg Kunze, m28909, u36363
+ * Die Klasse H2Database stellt die Speicher-Engine JDBC ohne MySQL-Server bereit. Verbindungspool, Migrationen,
+ * DatabaseUtil und UserRegistry laufen unverändert gegen eine H2-Datenbank im MySQL-Modus, entweder im
+ * Hauptspeicher oder als Datei. Die Parameter werden aus Select.properties übernommen, nur Treiber, URL und
+ * Fetch Size werden ersetzt. MySQLs benannte Sperren für den MigrationRunner bildet H2 mit zwei Funktionen nach,
+ * die immer gelingen, da nur eine Instanz migriert.
+ * MySQL macht eine Spalte beim Hinzufügen eines Primärschlüssels implizit NOT NULL, H2 lehnt V2 dagegen ab. Die
+ * Tabellen aus V1 werden deshalb vorab mit NOT NULL angelegt und vom MigrationRunner als Version 1 übernommen.
+ */
+public class H2Database implements AutoCloseable {
+    private static final AtomicInteger NAMES = new AtomicInteger(); //Eindeutige Namen der Datenbanken im Hauptspeicher
+    private static final String SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;IGNORE_UNKNOWN_SETTINGS=TRUE";
+
+    private final String url;
+    private final ConnectionPool pool;
+    private final DatabaseUtil devices;
+    private final UserRegistry users;
+
+    /**
+     * Öffnet die Datenbank und bringt das Schema mit dem MigrationRunner auf den aktuellen Stand
+     * @param url JDBC-URL der H2-Datenbank
+     * @throws SQLException wenn die Datenbank nicht geöffnet oder migriert werden kann
+     */
+    private H2Database(String url) throws SQLException {
+        this.url = url;
+        ResourceBundle bundle = bundle(url);
+        Metrics metrics = new Metrics();
+        pool = new ConnectionPool(bundle, metrics);
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE ALIAS IF NOT EXISTS GET_LOCK FOR 'H2Database.getLock'");
+            statement.execute("CREATE ALIAS IF NOT EXISTS RELEASE_LOCK FOR 'H2Database.releaseLock'");
+            statement.execute("CREATE TABLE IF NOT EXISTS devices (brand VARCHAR(50), model VARCHAR(50), category VARCHAR(50), purchaseyear INT, id INT NOT NULL, borrower VARCHAR(30), returndate DATE)");
+            statement.execute("CREATE TABLE IF NOT EXISTS users (username VARCHAR(30) NOT NULL)");
+            connection.commit();
+        }
+        if (!new MigrationRunner(pool).migrate()) {
+            pool.close();
+            throw new SQLException("Migration der H2-Datenbank fehlgeschlagen");
+        }
+        devices = new DatabaseUtil(pool, metrics, bundle);
+        users = new UserRegistry(pool);
+    }
+
+    /**
+     * Öffnet eine neue, leere Datenbank im Hauptspeicher, die mit close() gelöscht wird
+     * @return Die Datenbank
+     * @throws SQLException wenn die Datenbank nicht geöffnet werden kann
+     */
+    public static H2Database inMemory() throws SQLException {
+        return new H2Database("jdbc:h2:mem:lending" + NAMES.incrementAndGet() + ";DB_CLOSE_DELAY=-1" + SETTINGS);
+    }
+
+    /**
+     * Öffnet eine Datenbank als Datei im Verzeichnis. Abfragen werden dabei zeilenweise ausgeführt, sodass ein
+     * großes ResultSet nicht vollständig im Heap liegt.
+     * @param directory Verzeichnis der Datenbankdatei
+     * @return Die Datenbank
+     * @throws SQLException wenn die Datenbank nicht geöffnet werden kann
+     */
+    public static H2Database inDirectory(Path directory) throws SQLException {
+        return new H2Database("jdbc:h2:file:" + directory.toAbsolutePath().resolve("lending") + ";LAZY_QUERY_EXECUTION=1;CACHE_SIZE=4096" + SETTINGS);
+    }
+
+    /**
+     * Füllt die leere Datenbank wie der Server in einer Transaktion mit dem SQL-Skript und den Geräten und lädt
+     * danach Suchindex und Benutzer
+     * @param seed Die Geräte
+     * @throws SQLException wenn die Datenbank nicht befüllt werden kann
+     */
+    public void seed(List<Device> seed) throws SQLException {
+        ResourceBundle server = ResourceBundle.getBundle("Server");
+        if (!devices.initialize(server.getString("SeedScript"), seed, Integer.parseInt(server.getString("SeedBatchSize")))) {
+            throw new SQLException("Befüllen der H2-Datenbank fehlgeschlagen");
+        }
+        devices.loadSearchIndex();
+        users.warmUp();
+    }
+
+    /**
+     * Getter für den Verbindungspool, z.B. um Testdaten direkt einzufügen
+     * @return Verbindungspool
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Getter für die Gerätespeicherung
+     * @return DatabaseUtil auf dieser Datenbank
+     */
+    public DatabaseUtil getDevices() {
+        return devices;
+    }
+
+    /**
+     * Getter für die Benutzerverwaltung
+     * @return UserRegistry auf dieser Datenbank
+     */
+    public UserRegistry getUsers() {
+        return users;
+    }
+
+    /**
+     * Schließt den Verbindungspool und danach die Datenbank. Eine Datenbank im Hauptspeicher wird dabei gelöscht.
+     * SHUTDOWN läuft über eine eigene Verbindung, da der Pool seine Verbindungen beim Schließen noch zurückrollt.
+     * @throws SQLException wenn die Datenbank nicht geschlossen werden kann
+     */
+    @Override
+    public void close() throws SQLException {
+        pool.close();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+    }
+
+    /**
+     * Ersatz für GET_LOCK von MySQL
+     * @param name Name der Sperre
+     * @param timeout Wartezeit in Sekunden
+     * @return 1 für eine gesetzte Sperre
+     */
+    public static int getLock(String name, int timeout) {
+        return 1;
+    }
+
+    /**
+     * Ersatz für RELEASE_LOCK von MySQL
+     * @param name Name der Sperre
+     * @return 1 für eine freigegebene Sperre
+     */
+    public static int releaseLock(String name) {
+        return 1;
+    }
+
+    /**
+     * Übernimmt die Parameter aus Select.properties und ersetzt Treiber, URL, Zugangsdaten und Fetch Size
+     * @param url JDBC-URL der H2-Datenbank
+     * @return Die Parameter
+     */
+    private static ResourceBundle bundle(String url) {
+        ResourceBundle select = ResourceBundle.getBundle("Select");
+        Map<String, String> values = new TreeMap<>();
+        for (String key : select.keySet()) {
+            values.put(key, select.getString(key));
+        }
+        values.put("Driver", "org.h2.Driver");
+        values.put("URL", url);
+        values.put("User", "sa");
+        values.put("Password", "");
+        values.put("StreamingFetchSize", "1000"); // H2 lehnt negative Werte ab und streamt mit LAZY_QUERY_EXECUTION
+        return new ListResourceBundle() {
+            @Override
+            protected Object[][] getContents() {
+                return values.entrySet().stream().map(entry -> new Object[]{entry.getKey(), entry.getValue()}).toArray(Object[][]::new);
+            }
+        };
+    }
+}
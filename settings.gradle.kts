@@ -2,3 +2,5 @@ rootProject.name = "m28909_Hausarbeit_Prog3"
 include("Server")
 include("Client")
 include("Common")
+include("Benchmarks")
+include("LoadTest")